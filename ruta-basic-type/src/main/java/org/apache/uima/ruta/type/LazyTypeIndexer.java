@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.ruta.type;
+
+import org.apache.uima.cas.Type;
+
+/**
+ * Creates the internal indexing information of {@link RutaBasic} annotations on demand. The
+ * indexer is called before the information about a type is read from a basic.
+ */
+public interface LazyTypeIndexer {
+
+  /**
+   * Makes sure that all annotations of the given type are added to the basics.
+   * 
+   * @param type
+   *          the requested type, or null if the information about all types is requested
+   */
+  void ensureIndexed(Type type);
+
+}
@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.LowLevelTypeSystem;
 import org.apache.uima.cas.impl.TypeImpl;
 import org.apache.uima.cas.impl.TypeSystemImpl;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -50,18 +51,51 @@ public class RutaBasic extends Annotation {
 
   private boolean lowMemoryProfile = false;
 
-  private int[] partOf = new int[((TypeSystemImpl) getCAS().getTypeSystem()).getLargestTypeCode()];
+  private boolean sparseProfile = false;
 
-  private Collection<?>[] beginMap = new ArrayList<?>[((TypeSystemImpl) getCAS().getTypeSystem())
-          .getLargestTypeCode()];
+  // dense storage indexed by type code, allocated on first use
+  private int[] partOf;
 
-  private Collection<?>[] endMap = new ArrayList<?>[((TypeSystemImpl) getCAS().getTypeSystem())
-          .getLargestTypeCode()];
+  private Collection<?>[] beginMap;
+
+  private Collection<?>[] endMap;
+
+  // sparse storage for exact type codes, used in the sparse profile
+  private SparseTypeCodeCounter sparsePartOf;
+
+  private SparseTypeCodeMap sparseBeginMap;
+
+  private SparseTypeCodeMap sparseEndMap;
+
+  private TypeSubsumptionIndex subsumption;
+
+  private LazyTypeIndexer lazyIndexer;
 
   private boolean empty = true;
 
+  // annotations begin or end here, but are not yet added by the lazy indexer
+  private boolean unindexedBegin = false;
+
+  private boolean unindexedEnd = false;
+
   public boolean isEmpty() {
-    return empty;
+    return empty && !unindexedBegin && !unindexedEnd;
+  }
+
+  /**
+   * Records that an annotation begins at this basic, which is added later by the lazy indexer. The
+   * basic is not empty, although the information about the annotation is not yet available.
+   */
+  public void addUnindexedBegin() {
+    unindexedBegin = true;
+  }
+
+  /**
+   * Records that an annotation ends at this basic, which is added later by the lazy indexer. The
+   * basic is not empty, although the information about the annotation is not yet available.
+   */
+  public void addUnindexedEnd() {
+    unindexedEnd = true;
   }
 
   public boolean isLowMemoryProfile() {
@@ -72,24 +106,95 @@ public class RutaBasic extends Annotation {
     this.lowMemoryProfile = lowMemoryProfile;
   }
 
+  public boolean isSparseProfile() {
+    return sparseProfile;
+  }
+
+  /**
+   * Switches between the dense, type code indexed arrays and the compact sparse maps. In the sparse
+   * profile, only the exact type of an annotation is stored and lookups for super types are
+   * resolved with the {@link TypeSubsumptionIndex} of the type system. Already stored information
+   * is converted.
+   * 
+   * @param sparseProfile
+   *          true, if the sparse maps should be used
+   */
+  public void setSparseProfile(boolean sparseProfile) {
+    if (this.sparseProfile == sparseProfile) {
+      return;
+    }
+    if (sparseProfile) {
+      convertToSparse();
+    } else {
+      convertToDense();
+    }
+  }
+
+  public LazyTypeIndexer getLazyIndexer() {
+    return lazyIndexer;
+  }
+
+  /**
+   * Sets the indexer that is notified before information about a type is read, so that the
+   * information can be added on demand. Splits of this basic inherit the indexer.
+   * 
+   * @param lazyIndexer
+   *          the indexer, or null if all information is already added
+   */
+  public void setLazyIndexer(LazyTypeIndexer lazyIndexer) {
+    this.lazyIndexer = lazyIndexer;
+  }
+
+  private void demand(Type type) {
+    if (lazyIndexer != null) {
+      lazyIndexer.ensureIndexed(type);
+    }
+  }
+
   public void addPartOf(Type type) {
+    addPartOf(type, 1);
+  }
+
+  /**
+   * Records that this basic is part of the given number of additional annotations of the type.
+   * 
+   * @param type
+   *          the type of the annotations
+   * @param count
+   *          the number of annotations
+   */
+  public void addPartOf(Type type, int count) {
     int code = ((TypeImpl) type).getCode();
-    addPartOf(code);
+    if (sparseProfile) {
+      getSparsePartOf().increment(code, count);
+    } else {
+      addPartOf(code, count);
+    }
   }
 
-  private void addPartOf(int code) {
-    partOf[code] = partOf[code] + 1;
+  private void addPartOf(int code, int count) {
+    if (partOf == null) {
+      partOf = new int[getLargestTypeCode()];
+    }
+    int[] dense = partOf;
+    dense[code] = dense[code] + count;
     if (!lowMemoryProfile) {
       int parentCode = getCAS().getTypeSystem().getLowLevelTypeSystem().ll_getParentType(code);
       if (parentCode > 0) {
-        addPartOf(parentCode);
+        addPartOf(parentCode, count);
       }
     }
   }
 
   public void removePartOf(Type type) {
     int code = ((TypeImpl) type).getCode();
-    removePartOf(code);
+    if (sparseProfile) {
+      if (sparsePartOf != null) {
+        sparsePartOf.decrement(code);
+      }
+    } else if (partOf != null) {
+      removePartOf(code);
+    }
   }
 
   private void removePartOf(int code) {
@@ -105,7 +210,23 @@ public class RutaBasic extends Annotation {
   }
 
   public boolean isPartOf(Type type) {
+    demand(type);
     int code = ((TypeImpl) type).getCode();
+    if (sparseProfile) {
+      if (sparsePartOf == null) {
+        return false;
+      }
+      TypeSubsumptionIndex index = getSubsumption();
+      for (int i = 0; i < sparsePartOf.size(); i++) {
+        if (index.subsumes(code, sparsePartOf.codeAt(i))) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (partOf == null) {
+      return false;
+    }
     int count = partOf[code];
     if (count > 0) {
       return true;
@@ -128,20 +249,32 @@ public class RutaBasic extends Annotation {
   public void setPartOf(int[] partOf) {
     this.partOf = partOf;
   }
-  
+
   public int[] getPartOf() {
+    demand(null);
+    if (partOf == null) {
+      partOf = new int[getLargestTypeCode()];
+    }
     return partOf;
   }
-  
+
   @SuppressWarnings("unchecked")
   public Collection<AnnotationFS> getBeginAnchors(Type type) {
+    demand(type);
+    if (sparseProfile) {
+      return getSparseAnchors(sparseBeginMap, type);
+    }
     int code = ((TypeImpl) type).getCode();
-    Collection<AnnotationFS> set = (Collection<AnnotationFS>) beginMap[code];
+    Collection<AnnotationFS> set = beginMap == null ? null
+            : (Collection<AnnotationFS>) beginMap[code];
     if (lowMemoryProfile) {
       Collection<AnnotationFS> result = new ArrayList<AnnotationFS>();
       if (set != null) {
         result.addAll(set);
       }
+      if (beginMap == null) {
+        return result;
+      }
       List<Type> subsumedTypes = getCAS().getTypeSystem().getProperlySubsumedTypes(type);
       for (Type each : subsumedTypes) {
         int parentCode = ((TypeImpl) each).getCode();
@@ -162,13 +295,21 @@ public class RutaBasic extends Annotation {
 
   @SuppressWarnings("unchecked")
   public Collection<AnnotationFS> getEndAnchors(Type type) {
+    demand(type);
+    if (sparseProfile) {
+      return getSparseAnchors(sparseEndMap, type);
+    }
     int code = ((TypeImpl) type).getCode();
-    Collection<AnnotationFS> set = (Collection<AnnotationFS>) endMap[code];
+    Collection<AnnotationFS> set = endMap == null ? null
+            : (Collection<AnnotationFS>) endMap[code];
     if (lowMemoryProfile) {
       Collection<AnnotationFS> result = new ArrayList<AnnotationFS>();
       if (set != null) {
         result.addAll(set);
       }
+      if (endMap == null) {
+        return result;
+      }
       List<Type> subsumedTypes = getCAS().getTypeSystem().getProperlySubsumedTypes(type);
       for (Type each : subsumedTypes) {
         int parentCode = ((TypeImpl) each).getCode();
@@ -187,7 +328,52 @@ public class RutaBasic extends Annotation {
     }
   }
 
+  private Collection<AnnotationFS> getSparseAnchors(SparseTypeCodeMap map, Type type) {
+    if (map == null) {
+      return Collections.emptySet();
+    }
+    int code = ((TypeImpl) type).getCode();
+    TypeSubsumptionIndex index = getSubsumption();
+    if (index.isLeaf(code)) {
+      List<AnnotationFS> list = map.get(code);
+      if (list == null) {
+        return Collections.emptySet();
+      }
+      return list;
+    }
+    // only copy if annotations of several subsumed types are stored
+    List<AnnotationFS> single = null;
+    List<AnnotationFS> result = null;
+    for (int i = 0; i < map.size(); i++) {
+      if (index.subsumes(code, map.codeAt(i))) {
+        List<AnnotationFS> each = map.valueAt(i);
+        if (single == null) {
+          single = each;
+        } else {
+          if (result == null) {
+            result = new ArrayList<AnnotationFS>(single);
+          }
+          result.addAll(each);
+        }
+      }
+    }
+    if (result != null) {
+      return result;
+    }
+    if (single != null) {
+      return single;
+    }
+    return Collections.emptySet();
+  }
+
   public boolean beginsWith(Type type) {
+    demand(type);
+    if (sparseProfile) {
+      return containsSparse(sparseBeginMap, type);
+    }
+    if (beginMap == null) {
+      return false;
+    }
     int code = ((TypeImpl) type).getCode();
     Collection<?> set = beginMap[code];
     boolean beginsWith = set != null && !set.isEmpty();
@@ -206,6 +392,13 @@ public class RutaBasic extends Annotation {
   }
 
   public boolean endsWith(Type type) {
+    demand(type);
+    if (sparseProfile) {
+      return containsSparse(sparseEndMap, type);
+    }
+    if (endMap == null) {
+      return false;
+    }
     int code = ((TypeImpl) type).getCode();
     Collection<?> set = endMap[code];
     boolean endswith = set != null && !set.isEmpty();
@@ -223,10 +416,34 @@ public class RutaBasic extends Annotation {
     return false;
   }
 
+  private boolean containsSparse(SparseTypeCodeMap map, Type type) {
+    if (map == null) {
+      return false;
+    }
+    int code = ((TypeImpl) type).getCode();
+    TypeSubsumptionIndex index = getSubsumption();
+    for (int i = 0; i < map.size(); i++) {
+      if (index.subsumes(code, map.codeAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @SuppressWarnings("unchecked")
   public void addBegin(AnnotationFS annotation, Type type) {
     empty = false;
     int code = ((TypeImpl) type).getCode();
+    if (sparseProfile) {
+      if (sparseBeginMap == null) {
+        sparseBeginMap = new SparseTypeCodeMap();
+      }
+      sparseBeginMap.add(code, annotation);
+      return;
+    }
+    if (beginMap == null) {
+      beginMap = new ArrayList<?>[getLargestTypeCode()];
+    }
     Collection<Object> set = (Collection<Object>) beginMap[code];
     if (set == null) {
       set = new ArrayList<Object>(INITIAL_CAPACITY);
@@ -247,6 +464,16 @@ public class RutaBasic extends Annotation {
   public void addEnd(AnnotationFS annotation, Type type) {
     empty = false;
     int code = ((TypeImpl) type).getCode();
+    if (sparseProfile) {
+      if (sparseEndMap == null) {
+        sparseEndMap = new SparseTypeCodeMap();
+      }
+      sparseEndMap.add(code, annotation);
+      return;
+    }
+    if (endMap == null) {
+      endMap = new ArrayList<?>[getLargestTypeCode()];
+    }
     Collection<Object> set = (Collection<Object>) endMap[code];
     if (set == null) {
       set = new ArrayList<Object>(INITIAL_CAPACITY);
@@ -266,6 +493,15 @@ public class RutaBasic extends Annotation {
   @SuppressWarnings("unchecked")
   public void removeBegin(AnnotationFS annotation, Type type) {
     int code = ((TypeImpl) type).getCode();
+    if (sparseProfile) {
+      if (sparseBeginMap != null) {
+        sparseBeginMap.remove(code, annotation);
+      }
+      return;
+    }
+    if (beginMap == null) {
+      return;
+    }
     Collection<Object> set = (Collection<Object>) beginMap[code];
     if (set != null) {
       set.remove(annotation);
@@ -285,6 +521,15 @@ public class RutaBasic extends Annotation {
   @SuppressWarnings("unchecked")
   public void removeEnd(AnnotationFS annotation, Type type) {
     int code = ((TypeImpl) type).getCode();
+    if (sparseProfile) {
+      if (sparseEndMap != null) {
+        sparseEndMap.remove(code, annotation);
+      }
+      return;
+    }
+    if (endMap == null) {
+      return;
+    }
     Collection<Object> set = (Collection<Object>) endMap[code];
     if (set != null) {
       set.remove(annotation);
@@ -301,11 +546,37 @@ public class RutaBasic extends Annotation {
     }
   }
 
+  /**
+   * Returns the begin anchors indexed by type code. In the sparse profile, a dense copy containing
+   * only the exact types of the annotations is created.
+   * 
+   * @return array of collections of annotations indexed by type code
+   */
   public Collection<?>[] getBeginMap() {
+    demand(null);
+    if (sparseProfile) {
+      return toDenseMap(sparseBeginMap);
+    }
+    if (beginMap == null) {
+      beginMap = new ArrayList<?>[getLargestTypeCode()];
+    }
     return beginMap;
   }
 
+  /**
+   * Returns the end anchors indexed by type code. In the sparse profile, a dense copy containing
+   * only the exact types of the annotations is created.
+   * 
+   * @return array of collections of annotations indexed by type code
+   */
   public Collection<?>[] getEndMap() {
+    demand(null);
+    if (sparseProfile) {
+      return toDenseMap(sparseEndMap);
+    }
+    if (endMap == null) {
+      endMap = new ArrayList<?>[getLargestTypeCode()];
+    }
     return endMap;
   }
 
@@ -330,20 +601,170 @@ public class RutaBasic extends Annotation {
   }
 
   public void clearBeginMap() {
-    this.beginMap = new ArrayList<?>[((TypeSystemImpl) getCAS().getTypeSystem())
-            .getLargestTypeCode()];
+    this.beginMap = null;
+    this.sparseBeginMap = null;
   }
 
   public void clearEndMap() {
-    this.endMap = new ArrayList<?>[((TypeSystemImpl) getCAS().getTypeSystem()).getLargestTypeCode()];
-    for (Collection<?> each : beginMap) {
-      if (each != null && !each.isEmpty()) {
+    this.endMap = null;
+    this.sparseEndMap = null;
+    if (sparseProfile) {
+      if (sparseBeginMap != null && !sparseBeginMap.isEmpty()) {
         return;
       }
+    } else if (beginMap != null) {
+      for (Collection<?> each : beginMap) {
+        if (each != null && !each.isEmpty()) {
+          return;
+        }
+      }
     }
     this.empty = true;
   }
 
+  /**
+   * Moves the end anchors of this basic to the given basic and copies the part-of information. This
+   * is used when this basic is split and the given basic covers the remaining text at its end.
+   * 
+   * @param tail
+   *          the new basic that starts where this basic now ends
+   */
+  public void splitTo(RutaBasic tail) {
+    tail.setLowMemoryProfile(lowMemoryProfile);
+    tail.setSparseProfile(sparseProfile);
+    tail.setLazyIndexer(lazyIndexer);
+    tail.unindexedEnd = unindexedEnd;
+    unindexedEnd = false;
+    if (sparseProfile) {
+      tail.sparseEndMap = sparseEndMap;
+      tail.sparsePartOf = sparsePartOf == null ? null : sparsePartOf.copy();
+      tail.empty = sparseEndMap == null || sparseEndMap.isEmpty();
+    } else {
+      if (endMap != null) {
+        tail.setEndMap(endMap.clone());
+      }
+      if (partOf != null) {
+        tail.setPartOf(partOf.clone());
+      }
+    }
+    clearEndMap();
+  }
+
+  private void convertToSparse() {
+    SparseTypeCodeCounter newPartOf = null;
+    if (partOf != null) {
+      int[] exact = partOf.clone();
+      if (!lowMemoryProfile) {
+        // counts were propagated to the parent types
+        LowLevelTypeSystem llts = getCAS().getTypeSystem().getLowLevelTypeSystem();
+        for (int code = 0; code < partOf.length; code++) {
+          if (partOf[code] > 0) {
+            int parentCode = llts.ll_getParentType(code);
+            if (parentCode > 0) {
+              exact[parentCode] -= partOf[code];
+            }
+          }
+        }
+      }
+      for (int code = 0; code < exact.length; code++) {
+        if (exact[code] > 0) {
+          if (newPartOf == null) {
+            newPartOf = new SparseTypeCodeCounter();
+          }
+          newPartOf.increment(code, exact[code]);
+        }
+      }
+    }
+    sparsePartOf = newPartOf;
+    sparseBeginMap = toSparseMap(beginMap);
+    sparseEndMap = toSparseMap(endMap);
+    partOf = null;
+    beginMap = null;
+    endMap = null;
+    sparseProfile = true;
+  }
+
+  private SparseTypeCodeMap toSparseMap(Collection<?>[] denseMap) {
+    if (denseMap == null) {
+      return null;
+    }
+    SparseTypeCodeMap result = null;
+    for (int code = 0; code < denseMap.length; code++) {
+      Collection<?> each = denseMap[code];
+      if (each == null) {
+        continue;
+      }
+      for (Object object : each) {
+        AnnotationFS annotation = (AnnotationFS) object;
+        // only keep the entry of the exact type, skip propagated entries of parent types
+        if (((TypeImpl) annotation.getType()).getCode() == code) {
+          if (result == null) {
+            result = new SparseTypeCodeMap();
+          }
+          result.add(code, annotation);
+        }
+      }
+    }
+    return result;
+  }
+
+  private void convertToDense() {
+    SparseTypeCodeCounter oldPartOf = sparsePartOf;
+    SparseTypeCodeMap oldBeginMap = sparseBeginMap;
+    SparseTypeCodeMap oldEndMap = sparseEndMap;
+    sparsePartOf = null;
+    sparseBeginMap = null;
+    sparseEndMap = null;
+    sparseProfile = false;
+    if (oldPartOf != null) {
+      for (int i = 0; i < oldPartOf.size(); i++) {
+        addPartOf(oldPartOf.codeAt(i), oldPartOf.countAt(i));
+      }
+    }
+    if (oldBeginMap != null) {
+      for (int i = 0; i < oldBeginMap.size(); i++) {
+        for (AnnotationFS each : oldBeginMap.valueAt(i)) {
+          addBegin(each, each.getType());
+        }
+      }
+    }
+    if (oldEndMap != null) {
+      for (int i = 0; i < oldEndMap.size(); i++) {
+        for (AnnotationFS each : oldEndMap.valueAt(i)) {
+          addEnd(each, each.getType());
+        }
+      }
+    }
+  }
+
+  private Collection<?>[] toDenseMap(SparseTypeCodeMap sparseMap) {
+    Collection<?>[] result = new ArrayList<?>[getLargestTypeCode()];
+    if (sparseMap != null) {
+      for (int i = 0; i < sparseMap.size(); i++) {
+        result[sparseMap.codeAt(i)] = sparseMap.valueAt(i);
+      }
+    }
+    return result;
+  }
+
+  private SparseTypeCodeCounter getSparsePartOf() {
+    if (sparsePartOf == null) {
+      sparsePartOf = new SparseTypeCodeCounter();
+    }
+    return sparsePartOf;
+  }
+
+  private TypeSubsumptionIndex getSubsumption() {
+    if (subsumption == null) {
+      subsumption = TypeSubsumptionIndex.getInstance(getCAS().getTypeSystem());
+    }
+    return subsumption;
+  }
+
+  private int getLargestTypeCode() {
+    return ((TypeSystemImpl) getCAS().getTypeSystem()).getLargestTypeCode();
+  }
+
   /**
    * @generated
    * @ordered
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.ruta.type;
+
+import java.util.Arrays;
+
+/**
+ * Compact counter of type codes stored in two parallel primitive arrays sorted by type code. Codes
+ * with a count of zero are removed immediately.
+ */
+final class SparseTypeCodeCounter {
+
+  private static final int INITIAL_CAPACITY = 2;
+
+  private int[] codes;
+
+  private int[] counts;
+
+  private int size;
+
+  SparseTypeCodeCounter() {
+    codes = new int[INITIAL_CAPACITY];
+    counts = new int[INITIAL_CAPACITY];
+  }
+
+  private SparseTypeCodeCounter(int[] codes, int[] counts, int size) {
+    this.codes = codes;
+    this.counts = counts;
+    this.size = size;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int codeAt(int index) {
+    return codes[index];
+  }
+
+  int countAt(int index) {
+    return counts[index];
+  }
+
+  int get(int code) {
+    int index = Arrays.binarySearch(codes, 0, size, code);
+    return index < 0 ? 0 : counts[index];
+  }
+
+  void increment(int code, int delta) {
+    int index = Arrays.binarySearch(codes, 0, size, code);
+    if (index >= 0) {
+      counts[index] += delta;
+      return;
+    }
+    index = -index - 1;
+    if (size == codes.length) {
+      codes = Arrays.copyOf(codes, size * 2);
+      counts = Arrays.copyOf(counts, size * 2);
+    }
+    System.arraycopy(codes, index, codes, index + 1, size - index);
+    System.arraycopy(counts, index, counts, index + 1, size - index);
+    codes[index] = code;
+    counts[index] = delta;
+    size++;
+  }
+
+  void decrement(int code) {
+    int index = Arrays.binarySearch(codes, 0, size, code);
+    if (index < 0) {
+      return;
+    }
+    counts[index]--;
+    if (counts[index] <= 0) {
+      System.arraycopy(codes, index + 1, codes, index, size - index - 1);
+      System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+      size--;
+    }
+  }
+
+  SparseTypeCodeCounter copy() {
+    return new SparseTypeCodeCounter(codes.clone(), counts.clone(), size);
+  }
+
+}
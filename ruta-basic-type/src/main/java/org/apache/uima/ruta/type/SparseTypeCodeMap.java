@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.ruta.type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * Compact map from type codes to the annotations of exactly this type, stored in two parallel
+ * arrays sorted by type code. Empty lists are removed immediately.
+ */
+final class SparseTypeCodeMap {
+
+  private static final int INITIAL_CAPACITY = 2;
+
+  private int[] codes;
+
+  private Object[] values;
+
+  private int size;
+
+  SparseTypeCodeMap() {
+    codes = new int[INITIAL_CAPACITY];
+    values = new Object[INITIAL_CAPACITY];
+  }
+
+  private SparseTypeCodeMap(int[] codes, Object[] values, int size) {
+    this.codes = codes;
+    this.values = values;
+    this.size = size;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int codeAt(int index) {
+    return codes[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  List<AnnotationFS> valueAt(int index) {
+    return (List<AnnotationFS>) values[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  List<AnnotationFS> get(int code) {
+    int index = Arrays.binarySearch(codes, 0, size, code);
+    return index < 0 ? null : (List<AnnotationFS>) values[index];
+  }
+
+  void add(int code, AnnotationFS annotation) {
+    int index = Arrays.binarySearch(codes, 0, size, code);
+    if (index < 0) {
+      index = -index - 1;
+      if (size == codes.length) {
+        codes = Arrays.copyOf(codes, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      System.arraycopy(codes, index, codes, index + 1, size - index);
+      System.arraycopy(values, index, values, index + 1, size - index);
+      codes[index] = code;
+      values[index] = new ArrayList<AnnotationFS>(INITIAL_CAPACITY);
+      size++;
+    }
+    valueAt(index).add(annotation);
+  }
+
+  void remove(int code, AnnotationFS annotation) {
+    int index = Arrays.binarySearch(codes, 0, size, code);
+    if (index < 0) {
+      return;
+    }
+    List<AnnotationFS> list = valueAt(index);
+    list.remove(annotation);
+    if (list.isEmpty()) {
+      System.arraycopy(codes, index + 1, codes, index, size - index - 1);
+      System.arraycopy(values, index + 1, values, index, size - index - 1);
+      size--;
+      values[size] = null;
+    }
+  }
+
+  SparseTypeCodeMap copy() {
+    Object[] copiedValues = new Object[values.length];
+    for (int i = 0; i < size; i++) {
+      copiedValues[i] = new ArrayList<AnnotationFS>(valueAt(i));
+    }
+    return new SparseTypeCodeMap(codes.clone(), copiedValues, size);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.uima.ruta.type;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.LowLevelTypeSystem;
+import org.apache.uima.cas.impl.TypeSystemImpl;
+
+/**
+ * Precomputed subsumption relation of a type system, indexed by type code. For each type with
+ * subtypes, a bitset of the codes of all its proper subtypes is stored. Leaf types only subsume
+ * themselves and do not allocate a bitset. One instance is shared by all {@link RutaBasic}
+ * annotations of CASes with the same type system.
+ */
+public final class TypeSubsumptionIndex {
+
+  private static final Map<TypeSystem, TypeSubsumptionIndex> INSTANCES = new WeakHashMap<TypeSystem, TypeSubsumptionIndex>();
+
+  private static volatile TypeSubsumptionIndex lastInstance;
+
+  private final WeakReference<TypeSystem> typeSystem;
+
+  private final long[][] subsumed;
+
+  private TypeSubsumptionIndex(TypeSystem typeSystem) {
+    this.typeSystem = new WeakReference<TypeSystem>(typeSystem);
+    LowLevelTypeSystem llts = typeSystem.getLowLevelTypeSystem();
+    int size = ((TypeSystemImpl) typeSystem).getLargestTypeCode() + 1;
+    int words = (size + 63) >>> 6;
+    subsumed = new long[size][];
+    for (int code = 1; code < size; code++) {
+      if (!llts.ll_isValidTypeCode(code)) {
+        continue;
+      }
+      int parent = llts.ll_getParentType(code);
+      while (parent > 0) {
+        long[] row = subsumed[parent];
+        if (row == null) {
+          row = new long[words];
+          subsumed[parent] = row;
+        }
+        row[code >>> 6] |= 1L << code;
+        parent = llts.ll_getParentType(parent);
+      }
+    }
+  }
+
+  /**
+   * Returns the shared index for the given type system and creates it if necessary.
+   *
+   * @param typeSystem
+   *          the committed type system
+   * @return the subsumption index of the type system
+   */
+  public static TypeSubsumptionIndex getInstance(TypeSystem typeSystem) {
+    TypeSubsumptionIndex last = lastInstance;
+    if (last != null && last.typeSystem.get() == typeSystem) {
+      return last;
+    }
+    synchronized (INSTANCES) {
+      TypeSubsumptionIndex index = INSTANCES.get(typeSystem);
+      if (index == null) {
+        index = new TypeSubsumptionIndex(typeSystem);
+        INSTANCES.put(typeSystem, index);
+      }
+      lastInstance = index;
+      return index;
+    }
+  }
+
+  /**
+   * @param superCode
+   *          code of the potential super type
+   * @param subCode
+   *          code of the potential sub type
+   * @return true if the type with code superCode is equal to or subsumes the type with code
+   *         subCode
+   */
+  public boolean subsumes(int superCode, int subCode) {
+    if (superCode == subCode) {
+      return true;
+    }
+    if (superCode >= subsumed.length) {
+      return false;
+    }
+    long[] row = subsumed[superCode];
+    return row != null && (row[subCode >>> 6] & (1L << subCode)) != 0;
+  }
+
+  /**
+   * @param code
+   *          the type code
+   * @return true if the type has no subtypes
+   */
+  public boolean isLeaf(int code) {
+    return code >= subsumed.length || subsumed[code] == null;
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.action;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.uima.ruta.block.RutaBlock;
+import org.apache.uima.ruta.resource.CSVTable;
+import org.apache.uima.ruta.resource.RutaTable;
+import org.apache.uima.ruta.resource.RutaWordList;
+
+/**
+ * A table that consists of the rows of a loaded table followed by the rows of a delta, which were
+ * added afterwards.
+ */
+final class LayeredTable implements RutaTable {
+
+  private final CSVTable base;
+
+  private final CSVTable delta;
+
+  private final Map<Integer, RutaWordList> wordLists = new ConcurrentHashMap<Integer, RutaWordList>(
+          2);
+
+  LayeredTable(CSVTable base, CSVTable delta) {
+    super();
+    this.base = base;
+    this.delta = delta;
+  }
+
+  @Override
+  public RutaWordList getWordList(int index, RutaBlock parent) {
+    RutaWordList result = wordLists.get(index);
+    if (result == null) {
+      RutaWordList baseList = base.getWordList(index, parent);
+      RutaWordList deltaList = delta.getWordList(index, parent);
+      if (baseList == null) {
+        result = deltaList;
+      } else if (deltaList == null) {
+        result = baseList;
+      } else {
+        result = new LayeredWordList(baseList, deltaList);
+      }
+      if (result != null) {
+        wordLists.put(index, result);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String getEntry(int row, int column) {
+    int baseRows = base.getRowCount();
+    if (row < baseRows) {
+      return base.getEntry(row, column);
+    }
+    return delta.getEntry(row - baseRows, column);
+  }
+
+  @Override
+  public List<String> getRowWhere(int column, String value, boolean ignoreCase) {
+    List<String> result = base.getRowWhere(column, value, ignoreCase);
+    if (result.isEmpty()) {
+      result = delta.getRowWhere(column, value, ignoreCase);
+    }
+    return result;
+  }
+
+}
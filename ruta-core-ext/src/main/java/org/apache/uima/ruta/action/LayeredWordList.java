@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.action;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.RutaStream;
+import org.apache.uima.ruta.resource.RutaWordList;
+
+/**
+ * A word list that contains the words of a loaded word list and of a delta, which was added
+ * afterwards. Both lists are searched separately, and the longest match at each position is
+ * returned.
+ */
+final class LayeredWordList implements RutaWordList {
+
+  private final RutaWordList base;
+
+  private final RutaWordList delta;
+
+  LayeredWordList(RutaWordList base, RutaWordList delta) {
+    super();
+    this.base = base;
+    this.delta = delta;
+  }
+
+  @Override
+  public boolean contains(String string, boolean ignoreCase, int size, char[] ignoreChars,
+          int maxIgnoreChars, boolean ignoreWS) {
+    return base.contains(string, ignoreCase, size, ignoreChars, maxIgnoreChars, ignoreWS)
+            || delta.contains(string, ignoreCase, size, ignoreChars, maxIgnoreChars, ignoreWS);
+  }
+
+  @Override
+  public boolean containsFragment(String string, boolean ignoreCase, int size,
+          char[] ignoreChars, int maxIgnoreChars, boolean ignoreWS) {
+    return base.containsFragment(string, ignoreCase, size, ignoreChars, maxIgnoreChars, ignoreWS)
+            || delta.containsFragment(string, ignoreCase, size, ignoreChars, maxIgnoreChars,
+                    ignoreWS);
+  }
+
+  @Override
+  public Collection<String> contains(String string, boolean ignoreCase, int ignoreLength,
+          boolean edit, double distance, String ignoreToken) {
+    return join(base.contains(string, ignoreCase, ignoreLength, edit, distance, ignoreToken),
+            delta.contains(string, ignoreCase, ignoreLength, edit, distance, ignoreToken));
+  }
+
+  @Override
+  public Collection<String> containsFragment(String string, boolean ignoreCase,
+          int ignoreLength, boolean edit, double distance, String ignoreToken) {
+    return join(
+            base.containsFragment(string, ignoreCase, ignoreLength, edit, distance, ignoreToken),
+            delta.containsFragment(string, ignoreCase, ignoreLength, edit, distance, ignoreToken));
+  }
+
+  @Override
+  public Collection<AnnotationFS> find(RutaStream stream, boolean ignoreCase, int size,
+          char[] ignoreToken, int maxIgnoredTokens, boolean ingoreWS) {
+    Map<Integer, AnnotationFS> longest = new TreeMap<Integer, AnnotationFS>();
+    for (RutaWordList each : new RutaWordList[] { base, delta }) {
+      for (AnnotationFS match : each.find(stream, ignoreCase, size, ignoreToken,
+              maxIgnoredTokens, ingoreWS)) {
+        AnnotationFS previous = longest.get(match.getBegin());
+        if (previous == null || previous.getEnd() < match.getEnd()) {
+          longest.put(match.getBegin(), match);
+        }
+      }
+    }
+    return new ArrayList<AnnotationFS>(longest.values());
+  }
+
+  @Override
+  public Collection<AnnotationFS> find(RutaStream stream, Map<String, Object> typeMap,
+          boolean ignoreCase, int ignoreLength, boolean edit, double distance,
+          String ignoreToken) {
+    return join(base.find(stream, typeMap, ignoreCase, ignoreLength, edit, distance, ignoreToken),
+            delta.find(stream, typeMap, ignoreCase, ignoreLength, edit, distance, ignoreToken));
+  }
+
+  private static <E> Collection<E> join(Collection<E> first, Collection<E> second) {
+    if (first == null) {
+      return second;
+    } else if (second == null) {
+      return first;
+    }
+    List<E> result = new ArrayList<E>(first);
+    result.addAll(second);
+    return result;
+  }
+
+}
@@ -21,9 +21,9 @@ package org.apache.uima.ruta.action;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,6 +39,7 @@ import org.apache.uima.ruta.expression.string.IStringExpression;
 import org.apache.uima.ruta.expression.string.IStringListExpression;
 import org.apache.uima.ruta.expression.type.ITypeExpression;
 import org.apache.uima.ruta.resource.RutaResourceLoader;
+import org.apache.uima.ruta.resource.RutaWordList;
 import org.apache.uima.ruta.resource.TreeWordList;
 import org.apache.uima.ruta.rule.MatchContext;
 import org.apache.uima.ruta.rule.RuleElement;
@@ -49,7 +50,8 @@ import org.springframework.core.io.ResourceLoader;
 
 public class MarkFastReloadAction extends AbstractMarkAction {
 
-    private static ConcurrentHashMap<String, TwlCacheEntry> twlCache = new ConcurrentHashMap<String, TwlCacheEntry>();
+    private static final ReloadableResourceCache<RutaWordList> CACHE = new ReloadableResourceCache<RutaWordList>(
+            "word list");
 
     private IStringExpression listName;
 
@@ -61,16 +63,6 @@ public class MarkFastReloadAction extends AbstractMarkAction {
 
     private IBooleanExpression ignoreWS;
 
-    private class TwlCacheEntry {
-        private TreeWordList twl;
-        private long lastModified;
-
-        public TwlCacheEntry(TreeWordList twl, long lastModified) {
-            this.lastModified = lastModified;
-            this.twl = twl;
-        }
-    }
-
     public MarkFastReloadAction(ITypeExpression type, IStringExpression listName, IBooleanExpression ignore, INumberExpression ignoreLength, IBooleanExpression ignoreWS) {
         super(type);
         this.listName = listName;
@@ -82,7 +74,7 @@ public class MarkFastReloadAction extends AbstractMarkAction {
     @Override
     public void execute(MatchContext context, RutaStream stream, InferenceCrowd crowd) {
       
-        TreeWordList wl = null;
+        RutaWordList wl = null;
 
         RuleMatch match = context.getRuleMatch();
         RuleElement element = context.getElement();
@@ -98,42 +90,39 @@ public class MarkFastReloadAction extends AbstractMarkAction {
                 Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, "Unable to obtain file from resource: " + listNameValue, e1);
             }
 
-            TwlCacheEntry cacheEntry = twlCache.get(listNameValue);
-            if (cacheEntry == null || cacheEntry != null && resourceFile.lastModified() > cacheEntry.lastModified) {
-                Logger.getLogger(this.getClass().getName()).info("Creating Tree Word List from resource: " + listNameValue);
-
-                UimaContext uimaContext = element.getParent().getContext();
-                Boolean dictRemoveWS = false;
-                if (uimaContext != null) {
-                    dictRemoveWS = (Boolean) uimaContext.getConfigParameterValue(RutaEngine.PARAM_DICT_REMOVE_WS);
-                    if (dictRemoveWS == null) {
-                        dictRemoveWS = false;
-                    }
+            UimaContext uimaContext = element.getParent().getContext();
+            Boolean dictRemoveWS = false;
+            if (uimaContext != null) {
+                dictRemoveWS = (Boolean) uimaContext.getConfigParameterValue(RutaEngine.PARAM_DICT_REMOVE_WS);
+                if (dictRemoveWS == null) {
+                    dictRemoveWS = false;
                 }
-
-                try {
-                    wl = new TreeWordList(resource, dictRemoveWS);
-                } catch (IOException e) {
-                    Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, "Unable to create TWL: " + listNameValue, e);
-                }
-
-                twlCache.put(listNameValue, new TwlCacheEntry(wl, resourceFile.lastModified()));
-            } else {
-                wl = cacheEntry.twl;
             }
+            final boolean removeWS = dictRemoveWS;
+            wl = CACHE.get(listNameValue, resource, resourceFile, new ReloadableResourceCache.Loader<RutaWordList>() {
+                @Override
+                public RutaWordList load(Resource resource) throws IOException {
+                    return new TreeWordList(resource, removeWS);
+                }
 
+                @Override
+                public RutaWordList patch(RutaWordList base, InputStream delta) throws IOException {
+                    return new LayeredWordList(base, new TreeWordList(delta, "delta.txt", removeWS));
+                }
+            });
         } else {
             Logger.getLogger(this.getClass().getName()).severe("Can't find resource: " + listNameValue);
         }
+        if (wl == null) {
+            return;
+        }
 
         List<AnnotationFS> matchedAnnotationsOf = match.getMatchedAnnotationsOfElement(element);
         for (AnnotationFS annotationFS : matchedAnnotationsOf) {
             RutaStream windowStream = stream.getWindowStream(annotationFS, annotationFS.getType());
             Collection<AnnotationFS> found = wl.find(windowStream, this.getIgnore().getBooleanValue(context, stream),
                     this.getIgnoreLength().getIntegerValue(context, stream), null, 0, this.getIgnoreWS().getBooleanValue(context, stream));
-            for (AnnotationFS annotation : found) {
-                createAnnotation(annotation, context, windowStream);
-            }
+            createAnnotations(found, context, windowStream);
         }
     }
 
@@ -157,5 +146,12 @@ public class MarkFastReloadAction extends AbstractMarkAction {
         return ignoreWS;
     }
 
+    /**
+     * @return the cache of the word lists, which provides the statistics of the reloads
+     */
+    public static ReloadableResourceCache<RutaWordList> getCache() {
+        return CACHE;
+    }
+
     
 }
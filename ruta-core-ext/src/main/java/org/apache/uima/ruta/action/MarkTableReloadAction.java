@@ -21,11 +21,12 @@ package org.apache.uima.ruta.action;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,7 +56,8 @@ import org.springframework.core.io.ResourceLoader;
 
 public class MarkTableReloadAction extends AbstractRutaAction {
 
-    private static ConcurrentHashMap<String, TableCacheEntry> tableCache = new ConcurrentHashMap<String, TableCacheEntry>();
+    private static final ReloadableResourceCache<RutaTable> CACHE = new ReloadableResourceCache<RutaTable>(
+            "table");
 
     private final ITypeExpression typeExpr;
 
@@ -75,16 +77,6 @@ public class MarkTableReloadAction extends AbstractRutaAction {
     
     private IBooleanExpression ignoreWS = new SimpleBooleanExpression(true);
     
-    private class TableCacheEntry {
-        private RutaTable table;
-        private long lastModified;
-
-        public TableCacheEntry(RutaTable table, long lastModified) {
-            this.lastModified = lastModified;
-            this.table = table;
-        }
-    }
-
     public MarkTableReloadAction(ITypeExpression typeExpr, INumberExpression indexExpr,
             IStringExpression tableName, Map<IStringExpression, INumberExpression> featureMap,
             IBooleanExpression ignoreCase, INumberExpression ignoreLength,
@@ -124,24 +116,24 @@ public class MarkTableReloadAction extends AbstractRutaAction {
                 Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, "Unable to obtain file from resource: " + tableNameValue, e1);
             }
 
-            TableCacheEntry cacheEntry = tableCache.get(tableNameValue);
-            if (cacheEntry == null || cacheEntry != null && resourceFile.lastModified() > cacheEntry.lastModified) {
-                Logger.getLogger(this.getClass().getName()).info("Creating Table Word List from resource: " + tableNameValue);
-
-                try {
-                    table = new CSVTable(resource, CSVTable.DEFAULT_CSV_SEPARATOR);
-                } catch (IOException e) {
-                    Logger.getLogger(this.getClass().getName()).log(Level.SEVERE, "Unable to load CSV file: " + tableNameValue, e);
+            table = CACHE.get(tableNameValue, resource, resourceFile, new ReloadableResourceCache.Loader<RutaTable>() {
+                @Override
+                public RutaTable load(Resource resource) throws IOException {
+                    return new CSVTable(resource, CSVTable.DEFAULT_CSV_SEPARATOR);
                 }
 
-                tableCache.put(tableNameValue, new TableCacheEntry(table, resourceFile.lastModified()));
-            } else {
-                table = cacheEntry.table;
-            }
-
+                @Override
+                public RutaTable patch(RutaTable base, InputStream delta) throws IOException {
+                    CSVTable rows = new CSVTable(delta, CSVTable.DEFAULT_CSV_SEPARATOR);
+                    return new LayeredTable((CSVTable) base, rows);
+                }
+            });
         } else {
             Logger.getLogger(this.getClass().getName()).severe("Can't find resource: " + tableNameValue);
         }
+        if (table == null) {
+            return;
+        }
         
         
         // The original code from the RUTA action
@@ -163,6 +155,7 @@ public class MarkTableReloadAction extends AbstractRutaAction {
         RutaWordList wordList = table.getWordList(index, context.getParent());
         Collection<AnnotationFS> found = wordList.find(stream, ignoreCaseValue, ignoreLengthValue,
                 ignoreCharValue.toCharArray(), maxIgnoreCharValue, ignoreWSValue);
+        List<AnnotationFS> created = new ArrayList<AnnotationFS>(found.size());
         for (AnnotationFS annotationFS : found) {
           // HOTFIX: for feature assignment
           String candidate = stream.getVisibleCoveredText(annotationFS);
@@ -181,7 +174,7 @@ public class MarkTableReloadAction extends AbstractRutaAction {
             Annotation a = (Annotation) newFS;
             a.setBegin(annotationFS.getBegin());
             a.setEnd(annotationFS.getEnd());
-            stream.addAnnotation(a, context.getRuleMatch());
+            created.add(a);
           }
           TOP newStructure = null;
           if (newFS instanceof TOP) {
@@ -190,6 +183,7 @@ public class MarkTableReloadAction extends AbstractRutaAction {
             newStructure.addToIndexes();
           }
         }
+        stream.addAnnotations(created, false, context.getRuleMatch());
     }
     
     private void fillFeatures(TOP structure, Map<String, Integer> map, AnnotationFS annotationFS,
@@ -266,5 +260,12 @@ public class MarkTableReloadAction extends AbstractRutaAction {
         return maxIgnoreChar;
       }
 
+      /**
+       * @return the cache of the tables, which provides the statistics of the reloads
+       */
+      public static ReloadableResourceCache<RutaTable> getCache() {
+        return CACHE;
+      }
+
       
 }
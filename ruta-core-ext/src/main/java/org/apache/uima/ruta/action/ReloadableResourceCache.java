@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.action;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Cache of the resources of the reloading actions. A resource is loaded when it is requested for
+ * the first time. Afterwards, modifications of its file are detected when it is requested, and the
+ * resource is loaded again by a background thread, while the processing continues with the
+ * previous version. The new version replaces the previous one atomically when it is complete.
+ * <p>
+ * Additions can be provided in an append-only delta file next to the resource, named like the
+ * resource with the additional ending <code>.delta</code>, e.g., <code>names.txt.delta</code>. If
+ * only the delta file changed, then the delta is loaded and applied to the loaded resource instead
+ * of loading the complete resource again.
+ * </p>
+ *
+ * @param <T>
+ *          the type of the resources
+ */
+public final class ReloadableResourceCache<T> {
+
+  /** The ending of delta files. */
+  public static final String DELTA_FILE_ENDING = ".delta";
+
+  /**
+   * Loads the resources of a cache.
+   *
+   * @param <T>
+   *          the type of the resources
+   */
+  interface Loader<T> {
+
+    T load(Resource resource) throws IOException;
+
+    /**
+     * Returns the resource extended by the delta. The given resource must not be modified.
+     */
+    T patch(T base, InputStream delta) throws IOException;
+  }
+
+  private final String kind;
+
+  private final ConcurrentHashMap<String, Holder<T>> holders = new ConcurrentHashMap<String, Holder<T>>(
+          2);
+
+  private final ExecutorService executor;
+
+  private final AtomicLong loads = new AtomicLong();
+
+  private final AtomicLong patches = new AtomicLong();
+
+  private final AtomicLong swaps = new AtomicLong();
+
+  private final AtomicLong failures = new AtomicLong();
+
+  private final AtomicLong totalReloadMillis = new AtomicLong();
+
+  private volatile long lastReloadMillis = -1;
+
+  ReloadableResourceCache(final String kind) {
+    super();
+    this.kind = kind;
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "Ruta " + kind + " reloader");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Returns the current version of the resource. The resource is loaded if it is requested for the
+   * first time. Otherwise, a reload is started in the background if the file or the delta file was
+   * modified.
+   *
+   * @param name
+   *          the name of the resource
+   * @param resource
+   *          the resource
+   * @param file
+   *          the file of the resource, or null if it cannot be reloaded
+   * @param loader
+   *          the loader of the resource
+   * @return the current version of the resource, or null if it could not be loaded
+   */
+  T get(final String name, final Resource resource, final File file, final Loader<T> loader) {
+    Holder<T> holder = holders.get(name);
+    if (holder == null) {
+      synchronized (this) {
+        holder = holders.get(name);
+        if (holder == null) {
+          holder = new Holder<T>();
+          holder.snapshot = loadSafely(name, resource, file, loader, null);
+          holders.put(name, holder);
+          return holder.snapshot.value;
+        }
+      }
+    }
+    if (file != null && holder.snapshot.isOutdated(file)
+            && holder.reloading.compareAndSet(false, true)) {
+      final Holder<T> outdated = holder;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            outdated.snapshot = loadSafely(name, resource, file, loader, outdated.snapshot);
+            swaps.incrementAndGet();
+          } finally {
+            outdated.reloading.set(false);
+          }
+        }
+      });
+    }
+    return holder.snapshot.value;
+  }
+
+  private Snapshot<T> loadSafely(String name, Resource resource, File file, Loader<T> loader,
+          Snapshot<T> previous) {
+    // the version is determined before reading, so that later modifications are not missed
+    long lastModified = file == null ? 0 : file.lastModified();
+    long deltaLength = getDeltaLength(file);
+    long start = System.currentTimeMillis();
+    try {
+      T base;
+      if (previous == null || previous.base == null || previous.lastModified != lastModified) {
+        Logger.getLogger(getClass().getName()).info("Loading " + kind + " from resource: " + name);
+        base = loader.load(resource);
+        loads.incrementAndGet();
+      } else {
+        base = previous.base;
+      }
+      T value = base;
+      if (deltaLength > 0) {
+        Logger.getLogger(getClass().getName()).info("Applying delta to " + kind + ": " + name);
+        InputStream delta = new FileInputStream(getDeltaFile(file));
+        try {
+          value = loader.patch(base, delta);
+        } finally {
+          delta.close();
+        }
+        patches.incrementAndGet();
+      }
+      return new Snapshot<T>(base, value, lastModified, deltaLength);
+    } catch (IOException e) {
+      return failed(name, previous, lastModified, deltaLength, e);
+    } catch (RuntimeException e) {
+      return failed(name, previous, lastModified, deltaLength, e);
+    } finally {
+      lastReloadMillis = System.currentTimeMillis() - start;
+      totalReloadMillis.addAndGet(lastReloadMillis);
+    }
+  }
+
+  private Snapshot<T> failed(String name, Snapshot<T> previous, long lastModified,
+          long deltaLength, Exception e) {
+    failures.incrementAndGet();
+    Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+            "Unable to load " + kind + ": " + name, e);
+    // keep the previous version until the files are modified again
+    if (previous == null) {
+      return new Snapshot<T>(null, null, lastModified, deltaLength);
+    }
+    return new Snapshot<T>(previous.base, previous.value, lastModified, deltaLength);
+  }
+
+  private static File getDeltaFile(File file) {
+    return new File(file.getParentFile(), file.getName() + DELTA_FILE_ENDING);
+  }
+
+  private static long getDeltaLength(File file) {
+    if (file == null) {
+      return 0;
+    }
+    File delta = getDeltaFile(file);
+    return delta.isFile() ? delta.length() : 0;
+  }
+
+  /**
+   * Waits until the reloads started so far are complete.
+   *
+   * @throws InterruptedException
+   *           when the current thread is interrupted while waiting
+   */
+  public void awaitReloads() throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    });
+    latch.await();
+  }
+
+  /**
+   * @return the number of complete loads of a resource
+   */
+  public long getLoadCount() {
+    return loads.get();
+  }
+
+  /**
+   * @return the number of loaded delta files
+   */
+  public long getPatchCount() {
+    return patches.get();
+  }
+
+  /**
+   * @return the number of new versions that replaced a previous version after a reload in the
+   *         background
+   */
+  public long getSwapCount() {
+    return swaps.get();
+  }
+
+  /**
+   * @return the number of loads that failed
+   */
+  public long getFailureCount() {
+    return failures.get();
+  }
+
+  /**
+   * @return the duration of the last load in milliseconds, or -1 if nothing was loaded yet
+   */
+  public long getLastReloadMillis() {
+    return lastReloadMillis;
+  }
+
+  /**
+   * @return the summed duration of all loads in milliseconds
+   */
+  public long getTotalReloadMillis() {
+    return totalReloadMillis.get();
+  }
+
+  private static final class Holder<T> {
+
+    private volatile Snapshot<T> snapshot;
+
+    private final AtomicBoolean reloading = new AtomicBoolean();
+  }
+
+  private static final class Snapshot<T> {
+
+    private final T base;
+
+    private final T value;
+
+    private final long lastModified;
+
+    private final long deltaLength;
+
+    private Snapshot(T base, T value, long lastModified, long deltaLength) {
+      this.base = base;
+      this.value = value;
+      this.lastModified = lastModified;
+      this.deltaLength = deltaLength;
+    }
+
+    private boolean isOutdated(File file) {
+      return file.lastModified() != lastModified || getDeltaLength(file) != deltaLength;
+    }
+  }
+
+}
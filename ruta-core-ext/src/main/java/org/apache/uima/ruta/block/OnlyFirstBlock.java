@@ -49,6 +49,7 @@ public class OnlyFirstBlock extends RutaBlock {
     BlockApply result = new BlockApply(this);
     crowd.beginVisit(this, result);
     RuleApply apply = rule.apply(stream, crowd, true);
+    RutaStream window = null;
     for (AbstractRuleMatch<? extends AbstractRule> eachMatch : apply.getList()) {
       if (eachMatch.matched()) {
         List<AnnotationFS> matchedAnnotations = ((RuleMatch) eachMatch).getMatchedAnnotations(null,
@@ -63,7 +64,7 @@ public class OnlyFirstBlock extends RutaBlock {
         boolean stop = false;
         Type type = ((RutaRuleElement) rule.getRuleElements().get(0)).getMatcher()
                 .getType(getParent() == null ? this : getParent(), stream);
-          RutaStream window = stream.getWindowStream(each, type);
+          window = stream.getWindowStream(each, type, window);
           for (RutaStatement element : getElements()) {
             if (stop)
               break;
@@ -51,6 +51,7 @@ public class FSTBlock extends RutaBlock {
     BlockApply result = new BlockApply(this);
     crowd.beginVisit(this, result);
     RuleApply apply = rule.apply(stream, crowd, true);
+    RutaStream window = null;
     for (AbstractRuleMatch<? extends AbstractRule> eachMatch : apply.getList()) {
       if (eachMatch.matched()) {
         List<AnnotationFS> matchedAnnotations = ((RuleMatch) eachMatch).getMatchedAnnotations(null,
@@ -64,7 +65,7 @@ public class FSTBlock extends RutaBlock {
         }
         Type type = ((RutaRuleElement) rule.getRuleElements().get(0)).getMatcher()
                 .getType(getParent() == null ? this : getParent(), stream);
-        RutaStream window = stream.getWindowStream(each, type);
+        window = stream.getWindowStream(each, type, window);
         auto.apply(window, crowd, this);
       }
     }
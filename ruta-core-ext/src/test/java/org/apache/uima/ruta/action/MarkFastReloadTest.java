@@ -19,16 +19,26 @@
 
 package org.apache.uima.ruta.action;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
 import org.apache.uima.ruta.engine.RutaEngine;
 import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class MarkFastReloadTest  {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void test() {
     String name = this.getClass().getSimpleName();
@@ -54,5 +64,53 @@ public class MarkFastReloadTest  {
     cas.release();
   }
 
+  @Test
+  public void testReloadInBackground() throws Exception {
+    File file = folder.newFile("reloaded.txt");
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter"));
+    ReloadableResourceCache<?> cache = MarkFastReloadAction.getCache();
+    long patches = cache.getPatchCount();
+    long loads = cache.getLoadCount();
+
+    String document = "Peter, Marshall and Joern";
+    assertMatches(document, "Peter");
+    Assert.assertEquals(loads + 1, cache.getLoadCount());
+
+    File delta = new File(folder.getRoot(),
+            "reloaded.txt" + ReloadableResourceCache.DELTA_FILE_ENDING);
+    FileUtils.writeLines(delta, "UTF-8", Arrays.asList("Marshall"));
+    apply(document);
+    cache.awaitReloads();
+    assertMatches(document, "Peter", "Marshall");
+    Assert.assertEquals(loads + 1, cache.getLoadCount());
+    Assert.assertEquals(patches + 1, cache.getPatchCount());
+
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Joern"));
+    file.setLastModified(file.lastModified() + 2000);
+    apply(document);
+    cache.awaitReloads();
+    assertMatches(document, "Marshall", "Joern");
+    Assert.assertEquals(loads + 2, cache.getLoadCount());
+    Assert.assertTrue(cache.getSwapCount() >= 2);
+    Assert.assertTrue(cache.getLastReloadMillis() >= 0);
+  }
+
+  private void assertMatches(String document, String... expected) throws Exception {
+    CAS cas = apply(document);
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, expected.length, expected);
+    cas.release();
+  }
+
+  private CAS apply(String document) throws Exception {
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put(RutaEngine.PARAM_ADDITIONAL_EXTENSIONS,
+            new String[] { MarkReloadExtension.class.getName() });
+    parameters.put(RutaEngine.PARAM_RESOURCE_PATHS,
+            new String[] { folder.getRoot().getAbsolutePath() });
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, "MARKFASTRELOAD(T1, \"reloaded.txt\", false, 0, true);", parameters);
+    return cas;
+  }
+
     
 }
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.action;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.ruta.resource.CSVTable;
+import org.apache.uima.ruta.resource.RutaTable;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+public class ReloadableResourceCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final ReloadableResourceCache.Loader<RutaTable> loader = new TableLoader();
+
+  @Test
+  public void testTableWithDelta() throws Exception {
+    ReloadableResourceCache<RutaTable> cache = new ReloadableResourceCache<RutaTable>("table");
+    File file = folder.newFile("names.csv");
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter;Ruta", "Marshall;UIMA"));
+    Resource resource = new FileSystemResource(file);
+
+    RutaTable table = cache.get("names.csv", resource, file, loader);
+    Assert.assertEquals(Arrays.asList("Peter", "Ruta"), table.getRowWhere(0, "Peter", false));
+    Assert.assertSame(table, cache.get("names.csv", resource, file, loader));
+
+    File delta = new File(folder.getRoot(),
+            "names.csv" + ReloadableResourceCache.DELTA_FILE_ENDING);
+    FileUtils.writeLines(delta, "UTF-8", Arrays.asList("Joern;OpenNLP", "Peter;Other"));
+    // the previous version is used until the reload is complete
+    cache.get("names.csv", resource, file, loader);
+    cache.awaitReloads();
+    RutaTable patched = cache.get("names.csv", resource, file, loader);
+    Assert.assertEquals(Arrays.asList("Joern", "OpenNLP"),
+            patched.getRowWhere(0, "Joern", false));
+    Assert.assertEquals(Arrays.asList("Peter", "Ruta"), patched.getRowWhere(0, "Peter", false));
+    Assert.assertEquals("OpenNLP", patched.getEntry(2, 1));
+    Assert.assertEquals(1, cache.getLoadCount());
+    Assert.assertEquals(1, cache.getPatchCount());
+    Assert.assertEquals(1, cache.getSwapCount());
+
+    Assert.assertTrue(delta.delete());
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter;Ruta", "Marshall"));
+    file.setLastModified(file.lastModified() + 2000);
+    cache.get("names.csv", resource, file, loader);
+    cache.awaitReloads();
+    RutaTable reloaded = cache.get("names.csv", resource, file, loader);
+    Assert.assertTrue(reloaded.getRowWhere(0, "Joern", false).isEmpty());
+    Assert.assertEquals(Arrays.asList("Marshall"), reloaded.getRowWhere(0, "Marshall", false));
+    Assert.assertEquals(2, cache.getLoadCount());
+    Assert.assertEquals(0, cache.getFailureCount());
+  }
+
+  @Test
+  public void testFailedReloadKeepsPreviousVersion() throws Exception {
+    ReloadableResourceCache<RutaTable> cache = new ReloadableResourceCache<RutaTable>("table");
+    File file = folder.newFile("names.bcsv");
+    new CSVTable(new FileSystemResource(folder.newFile("source.csv")),
+            CSVTable.DEFAULT_CSV_SEPARATOR).createBinaryFile(file.getAbsolutePath());
+    Resource resource = new FileSystemResource(file);
+    RutaTable table = cache.get("names.bcsv", resource, file, loader);
+    Assert.assertNotNull(table);
+
+    FileUtils.writeStringToFile(file, "invalid", "UTF-8");
+    file.setLastModified(file.lastModified() + 2000);
+    cache.get("names.bcsv", resource, file, loader);
+    cache.awaitReloads();
+    Assert.assertSame(table, cache.get("names.bcsv", resource, file, loader));
+    Assert.assertEquals(1, cache.getFailureCount());
+    cache.awaitReloads();
+    Assert.assertEquals(1, cache.getFailureCount());
+  }
+
+  private static class TableLoader implements ReloadableResourceCache.Loader<RutaTable> {
+
+    @Override
+    public RutaTable load(Resource resource) throws IOException {
+      return new CSVTable(resource, CSVTable.DEFAULT_CSV_SEPARATOR);
+    }
+
+    @Override
+    public RutaTable patch(RutaTable base, InputStream delta) throws IOException {
+      return new LayeredTable((CSVTable) base,
+              new CSVTable(delta, CSVTable.DEFAULT_CSV_SEPARATOR));
+    }
+  }
+
+}
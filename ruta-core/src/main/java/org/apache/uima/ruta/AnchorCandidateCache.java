@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * Candidates for the anchors of rules in the window of a stream. The visible annotations are
+ * grouped by their type and the visible basics by their covered text, so that consecutive rules
+ * starting with the same type or literal share the candidates instead of scanning the window
+ * again. All candidates are dropped when the annotations or the visibility of the basics change.
+ */
+final class AnchorCandidateCache {
+
+  private final RutaStream stream;
+
+  private final AnchorIndex anchors;
+
+  private final Map<Type, TypeCandidates> typeCandidates = new HashMap<Type, TypeCandidates>();
+
+  private Map<String, List<RutaBasic>> literalCandidates;
+
+  private long modificationCount = -1;
+
+  AnchorCandidateCache(RutaStream stream, AnchorIndex anchors) {
+    super();
+    this.stream = stream;
+    this.anchors = anchors;
+  }
+
+  List<AnnotationFS> getAnnotations(Type type) {
+    validate();
+    // annotations can also be added to the CAS without the stream, e.g., by external engines
+    int indexSize = stream.getCas().getAnnotationIndex(type).size();
+    TypeCandidates candidates = typeCandidates.get(type);
+    if (candidates == null || candidates.indexSize != indexSize) {
+      List<AnnotationFS> annotations = new ArrayList<AnnotationFS>();
+      AnnotationCursor cursor = stream.getAnnotationCursor(type);
+      while (cursor.isValid()) {
+        annotations.add(cursor.get());
+        cursor.moveToNext();
+      }
+      candidates = new TypeCandidates(Collections.unmodifiableList(annotations), indexSize);
+      typeCandidates.put(type, candidates);
+    }
+    return candidates.annotations;
+  }
+
+  List<RutaBasic> getBasics(String coveredText) {
+    validate();
+    if (literalCandidates == null) {
+      literalCandidates = new HashMap<String, List<RutaBasic>>();
+      List<RutaBasic> basics = stream.getBasicsInWindow(stream.getDocumentAnnotation());
+      for (RutaBasic each : basics) {
+        String text = each.getCoveredText();
+        List<RutaBasic> list = literalCandidates.get(text);
+        if (list == null) {
+          list = new ArrayList<RutaBasic>(1);
+          literalCandidates.put(text, list);
+        }
+        list.add(each);
+      }
+    }
+    List<RutaBasic> result = literalCandidates.get(coveredText);
+    if (result == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private void validate() {
+    long count = anchors.getModificationCount();
+    if (count != modificationCount) {
+      typeCandidates.clear();
+      literalCandidates = null;
+      modificationCount = count;
+    }
+  }
+
+  private static class TypeCandidates {
+
+    private final List<AnnotationFS> annotations;
+
+    private final int indexSize;
+
+    private TypeCandidates(List<AnnotationFS> annotations, int indexSize) {
+      super();
+      this.annotations = annotations;
+      this.indexSize = indexSize;
+    }
+  }
+
+}
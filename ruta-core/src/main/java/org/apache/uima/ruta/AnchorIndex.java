@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * Index of the {@link RutaBasic} annotations by their begin and end offsets. The basics are stored
+ * in two arrays with one slot for each character offset of the document, so that the anchor at a
+ * given offset is found without boxing or tree traversal. Neighboring basics are found by scanning
+ * the slots, which normally stops after the length of a single basic. Since basics are only split
+ * after their creation, a split updates only the slots at the new and the old end offset.
+ */
+public final class AnchorIndex {
+
+  private RutaBasic[] beginAnchors;
+
+  private RutaBasic[] endAnchors;
+
+  private int minBegin = Integer.MAX_VALUE;
+
+  private int maxEnd = -1;
+
+  private int size = 0;
+
+  private long modificationCount = 0;
+
+  public AnchorIndex(int documentLength) {
+    super();
+    beginAnchors = new RutaBasic[documentLength + 1];
+    endAnchors = new RutaBasic[documentLength + 1];
+  }
+
+  public void add(RutaBasic basic) {
+    int begin = basic.getBegin();
+    int end = basic.getEnd();
+    ensureCapacity(end);
+    if (beginAnchors[begin] == null) {
+      size++;
+    }
+    beginAnchors[begin] = basic;
+    endAnchors[end] = basic;
+    minBegin = Math.min(minBegin, begin);
+    maxEnd = Math.max(maxEnd, end);
+    modificationCount++;
+  }
+
+  /**
+   * Updates the index after a basic was split. The given basic already ends at the begin of the
+   * new basic, which covers the remaining part.
+   *
+   * @param split
+   *          the basic that was shortened
+   * @param tail
+   *          the new basic starting at the end of the shortened basic
+   */
+  public void split(RutaBasic split, RutaBasic tail) {
+    ensureCapacity(tail.getEnd());
+    endAnchors[split.getEnd()] = split;
+    beginAnchors[tail.getBegin()] = tail;
+    endAnchors[tail.getEnd()] = tail;
+    size++;
+    maxEnd = Math.max(maxEnd, tail.getEnd());
+    modificationCount++;
+  }
+
+  /**
+   * Records a modification of the information stored in the indexed basics, e.g., an added
+   * annotation or a changed visibility. Information derived from the basics can be reused as long
+   * as the modification count is unchanged.
+   */
+  public void modified() {
+    modificationCount++;
+  }
+
+  public long getModificationCount() {
+    return modificationCount;
+  }
+
+  public RutaBasic getBeginAnchor(int begin) {
+    if (begin < 0 || begin >= beginAnchors.length) {
+      return null;
+    }
+    return beginAnchors[begin];
+  }
+
+  public RutaBasic getEndAnchor(int end) {
+    if (end < 0 || end >= endAnchors.length) {
+      return null;
+    }
+    return endAnchors[end];
+  }
+
+  /**
+   * @param offset
+   *          the offset
+   * @return the basic with the greatest begin less than or equal to the offset, or null
+   */
+  public RutaBasic floorBegin(int offset) {
+    for (int i = Math.min(offset, Math.min(maxEnd, beginAnchors.length - 1)); i >= minBegin; i--) {
+      if (beginAnchors[i] != null) {
+        return beginAnchors[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param offset
+   *          the offset
+   * @return the basic with the least begin greater than or equal to the offset, or null
+   */
+  public RutaBasic ceilingBegin(int offset) {
+    for (int i = Math.max(offset, minBegin); i <= maxEnd; i++) {
+      if (beginAnchors[i] != null) {
+        return beginAnchors[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param basic
+   *          a basic contained in this index
+   * @return the following basic, or null
+   */
+  public RutaBasic next(RutaBasic basic) {
+    int end = basic.getEnd();
+    if (end > basic.getBegin() && end < beginAnchors.length && beginAnchors[end] != null) {
+      return beginAnchors[end];
+    }
+    return ceilingBegin(Math.max(end, basic.getBegin() + 1));
+  }
+
+  /**
+   * @param basic
+   *          a basic contained in this index
+   * @return the preceding basic, or null
+   */
+  public RutaBasic previous(RutaBasic basic) {
+    int begin = basic.getBegin();
+    if (begin < basic.getEnd() && endAnchors[begin] != null) {
+      return endAnchors[begin];
+    }
+    for (int i = Math.min(begin, basic.getEnd() - 1); i >= 0; i--) {
+      if (endAnchors[i] != null) {
+        return endAnchors[i];
+      }
+    }
+    return null;
+  }
+
+  public RutaBasic getFirst() {
+    if (size == 0) {
+      return null;
+    }
+    return beginAnchors[minBegin];
+  }
+
+  public RutaBasic getLast() {
+    if (size == 0) {
+      return null;
+    }
+    return endAnchors[maxEnd];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a view of the basics that begin within the given offsets. The view reflects later
+   * splits of the basics.
+   *
+   * @param begin
+   *          the begin offset (inclusive)
+   * @param end
+   *          the end offset (exclusive)
+   * @return the basics starting within the offsets
+   */
+  public Collection<RutaBasic> getBasics(final int begin, final int end) {
+    if (size == 0 || begin >= end) {
+      return Collections.emptySet();
+    }
+    return new AbstractCollection<RutaBasic>() {
+
+      @Override
+      public Iterator<RutaBasic> iterator() {
+        return new Iterator<RutaBasic>() {
+
+          private RutaBasic next = ceilingBegin(begin);
+
+          @Override
+          public boolean hasNext() {
+            return next != null && next.getBegin() < end;
+          }
+
+          @Override
+          public RutaBasic next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            RutaBasic result = next;
+            next = AnchorIndex.this.next(result);
+            return result;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        int count = 0;
+        Iterator<RutaBasic> iterator = iterator();
+        while (iterator.hasNext()) {
+          iterator.next();
+          count++;
+        }
+        return count;
+      }
+    };
+  }
+
+  private void ensureCapacity(int offset) {
+    if (offset >= beginAnchors.length) {
+      int newLength = Math.max(offset + 1, beginAnchors.length * 2);
+      beginAnchors = Arrays.copyOf(beginAnchors, newLength);
+      endAnchors = Arrays.copyOf(endAnchors, newLength);
+    }
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.NoSuchElementException;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * Cursor over the annotations of a type within the given offsets, in the order of the annotation
+ * index. The cursor is positioned directly in the index of the type, so that no list of the
+ * annotations and no temporary annotation for a subiterator is created. Cursors are created by
+ * {@link RutaStream#getAnnotationCursor(org.apache.uima.cas.Type)} for the visible annotations in
+ * the window of a stream and by
+ * {@link RutaStream#getAnnotationCursor(org.apache.uima.cas.Type, AnnotationFS)} for the
+ * annotations covered by a window annotation.
+ * <p>
+ * The cursor must not be used anymore after annotations of the type have been added to or removed
+ * from the CAS.
+ * </p>
+ */
+public final class AnnotationCursor {
+
+  private final FSIterator<AnnotationFS> iterator;
+
+  private final int end;
+
+  private final RutaStream visibility;
+
+  private final AnnotationFS window;
+
+  private AnnotationFS current;
+
+  /**
+   * @param iterator
+   *          iterator of the annotation index of the type
+   * @param start
+   *          an annotation used to position the iterator, which begins at or after the begin
+   *          offset, or null to start with the first annotation of the index
+   * @param begin
+   *          the minimal begin offset of the annotations
+   * @param end
+   *          the maximal end offset of the annotations
+   * @param visibility
+   *          the stream if only visible annotations should be returned, or null
+   * @param window
+   *          the window annotation if it should be returned first instead of at its position in
+   *          the index, or null
+   */
+  AnnotationCursor(FSIterator<AnnotationFS> iterator, AnnotationFS start, int begin, int end,
+          RutaStream visibility, AnnotationFS window) {
+    super();
+    this.iterator = iterator;
+    this.end = end;
+    this.visibility = visibility;
+    this.window = window;
+    moveToBegin(start, begin);
+    current = window != null ? window : seek();
+  }
+
+  public boolean isValid() {
+    return current != null;
+  }
+
+  /**
+   * @return the current annotation
+   * @throws NoSuchElementException
+   *           if the cursor is not valid
+   */
+  public AnnotationFS get() {
+    if (current == null) {
+      throw new NoSuchElementException();
+    }
+    return current;
+  }
+
+  public void moveToNext() {
+    if (current != null) {
+      current = seek();
+    }
+  }
+
+  private void moveToBegin(AnnotationFS start, int begin) {
+    if (start == null) {
+      iterator.moveToFirst();
+      return;
+    }
+    iterator.moveTo(start);
+    if (!iterator.isValid()) {
+      iterator.moveToLast();
+    }
+    // annotations with the same begin can precede the start annotation in the index
+    boolean moved = false;
+    while (iterator.isValid() && iterator.get().getBegin() >= begin) {
+      iterator.moveToPrevious();
+      moved = true;
+    }
+    if (!iterator.isValid()) {
+      iterator.moveToFirst();
+    } else if (moved) {
+      iterator.moveToNext();
+    }
+    while (iterator.isValid() && iterator.get().getBegin() < begin) {
+      iterator.moveToNext();
+    }
+  }
+
+  private AnnotationFS seek() {
+    while (iterator.isValid()) {
+      AnnotationFS each = iterator.get();
+      if (each.getBegin() > end) {
+        return null;
+      }
+      iterator.moveToNext();
+      if (each.getEnd() <= end && !each.equals(window)
+              && (visibility == null || visibility.isVisible(each))) {
+        return each;
+      }
+    }
+    return null;
+  }
+
+}
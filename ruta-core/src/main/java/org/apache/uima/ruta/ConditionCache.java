@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.condition.AbstractRutaCondition;
+import org.apache.uima.ruta.condition.CacheableCondition;
+import org.apache.uima.ruta.rule.EvaluatedCondition;
+import org.apache.uima.ruta.rule.MatchContext;
+import org.apache.uima.ruta.visitor.InferenceCrowd;
+
+/**
+ * Results of {@link CacheableCondition cacheable conditions} for the annotations of a document.
+ * A result is identified by the condition, the span of the matched annotation, the window of the
+ * stream and the evaluated arguments of the condition, so that variables and labels used in the
+ * arguments are respected. A result is reused as long as no annotation of a type among the
+ * arguments or of one of their subtypes was added or removed, and the visibility or the basics did
+ * not change. Annotations that are added to the CAS without the stream are not considered.
+ */
+public final class ConditionCache {
+
+  private static final int MAX_SIZE = 1 << 16;
+
+  private final TypeSystem typeSystem;
+
+  private final Map<Key, Entry> entries = new HashMap<Key, Entry>();
+
+  private final Map<Type, Long> typeStamps = new HashMap<Type, Long>();
+
+  private final Map<AbstractRutaCondition, int[]> counts;
+
+  private long stamp = 0;
+
+  private long globalStamp = 0;
+
+  public ConditionCache(TypeSystem typeSystem) {
+    super();
+    this.typeSystem = typeSystem;
+    this.counts = new IdentityHashMap<AbstractRutaCondition, int[]>();
+  }
+
+  /**
+   * Evaluates the condition or reuses its previous result.
+   * 
+   * @param condition
+   *          the condition
+   * @param context
+   *          the context of the evaluation
+   * @param stream
+   *          the stream the condition is evaluated on
+   * @param crowd
+   *          the inference crowd
+   * @return the evaluated condition
+   */
+  public EvaluatedCondition eval(AbstractRutaCondition condition, MatchContext context,
+          RutaStream stream, InferenceCrowd crowd) {
+    AnnotationFS annotation = context.getAnnotation();
+    if (!(condition instanceof CacheableCondition) || annotation == null) {
+      return condition.eval(context, stream, crowd);
+    }
+    Object[] arguments = ((CacheableCondition) condition).getCacheKey(context, stream);
+    if (arguments == null) {
+      return condition.eval(context, stream, crowd);
+    }
+    AnnotationFS window = stream.getDocumentAnnotation();
+    Key key = new Key(condition, annotation.getBegin(), annotation.getEnd(), window.getBegin(),
+            window.getEnd(), arguments);
+    int[] count = counts.get(condition);
+    if (count == null) {
+      count = new int[2];
+      counts.put(condition, count);
+    }
+    count[1]++;
+    Entry entry = entries.get(key);
+    if (entry != null && isValid(entry)) {
+      count[0]++;
+      return new EvaluatedCondition(condition, entry.value);
+    }
+    EvaluatedCondition result = condition.eval(context, stream, crowd);
+    if (entries.size() >= MAX_SIZE) {
+      entries.clear();
+    }
+    entries.put(key, new Entry(result.isValue(), stamp, getDependencies(arguments)));
+    return result;
+  }
+
+  /**
+   * Records that an annotation of the given type was added or removed.
+   * 
+   * @param type
+   *          the type of the annotation
+   */
+  public void typeModified(Type type) {
+    stamp++;
+    Type each = type;
+    while (each != null) {
+      typeStamps.put(each, stamp);
+      each = typeSystem.getParent(each);
+    }
+  }
+
+  /**
+   * Records a modification that may change the result of any condition, e.g., a changed
+   * visibility or a split basic.
+   */
+  public void modified() {
+    stamp++;
+    globalStamp = stamp;
+  }
+
+  public int getHitCount(AbstractRutaCondition condition) {
+    int[] count = counts.get(condition);
+    return count == null ? 0 : count[0];
+  }
+
+  public int getLookupCount(AbstractRutaCondition condition) {
+    int[] count = counts.get(condition);
+    return count == null ? 0 : count[1];
+  }
+
+  /**
+   * @return the conditions that were looked up in this cache
+   */
+  public Collection<AbstractRutaCondition> getConditions() {
+    return Collections.unmodifiableSet(counts.keySet());
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private boolean isValid(Entry entry) {
+    if (globalStamp > entry.stamp) {
+      return false;
+    }
+    for (Type each : entry.dependencies) {
+      Long typeStamp = typeStamps.get(each);
+      if (typeStamp != null && typeStamp > entry.stamp) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Type[] getDependencies(Object[] arguments) {
+    List<Type> result = new ArrayList<Type>(1);
+    for (Object each : arguments) {
+      if (each instanceof Type) {
+        result.add((Type) each);
+      } else if (each instanceof Collection<?>) {
+        for (Object element : (Collection<?>) each) {
+          if (element instanceof Type) {
+            result.add((Type) element);
+          }
+        }
+      }
+    }
+    return result.toArray(new Type[result.size()]);
+  }
+
+  private static final class Key {
+
+    private final AbstractRutaCondition condition;
+
+    private final int begin;
+
+    private final int end;
+
+    private final int windowBegin;
+
+    private final int windowEnd;
+
+    private final Object[] arguments;
+
+    private final int hash;
+
+    private Key(AbstractRutaCondition condition, int begin, int end, int windowBegin,
+            int windowEnd, Object[] arguments) {
+      super();
+      this.condition = condition;
+      this.begin = begin;
+      this.end = end;
+      this.windowBegin = windowBegin;
+      this.windowEnd = windowEnd;
+      this.arguments = arguments;
+      int h = System.identityHashCode(condition);
+      h = 31 * h + begin;
+      h = 31 * h + end;
+      h = 31 * h + windowBegin;
+      h = 31 * h + windowEnd;
+      this.hash = 31 * h + Arrays.hashCode(arguments);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return condition == other.condition && begin == other.begin && end == other.end
+              && windowBegin == other.windowBegin && windowEnd == other.windowEnd
+              && Arrays.equals(arguments, other.arguments);
+    }
+  }
+
+  private static final class Entry {
+
+    private final boolean value;
+
+    private final long stamp;
+
+    private final Type[] dependencies;
+
+    private Entry(boolean value, long stamp, Type[] dependencies) {
+      super();
+      this.value = value;
+      this.stamp = stamp;
+      this.dependencies = dependencies;
+    }
+  }
+
+}
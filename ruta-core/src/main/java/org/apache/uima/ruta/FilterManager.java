@@ -27,24 +27,22 @@ import java.util.Set;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.ConstraintFactory;
-import org.apache.uima.cas.FSIntConstraint;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.FSMatchConstraint;
-import org.apache.uima.cas.FeaturePath;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
-import org.apache.uima.ruta.constraint.BasicTypeConstraint;
-import org.apache.uima.ruta.constraint.NotConstraint;
+import org.apache.uima.ruta.constraint.WindowConstraint;
+import org.apache.uima.ruta.type.RutaBasic;
 
 public class FilterManager {
 
   private final Collection<Type> defaultFilterTypes;
 
-  private final FSMatchConstraint additionalWindow;
+  private FSMatchConstraint additionalWindow;
 
-  private final AnnotationFS windowAnnotation;
+  private AnnotationFS windowAnnotation;
 
-  private final Type windowType;
+  private Type windowType;
 
   private Collection<Type> currentFilterTypes;
 
@@ -58,6 +56,10 @@ public class FilterManager {
 
   private boolean emptyIsInvisible;
 
+  private VisibilityConstraint visibilityConstraint;
+
+  private VisibilityIndex visibilityIndex;
+
   public FilterManager(Collection<Type> defaultFilterTypes, boolean emptyIsInvisible, CAS cas) {
     super();
     this.defaultFilterTypes = defaultFilterTypes;
@@ -88,30 +90,38 @@ public class FilterManager {
 
     this.windowAnnotation = windowAnnotation;
     this.windowType = windowType;
-    this.additionalWindow = createWindowConstraint(windowAnnotation, cas);
+    this.additionalWindow = createWindowConstraint(windowAnnotation);
     this.emptyIsInvisible = emptyIsInvisible;
 
     this.cas = cas;
   }
 
-  private FSMatchConstraint createWindowConstraint(AnnotationFS windowAnnotation, CAS cas) {
+  private FSMatchConstraint createWindowConstraint(AnnotationFS windowAnnotation) {
     if (windowAnnotation == null)
       return null;
-    FeaturePath beginFP = cas.createFeaturePath();
-    Type type = windowAnnotation.getType();
-    beginFP.addFeature(type.getFeatureByBaseName("begin"));
-    FSIntConstraint intConstraint = cf.createIntConstraint();
-    intConstraint.geq(windowAnnotation.getBegin());
-    FSMatchConstraint beginConstraint = cf.embedConstraint(beginFP, intConstraint);
-
-    FeaturePath endFP = cas.createFeaturePath();
-    endFP.addFeature(type.getFeatureByBaseName("end"));
-    intConstraint = cf.createIntConstraint();
-    intConstraint.leq(windowAnnotation.getEnd());
-    FSMatchConstraint endConstraint = cf.embedConstraint(endFP, intConstraint);
-
-    FSMatchConstraint windowConstraint = cf.and(beginConstraint, endConstraint);
-    return windowConstraint;
+    return new WindowConstraint(windowAnnotation.getBegin(), windowAnnotation.getEnd());
+  }
+
+  /**
+   * Moves the filter of a window to another window and resets the filtered and retained types to
+   * the given ones, like a new filter manager for the window.
+   * 
+   * @param windowAnnotation
+   *          the new window
+   * @param windowType
+   *          the type of the new window
+   * @param filterTypes
+   *          the filtered types of the parent filter
+   * @param retainTypes
+   *          the retained types of the parent filter
+   */
+  void setWindow(AnnotationFS windowAnnotation, Type windowType, Collection<Type> filterTypes,
+          Collection<Type> retainTypes) {
+    this.windowAnnotation = windowAnnotation;
+    this.windowType = windowType;
+    this.additionalWindow = createWindowConstraint(windowAnnotation);
+    currentFilterTypes = new ArrayList<Type>(filterTypes);
+    currentRetainTypes = new ArrayList<Type>(retainTypes);
   }
 
   public FSMatchConstraint getDefaultConstraint() {
@@ -129,21 +139,17 @@ public class FilterManager {
         filterTypes.removeAll(subsumedTypes);
       }
     }
-    currentHiddenTypes = filterTypes;
-    FSMatchConstraint typeConstraint = createTypeConstraint(filterTypes);
-
-    FSMatchConstraint constraint = new NotConstraint(typeConstraint);
+    if (visibilityConstraint == null || !filterTypes.equals(currentHiddenTypes)) {
+      currentHiddenTypes = filterTypes;
+      visibilityConstraint = new VisibilityConstraint(this, filterTypes, emptyIsInvisible);
+    }
+    FSMatchConstraint constraint = visibilityConstraint;
     if (additionalWindow != null && windowConstraint) {
       constraint = cf.and(additionalWindow, constraint);
     }
     return constraint;
   }
 
-  private FSMatchConstraint createTypeConstraint(Collection<Type> types) {
-    BasicTypeConstraint result = new BasicTypeConstraint(types, emptyIsInvisible);
-    return result;
-  }
-
   public void retainTypes(List<Type> list) {
     currentRetainTypes = list;
   }
@@ -210,4 +216,24 @@ public class FilterManager {
     return currentHiddenTypes;
   }
 
+  /**
+   * @param basic
+   *          the basic
+   * @return true if the basic is part of an annotation of a currently hidden type
+   */
+  public boolean isHidden(RutaBasic basic) {
+    if (visibilityConstraint == null) {
+      createCurrentConstraint(false);
+    }
+    return visibilityConstraint.isHidden(basic);
+  }
+
+  VisibilityIndex getVisibilityIndex() {
+    return visibilityIndex;
+  }
+
+  void setVisibilityIndex(VisibilityIndex visibilityIndex) {
+    this.visibilityIndex = visibilityIndex;
+  }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.TypeImpl;
+import org.apache.uima.cas.impl.TypeSystemImpl;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.cas.text.AnnotationIndex;
+import org.apache.uima.ruta.type.LazyTypeIndexer;
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * Adds the annotations of the reindexed types to the {@link RutaBasic} annotations when a type is
+ * requested for the first time instead of adding all annotations when the stream is initialized.
+ * The types that are already added are remembered by their type code.
+ */
+final class LazyBasicIndexer implements LazyTypeIndexer {
+
+  private final RutaStream stream;
+
+  private final CAS cas;
+
+  private final Collection<Type> reindexTypes;
+
+  private final boolean checkExisting;
+
+  private boolean[] indexed;
+
+  private boolean complete = false;
+
+  /**
+   * @param stream
+   *          the stream with the basics
+   * @param reindexTypes
+   *          the types whose annotations should be added, without subsumed types
+   * @param checkExisting
+   *          true if the basics may already contain some of the annotations
+   */
+  LazyBasicIndexer(RutaStream stream, Collection<Type> reindexTypes, boolean checkExisting) {
+    super();
+    this.stream = stream;
+    this.cas = stream.getCas();
+    this.reindexTypes = reindexTypes;
+    this.checkExisting = checkExisting;
+    this.indexed = new boolean[((TypeSystemImpl) cas.getTypeSystem()).getLargestTypeCode() + 1];
+  }
+
+  @Override
+  public void ensureIndexed(Type type) {
+    if (complete) {
+      return;
+    }
+    if (type == null) {
+      for (Type each : reindexTypes) {
+        ensureIndexed(each);
+      }
+      complete = true;
+      return;
+    }
+    int code = ((TypeImpl) type).getCode();
+    if (code < indexed.length && indexed[code]) {
+      return;
+    }
+    index(type);
+  }
+
+  /**
+   * Stops adding annotations. Types that are requested afterwards are considered as indexed.
+   */
+  void detach() {
+    complete = true;
+  }
+
+  boolean isIndexed(Type type) {
+    int code = ((TypeImpl) type).getCode();
+    return complete || code < indexed.length && indexed[code];
+  }
+
+  private void index(Type type) {
+    TypeSystem typeSystem = cas.getTypeSystem();
+    boolean[] indexedBefore = indexed.clone();
+    // mark first, the annotations are added using the public api of the basics
+    indexed[((TypeImpl) type).getCode()] = true;
+    for (Type each : typeSystem.getProperlySubsumedTypes(type)) {
+      indexed[((TypeImpl) each).getCode()] = true;
+    }
+
+    List<AnnotationFS> annotations = new ArrayList<AnnotationFS>();
+    for (Type each : reindexTypes) {
+      if (typeSystem.subsumes(each, type)) {
+        collect(type, indexedBefore, annotations);
+      } else if (typeSystem.subsumes(type, each)) {
+        collect(each, indexedBefore, annotations);
+      }
+    }
+    for (AnnotationFS each : annotations) {
+      if (!checkExisting || !isAlreadyAdded(each)) {
+        stream.addAnnotation(each, false, false, null);
+      }
+    }
+  }
+
+  private void collect(Type type, boolean[] indexedBefore, List<AnnotationFS> annotations) {
+    AnnotationIndex<AnnotationFS> annotationIndex = null;
+    if (StringUtils.equals(type.getName(), CAS.TYPE_NAME_ANNOTATION)) {
+      annotationIndex = cas.getAnnotationIndex();
+    } else {
+      annotationIndex = cas.getAnnotationIndex(type);
+    }
+    AnnotationFS documentAnnotation = cas.getDocumentAnnotation();
+    for (AnnotationFS a : annotationIndex) {
+      int code = ((TypeImpl) a.getType()).getCode();
+      if (code < indexedBefore.length && indexedBefore[code]) {
+        continue;
+      }
+      if (a.getBegin() != a.getEnd() || a.equals(documentAnnotation)) {
+        annotations.add(a);
+      }
+    }
+  }
+
+  private boolean isAlreadyAdded(AnnotationFS annotation) {
+    RutaBasic beginAnchor = stream.getBeginAnchor(annotation.getBegin());
+    RutaBasic endAnchor = stream.getEndAnchor(annotation.getEnd());
+    if (beginAnchor == null || endAnchor == null) {
+      return false;
+    }
+    return beginAnchor.getBeginAnchors(annotation.getType()).contains(annotation);
+  }
+
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -72,11 +73,13 @@ import org.apache.uima.ruta.expression.string.IStringExpression;
 import org.apache.uima.ruta.expression.string.SimpleStringListExpression;
 import org.apache.uima.ruta.expression.type.SimpleTypeExpression;
 import org.apache.uima.ruta.expression.type.SimpleTypeListExpression;
+import org.apache.uima.ruta.resource.BinaryTreeWordList;
 import org.apache.uima.ruta.resource.CSVTable;
 import org.apache.uima.ruta.resource.MultiTreeWordList;
 import org.apache.uima.ruta.resource.RutaResourceLoader;
 import org.apache.uima.ruta.resource.RutaTable;
 import org.apache.uima.ruta.resource.RutaWordList;
+import org.apache.uima.ruta.resource.SharedResourceCache;
 import org.apache.uima.ruta.resource.TreeWordList;
 import org.apache.uima.ruta.rule.MatchContext;
 import org.apache.uima.ruta.rule.RuleElement;
@@ -154,15 +157,49 @@ public class RutaEnvironment {
    */
   private Set<String> declaredAnnotationTypes;
 
-  private Map<String, Object> variableValues;
+  /**
+   * Declarations and values of the variables. These are modified while a document is processed.
+   */
+  private static class Variables {
 
-  private Map<String, Object> tempVariableValues;
+    private final Map<String, Object> values;
 
-  private Map<String, Class<?>> variableTypes;
+    private final Map<String, Object> tempValues;
 
-  private Map<String, Class<?>> availableTypes;
+    private final Map<String, Class<?>> types;
+
+    private final Map<String, Class<?>> genericTypes;
+
+    private final Map<String, String> aliases;
+
+    private CAS cas;
+
+    private Variables() {
+      values = new HashMap<String, Object>();
+      tempValues = new HashMap<String, Object>();
+      types = new HashMap<String, Class<?>>();
+      genericTypes = new HashMap<String, Class<?>>();
+      aliases = new HashMap<String, String>();
+    }
 
-  private Map<String, Class<?>> variableGenericTypes;
+    private Variables(Variables template) {
+      values = new HashMap<String, Object>(template.values);
+      tempValues = new HashMap<String, Object>(template.tempValues);
+      types = new HashMap<String, Class<?>>(template.types);
+      genericTypes = new HashMap<String, Class<?>>(template.genericTypes);
+      aliases = new HashMap<String, String>(template.aliases);
+      cas = template.cas;
+    }
+  }
+
+  private final Variables variables;
+
+  /**
+   * Copies of the variables for each thread, if the script is shared by several threads.
+   */
+  private ThreadLocal<Variables> threadVariables;
+
+  private Map<String, Class<?>> availableTypes;
 
   private Map<String, Class<?>> availableListTypes;
 
@@ -172,14 +209,10 @@ public class RutaEnvironment {
 
   private String[] resourcePaths = null;
 
-  private CAS cas;
-
   private Map<String, Object> initializedVariables;
 
   private ResourceManager resourceManager;
 
-  private Map<String, String> variableAliases;
-
   private RutaVerbalizer verbalizer = new RutaVerbalizer();
 
   public RutaEnvironment(RutaBlock owner) {
@@ -194,12 +227,9 @@ public class RutaEnvironment {
     typeImports = new HashMap<String, List<Alias>>();
     packageImports = new HashMap<String, List<String>>();
     declaredAnnotationTypes = new HashSet<String>();
-    wordLists = new HashMap<String, RutaWordList>();
-    tables = new HashMap<String, RutaTable>();
-    variableValues = new HashMap<String, Object>();
-    tempVariableValues = new HashMap<String, Object>();
-    variableTypes = new HashMap<String, Class<?>>();
-    variableGenericTypes = new HashMap<String, Class<?>>();
+    wordLists = new ConcurrentHashMap<String, RutaWordList>();
+    tables = new ConcurrentHashMap<String, RutaTable>();
+    variables = new Variables();
     macroConditions = new HashMap<>();
     macroActions = new HashMap<>();
     availableTypes = new HashMap<String, Class<?>>();
@@ -231,7 +261,6 @@ public class RutaEnvironment {
     availableListTypes.put(RutaConstants.RUTA_VARIABLE_TYPE_LIST, Type.class);
     resourcePaths = getResourcePaths();
     initializedVariables = new HashMap<String, Object>();
-    variableAliases = new HashMap<>();
 
     // Always import BasicTypeSystem
     addTypeSystem("org.apache.uima.ruta.engine.BasicTypeSystem");
@@ -246,7 +275,7 @@ public class RutaEnvironment {
    *          Specify whether all types should be imported (false) or only types
    */
   public void initializeTypes(CAS cas, boolean strictImport) {
-    this.cas = cas;
+    getVariables().cas = cas;
     try {
       if (strictImport) {
         importDeclaredTypes(cas.getTypeSystem());
@@ -646,6 +675,15 @@ public class RutaEnvironment {
       return null;
     }
 
+    RutaWordList result = wordLists.get(list);
+    if (result != null) {
+      return result;
+    }
+    return loadWordList(list);
+  }
+
+  private synchronized RutaWordList loadWordList(String list) {
+    // the list may have been loaded by another thread in the meantime
     RutaWordList result = wordLists.get(list);
     UimaContext context = owner.getContext();
     Boolean dictRemoveWS = false;
@@ -662,11 +700,7 @@ public class RutaEnvironment {
         Resource resource = resourceLoader.getResource(list);
         if (resource.exists()) {
           try {
-            if (list.endsWith("mtwl")) {
-              wordLists.put(list, new MultiTreeWordList(resource));
-            } else {
-              wordLists.put(list, new TreeWordList(resource, dictRemoveWS));
-            }
+            wordLists.put(list, readWordList(resource, list, dictRemoveWS, context));
           } catch (IOException e) {
             Logger.getLogger(this.getClass().getName()).log(Level.SEVERE,
                     "Error reading word list" + list, e);
@@ -694,8 +728,17 @@ public class RutaEnvironment {
   }
 
   public RutaTable getWordTable(String table) {
+    RutaTable result = tables.get(table);
+    if (result != null) {
+      return result;
+    }
+    return loadWordTable(table);
+  }
+
+  private synchronized RutaTable loadWordTable(String table) {
     UimaContext context = owner.getContext();
 
+    // the table may have been loaded by another thread in the meantime
     RutaTable result = tables.get(table);
     if (result == null) {
       if (table.endsWith("csv") || table.endsWith("txt") || table.endsWith("tsv")) {
@@ -704,7 +747,7 @@ public class RutaEnvironment {
         Resource resource = resourceLoader.getResource(table);
         if (resource.exists()) {
           try {
-            tables.put(table, new CSVTable(resource, getCsvSeparator(context)));
+            tables.put(table, readTable(resource, context));
           } catch (IOException e) {
             Logger.getLogger(this.getClass().getName()).log(Level.SEVERE,
                     "Error reading csv table " + table, e);
@@ -716,7 +759,9 @@ public class RutaEnvironment {
       } else {
         try {
           RutaTable rutaTable = (RutaTable) context.getResourceObject(table);
-          tables.put(table, rutaTable);
+          if (rutaTable != null) {
+            tables.put(table, rutaTable);
+          }
         } catch (ResourceAccessException e) {
           Logger.getLogger(this.getClass().getName()).log(Level.SEVERE,
                   "Can't find external resource table" + table, e);
@@ -727,6 +772,50 @@ public class RutaEnvironment {
     return tables.get(table);
   }
 
+  private RutaWordList readWordList(Resource resource, final String list,
+          final boolean dictRemoveWS, UimaContext context) throws IOException {
+    SharedResourceCache.Loader<RutaWordList> loader;
+    loader = new SharedResourceCache.Loader<RutaWordList>() {
+      @Override
+      public RutaWordList load(Resource resource) throws IOException {
+        if (list.endsWith("mtwl")) {
+          return new MultiTreeWordList(resource);
+        } else if (list.endsWith(BinaryTreeWordList.FILE_ENDING)) {
+          return new BinaryTreeWordList(resource);
+        }
+        return new TreeWordList(resource, dictRemoveWS);
+      }
+    };
+    if (isShareResources(context)) {
+      return SharedResourceCache.getInstance().get(resource, "wordlist;dictRemoveWS=" + dictRemoveWS,
+              loader);
+    }
+    return loader.load(resource);
+  }
+
+  private RutaTable readTable(Resource resource, UimaContext context) throws IOException {
+    final String separator = getCsvSeparator(context);
+    SharedResourceCache.Loader<RutaTable> loader = new SharedResourceCache.Loader<RutaTable>() {
+      @Override
+      public RutaTable load(Resource resource) throws IOException {
+        return new CSVTable(resource, separator);
+      }
+    };
+    if (isShareResources(context)) {
+      // the word lists of the columns depend on the removal of whitespaces
+      Object dictRemoveWS = context.getConfigParameterValue(RutaEngine.PARAM_DICT_REMOVE_WS);
+      return SharedResourceCache.getInstance().get(resource,
+              "csv;separator=" + separator + ";dictRemoveWS=" + Boolean.TRUE.equals(dictRemoveWS),
+              loader);
+    }
+    return loader.load(resource);
+  }
+
+  private boolean isShareResources(UimaContext context) {
+    return context != null
+            && Boolean.TRUE.equals(context.getConfigParameterValue(RutaEngine.PARAM_SHARE_RESOURCES));
+  }
+
   private String getCsvSeparator(UimaContext context) {
     if (context != null) {
       String cvsSeparator = (String) context
@@ -738,12 +827,55 @@ public class RutaEnvironment {
     return CSVTable.DEFAULT_CSV_SEPARATOR;
   }
 
+  /**
+   * Specifies whether the script of this environment is applied concurrently by several threads.
+   * In this case, each thread works on its own copy of the current variables. The copy is created
+   * when the thread accesses the variables for the first time.
+   *
+   * @param sharedByThreads
+   *          true, if the script is shared by several threads
+   */
+  public void setSharedByThreads(boolean sharedByThreads) {
+    if (!sharedByThreads) {
+      threadVariables = null;
+    } else if (threadVariables == null) {
+      threadVariables = new ThreadLocal<Variables>();
+    }
+  }
+
+  /**
+   * Removes the copy of the variables of the current thread, if the script is shared by several
+   * threads. The thread gets a new copy if it accesses the variables again.
+   */
+  public void removeThreadVariables() {
+    if (threadVariables != null) {
+      threadVariables.remove();
+    }
+  }
+
+  public boolean isSharedByThreads() {
+    return threadVariables != null;
+  }
+
+  private Variables getVariables() {
+    if (threadVariables == null) {
+      return variables;
+    }
+    Variables result = threadVariables.get();
+    if (result == null) {
+      result = new Variables(variables);
+      threadVariables.set(result);
+    }
+    return result;
+  }
+
   private void addVariable(String name, Class<?> type, Class<?> generic) {
-    variableTypes.put(name, type);
+    Variables variables = getVariables();
+    variables.types.put(name, type);
     if (generic != null) {
-      variableGenericTypes.put(name, generic);
+      variables.genericTypes.put(name, generic);
     }
-    variableValues.put(name, getInitialValue(name, type));
+    variables.values.put(name, getInitialValue(name, type));
   }
 
   @SuppressWarnings("unchecked")
@@ -780,25 +912,27 @@ public class RutaEnvironment {
   }
 
   public void removeVariable(String name) {
-    variableTypes.remove(name);
-    variableGenericTypes.remove(name);
-    variableValues.remove(name);
-    tempVariableValues.remove(name);
+    Variables variables = getVariables();
+    variables.types.remove(name);
+    variables.genericTypes.remove(name);
+    variables.values.remove(name);
+    variables.tempValues.remove(name);
   }
 
   public boolean ownsVariable(String name) {
-    return variableTypes.containsKey(name);
+    return getVariables().types.containsKey(name);
   }
 
   public boolean ownsVariableOfType(String name, String type) {
-    if (variableAliases.containsKey(name)) {
-      name = variableAliases.get(name);
+    Variables variables = getVariables();
+    if (variables.aliases.containsKey(name)) {
+      name = variables.aliases.get(name);
     }
-    Class<?> varclass = variableTypes.get(name);
+    Class<?> varclass = variables.types.get(name);
     Class<?> aclass = availableTypes.get(type);
     boolean list = true;
     if (aclass.equals(List.class)) {
-      Class<?> vt = variableGenericTypes.get(name);
+      Class<?> vt = variables.genericTypes.get(name);
       Class<?> at = availableListTypes.get(type);
       list = vt != null && vt.equals(at);
     }
@@ -806,8 +940,9 @@ public class RutaEnvironment {
   }
 
   public boolean isVariable(String name) {
-    if (variableAliases.containsKey(name)) {
-      name = variableAliases.get(name);
+    Variables variables = getVariables();
+    if (variables.aliases.containsKey(name)) {
+      name = variables.aliases.get(name);
     }
     if (ownsVariable(name)) {
       return true;
@@ -824,10 +959,11 @@ public class RutaEnvironment {
   }
 
   public Class<?> getVariableType(String name) {
-    if (variableAliases.containsKey(name)) {
-      name = variableAliases.get(name);
+    Variables variables = getVariables();
+    if (variables.aliases.containsKey(name)) {
+      name = variables.aliases.get(name);
     }
-    Class<?> result = variableTypes.get(name);
+    Class<?> result = variables.types.get(name);
     if (result != null) {
       return result;
     } else if (owner.getParent() != null) {
@@ -837,7 +973,7 @@ public class RutaEnvironment {
   }
 
   public Class<?> getVariableGenericType(String name) {
-    Class<?> result = variableGenericTypes.get(name);
+    Class<?> result = getVariables().genericTypes.get(name);
     if (result != null) {
       return result;
     } else if (owner.getParent() != null) {
@@ -847,14 +983,15 @@ public class RutaEnvironment {
   }
 
   public <T> T getVariableValue(String name, Class<T> type, RutaStream stream) {
-    if (variableAliases.containsKey(name)) {
-      name = variableAliases.get(name);
+    Variables variables = getVariables();
+    if (variables.aliases.containsKey(name)) {
+      name = variables.aliases.get(name);
     }
     Object result = null;
-    boolean containsKey = variableValues.containsKey(name);
-    result = tempVariableValues.get(name);
+    boolean containsKey = variables.values.containsKey(name);
+    result = variables.tempValues.get(name);
     if (result == null) {
-      result = variableValues.get(name);
+      result = variables.values.get(name);
     }
 
     if (result instanceof String && type.equals(Type.class)) {
@@ -881,7 +1018,7 @@ public class RutaEnvironment {
       }
     }
     if (result == annotationTypeDummy) {
-      return type.cast(cas.getAnnotationType());
+      return type.cast(variables.cas.getAnnotationType());
     }
     if (result != null) {
       MatchContext context = new MatchContext(owner);
@@ -910,7 +1047,7 @@ public class RutaEnvironment {
   public Object getLiteralValue(String var, Object value) {
     if (ownsVariable(var)) {
       MatchContext context = new MatchContext(owner);
-      Class<?> clazz = variableTypes.get(var);
+      Class<?> clazz = getVariables().types.get(var);
       if (value instanceof INumberExpression) {
         INumberExpression ne = (INumberExpression) value;
         if (clazz.equals(Integer.class)) {
@@ -975,25 +1112,27 @@ public class RutaEnvironment {
   }
 
   public void setVariableValue(String name, Object value) {
-    if (variableAliases.containsKey(name)) {
-      name = variableAliases.get(name);
+    Variables variables = getVariables();
+    if (variables.aliases.containsKey(name)) {
+      name = variables.aliases.get(name);
     }
-    if (ownsVariable(name)) {
-      Class<?> clazz = variableTypes.get(name);
+    if (variables.types.containsKey(name)) {
+      Class<?> clazz = variables.types.get(name);
       if (value == null) {
         value = getInitialValue(name, clazz);
       }
-      variableValues.put(name, value);
+      variables.values.put(name, value);
     } else if (owner.getParent() != null) {
       owner.getParent().getEnvironment().setVariableValue(name, value);
     }
   }
 
   public void setTempVariableValue(String name, Object value) {
-    if (variableAliases.containsKey(name)) {
-      name = variableAliases.get(name);
+    Variables variables = getVariables();
+    if (variables.aliases.containsKey(name)) {
+      name = variables.aliases.get(name);
     }
-    tempVariableValues.put(name, value);
+    variables.tempValues.put(name, value);
   }
 
   @SuppressWarnings("rawtypes")
@@ -1015,12 +1154,13 @@ public class RutaEnvironment {
   }
 
   public void reset(CAS cas) {
-    this.cas = cas;
-    Set<Entry<String, Object>> entrySet = variableValues.entrySet();
+    Variables variables = getVariables();
+    variables.cas = cas;
+    Set<Entry<String, Object>> entrySet = variables.values.entrySet();
     for (Entry<String, Object> entry : entrySet) {
       String key = entry.getKey();
-      Class<?> variableType = variableTypes.get(key);
-      Object initialValue = getInitialValue(key, variableTypes.get(key));
+      Class<?> variableType = variables.types.get(key);
+      Object initialValue = getInitialValue(key, variableType);
       if ((!variableType.equals(RutaTable.class) && !variableType.equals(RutaWordList.class))
               || initialValue != null) {
         // not for word lists
@@ -1112,11 +1252,11 @@ public class RutaEnvironment {
   }
 
   public void addAliasVariable(String name, String var) {
-    variableAliases.put(name, var);
+    getVariables().aliases.put(name, var);
   }
 
   public void removeAliasVariable(String name) {
-    variableAliases.remove(name);
+    getVariables().aliases.remove(name);
   }
 
   public String getVariableNameOfExpression(IRutaExpression expression) {
@@ -1182,9 +1322,10 @@ public class RutaEnvironment {
   }
 
   public void acceptTempVariableValues(Collection<String> localVariables) {
+    Map<String, Object> tempValues = getVariables().tempValues;
     for (String variableName : localVariables) {
-      if (tempVariableValues.containsKey(variableName)) {
-        Object value = tempVariableValues.get(variableName);
+      if (tempValues.containsKey(variableName)) {
+        Object value = tempValues.get(variableName);
         setVariableValue(variableName, value);
       }
     }
@@ -1193,8 +1334,9 @@ public class RutaEnvironment {
   }
 
   public void clearTempVariables(Collection<String> localVariables) {
+    Map<String, Object> tempValues = getVariables().tempValues;
     for (String variableName : localVariables) {
-      tempVariableValues.remove(variableName);
+      tempValues.remove(variableName);
     }
   }
 
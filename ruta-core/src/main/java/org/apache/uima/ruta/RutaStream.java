@@ -23,16 +23,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -58,7 +57,7 @@ import org.apache.uima.fit.util.FSCollectionFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.ruta.block.RutaBlock;
-import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.condition.AbstractRutaCondition;
 import org.apache.uima.ruta.expression.AnnotationTypeExpression;
 import org.apache.uima.ruta.expression.IRutaExpression;
 import org.apache.uima.ruta.expression.annotation.IAnnotationExpression;
@@ -76,6 +75,7 @@ import org.apache.uima.ruta.expression.string.IStringListExpression;
 import org.apache.uima.ruta.expression.type.ITypeExpression;
 import org.apache.uima.ruta.rule.AbstractRule;
 import org.apache.uima.ruta.rule.AbstractRuleMatch;
+import org.apache.uima.ruta.rule.EvaluatedCondition;
 import org.apache.uima.ruta.rule.MatchContext;
 import org.apache.uima.ruta.rule.RuleElement;
 import org.apache.uima.ruta.type.RutaAnnotation;
@@ -87,6 +87,17 @@ import org.apache.uima.ruta.visitor.InferenceCrowd;
 
 public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
 
+  private static final Comparator<AnnotationFS> BEGIN_COMPARATOR = new Comparator<AnnotationFS>() {
+
+    @Override
+    public int compare(AnnotationFS o1, AnnotationFS o2) {
+      if (o1.getBegin() != o2.getBegin()) {
+        return o1.getBegin() < o2.getBegin() ? -1 : 1;
+      }
+      return o1.getEnd() > o2.getEnd() ? -1 : o1.getEnd() < o2.getEnd() ? 1 : 0;
+    }
+  };
+
   private final CAS cas;
 
   private FSIterator<AnnotationFS> basicIt;
@@ -99,9 +110,7 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
 
   private Type basicType;
 
-  private NavigableMap<Integer, RutaBasic> beginAnchors = new TreeMap<Integer, RutaBasic>();
-
-  private NavigableMap<Integer, RutaBasic> endAnchors = new TreeMap<Integer, RutaBasic>();
+  private AnchorIndex anchors;
 
   private FilterManager filter;
 
@@ -113,6 +122,12 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
 
   private boolean lowMemoryProfile;
 
+  private boolean sparseAnchorProfile;
+
+  private boolean lazyIndexing;
+
+  private LazyBasicIndexer lazyIndexer;
+
   private boolean simpleGreedyForComposed;
 
   private InferenceCrowd crowd;
@@ -135,11 +150,25 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
 
   private long maxRuleElementMatches;
 
+  private AnchorCandidateCache anchorCandidates;
+
+  private TypeCountIndex countIndex;
+
+  private ConditionCache conditionCache;
+
+  private VisibilityIndex visibility;
+
+  private RutaStream parent;
+
   public RutaStream(CAS cas, Type basicType, FilterManager filter, boolean lowMemoryProfile,
           boolean simpleGreedyForComposed, boolean emptyIsInvisible, TypeUsageInformation typeUsage,
           InferenceCrowd crowd) {
     super();
     this.cas = cas;
+    String documentText = cas.getDocumentText();
+    this.anchors = new AnchorIndex(documentText == null ? 0 : documentText.length());
+    this.countIndex = new TypeCountIndex(anchors,
+            documentText == null ? 0 : documentText.length());
     this.filter = filter;
     this.basicType = basicType;
     this.lowMemoryProfile = lowMemoryProfile;
@@ -163,14 +192,12 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     }
   }
 
-  protected RutaStream(CAS cas, Type basicType, NavigableMap<Integer, RutaBasic> beginAnchors,
-          NavigableMap<Integer, RutaBasic> endAnchors, FilterManager filter,
+  protected RutaStream(CAS cas, Type basicType, AnchorIndex anchors, FilterManager filter,
           boolean lowMemoryProfile, boolean simpleGreedyForComposed, boolean emptyIsInvisible,
           TypeUsageInformation typeUsage, InferenceCrowd crowd) {
     super();
     this.cas = cas;
-    this.beginAnchors = beginAnchors;
-    this.endAnchors = endAnchors;
+    this.anchors = anchors;
     this.filter = filter;
     this.basicType = basicType;
     this.lowMemoryProfile = lowMemoryProfile;
@@ -215,64 +242,71 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
       reindexTypeList = removeSubsumedTypes(Arrays.asList(reindexOnly), cas.getTypeSystem());
     }
 
-    final List<AnnotationFS> allAnnotations = new LinkedList<AnnotationFS>();
-    for (Type type : reindexTypeList) {
-      AnnotationIndex<AnnotationFS> annotationIndex = null;
-      if (StringUtils.equals(type.getName(), CAS.TYPE_NAME_ANNOTATION)) {
-        annotationIndex = cas.getAnnotationIndex();
-      } else {
-        annotationIndex = cas.getAnnotationIndex(type);
-      }
-      for (AnnotationFS a : annotationIndex) {
-        if (a.getBegin() != a.getEnd() || a.equals(cas.getDocumentAnnotation())) {
-          allAnnotations.add(a);
-        }
-      }
+    boolean initialized = basicIndex.size() != 0;
+    if (lazyIndexing) {
+      lazyIndexer = new LazyBasicIndexer(this, reindexTypeList, initialized);
+    } else {
+      lazyIndexer = null;
     }
 
-    if (basicIndex.size() == 0) {
-      TreeSet<Integer> anchors = new TreeSet<Integer>();
+    if (!initialized) {
+      List<AnnotationFS> allAnnotations = collectAnnotations(reindexTypeList);
+      int[] offsets = new int[allAnnotations.size() * 2];
+      int size = 0;
       for (AnnotationFS a : allAnnotations) {
-        anchors.add(a.getBegin());
-        anchors.add(a.getEnd());
+        offsets[size++] = a.getBegin();
+        offsets[size++] = a.getEnd();
       }
-      if (anchors.size() == 0) {
+      Arrays.sort(offsets, 0, size);
+      if (size == 0) {
         // empty document
         createRutaBasic(0, 0);
-      } else if (anchors.size() == 1) {
-        Integer first = anchors.pollFirst();
-        createRutaBasic(first, first);
+      } else if (offsets[0] == offsets[size - 1]) {
+        createRutaBasic(offsets[0], offsets[0]);
       } else {
-        while (true) {
-          Integer first = anchors.pollFirst();
-          if (first == null || anchors.isEmpty()) {
-            break;
-          }
-          Integer second = anchors.first();
-          if (first < second) {
-            createRutaBasic(first, second);
+        for (int i = 1; i < size; i++) {
+          if (offsets[i - 1] < offsets[i]) {
+            createRutaBasic(offsets[i - 1], offsets[i]);
           }
         }
       }
-      for (AnnotationFS a : allAnnotations) {
-        addAnnotation(a, false, false, null);
+      if (lazyIndexing) {
+        markUnindexedAnchors(allAnnotations);
+      } else {
+        for (AnnotationFS a : allAnnotations) {
+          initializeAnnotation(a);
+        }
       }
       updateIterators(documentAnnotation);
     } else {
       for (AnnotationFS e : basicIndex) {
-        beginAnchors.put(e.getBegin(), (RutaBasic) e);
-        endAnchors.put(e.getEnd(), (RutaBasic) e);
+        RutaBasic basic = (RutaBasic) e;
+        basic.setLazyIndexer(lazyIndexer);
+        anchors.add(basic);
       }
 
       RutaBasic firstBasic = (RutaBasic) basicIndex.iterator().get();
-      if (firstBasic.isLowMemoryProfile() != lowMemoryProfile) {
+      if (firstBasic.isSparseProfile() != sparseAnchorProfile
+              || firstBasic.isLowMemoryProfile() != lowMemoryProfile) {
         for (AnnotationFS each : basicIndex) {
           RutaBasic eachBasic = (RutaBasic) each;
-          eachBasic.setLowMemoryProfile(lowMemoryProfile);
+          // dense information is converted using the profile it was created with
+          if (sparseAnchorProfile) {
+            eachBasic.setSparseProfile(true);
+            eachBasic.setLowMemoryProfile(lowMemoryProfile);
+          } else {
+            eachBasic.setLowMemoryProfile(lowMemoryProfile);
+            eachBasic.setSparseProfile(false);
+          }
         }
       }
+      if (lazyIndexing) {
+        // annotations are added when their type is requested
+        markUnindexedAnchors(collectAnnotations(reindexTypeList));
+        return;
+      }
       // TODO: find a better solution for this:
-      for (AnnotationFS a : allAnnotations) {
+      for (AnnotationFS a : collectAnnotations(reindexTypeList)) {
         Type type = a.getType();
         if (!type.equals(basicType)) {
           RutaBasic beginAnchor = getBeginAnchor(a.getBegin());
@@ -292,6 +326,82 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
         }
       }
     }
+    initializeVisibility();
+  }
+
+  private void initializeVisibility() {
+    if (lazyIndexer == null) {
+      // the hidden types of lazily indexed basics are checked directly
+      visibility = new VisibilityIndex(anchors, cas.getTypeSystem());
+      filter.setVisibilityIndex(visibility);
+    }
+  }
+
+  private void markUnindexedAnchors(Collection<AnnotationFS> annotations) {
+    // the basics are not empty, even if the types of the annotations are never requested
+    for (AnnotationFS each : annotations) {
+      if (each.getType().equals(basicType)) {
+        continue;
+      }
+      RutaBasic beginAnchor = getBeginAnchor(each.getBegin());
+      if (beginAnchor != null) {
+        beginAnchor.addUnindexedBegin();
+      }
+      RutaBasic endAnchor = getEndAnchor(each.getEnd());
+      if (endAnchor != null) {
+        endAnchor.addUnindexedEnd();
+      }
+    }
+  }
+
+  /**
+   * Detaches the lazy indexer from the basics so that they do not refer to this stream anymore.
+   * Types that were not requested are not added afterwards. This should be called when the stream
+   * is not used anymore.
+   */
+  public void detachLazyIndexer() {
+    if (lazyIndexer == null) {
+      return;
+    }
+    lazyIndexer.detach();
+    for (AnnotationFS each : cas.getAnnotationIndex(basicType)) {
+      ((RutaBasic) each).setLazyIndexer(null);
+    }
+    lazyIndexer = null;
+  }
+
+  private void initializeAnnotation(AnnotationFS annotation) {
+    Type type = annotation.getType();
+    int begin = annotation.getBegin();
+    int end = annotation.getEnd();
+    RutaBasic basic = getBeginAnchor(begin);
+    if (basic == null || begin == end || basic.getEnd() != end || !indexType(type)) {
+      addAnnotation(annotation, false, false, null);
+      return;
+    }
+    // the annotation covers exactly one basic like most seeded tokens: no window is needed
+    basic.addBegin(annotation, type);
+    basic.addEnd(annotation, type);
+    basic.addPartOf(type);
+    crowd.annotationAdded(annotation, null);
+  }
+
+  private List<AnnotationFS> collectAnnotations(Collection<Type> reindexTypeList) {
+    List<AnnotationFS> allAnnotations = new ArrayList<AnnotationFS>();
+    for (Type type : reindexTypeList) {
+      AnnotationIndex<AnnotationFS> annotationIndex = null;
+      if (StringUtils.equals(type.getName(), CAS.TYPE_NAME_ANNOTATION)) {
+        annotationIndex = cas.getAnnotationIndex();
+      } else {
+        annotationIndex = cas.getAnnotationIndex(type);
+      }
+      for (AnnotationFS a : annotationIndex) {
+        if (a.getBegin() != a.getEnd() || a.equals(cas.getDocumentAnnotation())) {
+          allAnnotations.add(a);
+        }
+      }
+    }
+    return allAnnotations;
   }
 
   private Collection<Type> removeSubsumedTypes(Collection<String> typeNames,
@@ -317,8 +427,9 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   private RutaBasic createRutaBasic(int begin, int end) {
     RutaBasic newTMB = new RutaBasic(getJCas(), begin, end);
     newTMB.setLowMemoryProfile(lowMemoryProfile);
-    beginAnchors.put(begin, newTMB);
-    endAnchors.put(end, newTMB);
+    newTMB.setSparseProfile(sparseAnchorProfile);
+    newTMB.setLazyIndexer(lazyIndexer);
+    anchors.add(newTMB);
     cas.addFsToIndexes(newTMB);
     return newTMB;
   }
@@ -339,6 +450,22 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     if (type.equals(basicType)) {
       return;
     }
+    anchors.modified();
+    if (conditionCache != null) {
+      conditionCache.typeModified(type);
+    }
+    if (lazyIndexer != null && !lazyIndexer.isIndexed(type)) {
+      lazyIndexer.ensureIndexed(type);
+      RutaBasic beginAnchor = getBeginAnchor(annotation.getBegin());
+      if (beginAnchor != null && beginAnchor.getBeginAnchors(type).contains(annotation)) {
+        // the annotation was already in the CAS and has been added on demand
+        if (addToIndex) {
+          cas.addFsToIndexes(annotation);
+        }
+        crowd.annotationAdded(annotation, creator);
+        return;
+      }
+    }
     if (indexType(annotation.getType())) {
       boolean modified = checkSpan(annotation);
       if (modified && updateInternal) {
@@ -352,10 +479,15 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
       if (endAnchor != null) {
         endAnchor.addEnd(annotation, type);
       }
+      long visibilityBits = visibility == null ? 0 : visibility.getRelevantBits(type);
       Collection<RutaBasic> basicAnnotationsInWindow = getAllBasicsInWindow(annotation);
       for (RutaBasic basic : basicAnnotationsInWindow) {
         basic.addPartOf(type);
+        if (visibilityBits != 0) {
+          visibility.update(basic, visibilityBits);
+        }
       }
+      updateCounts(annotation);
     }
     if (addToIndex) {
       cas.addFsToIndexes(annotation);
@@ -363,6 +495,159 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     crowd.annotationAdded(annotation, creator);
   }
 
+  /**
+   * Adds the annotations to the stream like {@link #addAnnotation(AnnotationFS, boolean,
+   * AbstractRuleMatch)}, but updates the basics in one sweep over the sorted annotations. The
+   * iterators are only updated once if basics need to be split, and the basics covered by
+   * overlapping annotations of the same type are only updated once. The result is the same as if
+   * the annotations were added one after another, which is useful for actions creating many
+   * annotations at once, e.g., for the matches of a dictionary.
+   * 
+   * @param annotations
+   *          the new annotations
+   * @param addToIndex
+   *          true if the annotations should also be added to the indexes of the CAS
+   * @param creator
+   *          the rule match that created the annotations
+   */
+  public void addAnnotations(Collection<? extends AnnotationFS> annotations, boolean addToIndex,
+          AbstractRuleMatch<? extends AbstractRule> creator) {
+    List<AnnotationFS> sorted = new ArrayList<AnnotationFS>(annotations.size());
+    Set<Type> unindexedTypes = new HashSet<Type>();
+    for (AnnotationFS each : annotations) {
+      Type type = each.getType();
+      if (type.equals(basicType)) {
+        continue;
+      }
+      if (lazyIndexer != null && (unindexedTypes.contains(type) || !lazyIndexer.isIndexed(type))) {
+        // annotations of types without basic information are added when the type is indexed
+        unindexedTypes.add(type);
+        addAnnotation(each, addToIndex, true, creator);
+      } else {
+        sorted.add(each);
+      }
+    }
+    if (sorted.isEmpty()) {
+      return;
+    }
+    Collections.sort(sorted, BEGIN_COMPARATOR);
+    anchors.modified();
+
+    boolean modified = false;
+    Map<Type, List<AnnotationFS>> typeAnnotations = new LinkedHashMap<Type, List<AnnotationFS>>();
+    for (AnnotationFS each : sorted) {
+      Type type = each.getType();
+      if (!indexType(type)) {
+        continue;
+      }
+      modified |= checkSpan(each);
+      List<AnnotationFS> list = typeAnnotations.get(type);
+      if (list == null) {
+        list = new ArrayList<AnnotationFS>();
+        typeAnnotations.put(type, list);
+      }
+      list.add(each);
+    }
+    if (modified) {
+      updateIterators(filter.getWindowAnnotation());
+    }
+    for (Entry<Type, List<AnnotationFS>> entry : typeAnnotations.entrySet()) {
+      Type type = entry.getKey();
+      if (conditionCache != null) {
+        conditionCache.typeModified(type);
+      }
+      for (AnnotationFS each : entry.getValue()) {
+        RutaBasic beginAnchor = getBeginAnchor(each.getBegin());
+        RutaBasic endAnchor = getEndAnchor(each.getEnd());
+        if (beginAnchor != null) {
+          beginAnchor.addBegin(each, type);
+        }
+        if (endAnchor != null) {
+          endAnchor.addEnd(each, type);
+        }
+      }
+      addPartOf(type, entry.getValue());
+    }
+    if (!typeAnnotations.isEmpty()) {
+      updateCounts(sorted);
+    }
+    for (AnnotationFS each : sorted) {
+      if (addToIndex) {
+        cas.addFsToIndexes(each);
+      }
+      crowd.annotationAdded(each, creator);
+    }
+  }
+
+  /**
+   * Increments the part-of counts of the basics that begin within the annotations. Each basic is
+   * visited once with the number of annotations covering it.
+   * 
+   * @param type
+   *          the type of the annotations
+   * @param annotations
+   *          the annotations of the type sorted by their begin
+   */
+  private void addPartOf(Type type, List<AnnotationFS> annotations) {
+    long visibilityBits = visibility == null ? 0 : visibility.getRelevantBits(type);
+    PriorityQueue<Integer> ends = new PriorityQueue<Integer>();
+    int next = 0;
+    RutaBasic basic = null;
+    while (next < annotations.size() || !ends.isEmpty()) {
+      if (ends.isEmpty()) {
+        // continue with the next annotation instead of visiting uncovered basics
+        basic = anchors.ceilingBegin(annotations.get(next).getBegin());
+        if (basic == null) {
+          return;
+        }
+      }
+      while (next < annotations.size() && annotations.get(next).getBegin() <= basic.getBegin()) {
+        AnnotationFS each = annotations.get(next++);
+        if (each.getBegin() < each.getEnd()) {
+          ends.add(each.getEnd());
+        }
+      }
+      while (!ends.isEmpty() && ends.peek() <= basic.getBegin()) {
+        ends.poll();
+      }
+      if (!ends.isEmpty()) {
+        basic.addPartOf(type, ends.size());
+        if (visibilityBits != 0) {
+          visibility.update(basic, visibilityBits);
+        }
+        basic = anchors.next(basic);
+        if (basic == null) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void updateCounts(List<AnnotationFS> sorted) {
+    if (countIndex == null || !countIndex.isActive()) {
+      return;
+    }
+    int updated = -1;
+    for (AnnotationFS each : sorted) {
+      if (each.getBegin() < each.getEnd()) {
+        for (RutaBasic basic : anchors.getBasics(Math.max(each.getBegin(), updated),
+                each.getEnd())) {
+          countIndex.update(basic);
+        }
+        updated = Math.max(updated, each.getEnd());
+      }
+      // the begin and end anchors of empty annotations are not part of the annotation
+      RutaBasic beginAnchor = getBeginAnchor(each.getBegin());
+      if (beginAnchor != null) {
+        countIndex.update(beginAnchor);
+      }
+      RutaBasic endAnchor = getEndAnchor(each.getEnd());
+      if (endAnchor != null) {
+        countIndex.update(endAnchor);
+      }
+    }
+  }
+
   private boolean indexType(Type type) {
     if (typeUsage != null) {
       boolean contains = typeUsage.getUsedTypesWithSubTypes().contains(type.getName());
@@ -394,44 +679,48 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   }
 
   private boolean checkAnchor(int anchor) {
-    Entry<Integer, RutaBasic> floorEntry = endAnchors.floorEntry(anchor);
-    if (floorEntry == null) {
-      floorEntry = beginAnchors.floorEntry(anchor);
-    }
-    Entry<Integer, RutaBasic> ceilingEntry = endAnchors.ceilingEntry(anchor);
-    if (floorEntry != null && ceilingEntry != null) {
-      RutaBasic floor = floorEntry.getValue();
-      RutaBasic ceiling = ceilingEntry.getValue();
-      RutaBasic toSplit = null;
-      if (floor.getEnd() > anchor) {
-        toSplit = floor;
-      } else {
-        toSplit = ceiling;
-      }
-      int newEnd = toSplit.getEnd();
-      if (newEnd == anchor) {
-        return false;
-      }
-      cas.removeFsFromIndexes(toSplit);
-      toSplit.setEnd(anchor);
-      RutaBasic newRB = new RutaBasic(getJCas(), anchor, newEnd);
-      newRB.setLowMemoryProfile(lowMemoryProfile);
-      newRB.setEndMap(toSplit.getEndMap().clone());
-      newRB.setPartOf(toSplit.getPartOf().clone());
-      toSplit.clearEndMap();
-      cas.addFsToIndexes(toSplit);
-      cas.addFsToIndexes(newRB);
-      beginAnchors.put(floor.getBegin(), floor);
-      beginAnchors.put(newRB.getBegin(), newRB);
-      beginAnchors.put(ceiling.getBegin(), ceiling);
-      endAnchors.put(floor.getEnd(), floor);
-      endAnchors.put(newRB.getEnd(), newRB);
-      endAnchors.put(ceiling.getEnd(), ceiling);
-      return true;
-    } else {
-      // TODO this should never happen! test it!
+    RutaBasic toSplit = anchors.floorBegin(anchor);
+    if (toSplit == null || toSplit.getBegin() == anchor || toSplit.getEnd() <= anchor) {
+      // anchor already exists or is not covered by any basic
+      return false;
+    }
+    int newEnd = toSplit.getEnd();
+    cas.removeFsFromIndexes(toSplit);
+    toSplit.setEnd(anchor);
+    RutaBasic newRB = new RutaBasic(getJCas(), anchor, newEnd);
+    toSplit.splitTo(newRB);
+    cas.addFsToIndexes(toSplit);
+    cas.addFsToIndexes(newRB);
+    anchors.split(toSplit, newRB);
+    if (visibility != null) {
+      visibility.split(toSplit, newRB);
+    }
+    if (conditionCache != null) {
+      conditionCache.modified();
+    }
+    if (countIndex != null) {
+      countIndex.update(toSplit);
+      countIndex.update(newRB);
+    }
+    return true;
+  }
+
+  private void updateCounts(AnnotationFS annotation) {
+    if (countIndex == null || !countIndex.isActive()) {
+      return;
+    }
+    for (RutaBasic each : getAllBasicsInWindow(annotation)) {
+      countIndex.update(each);
+    }
+    // the begin and end anchors of empty annotations are not part of the annotation
+    RutaBasic beginAnchor = getBeginAnchor(annotation.getBegin());
+    if (beginAnchor != null) {
+      countIndex.update(beginAnchor);
+    }
+    RutaBasic endAnchor = getEndAnchor(annotation.getEnd());
+    if (endAnchor != null) {
+      countIndex.update(endAnchor);
     }
-    return false;
   }
 
   public void removeAnnotation(AnnotationFS annotationFS) {
@@ -443,9 +732,20 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
       // do not remove DocumentAnnotation
       return;
     }
+    if (lazyIndexer != null) {
+      lazyIndexer.ensureIndexed(type);
+    }
+    anchors.modified();
+    if (conditionCache != null) {
+      conditionCache.typeModified(type);
+    }
+    long visibilityBits = visibility == null ? 0 : visibility.getRelevantBits(type);
     Collection<RutaBasic> basicAnnotationsInWindow = getAllBasicsInWindow(annotation);
     for (RutaBasic basic : basicAnnotationsInWindow) {
       basic.removePartOf(type);
+      if (visibilityBits != 0) {
+        visibility.update(basic, visibilityBits);
+      }
     }
     Type parent = type;
     RutaBasic beginAnchor = getBeginAnchor(annotation.getBegin());
@@ -456,6 +756,7 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     if (endAnchor != null) {
       endAnchor.removeEnd(annotation, parent);
     }
+    updateCounts(annotation);
     if (!(annotation instanceof RutaBasic)) {
       cas.removeFsFromIndexes(annotation);
     }
@@ -477,32 +778,68 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     FilterManager filterManager = new FilterManager(filter.getDefaultFilterTypes(),
             filter.getCurrentFilterTypes(), filter.getCurrentRetainTypes(), windowAnnotation,
             windowType, emptyIsInvisible, cas);
+    filterManager.setVisibilityIndex(visibility);
 
-    // NavigableMap<Integer, RutaBasic> newBeginAnchors = beginAnchors.subMap(
-    // windowAnnotation.getBegin(), true, windowAnnotation.getEnd(), false);
-    // NavigableMap<Integer, RutaBasic> newEndAnchors =
-    // endAnchors.subMap(windowAnnotation.getBegin(),
-    // false, windowAnnotation.getEnd(), true);
-
-    RutaStream stream = new RutaStream(cas, basicType, beginAnchors, endAnchors, filterManager,
+    RutaStream stream = new RutaStream(cas, basicType, anchors, filterManager,
             lowMemoryProfile, simpleGreedyForComposed, emptyIsInvisible, typeUsage, crowd);
+    stream.parent = this;
+    initializeSubStream(stream);
+    return stream;
+  }
+
+  /**
+   * Returns the stream of the given window like {@link #getWindowStream(AnnotationFS, Type)}, but
+   * moves the stream of a previous window of this stream to the new window instead of creating a
+   * new stream. The stream shares the anchors and the caches of this stream and only its window
+   * and iterators are updated, which is useful for blocks applied on many windows. The previous
+   * window stream must not be used for its old window afterwards.
+   * 
+   * @param windowAnnotation
+   *          the new window
+   * @param windowType
+   *          the type of the new window
+   * @param previous
+   *          the stream returned for the previous window, or null
+   * @return the stream of the window
+   */
+  public RutaStream getWindowStream(AnnotationFS windowAnnotation, Type windowType,
+          RutaStream previous) {
+    if (previous == null || previous.parent != this) {
+      return getWindowStream(windowAnnotation, windowType);
+    }
+    if (windowAnnotation.getBegin() == documentAnnotation.getBegin()
+            && windowAnnotation.getEnd() == documentAnnotation.getEnd()) {
+      return this;
+    }
+    previous.filter.setWindow(windowAnnotation, windowType, filter.getCurrentFilterTypes(),
+            filter.getCurrentRetainTypes());
+    previous.documentAnnotation = windowAnnotation;
+    previous.documentAnnotationType = windowType;
+    previous.anchorCandidates = null;
+    previous.updateIterators(windowAnnotation);
+    initializeSubStream(previous);
+    return previous;
+  }
+
+  private void initializeSubStream(RutaStream stream) {
+    stream.setSparseAnchorProfile(sparseAnchorProfile);
+    stream.lazyIndexing = lazyIndexing;
+    stream.lazyIndexer = lazyIndexer;
+    stream.countIndex = countIndex;
+    stream.conditionCache = conditionCache;
+    stream.visibility = visibility;
     stream.setDynamicAnchoring(dynamicAnchoring);
     stream.setGreedyRuleElement(greedyRuleElement);
     stream.setGreedyRule(greedyRule);
     stream.setMaxRuleMatches(maxRuleMatches);
     stream.setMaxRuleElementMatches(maxRuleElementMatches);
-    return stream;
   }
 
   @Override
   public FSIterator<AnnotationFS> copy() {
-    RutaStream stream = new RutaStream(cas, basicType, beginAnchors, endAnchors, filter,
+    RutaStream stream = new RutaStream(cas, basicType, anchors, filter,
             lowMemoryProfile, simpleGreedyForComposed, emptyIsInvisible, typeUsage, crowd);
-    stream.setDynamicAnchoring(dynamicAnchoring);
-    stream.setGreedyRuleElement(greedyRuleElement);
-    stream.setGreedyRule(greedyRule);
-    stream.setMaxRuleMatches(maxRuleMatches);
-    stream.setMaxRuleElementMatches(maxRuleElementMatches);
+    initializeSubStream(stream);
     return stream;
   }
 
@@ -547,10 +884,17 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
 
   public List<AnnotationFS> getOverappingAnnotations(AnnotationFS window, Type type) {
     List<AnnotationFS> result = new ArrayList<AnnotationFS>();
-    AnnotationFS newWindow = cas.createAnnotation(type, window.getBegin(), window.getEnd() - 1);
-    FSIterator<AnnotationFS> iterator = cas.getAnnotationIndex(type).iterator(newWindow);
+    FSIterator<AnnotationFS> iterator = cas.getAnnotationIndex(type).iterator();
+    iterator.moveTo(window);
+    // annotations with the same offsets can follow the window in the index
+    while (iterator.isValid() && iterator.get().getBegin() == window.getBegin()
+            && iterator.get().getEnd() == window.getEnd()) {
+      iterator.moveToNext();
+    }
     if (!iterator.isValid()) {
       iterator.moveToLast();
+    } else {
+      iterator.moveToPrevious();
     }
     while (iterator.isValid()) {
       FeatureStructure fs = iterator.get();
@@ -611,15 +955,54 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     if (windowAnnotation == null || type == null) {
       return Collections.emptyList();
     }
-    TypeSystem typeSystem = this.getCas().getTypeSystem();
     List<AnnotationFS> result = new ArrayList<AnnotationFS>();
-    if (typeSystem.subsumes(type, windowAnnotation.getType())) {
-      result.add(windowAnnotation);
+    AnnotationCursor cursor = getAnnotationCursor(type, windowAnnotation);
+    while (cursor.isValid()) {
+      result.add(cursor.get());
+      cursor.moveToNext();
     }
-    result.addAll(CasUtil.selectCovered(this.cas, type, windowAnnotation));
     return result;
   }
 
+  /**
+   * Returns a cursor over the annotations of the given type like
+   * {@link #getAnnotationsInWindow(AnnotationFS, Type)}: the window annotation itself if its type
+   * is subsumed by the given type, followed by the annotations covered by the window. The
+   * visibility of the annotations is not checked.
+   * 
+   * @param type
+   *          the type of the annotations
+   * @param windowAnnotation
+   *          the window
+   * @return the cursor positioned at the first annotation
+   */
+  public AnnotationCursor getAnnotationCursor(Type type, AnnotationFS windowAnnotation) {
+    AnnotationFS window = cas.getTypeSystem().subsumes(type, windowAnnotation.getType())
+            ? windowAnnotation : null;
+    return new AnnotationCursor(cas.getAnnotationIndex(type).iterator(), windowAnnotation,
+            windowAnnotation.getBegin(), windowAnnotation.getEnd(), null, window);
+  }
+
+  /**
+   * Returns a cursor over the visible annotations of the given type in the window of this stream
+   * like {@link #getAnnotations(Type)}.
+   * 
+   * @param type
+   *          the type of the annotations
+   * @return the cursor positioned at the first visible annotation
+   */
+  public AnnotationCursor getAnnotationCursor(Type type) {
+    FSIterator<AnnotationFS> iterator = cas.getAnnotationIndex(type).iterator();
+    AnnotationFS windowAnnotation = filter.getWindowAnnotation();
+    if (windowAnnotation != null
+            && (windowAnnotation.getBegin() != cas.getDocumentAnnotation().getBegin()
+                    || windowAnnotation.getEnd() != cas.getDocumentAnnotation().getEnd())) {
+      return new AnnotationCursor(iterator, windowAnnotation, windowAnnotation.getBegin(),
+              windowAnnotation.getEnd(), this, null);
+    }
+    return new AnnotationCursor(iterator, null, 0, Integer.MAX_VALUE, this, null);
+  }
+
   public Collection<RutaBasic> getAllBasicsInWindow(AnnotationFS windowAnnotation) {
     if (windowAnnotation.getBegin() >= windowAnnotation.getEnd()) {
       return Collections.emptySet();
@@ -630,15 +1013,7 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
       result.add(beginAnchor);
       return result;
     }
-    Collection<RutaBasic> subSet = null;
-    if (windowAnnotation.getEnd() == cas.getDocumentAnnotation().getEnd()
-            && windowAnnotation.getBegin() == 0) {
-      subSet = beginAnchors.values();
-    } else {
-      subSet = beginAnchors
-              .subMap(windowAnnotation.getBegin(), true, windowAnnotation.getEnd(), false).values();
-    }
-    return subSet;
+    return anchors.getBasics(windowAnnotation.getBegin(), windowAnnotation.getEnd());
   }
 
   public RutaBasic getBasicNextTo(boolean before, AnnotationFS annotation) {
@@ -649,36 +1024,26 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
 
     if (before) {
 
-      RutaBasic pointer = endAnchors.get(annotation.getBegin());
+      RutaBasic pointer = anchors.getEndAnchor(annotation.getBegin());
       while (pointer != null && pointer.getBegin() >= documentAnnotation.getBegin()) {
 
         if (isVisible(pointer)) {
           return pointer;
         }
 
-        Entry<Integer, RutaBasic> lowerEntry = endAnchors.lowerEntry(pointer.getEnd());
-        if (lowerEntry != null) {
-          pointer = lowerEntry.getValue();
-        } else {
-          pointer = null;
-        }
+        pointer = anchors.previous(pointer);
       }
 
     } else {
 
-      RutaBasic pointer = beginAnchors.get(annotation.getEnd());
+      RutaBasic pointer = anchors.getBeginAnchor(annotation.getEnd());
       while (pointer != null && pointer.getEnd() <= documentAnnotation.getEnd()) {
 
         if (isVisible(pointer)) {
           return pointer;
         }
 
-        Entry<Integer, RutaBasic> higherEntry = beginAnchors.higherEntry(pointer.getBegin());
-        if (higherEntry != null) {
-          pointer = higherEntry.getValue();
-        } else {
-          pointer = null;
-        }
+        pointer = anchors.next(pointer);
       }
     }
     return null;
@@ -701,6 +1066,104 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
     return result;
   }
 
+  /**
+   * Checks whether the visible basics within the window and the annotations of the type beginning
+   * at them can be counted with the positional index of the stream, i.e., without iterating over
+   * the basics. This is the case if the window starts and ends at basics within the window of the
+   * stream and if the annotations are not added lazily.
+   * 
+   * @param windowAnnotation
+   *          the window
+   * @param type
+   *          the type of the counted annotations
+   * @return true, if the counting methods of the stream can be used for the window and the type
+   */
+  public boolean isCountIndexed(AnnotationFS windowAnnotation, Type type) {
+    if (countIndex == null || lazyIndexer != null || windowAnnotation == null
+            || windowAnnotation instanceof RutaBasic || type == null) {
+      return false;
+    }
+    int begin = windowAnnotation.getBegin();
+    int end = windowAnnotation.getEnd();
+    if (begin >= end || getBeginAnchor(begin) == null || getEndAnchor(end) == null) {
+      return false;
+    }
+    AnnotationFS streamWindow = filter.getWindowAnnotation();
+    if (streamWindow != null && (begin < streamWindow.getBegin() || end > streamWindow.getEnd())) {
+      return false;
+    }
+    if (cas.getTypeSystem().subsumes(type, basicType) || filter.getCurrentHiddenTypes() == null) {
+      return false;
+    }
+    countIndex.setVisibility(filter.getCurrentHiddenTypes(), emptyIsInvisible);
+    return true;
+  }
+
+  /**
+   * Counts the visible basics within the window. Only applicable if
+   * {@link #isCountIndexed(AnnotationFS, Type)} is true for the window.
+   * 
+   * @param windowAnnotation
+   *          the window
+   * @return the number of visible basics within the window
+   */
+  public int countBasicsInWindow(AnnotationFS windowAnnotation) {
+    return countIndex.countVisibleBasics(windowAnnotation.getBegin(), windowAnnotation.getEnd());
+  }
+
+  /**
+   * Counts the visible basics within the window that begin with or are part of an annotation of
+   * the type. Only applicable if {@link #isCountIndexed(AnnotationFS, Type)} is true for the window
+   * and the type.
+   * 
+   * @param windowAnnotation
+   *          the window
+   * @param type
+   *          the type
+   * @return the number of visible basics covered by the type within the window
+   */
+  public int countBasicsPartOf(AnnotationFS windowAnnotation, Type type) {
+    return countIndex.countCoveredBasics(type, windowAnnotation.getBegin(),
+            windowAnnotation.getEnd());
+  }
+
+  /**
+   * Counts the annotations of the type that begin at a visible basic within the window. Only
+   * applicable if {@link #isCountIndexed(AnnotationFS, Type)} is true for the window and the type.
+   * 
+   * @param windowAnnotation
+   *          the window
+   * @param type
+   *          the type
+   * @param withinWindow
+   *          true, if annotations ending after the window should not be counted
+   * @return the number of annotations of the type beginning within the window
+   */
+  public int countBeginAnchorsInWindow(AnnotationFS windowAnnotation, Type type,
+          boolean withinWindow) {
+    return countBeginAnchorsInWindow(windowAnnotation.getBegin(), windowAnnotation.getEnd(), type,
+            withinWindow);
+  }
+
+  /**
+   * Counts the annotations of the type that begin at a visible basic within the offsets. Only
+   * applicable if {@link #isCountIndexed(AnnotationFS, Type)} is true for a window containing the
+   * offsets and the type.
+   * 
+   * @param begin
+   *          the begin offset
+   * @param end
+   *          the end offset, which must be the end of a basic
+   * @param type
+   *          the type
+   * @param withinWindow
+   *          true, if annotations ending after the end offset should not be counted
+   * @return the number of annotations of the type beginning within the offsets
+   */
+  public int countBeginAnchorsInWindow(int begin, int end, Type type, boolean withinWindow) {
+    return countIndex.countBeginAnchors(type, begin, end, withinWindow);
+  }
+
   public RutaBasic getFirstBasicInWindow(AnnotationFS windowAnnotation) {
     return getFirstBasicInWindow(windowAnnotation, currentIt);
   }
@@ -736,31 +1199,44 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   public void retainTypes(List<Type> list) {
     filter.retainTypes(list);
     currentIt = filter.createFilteredIterator(cas, basicType);
+    filterModified();
   }
 
   public void filterTypes(List<Type> list) {
     filter.filterTypes(list);
     currentIt = filter.createFilteredIterator(cas, basicType);
+    filterModified();
   }
 
   public void addFilterTypes(List<Type> types) {
     filter.addFilterTypes(types);
     currentIt = filter.createFilteredIterator(cas, basicType);
+    filterModified();
   }
 
   public void addRetainTypes(List<Type> types) {
     filter.addRetainTypes(types);
     currentIt = filter.createFilteredIterator(cas, basicType);
+    filterModified();
   }
 
   public void removeFilterTypes(List<Type> types) {
     filter.removeFilterTypes(types);
     currentIt = filter.createFilteredIterator(cas, basicType);
+    filterModified();
   }
 
   public void removeRetainTypes(List<Type> types) {
     filter.removeRetainTypes(types);
     currentIt = filter.createFilteredIterator(cas, basicType);
+    filterModified();
+  }
+
+  private void filterModified() {
+    anchors.modified();
+    if (conditionCache != null) {
+      conditionCache.modified();
+    }
   }
 
   public FilterManager getFilter() {
@@ -768,17 +1244,11 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   }
 
   public RutaBasic getFirstBasicOfAll() {
-    if (beginAnchors.isEmpty()) {
-      return null;
-    }
-    return beginAnchors.firstEntry().getValue();
+    return anchors.getFirst();
   }
 
   public RutaBasic getLastBasicOfAll() {
-    if (endAnchors.isEmpty()) {
-      return null;
-    }
-    return endAnchors.lastEntry().getValue();
+    return anchors.getLast();
   }
 
   public Type getDocumentAnnotationType() {
@@ -805,11 +1275,35 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   }
 
   public RutaBasic getEndAnchor(int end) {
-    return endAnchors.get(end);
+    return anchors.getEndAnchor(end);
   }
 
   public RutaBasic getBeginAnchor(int begin) {
-    return beginAnchors.get(begin);
+    return anchors.getBeginAnchor(begin);
+  }
+
+  public boolean isSparseAnchorProfile() {
+    return sparseAnchorProfile;
+  }
+
+  public void setSparseAnchorProfile(boolean sparseAnchorProfile) {
+    this.sparseAnchorProfile = sparseAnchorProfile;
+  }
+
+  public boolean isLazyIndexing() {
+    return lazyIndexing;
+  }
+
+  /**
+   * Specifies whether the annotations of the reindexed types are added to the basics when the
+   * information about their type is requested for the first time instead of when the basics are
+   * initialized.
+   * 
+   * @param lazyIndexing
+   *          true, if the annotations should be added on demand
+   */
+  public void setLazyIndexing(boolean lazyIndexing) {
+    this.lazyIndexing = lazyIndexing;
   }
 
   public boolean isDynamicAnchoring() {
@@ -886,26 +1380,13 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
                     || annotationFS.getEnd() > windowAnnotation.getEnd())) {
       return false;
     }
-    int begin = annotationFS.getBegin();
-    int end = annotationFS.getEnd();
-    Set<Type> currentHiddenTypes = filter.getCurrentHiddenTypes();
-    RutaBasic beginAnchor = getBeginAnchor(begin);
-    if (beginAnchor != null) {
-      for (Type type : currentHiddenTypes) {
-        boolean partOf = beginAnchor.isPartOf(type);
-        if (partOf) {
-          return false;
-        }
-      }
+    RutaBasic beginAnchor = getBeginAnchor(annotationFS.getBegin());
+    if (beginAnchor != null && filter.isHidden(beginAnchor)) {
+      return false;
     }
-    RutaBasic endAnchor = getEndAnchor(end);
-    if (endAnchor != null) {
-      for (Type type : currentHiddenTypes) {
-        boolean partOf = endAnchor.isPartOf(type);
-        if (partOf) {
-          return false;
-        }
-      }
+    RutaBasic endAnchor = getEndAnchor(annotationFS.getEnd());
+    if (endAnchor != null && filter.isHidden(endAnchor)) {
+      return false;
     }
     return true;
   }
@@ -927,31 +1408,45 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   }
 
   public Collection<AnnotationFS> getAnnotations(Type type) {
-    Collection<AnnotationFS> result = new LinkedList<AnnotationFS>();
-    AnnotationFS windowAnnotation = filter.getWindowAnnotation();
-    if (windowAnnotation != null
-            && (windowAnnotation.getBegin() != cas.getDocumentAnnotation().getBegin()
-                    || windowAnnotation.getEnd() != cas.getDocumentAnnotation().getEnd())) {
-      AnnotationFS frame = cas.createAnnotation(cas.getTypeSystem().getType(RutaEngine.FRAME_TYPE),
-              windowAnnotation.getBegin(), windowAnnotation.getEnd());
-      FSIterator<AnnotationFS> subiterator = cas.getAnnotationIndex(type).subiterator(frame);
-      while (subiterator.hasNext()) {
-        AnnotationFS each = subiterator.next();
-        if (isVisible(each)) {
-          result.add(each);
-        }
-      }
-    } else {
-      AnnotationIndex<AnnotationFS> annotationIndex = cas.getAnnotationIndex(type);
-      for (AnnotationFS each : annotationIndex) {
-        if (isVisible(each)) {
-          result.add(each);
-        }
-      }
+    Collection<AnnotationFS> result = new ArrayList<AnnotationFS>();
+    AnnotationCursor cursor = getAnnotationCursor(type);
+    while (cursor.isValid()) {
+      result.add(cursor.get());
+      cursor.moveToNext();
     }
     return result;
   }
 
+  /**
+   * Returns the visible annotations of the given type like {@link #getAnnotations(Type)}, but
+   * reuses the result for subsequent calls until the annotations or the visibility change.
+   * 
+   * @param type
+   *          the type of the annotations
+   * @return unmodifiable list of the visible annotations of the type in the window of the stream
+   */
+  public List<AnnotationFS> getAnchorCandidates(Type type) {
+    if (anchorCandidates == null) {
+      anchorCandidates = new AnchorCandidateCache(this, anchors);
+    }
+    return anchorCandidates.getAnnotations(type);
+  }
+
+  /**
+   * Returns the visible basics in the window of the stream that cover exactly the given text. The
+   * result is reused for subsequent calls until the annotations or the visibility change.
+   * 
+   * @param coveredText
+   *          the text of the basic
+   * @return unmodifiable list of the matching basics
+   */
+  public List<RutaBasic> getLiteralAnchorCandidates(String coveredText) {
+    if (anchorCandidates == null) {
+      anchorCandidates = new AnchorCandidateCache(this, anchors);
+    }
+    return anchorCandidates.getBasics(coveredText);
+  }
+
   public String getVisibleCoveredText(AnnotationFS annotationFS) {
     StringBuilder result = new StringBuilder();
     List<RutaBasic> basicsInWindow = getBasicsInWindow(annotationFS);
@@ -1232,11 +1727,12 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   }
 
   public AnnotationFS getSingleAnnotationByTypeInContext(Type type, MatchContext context) {
-    List<AnnotationFS> inWindow = this.getAnnotationsInWindow(context.getAnnotation(), type);
-    if (inWindow != null && !inWindow.isEmpty()) {
-      return inWindow.get(0);
+    AnnotationFS annotation = context.getAnnotation();
+    if (annotation == null || type == null) {
+      return null;
     }
-    return null;
+    AnnotationCursor cursor = getAnnotationCursor(type, annotation);
+    return cursor.isValid() ? cursor.get() : null;
   }
 
   public List<AnnotationFS> getAnnotationsByTypeInContext(Type type, MatchContext context) {
@@ -1383,4 +1879,39 @@ public class RutaStream extends FSIteratorImplBase<AnnotationFS> {
   public long getMaxRuleElementMatches() {
     return this.maxRuleElementMatches;
   }
+
+  /**
+   * Activates the reuse of the results of cacheable conditions for this stream and all streams
+   * derived from it.
+   * 
+   * @param conditionCache
+   *          the cache for the current document, or null to evaluate all conditions again
+   */
+  public void setConditionCache(ConditionCache conditionCache) {
+    this.conditionCache = conditionCache;
+  }
+
+  public ConditionCache getConditionCache() {
+    return conditionCache;
+  }
+
+  /**
+   * Evaluates the condition in the given context, or reuses its previous result if the condition
+   * cache is active.
+   * 
+   * @param condition
+   *          the condition
+   * @param context
+   *          the context of the evaluation
+   * @param crowd
+   *          the inference crowd
+   * @return the evaluated condition
+   */
+  public EvaluatedCondition evalCondition(AbstractRutaCondition condition, MatchContext context,
+          InferenceCrowd crowd) {
+    if (conditionCache == null) {
+      return condition.eval(context, this, crowd);
+    }
+    return conditionCache.eval(condition, context, this, crowd);
+  }
 }
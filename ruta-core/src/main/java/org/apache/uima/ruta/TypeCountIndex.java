@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.constraint.BasicTypeConstraint;
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * Positional counts of the visible basics for conditions like CONTAINS. For each requested type,
+ * the number of visible basics covered by the type and the number of annotations of the type
+ * beginning at a visible basic are stored in binary indexed trees over the begin offsets of the
+ * basics, so that the counts within a window are computed in logarithmic time. The counts of a
+ * basic are updated when an annotation is added or removed, or when the basic is split. All counts
+ * depend on the hidden types and are dropped when the visibility changes.
+ */
+final class TypeCountIndex {
+
+  private final AnchorIndex anchors;
+
+  private Set<Type> hiddenTypes;
+
+  private boolean emptyIsInvisible;
+
+  private BasicTypeConstraint invisible;
+
+  private int capacity;
+
+  /** The number of visible basics, or null if not yet requested. */
+  private int[] visibleBasics;
+
+  private final Map<Type, TypeCounts> typeCounts = new HashMap<Type, TypeCounts>();
+
+  TypeCountIndex(AnchorIndex anchors, int documentLength) {
+    super();
+    this.anchors = anchors;
+    this.capacity = documentLength + 1;
+  }
+
+  /**
+   * Sets the hidden types of the basics that should be counted. The counts are dropped if the
+   * visibility changes.
+   */
+  void setVisibility(Collection<Type> hiddenTypes, boolean emptyIsInvisible) {
+    if (this.hiddenTypes != null && this.emptyIsInvisible == emptyIsInvisible
+            && this.hiddenTypes.size() == hiddenTypes.size()
+            && this.hiddenTypes.containsAll(hiddenTypes)) {
+      return;
+    }
+    this.hiddenTypes = new HashSet<Type>(hiddenTypes);
+    this.emptyIsInvisible = emptyIsInvisible;
+    this.invisible = new BasicTypeConstraint(this.hiddenTypes, emptyIsInvisible);
+    clear();
+  }
+
+  boolean isActive() {
+    return visibleBasics != null;
+  }
+
+  void clear() {
+    visibleBasics = null;
+    typeCounts.clear();
+  }
+
+  /**
+   * Updates the counts of a basic after its annotations, its visibility or its span changed.
+   */
+  void update(RutaBasic basic) {
+    if (!isActive()) {
+      return;
+    }
+    int offset = basic.getBegin();
+    if (offset >= capacity) {
+      capacity = Math.max(offset + 1, capacity * 2);
+      clear();
+      return;
+    }
+    boolean visible = isVisible(basic);
+    set(visibleBasics, offset, visible ? 1 : 0);
+    for (Map.Entry<Type, TypeCounts> each : typeCounts.entrySet()) {
+      Type type = each.getKey();
+      TypeCounts counts = each.getValue();
+      set(counts.coveredBasics, offset, visible && isCovered(basic, type) ? 1 : 0);
+      set(counts.beginAnchors, offset, visible ? basic.getBeginAnchors(type).size() : 0);
+    }
+  }
+
+  boolean isVisible(RutaBasic basic) {
+    return !invisible.match(basic);
+  }
+
+  /**
+   * @return the number of visible basics beginning within the offsets
+   */
+  int countVisibleBasics(int begin, int end) {
+    if (visibleBasics == null) {
+      RutaBasic last = anchors.getLast();
+      if (last != null && last.getEnd() >= capacity) {
+        capacity = last.getEnd() + 1;
+      }
+      visibleBasics = new int[capacity + 1];
+      for (RutaBasic each : anchors.getBasics(0, Integer.MAX_VALUE)) {
+        visibleBasics[each.getBegin() + 1] = isVisible(each) ? 1 : 0;
+      }
+      initialize(visibleBasics);
+    }
+    return sum(visibleBasics, begin, end);
+  }
+
+  /**
+   * @return the number of visible basics beginning within the offsets that begin with or are part
+   *         of an annotation of the type
+   */
+  int countCoveredBasics(Type type, int begin, int end) {
+    return sum(getTypeCounts(type).coveredBasics, begin, end);
+  }
+
+  /**
+   * @param withinEnd
+   *          true, if only annotations ending at or before the end offset should be counted
+   * @return the number of annotations of the type beginning at a visible basic within the offsets
+   */
+  int countBeginAnchors(Type type, int begin, int end, boolean withinEnd) {
+    int result = sum(getTypeCounts(type).beginAnchors, begin, end);
+    if (withinEnd) {
+      // annotations ending after the window cover all basics between their begin and the end
+      RutaBasic basic = anchors.getEndAnchor(end);
+      while (basic != null && basic.getBegin() >= begin && basic.isPartOf(type)) {
+        if (isVisible(basic)) {
+          for (AnnotationFS each : basic.getBeginAnchors(type)) {
+            if (each.getEnd() > end) {
+              result--;
+            }
+          }
+        }
+        basic = anchors.previous(basic);
+      }
+    }
+    return result;
+  }
+
+  private TypeCounts getTypeCounts(Type type) {
+    TypeCounts result = typeCounts.get(type);
+    if (result == null) {
+      // the visible basics are needed for updating the counts of the type
+      countVisibleBasics(0, 0);
+      result = new TypeCounts(capacity);
+      for (RutaBasic each : anchors.getBasics(0, Integer.MAX_VALUE)) {
+        if (isVisible(each)) {
+          int index = each.getBegin() + 1;
+          result.coveredBasics[index] = isCovered(each, type) ? 1 : 0;
+          result.beginAnchors[index] = each.getBeginAnchors(type).size();
+        }
+      }
+      initialize(result.coveredBasics);
+      initialize(result.beginAnchors);
+      typeCounts.put(type, result);
+    }
+    return result;
+  }
+
+  private static boolean isCovered(RutaBasic basic, Type type) {
+    return basic.beginsWith(type) || basic.isPartOf(type);
+  }
+
+  private static void initialize(int[] tree) {
+    for (int i = 1; i < tree.length; i++) {
+      int parent = i + (i & -i);
+      if (parent < tree.length) {
+        tree[parent] += tree[i];
+      }
+    }
+  }
+
+  private static int sum(int[] tree, int begin, int end) {
+    int last = Math.min(end, tree.length - 1);
+    return prefix(tree, last) - prefix(tree, Math.min(begin, last));
+  }
+
+  private static int prefix(int[] tree, int end) {
+    int result = 0;
+    for (int i = end; i > 0; i -= i & -i) {
+      result += tree[i];
+    }
+    return result;
+  }
+
+  private static void set(int[] tree, int offset, int value) {
+    int delta = value - (prefix(tree, offset + 1) - prefix(tree, offset));
+    if (delta != 0) {
+      for (int i = offset + 1; i < tree.length; i += i & -i) {
+        tree[i] += delta;
+      }
+    }
+  }
+
+  private static class TypeCounts {
+
+    private final int[] coveredBasics;
+
+    private final int[] beginAnchors;
+
+    TypeCounts(int capacity) {
+      super();
+      coveredBasics = new int[capacity + 1];
+      beginAnchors = new int[capacity + 1];
+    }
+  }
+
+}
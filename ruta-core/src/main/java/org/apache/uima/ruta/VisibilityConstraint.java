@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.Collection;
+
+import org.apache.uima.cas.FSMatchConstraint;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * Matches the visible basics of a filter configuration. The basics are checked against the mask
+ * of the hidden types if the visibility index of the filter manager is available, and against each
+ * hidden type otherwise. Feature structures that are not basics always match.
+ */
+final class VisibilityConstraint implements FSMatchConstraint {
+
+  private static final long serialVersionUID = -3212553297013185562L;
+
+  private final FilterManager filter;
+
+  private final Collection<Type> hiddenTypes;
+
+  private final boolean emptyIsInvisible;
+
+  private transient VisibilityIndex maskIndex;
+
+  private transient long mask;
+
+  VisibilityConstraint(FilterManager filter, Collection<Type> hiddenTypes,
+          boolean emptyIsInvisible) {
+    super();
+    this.filter = filter;
+    this.hiddenTypes = hiddenTypes;
+    this.emptyIsInvisible = emptyIsInvisible;
+  }
+
+  @Override
+  public boolean match(FeatureStructure fs) {
+    if (!(fs instanceof RutaBasic)) {
+      return true;
+    }
+    RutaBasic basic = (RutaBasic) fs;
+    if (basic.isEmpty()) {
+      return !emptyIsInvisible;
+    }
+    return !isHidden(basic);
+  }
+
+  /**
+   * @param basic
+   *          the basic
+   * @return true if the basic is part of an annotation of a hidden type
+   */
+  boolean isHidden(RutaBasic basic) {
+    VisibilityIndex index = filter.getVisibilityIndex();
+    if (index != null) {
+      if (index != maskIndex) {
+        mask = index.getHiddenMask(hiddenTypes);
+        maskIndex = index;
+      }
+      if (mask != VisibilityIndex.UNSUPPORTED) {
+        return index.isHidden(basic, mask);
+      }
+    }
+    for (Type each : hiddenTypes) {
+      if (basic.isPartOf(each)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "NOT (BASIC  with " + hiddenTypes + ")";
+  }
+
+}
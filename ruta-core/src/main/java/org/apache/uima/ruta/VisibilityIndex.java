@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * Index of the types that cover the {@link RutaBasic} annotations, restricted to the types that
+ * have been hidden by a filter configuration. Each of these types is assigned to a bit, and each
+ * basic is represented by a mask of the types it is part of, so that the visibility of a basic is
+ * checked with a single operation against the mask of the hidden types. A type is added to the
+ * index when it is hidden for the first time, and the masks are updated when annotations of the
+ * type or of its subtypes are added or removed.
+ */
+final class VisibilityIndex {
+
+  /**
+   * The mask returned if the hidden types cannot be represented, e.g., because too many types were
+   * hidden. The type at the last bit is never assigned.
+   */
+  static final long UNSUPPORTED = -1L;
+
+  private static final int MAX_TYPES = 63;
+
+  private final AnchorIndex anchors;
+
+  private final TypeSystem typeSystem;
+
+  private final List<Type> types = new ArrayList<Type>();
+
+  private final Map<Type, Long> relevantBits = new HashMap<Type, Long>();
+
+  private long[] masks = new long[0];
+
+  VisibilityIndex(AnchorIndex anchors, TypeSystem typeSystem) {
+    super();
+    this.anchors = anchors;
+    this.typeSystem = typeSystem;
+  }
+
+  /**
+   * Returns the mask of the given hidden types. Types that were not hidden before are added to the
+   * index.
+   * 
+   * @param hiddenTypes
+   *          the hidden types of a filter configuration
+   * @return the mask of the types, or {@link #UNSUPPORTED}
+   */
+  long getHiddenMask(Collection<Type> hiddenTypes) {
+    long result = 0;
+    for (Type each : hiddenTypes) {
+      if (each == null) {
+        continue;
+      }
+      int bit = types.indexOf(each);
+      if (bit < 0) {
+        if (types.size() >= MAX_TYPES) {
+          return UNSUPPORTED;
+        }
+        bit = register(each);
+      }
+      result |= 1L << bit;
+    }
+    return result;
+  }
+
+  boolean isHidden(RutaBasic basic, long hiddenMask) {
+    int begin = basic.getBegin();
+    return begin < masks.length && (masks[begin] & hiddenMask) != 0;
+  }
+
+  /**
+   * @param type
+   *          the type of an added or removed annotation
+   * @return the bits of the indexed types that subsume the type, or zero if the masks are not
+   *         affected
+   */
+  long getRelevantBits(Type type) {
+    if (types.isEmpty()) {
+      return 0;
+    }
+    Long result = relevantBits.get(type);
+    if (result == null) {
+      long bits = 0;
+      for (int i = 0; i < types.size(); i++) {
+        if (typeSystem.subsumes(types.get(i), type)) {
+          bits |= 1L << i;
+        }
+      }
+      result = bits;
+      relevantBits.put(type, result);
+    }
+    return result;
+  }
+
+  /**
+   * Updates the mask of a basic after an annotation was added or removed.
+   * 
+   * @param basic
+   *          the basic covered by the annotation
+   * @param bits
+   *          the relevant bits of the type of the annotation
+   */
+  void update(RutaBasic basic, long bits) {
+    if (bits == 0) {
+      return;
+    }
+    int begin = basic.getBegin();
+    ensureCapacity(begin);
+    long mask = masks[begin] & ~bits;
+    for (int i = 0; i < types.size(); i++) {
+      long flag = 1L << i;
+      if ((bits & flag) != 0 && basic.isPartOf(types.get(i))) {
+        mask |= flag;
+      }
+    }
+    masks[begin] = mask;
+  }
+
+  /**
+   * Updates the index after a basic was split. The new basic is part of the same annotations.
+   * 
+   * @param split
+   *          the basic that was shortened
+   * @param tail
+   *          the new basic starting at the end of the shortened basic
+   */
+  void split(RutaBasic split, RutaBasic tail) {
+    if (types.isEmpty()) {
+      return;
+    }
+    ensureCapacity(tail.getBegin());
+    int begin = split.getBegin();
+    masks[tail.getBegin()] = begin < masks.length ? masks[begin] : 0;
+  }
+
+  private int register(Type type) {
+    int bit = types.size();
+    types.add(type);
+    relevantBits.clear();
+    long flag = 1L << bit;
+    for (RutaBasic each : anchors.getBasics(0, Integer.MAX_VALUE)) {
+      ensureCapacity(each.getBegin());
+      if (each.isPartOf(type)) {
+        masks[each.getBegin()] |= flag;
+      }
+    }
+    return bit;
+  }
+
+  private void ensureCapacity(int offset) {
+    if (offset >= masks.length) {
+      masks = Arrays.copyOf(masks, Math.max(offset + 1, masks.length * 2));
+    }
+  }
+
+}
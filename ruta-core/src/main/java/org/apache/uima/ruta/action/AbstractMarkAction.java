@@ -20,6 +20,8 @@
 package org.apache.uima.ruta.action;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.uima.cas.Type;
@@ -29,6 +31,9 @@ import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.engine.RutaEngine;
 import org.apache.uima.ruta.expression.number.INumberExpression;
 import org.apache.uima.ruta.expression.type.ITypeExpression;
+import org.apache.uima.ruta.resource.BinaryTreeWordList;
+import org.apache.uima.ruta.resource.RutaWordList;
+import org.apache.uima.ruta.resource.TreeWordList;
 import org.apache.uima.ruta.rule.MatchContext;
 import org.apache.uima.ruta.rule.RuleElement;
 
@@ -59,6 +64,39 @@ public abstract class AbstractMarkAction extends TypeSensitiveAction {
     return newAnnotation;
   }
 
+  /**
+   * Creates an annotation of the type of this action for each of the given annotations and adds
+   * them to the stream at once.
+   * 
+   * @param annotations
+   *          the annotations that specify the offsets of the new annotations
+   * @param context
+   *          the context of the action
+   * @param stream
+   *          the stream the annotations are added to
+   * @return the new annotations
+   */
+  protected List<AnnotationFS> createAnnotations(Collection<AnnotationFS> annotations,
+          MatchContext context, RutaStream stream) {
+    Type t = type.getType(context, stream);
+    if (t == null || annotations.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<AnnotationFS> result = new ArrayList<AnnotationFS>(annotations.size());
+    for (AnnotationFS each : annotations) {
+      AnnotationFS newAnnotationFS = stream.getCas().createAnnotation(t, each.getBegin(),
+              each.getEnd());
+      if (newAnnotationFS instanceof Annotation) {
+        result.add(newAnnotationFS);
+      }
+    }
+    stream.addAnnotations(result, true, context.getRuleMatch());
+    for (AnnotationFS each : result) {
+      addAnnotationToLabel(each, context);
+    }
+    return result;
+  }
+
   @Override
   public String toString() {
     return super.toString() + "," + type.getClass().getSimpleName();
@@ -73,6 +111,30 @@ public abstract class AbstractMarkAction extends TypeSensitiveAction {
     return false;
   }
 
+  boolean getDictAutomatonParamValue(MatchContext context) {
+    Object configParameterValue = context.getParent().getContext()
+            .getConfigParameterValue(RutaEngine.PARAM_DICT_AUTOMATON);
+    return Boolean.TRUE.equals(configParameterValue);
+  }
+
+  /**
+   * Finds the matches of the word list in the stream. An Aho-Corasick automaton is used if this is
+   * configured for the engine and supported by the word list.
+   */
+  Collection<AnnotationFS> find(RutaWordList list, RutaStream stream, MatchContext context,
+          boolean ignoreCase, int size, char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
+    if (getDictAutomatonParamValue(context)) {
+      if (list instanceof TreeWordList) {
+        return ((TreeWordList) list).findWithAutomaton(stream, ignoreCase, size, ignoreChars,
+                maxIgnoredChars, ignoreWS);
+      } else if (list instanceof BinaryTreeWordList) {
+        return ((BinaryTreeWordList) list).findWithAutomaton(stream, ignoreCase, size,
+                ignoreChars, maxIgnoredChars, ignoreWS);
+      }
+    }
+    return list.find(stream, ignoreCase, size, ignoreChars, maxIgnoredChars, ignoreWS);
+  }
+
   protected List<Integer> getIndexList(MatchContext context, List<INumberExpression> list,
           RutaStream stream) {
     RuleElement element = context.getElement();
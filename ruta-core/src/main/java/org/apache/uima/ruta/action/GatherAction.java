@@ -80,16 +80,17 @@ public class GatherAction extends AbstractStructureAction {
     List<Integer> indexList = getIndexList(indexes, context, stream);
     List<AnnotationFS> matchedAnnotations = match.getMatchedAnnotations(indexList,
             element.getContainer());
+    List<AnnotationFS> created = new ArrayList<AnnotationFS>(matchedAnnotations.size());
     for (AnnotationFS matchedAnnotation : matchedAnnotations) {
       if (matchedAnnotation == null) {
-        return;
+        break;
       }
       FeatureStructure newFS = stream.getCas().createFS(type);
       if (newFS instanceof Annotation) {
         Annotation a = (Annotation) newFS;
         a.setBegin(matchedAnnotation.getBegin());
         a.setEnd(matchedAnnotation.getEnd());
-        stream.addAnnotation(a, match);
+        created.add(a);
         addAnnotationToLabel(a, context);
       }
       TOP newStructure = null;
@@ -99,6 +100,7 @@ public class GatherAction extends AbstractStructureAction {
         newStructure.addToIndexes();
       }
     }
+    stream.addAnnotations(created, false, match);
 
   }
 
@@ -31,6 +31,7 @@ import org.apache.uima.ruta.expression.number.SimpleNumberExpression;
 import org.apache.uima.ruta.expression.resource.WordListExpression;
 import org.apache.uima.ruta.expression.string.AbstractStringListExpression;
 import org.apache.uima.ruta.expression.type.ITypeExpression;
+import org.apache.uima.ruta.resource.BinaryTreeWordList;
 import org.apache.uima.ruta.resource.RutaWordList;
 import org.apache.uima.ruta.resource.TreeWordList;
 import org.apache.uima.ruta.rule.MatchContext;
@@ -86,14 +87,12 @@ public class MarkFastAction extends AbstractMarkAction {
       } else if (stringList != null) {
         wl = new TreeWordList(stringList.getList(context, stream), ignoreWSValue);
       }
-      if (wl instanceof TreeWordList) {
-        Collection<AnnotationFS> found = wl.find(windowStream,
+      if (wl instanceof TreeWordList || wl instanceof BinaryTreeWordList) {
+        Collection<AnnotationFS> found = find(wl, windowStream, context,
                 ignore.getBooleanValue(context, stream),
                 ignoreLength.getIntegerValue(context, stream), null, 0,
                 ignoreWSValue);
-        for (AnnotationFS annotation : found) {
-          createAnnotation(annotation, context, windowStream);
-        }
+        createAnnotations(found, context, windowStream);
       }
     }
   }
@@ -19,6 +19,7 @@
 
 package org.apache.uima.ruta.action;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -118,8 +119,9 @@ public class MarkTableAction extends AbstractMarkAction {
             : getDictWSParamValue(context);
 
     RutaWordList wordList = table.getWordList(index, element.getParent());
-    Collection<AnnotationFS> found = wordList.find(stream, ignoreCaseValue, ignoreLengthValue,
-            ignoreCharValue.toCharArray(), maxIgnoreCharValue, ignoreWSValue);
+    Collection<AnnotationFS> found = find(wordList, stream, context, ignoreCaseValue,
+            ignoreLengthValue, ignoreCharValue.toCharArray(), maxIgnoreCharValue, ignoreWSValue);
+    List<AnnotationFS> created = new ArrayList<AnnotationFS>(found.size());
     for (AnnotationFS annotationFS : found) {
       // HOTFIX: for feature assignment
       String candidate = stream.getVisibleCoveredText(annotationFS);
@@ -138,7 +140,7 @@ public class MarkTableAction extends AbstractMarkAction {
         Annotation a = (Annotation) newFS;
         a.setBegin(annotationFS.getBegin());
         a.setEnd(annotationFS.getEnd());
-        stream.addAnnotation(a, match);
+        created.add(a);
       }
       TOP newStructure = null;
       if (newFS instanceof TOP) {
@@ -147,6 +149,7 @@ public class MarkTableAction extends AbstractMarkAction {
         newStructure.addToIndexes();
       }
     }
+    stream.addAnnotations(created, false, match);
   }
 
   private void fillFeatures(TOP structure, Map<String, Integer> map, AnnotationFS annotationFS,
@@ -48,6 +48,7 @@ public class RutaScriptBlock extends RutaBlock {
     BlockApply result = new BlockApply(this);
     crowd.beginVisit(this, result);
     RuleApply apply = rule.apply(stream, crowd, true);
+    RutaStream window = null;
     for (AbstractRuleMatch<? extends AbstractRule> eachMatch : apply.getList()) {
       if (eachMatch.matched()) {
         List<AnnotationFS> matchedAnnotations = ((RuleMatch) eachMatch).getMatchedAnnotations(null,
@@ -66,7 +67,7 @@ public class RutaScriptBlock extends RutaBlock {
         }
 
         Type type = matcher.getType(getParent() == null ? this : getParent(), stream);
-        RutaStream window = stream.getWindowStream(each, type);
+        window = stream.getWindowStream(each, type, window);
         for (RutaStatement element : getElements()) {
           if (element != null) {
             element.apply(window, crowd);
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.condition;
+
+import org.apache.uima.ruta.RutaStream;
+import org.apache.uima.ruta.rule.MatchContext;
+
+/**
+ * A condition whose result is determined by the span of the matched annotation, the window of the
+ * stream, the values of its arguments and the annotations of the types among these values. Such a
+ * condition is evaluated only once for the same span and arguments while the condition cache of
+ * the stream is active and no annotation of a relevant type was added or removed.
+ */
+public interface CacheableCondition {
+
+  /**
+   * Evaluates the arguments of the condition, which are used in addition to the span of the matched
+   * annotation to identify the result. Types and collections of types contained in the values are
+   * the types the result depends on. The values must provide a suitable implementation of equals.
+   * 
+   * @param context
+   *          the context of the evaluation
+   * @param stream
+   *          the stream the condition is evaluated on
+   * @return the values of the arguments, or null if the result cannot be reused in this context
+   */
+  Object[] getCacheKey(MatchContext context, RutaStream stream);
+
+}
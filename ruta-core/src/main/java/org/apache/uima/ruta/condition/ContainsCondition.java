@@ -46,7 +46,7 @@ import org.apache.uima.ruta.rule.MatchContext;
 import org.apache.uima.ruta.type.RutaBasic;
 import org.apache.uima.ruta.visitor.InferenceCrowd;
 
-public class ContainsCondition extends TypeSentiveCondition {
+public class ContainsCondition extends TypeSentiveCondition implements CacheableCondition {
 
   private final INumberExpression min;
 
@@ -100,6 +100,10 @@ public class ContainsCondition extends TypeSentiveCondition {
           // shortcut for simple CONTAINS(Type)
           boolean annotationExsits = checkExistingAnnotation(t, annotation, stream);
           return new EvaluatedCondition(this, annotationExsits);
+        } else if (stream.isCountIndexed(annotation, t)) {
+          totalCount = stream.countBasicsInWindow(annotation);
+          basicCount = stream.countBasicsPartOf(annotation, t);
+          anchorCount = stream.countBeginAnchorsInWindow(annotation, t, true);
         } else {
           List<RutaBasic> annotations = stream.getBasicsInWindow(annotation);
           for (RutaBasic each : annotations) {
@@ -195,6 +199,18 @@ public class ContainsCondition extends TypeSentiveCondition {
     return anchorCount;
   }
 
+  @Override
+  public Object[] getCacheKey(MatchContext context, RutaStream stream) {
+    if (type == null) {
+      // the values of the list are not considered
+      return null;
+    }
+    // the visibility depends on the annotations of the hidden types
+    return new Object[] { type.getType(context, stream), min.getIntegerValue(context, stream),
+        max.getIntegerValue(context, stream), percent.getBooleanValue(context, stream),
+        new ArrayList<Type>(stream.getFilter().getCurrentHiddenTypes()) };
+  }
+
   private boolean checkExistingAnnotation(Type type, AnnotationFS annotation, RutaStream stream) {
     int begin = annotation.getBegin();
     int end = annotation.getEnd();
@@ -85,7 +85,9 @@ public class ContextCountCondition extends TypeSentiveCondition {
       int index = 0;
       int counter = 0;
 
-      if (annotation != null) {
+      if (annotation != null && stream.isCountIndexed(eachContext, annotation.getType())) {
+        index = getIndexInContext(annotation, eachContext, stream);
+      } else if (annotation != null) {
         List<RutaBasic> basicsInWindow = stream.getBasicsInWindow(eachContext);
         for (RutaBasic eachBasic : basicsInWindow) {
           Collection<AnnotationFS> beginAnchors = eachBasic.getBeginAnchors(annotation.getType());
@@ -116,6 +118,29 @@ public class ContextCountCondition extends TypeSentiveCondition {
     return new EvaluatedCondition(this, result);
   }
 
+  private int getIndexInContext(AnnotationFS annotation, AnnotationFS context,
+          RutaStream stream) {
+    RutaBasic beginAnchor = stream.getBeginAnchor(annotation.getBegin());
+    if (beginAnchor == null || annotation.getBegin() >= context.getEnd()
+            || stream.countBasicsInWindow(beginAnchor) == 0) {
+      // the annotation does not begin at a visible basic of the context
+      return 0;
+    }
+    Type type = annotation.getType();
+    int counter = stream.countBeginAnchorsInWindow(context.getBegin(), annotation.getBegin(), type,
+            false);
+    int index = 0;
+    for (AnnotationFS each : beginAnchor.getBeginAnchors(type)) {
+      counter++;
+      if (each.getBegin() == annotation.getBegin() && each.getEnd() == annotation.getEnd()
+              && (each.getType().equals(type)
+                      || stream.getCas().getTypeSystem().subsumes(type, each.getType()))) {
+        index = counter;
+      }
+    }
+    return index;
+  }
+
   public INumberExpression getMin() {
     return min;
   }
@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.AnnotationCursor;
 import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.expression.IRutaExpression;
 import org.apache.uima.ruta.expression.bool.AbstractBooleanListExpression;
@@ -83,8 +84,14 @@ public class CountCondition extends TypeSentiveCondition {
         return new EvaluatedCondition(this, false);
       }
 
-      List<AnnotationFS> annotationsInWindow = stream.getAnnotationsInWindow(annotation, t);
-      int count = annotationsInWindow.size();
+      int count = 0;
+      if (annotation != null) {
+        AnnotationCursor cursor = stream.getAnnotationCursor(t, annotation);
+        while (cursor.isValid()) {
+          count++;
+          cursor.moveToNext();
+        }
+      }
       if (var != null) {
         element.getParent().getEnvironment().setVariableValue(var, count);
       }
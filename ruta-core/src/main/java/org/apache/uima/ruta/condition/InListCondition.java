@@ -19,6 +19,7 @@
 
 package org.apache.uima.ruta.condition;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.uima.cas.text.AnnotationFS;
@@ -31,7 +32,7 @@ import org.apache.uima.ruta.rule.EvaluatedCondition;
 import org.apache.uima.ruta.rule.MatchContext;
 import org.apache.uima.ruta.visitor.InferenceCrowd;
 
-public class InListCondition extends TerminalRutaCondition {
+public class InListCondition extends TerminalRutaCondition implements CacheableCondition {
 
   private WordListExpression listExpr;
 
@@ -79,6 +80,15 @@ public class InListCondition extends TerminalRutaCondition {
     return new EvaluatedCondition(this, contains);
   }
 
+  @Override
+  public Object[] getCacheKey(MatchContext context, RutaStream stream) {
+    String text = arg == null ? null : arg.getStringValue(context, stream);
+    if (stringList == null) {
+      return new Object[] { listExpr.getList(context, stream), text };
+    }
+    return new Object[] { new ArrayList<String>(stringList.getList(context, stream)), text };
+  }
+
   public WordListExpression getListExpression() {
     return listExpr;
   }
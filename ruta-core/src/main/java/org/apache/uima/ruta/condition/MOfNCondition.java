@@ -47,7 +47,7 @@ public class MOfNCondition extends ComposedRutaCondition {
     List<EvaluatedCondition> evals = new ArrayList<EvaluatedCondition>();
     for (AbstractRutaCondition each : conditions) {
       crowd.beginVisit(each, null);
-      EvaluatedCondition eval = each.eval(context, stream, crowd);
+      EvaluatedCondition eval = stream.evalCondition(each, context, crowd);
       crowd.endVisit(each, null);
       evals.add(eval);
       if (eval.isValue()) {
@@ -34,7 +34,7 @@ public class NotCondition extends ComposedRutaCondition {
   public EvaluatedCondition eval(MatchContext context, RutaStream stream, InferenceCrowd crowd) {
     AbstractRutaCondition cond = conditions.get(0);
     crowd.beginVisit(cond, null);
-    EvaluatedCondition eval = cond.eval(context, stream, crowd);
+    EvaluatedCondition eval = stream.evalCondition(cond, context, crowd);
     crowd.endVisit(cond, null);
     return new EvaluatedCondition(this, !eval.isValue(), eval);
   }
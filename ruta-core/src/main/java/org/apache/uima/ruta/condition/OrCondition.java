@@ -38,7 +38,7 @@ public class OrCondition extends ComposedRutaCondition {
     List<EvaluatedCondition> evals = new ArrayList<EvaluatedCondition>();
     for (AbstractRutaCondition each : conditions) {
       crowd.beginVisit(each, null);
-      EvaluatedCondition eval = each.eval(context, symbolStream, crowd);
+      EvaluatedCondition eval = symbolStream.evalCondition(each, context, crowd);
       crowd.endVisit(each, null);
       result |= eval.isValue();
       evals.add(eval);
@@ -19,6 +19,7 @@
 
 package org.apache.uima.ruta.condition;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -33,7 +34,7 @@ import org.apache.uima.ruta.rule.RuleElement;
 import org.apache.uima.ruta.type.RutaBasic;
 import org.apache.uima.ruta.visitor.InferenceCrowd;
 
-public class PartOfCondition extends TypeSentiveCondition {
+public class PartOfCondition extends TypeSentiveCondition implements CacheableCondition {
 
   public PartOfCondition(ITypeExpression type) {
     super(type);
@@ -64,6 +65,14 @@ public class PartOfCondition extends TypeSentiveCondition {
     }
   }
 
+  @Override
+  public Object[] getCacheKey(MatchContext context, RutaStream stream) {
+    if (!isWorkingOnList()) {
+      return new Object[] { type.getType(context, stream) };
+    }
+    return new Object[] { new ArrayList<Type>(getList().getList(context, stream)) };
+  }
+
   private boolean check(Type t, AnnotationFS annotation, RuleElement element, RutaStream stream) {
     if (annotation == null || t == null) {
       return false;
@@ -27,17 +27,28 @@ import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.expression.bool.IBooleanExpression;
 import org.apache.uima.ruta.expression.bool.SimpleBooleanExpression;
 import org.apache.uima.ruta.expression.string.IStringExpression;
+import org.apache.uima.ruta.expression.string.SimpleStringExpression;
 import org.apache.uima.ruta.rule.EvaluatedCondition;
 import org.apache.uima.ruta.rule.MatchContext;
+import org.apache.uima.ruta.utils.PatternCache;
 import org.apache.uima.ruta.visitor.InferenceCrowd;
 
-public class RegExpCondition extends TerminalRutaCondition {
+public class RegExpCondition extends TerminalRutaCondition implements CacheableCondition {
+  private static final int FLAGS = Pattern.MULTILINE + Pattern.DOTALL;
+
+  private static final int IGNORE_CASE_FLAGS = FLAGS + Pattern.CASE_INSENSITIVE
+          + Pattern.UNICODE_CASE;
+
   private final IStringExpression pattern;
 
   private final IBooleanExpression ignoreCase;
 
   private IStringExpression variable;
 
+  private volatile Pattern staticPattern;
+
+  private volatile Pattern staticIgnoreCasePattern;
+
   public RegExpCondition(IStringExpression pattern, IBooleanExpression ignoreCase) {
     super();
     this.pattern = pattern;
@@ -67,33 +78,51 @@ public class RegExpCondition extends TerminalRutaCondition {
     }
 
     if (variable == null) {
-      String coveredText = annotation.getCoveredText();
-      Pattern regularExpPattern = null;
-      if (ignore) {
-        regularExpPattern = Pattern.compile(stringValue, Pattern.MULTILINE + Pattern.DOTALL
-                + Pattern.CASE_INSENSITIVE + Pattern.UNICODE_CASE);
+      Pattern regularExpPattern = getPattern(stringValue, ignore);
+      String documentText = annotation.getView().getDocumentText();
+      if (documentText == null) {
+        matcher = regularExpPattern.matcher(annotation.getCoveredText());
       } else {
-        regularExpPattern = Pattern.compile(stringValue, Pattern.MULTILINE + Pattern.DOTALL);
+        // match the region of the annotation without copying its covered text
+        matcher = regularExpPattern.matcher(documentText);
+        matcher.region(annotation.getBegin(), annotation.getEnd());
       }
-      matcher = regularExpPattern.matcher(coveredText);
     } else {
       String variableValue = variable.getStringValue(context, stream);
       if (variableValue == null) {
         return new EvaluatedCondition(this, false);
       }
-      Pattern regularExpPattern = null;
-      if (ignore) {
-        regularExpPattern = Pattern.compile(stringValue, Pattern.MULTILINE + Pattern.DOTALL
-                + Pattern.CASE_INSENSITIVE + Pattern.UNICODE_CASE);
-      } else {
-        regularExpPattern = Pattern.compile(stringValue, Pattern.MULTILINE + Pattern.DOTALL);
-      }
+      Pattern regularExpPattern = getPattern(stringValue, ignore);
       matcher = regularExpPattern.matcher(variableValue);
     }
     boolean matches = matcher.matches();
     return new EvaluatedCondition(this, matches);
   }
 
+  @Override
+  public Object[] getCacheKey(MatchContext context, RutaStream stream) {
+    boolean ignore = ignoreCase == null ? false : ignoreCase.getBooleanValue(context, stream);
+    String variableValue = variable == null ? null : variable.getStringValue(context, stream);
+    return new Object[] { pattern.getStringValue(context, stream), ignore, variableValue };
+  }
+
+  private Pattern getPattern(String regex, boolean ignore) {
+    if (!(pattern instanceof SimpleStringExpression)) {
+      return PatternCache.getInstance().getPattern(regex, ignore ? IGNORE_CASE_FLAGS : FLAGS);
+    }
+    // a static pattern is compiled only once
+    if (ignore) {
+      if (staticIgnoreCasePattern == null) {
+        staticIgnoreCasePattern = Pattern.compile(regex, IGNORE_CASE_FLAGS);
+      }
+      return staticIgnoreCasePattern;
+    }
+    if (staticPattern == null) {
+      staticPattern = Pattern.compile(regex, FLAGS);
+    }
+    return staticPattern;
+  }
+
   public IStringExpression getPattern() {
     return pattern;
   }
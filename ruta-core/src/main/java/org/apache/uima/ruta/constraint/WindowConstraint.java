@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.constraint;
+
+import org.apache.uima.cas.FSMatchConstraint;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * Matches the annotations within the given offsets. This replaces a conjunction of embedded
+ * feature path constraints for the begin and end features, which is expensive to create for each
+ * window.
+ */
+public class WindowConstraint implements FSMatchConstraint {
+
+  private static final long serialVersionUID = 4380924727312958411L;
+
+  private final int begin;
+
+  private final int end;
+
+  public WindowConstraint(int begin, int end) {
+    super();
+    this.begin = begin;
+    this.end = end;
+  }
+
+  @Override
+  public boolean match(FeatureStructure fs) {
+    if (fs instanceof AnnotationFS) {
+      AnnotationFS annotation = (AnnotationFS) fs;
+      return annotation.getBegin() >= begin && annotation.getEnd() <= end;
+    }
+    return false;
+  }
+
+  public int getBegin() {
+    return begin;
+  }
+
+  public int getEnd() {
+    return end;
+  }
+
+  @Override
+  public String toString() {
+    return "WINDOW [" + begin + ", " + end + "]";
+  }
+
+}
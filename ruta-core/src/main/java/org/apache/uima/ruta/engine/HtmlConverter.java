@@ -19,8 +19,11 @@
 
 package org.apache.uima.ruta.engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -45,7 +48,11 @@ import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.CasCopier;
 import org.apache.uima.util.Level;
+import org.htmlparser.Node;
 import org.htmlparser.Parser;
+import org.htmlparser.Tag;
+import org.htmlparser.Text;
+import org.htmlparser.lexer.Lexer;
 import org.htmlparser.util.NodeList;
 import org.htmlparser.util.ParserException;
 
@@ -226,7 +233,22 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_CONVERSION_REPLACEMENTS, mandatory = false)
   private String[] conversionReplacements;
 
-  private int[] map;
+  /**
+   * If this boolean parameter is set to true, then the document is converted in a single pass over
+   * the html nodes without building the node tree. The linebreaks and conversion patterns are
+   * replaced by one combined regular expression while the text of the output view is created. This
+   * reduces the memory consumption and the runtime for large documents. The default value is false.
+   */
+  public static final String PARAM_STREAMING = "streaming";
+
+  @ConfigurationParameter(name = PARAM_STREAMING, mandatory = false, defaultValue = "false")
+  private boolean streaming;
+
+  private Pattern newlineInducingTagPattern;
+
+  private Set<String> newlineInducingTagSet;
+
+  private Set<String> gapInducingTagSet;
 
   @Override
   public void initialize(UimaContext aContext) throws ResourceInitializationException {
@@ -261,6 +283,14 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
     if (useSpaceGap) {
       gapText = " ";
     }
+    if (streaming) {
+      newlineInducingTagPattern = newlineInducingTagRegExp == null ? null
+              : Pattern.compile(newlineInducingTagRegExp);
+      newlineInducingTagSet = newlineInducingTags == null ? new HashSet<String>()
+              : new HashSet<String>(Arrays.asList(newlineInducingTags));
+      gapInducingTagSet = gapInducingTags == null ? new HashSet<String>()
+              : new HashSet<String>(Arrays.asList(gapInducingTags));
+    }
 
   }
 
@@ -279,7 +309,6 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
     // init:
     String documentText = jcas.getDocumentText();
     String splitSeq = documentText.contains("\r\n") ? "\r\n" : "\n";
-    map = new int[documentText.length() + 1];
     JCas modview = null;
     try {
       // check if view already exists:
@@ -299,6 +328,16 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
       e.printStackTrace();
       return;
     }
+    if (streaming) {
+      HtmlConverterOffsetMap map = new HtmlConverterOffsetMap();
+      modview.setDocumentText(convert(documentText, splitSeq, map));
+      try {
+        mapAnnotations(jcas, map, modifiedViewName);
+      } catch (CASException e) {
+        e.printStackTrace();
+      }
+      return;
+    }
     SortedSet<HtmlConverterPSpan> visibleSpansSoFar = new TreeSet<HtmlConverterPSpan>();
     SortedSet<HtmlConverterPSpan> linebreaksFromHtmlTags = new TreeSet<HtmlConverterPSpan>();
     SortedSet<HtmlConverterPSpan> gapsFromHtmlTags = new TreeSet<HtmlConverterPSpan>();
@@ -333,16 +372,13 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
 
     // create new doc-text and the map from deletions and visible-text-spans:
     StringBuffer sbu = new StringBuffer(documentText.length());
-    int originalOffsetI = 0;
-    int outOffset = 0;
+    HtmlConverterOffsetMap map = new HtmlConverterOffsetMap();
     for (HtmlConverterPSpan vis : visibleSpansSoFar) {
       final int begin = vis.getBegin();
       final int end = vis.getEnd();
 
       // map text before annotation:
-      while (originalOffsetI < begin) {
-        map[originalOffsetI++] = outOffset;
-      }
+      map.skip(begin);
 
       // get and map text/replacement:
       String s = "";
@@ -350,25 +386,17 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
         // conversion/replacement:
         s = vis.getTxt();
         // asserts that s is shorter than the original source
-        while (originalOffsetI < begin + s.length()) {
-          map[originalOffsetI++] = outOffset++;
-        }
-        while (originalOffsetI < end) {
-          map[originalOffsetI++] = outOffset;
-        }
+        map.copy(begin + s.length());
+        map.skip(end);
       } else {
         // simple annotation:
         s = documentText.substring(begin, end);
-        while (originalOffsetI < end) {
-          map[originalOffsetI++] = outOffset++;
-        }
+        map.copy(end);
       }
       sbu.append(s);
     }
-    while (originalOffsetI < documentText.length()) {
-      map[originalOffsetI++] = outOffset;
-    }
-    map[documentText.length()] = outOffset + 1; // handle doc end separately
+    // handle doc end separately
+    map.finish(documentText.length());
     String modTxt = sbu.toString();
     modview.setDocumentText(modTxt);
 
@@ -380,7 +408,113 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
     }
   }
 
-  private void mapAnnotations(JCas fromJcas, int[] map, String toView) throws CASException {
+  private String convert(String documentText, String splitSeq, HtmlConverterOffsetMap map)
+          throws AnalysisEngineProcessException {
+    StringBuilder result = new StringBuilder(documentText.length());
+    HtmlConverterDecoder decoder = createDecoder(splitSeq);
+    Matcher matcher = decoder == null ? null : decoder.matcher(documentText);
+    boolean inBody = false;
+    boolean inScript = false;
+    Lexer lexer = new Lexer(documentText);
+    try {
+      Node node;
+      while ((node = lexer.nextNode()) != null) {
+        if (node instanceof Text) {
+          int begin = node.getStartPosition();
+          int end = node.getEndPosition();
+          if ((processAll || inBody) && !inScript
+                  && (!skipWhitespaces || !StringUtils.isBlank(node.getText()))) {
+            appendText(documentText, begin, end, decoder, matcher, result, map);
+          }
+        } else if (node instanceof Tag) {
+          Tag tag = (Tag) node;
+          String tagName = tag.getTagName().toLowerCase().trim();
+          if (tag.isEndTag()) {
+            if (tagName.equals("body")) {
+              inBody = false;
+            } else if (tagName.equals("script")) {
+              inScript = false;
+            }
+            continue;
+          }
+          if (tagName.equals("body")) {
+            inBody = true;
+          } else if (tagName.equals("script")) {
+            inScript = true;
+            if (!tag.isEmptyXmlTag()) {
+              // the content of the script is not parsed
+              lexer.parseCDATA(true);
+            }
+          }
+          int begin = tag.getStartPosition();
+          boolean newline = newlineInducingTagSet.contains(tagName)
+                  || (newlineInducingTagPattern != null
+                          && newlineInducingTagPattern.matcher(tagName).matches());
+          if (newline) {
+            appendReplacement(begin, begin + 1, LINEBREAK, result, map);
+          }
+          if (gapInducingTagSet.contains(tagName) && (!newline || gapText.length() != 1)) {
+            appendReplacement(begin, begin + gapText.length(), gapText, result, map);
+          }
+        }
+      }
+    } catch (ParserException e) {
+      throw new AnalysisEngineProcessException(e);
+    }
+    map.finish(documentText.length());
+    return result.toString();
+  }
+
+  private HtmlConverterDecoder createDecoder(String splitSeq) {
+    List<String> patterns = new ArrayList<String>();
+    List<String> replacements = new ArrayList<String>();
+    if (replaceLinebreaks) {
+      patterns.add(Pattern.quote(splitSeq));
+      replacements.add(linebreakReplacement);
+    }
+    if (conversionPolicy.equals("heuristic")) {
+      patterns.add("(&[a-zA-Z0-9]{2,6};)|(&#\\d{2,5};)");
+      replacements.add(null);
+    } else if (conversionPolicy.equals("explicit")) {
+      patterns.addAll(Arrays.asList(conversionPatterns));
+      replacements.addAll(Arrays.asList(conversionReplacements));
+    }
+    return patterns.isEmpty() ? null : new HtmlConverterDecoder(patterns, replacements);
+  }
+
+  private void appendText(String documentText, int begin, int end, HtmlConverterDecoder decoder,
+          Matcher matcher, StringBuilder result, HtmlConverterOffsetMap map) {
+    int position = begin;
+    if (decoder != null) {
+      matcher.region(begin, end);
+      while (matcher.find()) {
+        if (matcher.start() > position) {
+          map.skip(position);
+          map.copy(matcher.start());
+          result.append(documentText, position, matcher.start());
+        }
+        appendReplacement(matcher.start(), matcher.end(), decoder.getReplacement(matcher),
+                result, map);
+        position = matcher.end();
+      }
+    }
+    if (end > position) {
+      map.skip(position);
+      map.copy(end);
+      result.append(documentText, position, end);
+    }
+  }
+
+  private void appendReplacement(int begin, int end, String replacement, StringBuilder result,
+          HtmlConverterOffsetMap map) {
+    map.skip(begin);
+    map.copy(begin + replacement.length());
+    map.skip(end);
+    result.append(replacement);
+  }
+
+  private void mapAnnotations(JCas fromJcas, HtmlConverterOffsetMap map, String toView)
+          throws CASException {
     JCas modview = fromJcas.getView(toView);
 
     Set<Annotation> indexedFs = new HashSet<Annotation>();
@@ -400,8 +534,8 @@ public class HtmlConverter extends JCasAnnotator_ImplBase {
       clone.setFeatureValue(
               modview.getTypeSystem().getFeatureByFullName(CAS.FEATURE_FULL_NAME_SOFA),
               modview.getSofa());
-      final int mappedBegin = map[clone.getBegin()];
-      final int mappedEnd = map[clone.getEnd()];
+      final int mappedBegin = map.map(clone.getBegin());
+      final int mappedEnd = map.map(clone.getEnd());
       if (mappedBegin < mappedEnd) {
         if (mappedEnd > fromJcas.getCas().getDocumentAnnotation().getEnd()) {
           getContext().getLogger().log(Level.WARNING, "illegal annotation offset mapping");
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.engine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+/**
+ * Replaces several patterns in a single pass. The patterns are combined in one regular expression,
+ * in which the earlier patterns take precedence over the later ones at the same position.
+ */
+final class HtmlConverterDecoder {
+
+  private final Pattern pattern;
+
+  private final int[] groups;
+
+  private final String[] replacements;
+
+  private final Map<String, String> decoded = new HashMap<String, String>();
+
+  /**
+   * @param patterns
+   *          the regular expressions
+   * @param replacements
+   *          the replacement of each pattern, or null if the match is decoded as html4 entity
+   */
+  HtmlConverterDecoder(List<String> patterns, List<String> replacements) {
+    super();
+    this.groups = new int[patterns.size()];
+    this.replacements = replacements.toArray(new String[replacements.size()]);
+    StringBuilder regexp = new StringBuilder();
+    int group = 1;
+    for (int i = 0; i < patterns.size(); i++) {
+      String each = patterns.get(i);
+      if (i > 0) {
+        regexp.append("|");
+      }
+      regexp.append("(").append(each).append(")");
+      groups[i] = group;
+      group += Pattern.compile(each).matcher("").groupCount() + 1;
+    }
+    pattern = Pattern.compile(regexp.toString());
+  }
+
+  Matcher matcher(CharSequence text) {
+    return pattern.matcher(text);
+  }
+
+  /**
+   * @param matcher
+   *          a matcher of this decoder after a successful match
+   * @return the replacement of the current match
+   */
+  String getReplacement(Matcher matcher) {
+    for (int i = 0; i < groups.length; i++) {
+      if (matcher.start(groups[i]) == -1) {
+        continue;
+      }
+      if (replacements[i] != null) {
+        return replacements[i];
+      }
+      String match = matcher.group();
+      String replacement = decoded.get(match);
+      if (replacement == null) {
+        replacement = StringEscapeUtils.unescapeHtml4(match);
+        decoded.put(match, replacement);
+      }
+      return replacement;
+    }
+    return "";
+  }
+
+}
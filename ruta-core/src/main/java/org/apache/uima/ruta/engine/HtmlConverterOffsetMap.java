@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.engine;
+
+import java.util.Arrays;
+
+/**
+ * Maps the offsets of the original document to the offsets of the converted document. The map is
+ * built in the order of the original offsets: each offset is either copied, i.e., mapped to the
+ * next offset of the converted document, or skipped, i.e., mapped to the current offset of the
+ * converted document. Consecutive offsets of the same kind are stored as a single run.
+ */
+final class HtmlConverterOffsetMap {
+
+  private int[] sources = new int[16];
+
+  private int[] targets = new int[16];
+
+  private boolean[] copied = new boolean[16];
+
+  private int size = 0;
+
+  private int source = 0;
+
+  private int target = 0;
+
+  private int length = 0;
+
+  private int end = 1;
+
+  /**
+   * Maps the offsets up to the given offset to the current offset of the converted document.
+   * 
+   * @param sourceEnd
+   *          the exclusive end of the skipped offsets
+   */
+  void skip(int sourceEnd) {
+    if (sourceEnd > source) {
+      addRun(false);
+      source = sourceEnd;
+    }
+  }
+
+  /**
+   * Maps the offsets up to the given offset to the next offsets of the converted document.
+   * 
+   * @param sourceEnd
+   *          the exclusive end of the copied offsets
+   */
+  void copy(int sourceEnd) {
+    if (sourceEnd > source) {
+      addRun(true);
+      target += sourceEnd - source;
+      source = sourceEnd;
+    }
+  }
+
+  /**
+   * Skips the remaining offsets of the original document. The end of the document is mapped to the
+   * offset after the end of the converted document.
+   * 
+   * @param sourceLength
+   *          the length of the original document
+   */
+  void finish(int sourceLength) {
+    skip(sourceLength);
+    length = sourceLength;
+    end = target + 1;
+  }
+
+  int map(int offset) {
+    if (offset >= length) {
+      return end;
+    }
+    int low = 0;
+    int high = size - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (sources[mid] <= offset) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return copied[low] ? targets[low] + offset - sources[low] : targets[low];
+  }
+
+  private void addRun(boolean copy) {
+    if (size > 0 && copied[size - 1] == copy) {
+      // continues the last run
+      return;
+    }
+    if (size == sources.length) {
+      sources = Arrays.copyOf(sources, size * 2);
+      targets = Arrays.copyOf(targets, size * 2);
+      copied = Arrays.copyOf(copied, size * 2);
+    }
+    sources[size] = source;
+    targets[size] = target;
+    copied[size] = copy;
+    size++;
+  }
+
+}
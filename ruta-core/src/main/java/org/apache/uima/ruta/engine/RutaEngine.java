@@ -21,8 +21,11 @@ package org.apache.uima.ruta.engine;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,12 +35,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.antlr.runtime.ANTLRInputStream;
 import org.antlr.runtime.ANTLRStringStream;
 import org.antlr.runtime.CharStream;
 import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.UIMAFramework;
@@ -60,6 +65,7 @@ import org.apache.uima.fit.internal.ResourceManagerFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.ruta.ConditionCache;
 import org.apache.uima.ruta.FilterManager;
 import org.apache.uima.ruta.RutaConstants;
 import org.apache.uima.ruta.RutaEnvironment;
@@ -83,6 +89,7 @@ import org.apache.uima.ruta.type.TokenSeed;
 import org.apache.uima.ruta.verbalize.RutaVerbalizer;
 import org.apache.uima.ruta.visitor.CreatedByVisitor;
 import org.apache.uima.ruta.visitor.DebugInfoCollectorVisitor;
+import org.apache.uima.ruta.visitor.DebugInfoWriter;
 import org.apache.uima.ruta.visitor.InferenceCrowd;
 import org.apache.uima.ruta.visitor.RutaInferenceVisitor;
 import org.apache.uima.ruta.visitor.StatisticsVisitor;
@@ -233,6 +240,20 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_RELOAD_SCRIPT, mandatory = false, defaultValue = "false")
   private Boolean reloadScript;
 
+  /**
+   * If this parameter is set to true, then all instances of the analysis engine with the same
+   * configuration parameter values share one parsed script including its loaded word lists and
+   * tables. The values of the variables are kept separately for each thread. This allows to
+   * process several CASes concurrently in multiple instances of the analysis engine without a
+   * copy of the script and its resources for each instance. Additional analysis engines called by
+   * the script are also shared and need to support concurrent processing. This parameter has no
+   * effect if the parameter reloadScript is set to true. The default value is set to false.
+   */
+  public static final String PARAM_SHARED_SCRIPT = "sharedScript";
+
+  @ConfigurationParameter(name = PARAM_SHARED_SCRIPT, mandatory = false, defaultValue = "false")
+  private Boolean sharedScript;
+
   /**
    * This list of string values refers to implementations of the interface
    * "org.apache.uima.ruta.seed.RutaAnnotationSeeder", which can be used to automatically add
@@ -290,6 +311,20 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_LOW_MEMORY_PROFILE, mandatory = false, defaultValue = "false")
   private Boolean lowMemoryProfile;
 
+  /**
+   * If this parameter is set to true, then the internal indexing of the RutaBasic annotations
+   * stores only the types of the annotations that actually start, end or cover the position in
+   * compact sparse maps. Super types are resolved using a subsumption table shared by all CASes of
+   * the type system. This reduces the memory consumption for large type systems and large CAS
+   * documents without the overhead of the parameter lowMemoryProfile. If this parameter is set to
+   * true, then the parameter lowMemoryProfile has no effect on the internal indexing. The default
+   * value is set to false.
+   */
+  public static final String PARAM_SPARSE_ANCHOR_PROFILE = "sparseAnchorProfile";
+
+  @ConfigurationParameter(name = PARAM_SPARSE_ANCHOR_PROFILE, mandatory = false, defaultValue = "false")
+  private Boolean sparseAnchorProfile;
+
   /**
    * This parameter specifies whether a different inference strategy for composed rule elements
    * should be applied. This option is only necessary when the composed rule element is expected to
@@ -348,6 +383,41 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_DEBUG_ONLY_FOR, mandatory = false, defaultValue = {})
   private String[] debugOnlyFor;
 
+  /**
+   * This parameter specifies that debug information is only created for every n-th document
+   * processed by the engine, starting with the first one. The default value of this parameter is
+   * set to 1, which creates debug information for all documents.
+   */
+  public static final String PARAM_DEBUG_SAMPLE_RATE = "debugSampleRate";
+
+  @ConfigurationParameter(name = PARAM_DEBUG_SAMPLE_RATE, mandatory = false, defaultValue = "1")
+  private int debugSampleRate;
+
+  /**
+   * This parameter specifies the maximum amount of matches of a rule that are stored in the debug
+   * information. The amount of tried and applied matches is not affected. There is no limit by
+   * default.
+   */
+  public static final String PARAM_DEBUG_MAX_MATCHES = "debugMaxMatches";
+
+  @ConfigurationParameter(name = PARAM_DEBUG_MAX_MATCHES, mandatory = false, defaultValue = ""
+          + Integer.MAX_VALUE)
+  private int debugMaxMatches;
+
+  /**
+   * This parameter specifies a file, to which the debug information is written as tab-separated
+   * records instead of adding it to the CAS. The records of all processed documents are appended
+   * until the collection process is completed. All engine instances with the same file share one
+   * writer, the records of a document are not interleaved with other documents and contain the
+   * number of the engine instance. The file is overwritten when it is opened for the first time in
+   * the virtual machine and appended afterwards, e.g., when the engine is used again after the
+   * collection process was completed. The debug information is added to the CAS by default.
+   */
+  public static final String PARAM_DEBUG_OUTPUT = "debugOutput";
+
+  @ConfigurationParameter(name = PARAM_DEBUG_OUTPUT, mandatory = false)
+  private String debugOutput;
+
   /**
    * If this parameter is set to true, then additional information about the runtime of applied
    * rules is added to the CAS. The default value of this parameter is set to false.
@@ -357,6 +427,18 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_PROFILE, mandatory = false, defaultValue = "false")
   private Boolean profile;
 
+  /**
+   * This parameter specifies a file, to which the runtime of all executed rules, blocks,
+   * conditions and actions is written when the collection process is completed. The times are
+   * aggregated over all documents processed by the engine and written as collapsed stacks with
+   * nanoseconds of self time, which can be rendered as a flame graph. No file is written by
+   * default.
+   */
+  public static final String PARAM_PROFILE_OUTPUT = "profileOutput";
+
+  @ConfigurationParameter(name = PARAM_PROFILE_OUTPUT, mandatory = false)
+  private String profileOutput;
+
   /**
    * If this parameter is set to true, then additional information about the runtime of UIMA Ruta
    * language elements like conditions and actions is added to the CAS. The default value of this
@@ -367,6 +449,18 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_STATISTICS, mandatory = false, defaultValue = "false")
   private Boolean statistics;
 
+  /**
+   * This parameter specifies a file, to which the statistics of all evaluated conditions and
+   * executed actions are written when the collection process is completed. The statistics are
+   * aggregated over all documents processed by the engine and written as tab-separated values with
+   * the number of executions, the total time and the average time in milliseconds. No file is
+   * written by default.
+   */
+  public static final String PARAM_STATISTICS_OUTPUT = "statisticsOutput";
+
+  @ConfigurationParameter(name = PARAM_STATISTICS_OUTPUT, mandatory = false)
+  private String statisticsOutput;
+
   /**
    * If this parameter is set to true, then additional information about what annotation was created
    * by which rule is added to the CAS. The default value of this parameter is set to false.
@@ -402,6 +496,40 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_CSV_SEPARATOR, mandatory = false, defaultValue = CSVTable.DEFAULT_CSV_SEPARATOR)
   private String csvSeparator = CSVTable.DEFAULT_CSV_SEPARATOR;
 
+  /**
+   * If this parameter is set to true, then dictionaries and tables loaded from files are shared
+   * with all other engines of the virtual machine that load the same file with the same options.
+   * The shared instances are reused when the script is reloaded and loaded again when the file was
+   * modified. The default value is false.
+   */
+  public static final String PARAM_SHARE_RESOURCES = "shareResources";
+
+  @ConfigurationParameter(name = PARAM_SHARE_RESOURCES, mandatory = false, defaultValue = "false")
+  private Boolean shareResources = false;
+
+  /**
+   * If this parameter is set to true, then the actions MARKFAST and MARKTABLE search for the words
+   * of a dictionary with an Aho-Corasick automaton, which reads the text of the window only once
+   * instead of starting a lookup at each position. The results are the same, but the automaton
+   * needs additional memory and is created when a dictionary is used with new options. The default
+   * value is false.
+   */
+  public static final String PARAM_DICT_AUTOMATON = "dictAutomaton";
+
+  @ConfigurationParameter(name = PARAM_DICT_AUTOMATON, mandatory = false, defaultValue = "false")
+  private Boolean dictAutomaton = false;
+
+  /**
+   * If this parameter is set to true, then the results of the conditions CONTAINS, INLIST, PARTOF
+   * and REGEXP are reused within a document for the same span, window and values of the arguments
+   * until an annotation of a type given in the arguments is added or removed by the rules, or the
+   * filtering settings change. The default value is false.
+   */
+  public static final String PARAM_CONDITION_CACHE = "conditionCache";
+
+  @ConfigurationParameter(name = PARAM_CONDITION_CACHE, mandatory = false, defaultValue = "false")
+  private Boolean conditionCache = false;
+
   /**
    * This parameter specifies the names of variables and is used in combination with the parameter
    * varValues, which contains the values of the corresponding variables. The n-th entry of this
@@ -450,6 +578,18 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @ConfigurationParameter(name = PARAM_REINDEX_ONLY_MENTIONED_TYPES, mandatory = true, defaultValue = "false")
   private boolean reindexOnlyMentionedTypes;
 
+  /**
+   * If this parameter is activated, then the annotations of the reindexed types are not added to
+   * the internal indexing at the beginning, but when a rule, condition or action requests the
+   * information about their type for the first time. Types that are never requested are never
+   * reindexed. This can reduce the initialization time for CASes with many existing annotations.
+   * The default value is set to false.
+   */
+  public static final String PARAM_LAZY_INDEXING = "lazyIndexing";
+
+  @ConfigurationParameter(name = PARAM_LAZY_INDEXING, mandatory = false, defaultValue = "false")
+  private boolean lazyIndexing;
+
   /**
    * If this parameter is activated, then only annotations of types are internally indexed that are
    * mentioned with in the rules. This optimization of the internal indexing can improve the speed
@@ -524,16 +664,33 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
 
   private RutaModule script;
 
+  private SharedRutaScript sharedRutaScript;
+
   private RutaExternalFactory externalFactory;
 
   private RutaVerbalizer verbalizer;
 
+  private TimeProfilerVisitor profiler;
+
+  private StatisticsVisitor statisticsVisitor;
+
+  private static final AtomicInteger DEBUG_ENGINES = new AtomicInteger();
+
+  private DebugInfoWriter debugWriter;
+
+  // the number of this instance in the records of a shared debug output
+  private final int debugEngine = DEBUG_ENGINES.getAndIncrement();
+
+  private int debugDocuments = 0;
+
   private boolean initialized = false;
 
   private boolean analysisEnginesAlreadyInitialized = false;
 
   private List<Type> seedTypes;
 
+  private List<RutaAnnotationSeeder> seederInstances;
+
   private TypeUsageInformation typeUsageInformation;
 
   private TypeSystem lastTypeSystem;
@@ -556,9 +713,22 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
     externalFactory = new RutaExternalFactory();
     externalFactory.setContext(aContext);
     verbalizer = new RutaVerbalizer();
+    if (profile || profileOutput != null) {
+      // the profiler aggregates the times of all documents
+      profiler = new TimeProfilerVisitor();
+    } else {
+      profiler = null;
+    }
+    if (statistics || statisticsOutput != null) {
+      // the statistics are aggregated over all documents
+      statisticsVisitor = new StatisticsVisitor(verbalizer, statistics);
+    } else {
+      statisticsVisitor = null;
+    }
 
     // reinitialize analysis engines if this one is configured
     analysisEnginesAlreadyInitialized = false;
+    seederInstances = null;
 
     initializeResourceManager();
     handleDataPath();
@@ -573,7 +743,11 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
     }
     if (!reloadScript) {
       try {
-        initializeScript(CAS.NAME_DEFAULT_SOFA);
+        if (sharedScript) {
+          initializeSharedScript();
+        } else {
+          initializeScript(CAS.NAME_DEFAULT_SOFA);
+        }
         initialized = false;
       } catch (AnalysisEngineProcessException e) {
         throw new ResourceInitializationException(e);
@@ -581,19 +755,75 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
     }
   }
 
+  private void initializeSharedScript() throws AnalysisEngineProcessException {
+    if (sharedRutaScript != null) {
+      // reinitialized engine
+      sharedRutaScript.release();
+    }
+    String key = getSharedScriptKey();
+    synchronized (SharedRutaScript.class) {
+      sharedRutaScript = SharedRutaScript.acquire(key);
+      if (sharedRutaScript == null) {
+        initializeScript(CAS.NAME_DEFAULT_SOFA);
+        sharedRutaScript = SharedRutaScript.register(key, script, typeUsageInformation);
+      }
+    }
+    script = sharedRutaScript.getScript();
+    typeUsageInformation = sharedRutaScript.getTypeUsageInformation();
+  }
+
+  private String getSharedScriptKey() {
+    String[] names = context.getConfigParameterNames().clone();
+    Arrays.sort(names);
+    StringBuilder key = new StringBuilder();
+    key.append(context.getDataPath());
+    key.append('\n');
+    for (String name : names) {
+      Object value = context.getConfigParameterValue(name);
+      key.append(name);
+      key.append('=');
+      if (value instanceof Object[]) {
+        key.append(Arrays.toString((Object[]) value));
+      } else {
+        key.append(value);
+      }
+      key.append('\n');
+    }
+    return key.toString();
+  }
+
+  private void initializeSharedTypes(CAS cas) {
+    synchronized (sharedRutaScript) {
+      if (sharedRutaScript.getTypeSystem() != cas.getTypeSystem()) {
+        initializeTypes(script, cas, new ArrayList<String>());
+        if (typeUsageInformation != null) {
+          typeUsageInformation.resolveTypes(script, cas.getTypeSystem());
+        }
+        sharedRutaScript.setTypeSystem(cas.getTypeSystem());
+      }
+    }
+  }
+
   @Override
   public void process(JCas jcas) throws AnalysisEngineProcessException {
 
     CAS cas = jcas.getCas();
 
-    if (reloadScript || (!initialized && !cas.getViewName().equals(CAS.NAME_DEFAULT_SOFA))) {
+    if (reloadScript || (!initialized && sharedRutaScript == null
+            && !cas.getViewName().equals(CAS.NAME_DEFAULT_SOFA))) {
       initializeScript(cas.getViewName());
     } else {
       resetEnvironments(cas);
       initializeVariableValues();
     }
     boolean typeSystemChanged = lastTypeSystem != cas.getTypeSystem();
-    if (!initialized || reloadScript || typeSystemChanged) {
+    if (sharedRutaScript != null) {
+      if (!initialized || typeSystemChanged) {
+        initializeSharedTypes(cas);
+        initialized = true;
+        lastTypeSystem = cas.getTypeSystem();
+      }
+    } else if (!initialized || reloadScript || typeSystemChanged) {
       initializeTypes(script, cas, new ArrayList<String>());
       if (typeUsageInformation != null) {
         typeUsageInformation.resolveTypes(script, cas.getTypeSystem());
@@ -601,20 +831,36 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
       initialized = true;
       lastTypeSystem = cas.getTypeSystem();
     }
-    InferenceCrowd crowd = initializeCrowd();
+    InferenceCrowd crowd;
+    try {
+      crowd = initializeCrowd();
+    } catch (IOException e) {
+      throw new AnalysisEngineProcessException(e);
+    }
     RutaStream stream = initializeStream(cas, crowd);
     stream.setDynamicAnchoring(dynamicAnchoring);
     stream.setGreedyRuleElement(greedyRuleElement);
     stream.setGreedyRule(greedyRule);
     stream.setMaxRuleMatches(maxRuleMatches);
     stream.setMaxRuleElementMatches(maxRuleElementMatches);
+    if (conditionCache) {
+      stream.setConditionCache(new ConditionCache(cas.getTypeSystem()));
+    }
+    if (profiler != null) {
+      profiler.startDocument();
+    }
+    if (statisticsVisitor != null) {
+      statisticsVisitor.startDocument();
+    }
     try {
       script.apply(stream, crowd);
     } catch (Throwable e) {
+      stream.detachLazyIndexer();
       throw new AnalysisEngineProcessException(AnalysisEngineProcessException.ANNOTATOR_EXCEPTION,
               new Object[] {}, e);
     }
     crowd.finished(stream);
+    stream.detachLazyIndexer();
 
     if (removeBasics) {
       jcas.removeAllIncludingSubtypes(RutaBasic.type);
@@ -763,17 +1009,26 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
 
   }
 
-  private InferenceCrowd initializeCrowd() {
+  private InferenceCrowd initializeCrowd() throws IOException {
     List<RutaInferenceVisitor> visitors = new ArrayList<RutaInferenceVisitor>();
-    if (debug) {
-      visitors.add(new DebugInfoCollectorVisitor(debug, debugWithMatches,
-              Arrays.asList(debugOnlyFor), verbalizer));
+    int document = debugDocuments++;
+    if (debug && document % Math.max(1, debugSampleRate) == 0) {
+      DebugInfoCollectorVisitor debugVisitor = new DebugInfoCollectorVisitor(debug,
+              debugWithMatches, Arrays.asList(debugOnlyFor), verbalizer);
+      debugVisitor.setMaxMatches(debugMaxMatches);
+      if (debugOutput != null) {
+        if (debugWriter == null) {
+          debugWriter = DebugInfoWriter.open(debugOutput, verbalizer);
+        }
+        debugVisitor.setWriter(debugWriter, debugEngine, document);
+      }
+      visitors.add(debugVisitor);
     }
-    if (profile) {
-      visitors.add(new TimeProfilerVisitor());
+    if (profiler != null) {
+      visitors.add(profiler);
     }
-    if (statistics) {
-      visitors.add(new StatisticsVisitor(verbalizer));
+    if (statisticsVisitor != null) {
+      visitors.add(statisticsVisitor);
     }
     if (createdBy) {
       visitors.add(new CreatedByVisitor(verbalizer));
@@ -810,6 +1065,8 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
     seedTypes = seedAnnotations(cas);
     RutaStream stream = new RutaStream(cas, basicType, filter, lowMemoryProfile,
             simpleGreedyForComposed, emptyIsInvisible, typeUsageInformation, crowd);
+    stream.setSparseAnchorProfile(sparseAnchorProfile);
+    stream.setLazyIndexing(lazyIndexing);
 
     stream.initalizeBasics(reindexOnly, reindexOnlyMentionedTypes);
     return stream;
@@ -817,6 +1074,22 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
 
   private List<Type> seedAnnotations(CAS cas) throws AnalysisEngineProcessException {
     List<Type> result = new ArrayList<Type>();
+    if (seederInstances == null) {
+      seederInstances = createSeeders();
+    }
+    // the seeders are reused for all CASes processed by this engine
+    for (RutaAnnotationSeeder seeder : seederInstances) {
+      try {
+        result.add(seeder.seed(cas.getDocumentText(), cas));
+      } catch (Exception e) {
+        throw new AnalysisEngineProcessException(e);
+      }
+    }
+    return result;
+  }
+
+  private List<RutaAnnotationSeeder> createSeeders() throws AnalysisEngineProcessException {
+    List<RutaAnnotationSeeder> result = new ArrayList<RutaAnnotationSeeder>();
     if (seeders != null) {
       for (String seederClass : seeders) {
         Class<?> loadClass = null;
@@ -832,8 +1105,7 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
           throw new AnalysisEngineProcessException(e);
         }
         try {
-          RutaAnnotationSeeder seeder = (RutaAnnotationSeeder) newInstance;
-          result.add(seeder.seed(cas.getDocumentText(), cas));
+          result.add((RutaAnnotationSeeder) newInstance);
         } catch (Exception e) {
           throw new AnalysisEngineProcessException(e);
         }
@@ -1205,6 +1477,13 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
   @Override
   public void collectionProcessComplete() throws AnalysisEngineProcessException {
     super.collectionProcessComplete();
+    if (profiler != null && profileOutput != null) {
+      writeProfile();
+    }
+    if (statisticsVisitor != null && statisticsOutput != null) {
+      writeStatistics();
+    }
+    closeDebugWriter();
     if (script != null) {
       Collection<AnalysisEngine> values = script.getAllEngines().values();
       for (AnalysisEngine each : values) {
@@ -1213,9 +1492,55 @@ public class RutaEngine extends JCasAnnotator_ImplBase {
     }
   }
 
+  private void writeProfile() throws AnalysisEngineProcessException {
+    Writer writer = null;
+    try {
+      writer = new OutputStreamWriter(new FileOutputStream(profileOutput), "UTF-8");
+      profiler.writeCollapsedStacks(writer, verbalizer);
+    } catch (IOException e) {
+      throw new AnalysisEngineProcessException(e);
+    } finally {
+      IOUtils.closeQuietly(writer);
+    }
+  }
+
+  private void closeDebugWriter() throws AnalysisEngineProcessException {
+    if (debugWriter == null) {
+      return;
+    }
+    try {
+      debugWriter.close();
+    } catch (IOException e) {
+      throw new AnalysisEngineProcessException(e);
+    } finally {
+      debugWriter = null;
+    }
+  }
+
+  private void writeStatistics() throws AnalysisEngineProcessException {
+    Writer writer = null;
+    try {
+      writer = new OutputStreamWriter(new FileOutputStream(statisticsOutput), "UTF-8");
+      statisticsVisitor.writeReport(writer);
+    } catch (IOException e) {
+      throw new AnalysisEngineProcessException(e);
+    } finally {
+      IOUtils.closeQuietly(writer);
+    }
+  }
+
   @Override
   public void destroy() {
     super.destroy();
+    IOUtils.closeQuietly(debugWriter);
+    debugWriter = null;
+    if (sharedRutaScript != null) {
+      sharedRutaScript.removeThreadVariables();
+      if (!sharedRutaScript.release()) {
+        // the additional engines are still used by other instances
+        return;
+      }
+    }
     if (script != null) {
       Collection<AnalysisEngine> values = script.getAllEngines().values();
       for (AnalysisEngine each : values) {
@@ -21,12 +21,7 @@ package org.apache.uima.ruta.engine;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.UimaContext;
@@ -36,13 +31,13 @@ import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.ruta.type.RutaBasic;
-import org.apache.uima.tools.stylemap.StyleMapEntry;
 import org.apache.uima.util.FileUtils;
 
 /**
@@ -58,6 +53,8 @@ public class RutaModifier extends JCasAnnotator_ImplBase {
 
   public static final String DEFAULT_MODIFIED_VIEW = "modified";
 
+  private static final String END_TAG = "</span>";
+
   /**
    * This optional string parameter specifies the absolute path of the resulting file named
    * <code>output.modified.html</code>. However, if an annotation of the type
@@ -103,6 +100,8 @@ public class RutaModifier extends JCasAnnotator_ImplBase {
 
   private StyleMapFactory styleMapFactory;
 
+  private RutaModifierStyleMap styleMap;
+
   @Override
   public void initialize(UimaContext aContext) throws ResourceInitializationException {
     super.initialize(aContext);
@@ -114,6 +113,7 @@ public class RutaModifier extends JCasAnnotator_ImplBase {
     modifiedViewName = StringUtils.isBlank(modifiedViewName) ? DEFAULT_MODIFIED_VIEW
             : modifiedViewName;
     styleMapFactory = new StyleMapFactory();
+    styleMap = null;
   }
 
   @Override
@@ -194,78 +194,53 @@ public class RutaModifier extends JCasAnnotator_ImplBase {
     return file;
   }
 
-  private String getModifiedDocument(JCas cas, String styleMapLocation) {
-    String startTag = "<span style='background:&bgcolor'>";
-    String endTag = "</span>";
-    Map<String, StyleMapEntry> styleMap = styleMapFactory.parseStyleMapDOM(styleMapLocation);
-    List<Type> coloredTypes = new ArrayList<Type>();
-    if (styleMap != null) {
-      coloredTypes = getColoredTypes(cas, styleMap);
+  private RutaModifierStyleMap getStyleMap(String styleMapLocation) {
+    // the style map is parsed again only if the file was modified
+    long lastModified = styleMapLocation == null ? 0 : new File(styleMapLocation).lastModified();
+    if (styleMap == null || !styleMap.isCreatedFrom(styleMapLocation, lastModified)) {
+      styleMap = new RutaModifierStyleMap(styleMapLocation, lastModified,
+              styleMapFactory.parseStyleMapDOM(styleMapLocation));
     }
-    List<String> tokens = new ArrayList<String>();
+    return styleMap;
+  }
+
+  private String getModifiedDocument(JCas cas, String styleMapLocation) {
+    RutaModifierStyleMap styleMap = getStyleMap(styleMapLocation);
+    TypeSystem typeSystem = cas.getTypeSystem();
+    Type[] coloredTypes = styleMap.getTypes(typeSystem);
+    String[] startTags = styleMap.getStartTags(typeSystem);
+    StringBuilder sb = new StringBuilder(cas.getDocumentText().length());
     FSIterator<org.apache.uima.jcas.tcas.Annotation> iterator = cas.getAnnotationIndex(
             RutaBasic.type).iterator();
     while (iterator.isValid()) {
       RutaBasic each = (RutaBasic) iterator.get();
       String replace = each.getReplacement() == null ? each.getCoveredText() : each
               .getReplacement();
-      Type type = getColorType(each, coloredTypes, cas);
-      if (type != null && !"".equals(replace)) {
-        StyleMapEntry entry = styleMap.get(type.getName());
-        String backgroundColor = "#"
-                + Integer.toHexString(entry.getBackground().getRGB()).substring(2);
-        String newStartTag = startTag.replaceAll("&bgcolor", backgroundColor);
-        tokens.add(newStartTag);
-        tokens.add(replace);
-        tokens.add(endTag);
+      int color = getColorIndex(each, coloredTypes, typeSystem);
+      if (color >= 0 && !"".equals(replace)) {
+        sb.append(startTags[color]);
+        sb.append(replace);
+        sb.append(END_TAG);
       } else {
-        tokens.add(replace);
+        sb.append(replace);
       }
       iterator.moveToNext();
     }
-    StringBuilder sb = new StringBuilder();
-    for (String string : tokens) {
-      sb.append(string);
-    }
     return sb.toString();
   }
 
-  private Type getColorType(RutaBasic basic, List<Type> coloredTypes, JCas cas) {
-    if (coloredTypes.isEmpty()) {
-      return null;
-    }
-    List<Type> colorTypes = new ArrayList<Type>();
-    for (Type each : coloredTypes) {
-      if (cas.getTypeSystem().subsumes(each, basic.getType()) || basic.isPartOf(each)) {
-        colorTypes.add(each);
-      }
-    }
-    Type best = null;
-    if (colorTypes.isEmpty()) {
-    } else if (colorTypes.size() == 1) {
-      best = colorTypes.get(0);
-    } else {
-      // best = colorTypes.get(0);
-    }
-    return best;
-  }
-
-  private List<Type> getColoredTypes(JCas cas, Map<String, StyleMapEntry> styleMap) {
-    List<Type> result = new ArrayList<Type>();
-    for (String string : styleMap.keySet()) {
-      if (string == null)
-        continue;
-      Type type = cas.getTypeSystem().getType(string);
-      if (type != null) {
-        result.add(type);
+  private int getColorIndex(RutaBasic basic, Type[] coloredTypes, TypeSystem typeSystem) {
+    // only a basic with a single highlighted type is highlighted
+    int result = -1;
+    for (int i = 0; i < coloredTypes.length; i++) {
+      Type each = coloredTypes[i];
+      if (typeSystem.subsumes(each, basic.getType()) || basic.isPartOf(each)) {
+        if (result >= 0) {
+          return -1;
+        }
+        result = i;
       }
     }
-    Collections.sort(result, new Comparator<Type>() {
-      @Override
-      public int compare(Type o1, Type o2) {
-        return o1.getShortName().compareTo(o2.getShortName());
-      }
-    });
     return result;
   }
 
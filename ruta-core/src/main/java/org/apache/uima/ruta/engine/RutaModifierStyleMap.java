@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.tools.stylemap.StyleMapEntry;
+
+/**
+ * The highlightings of a style map file, which are ordered by the short names of the types. The
+ * start tag of each highlighting is created once, and the types are resolved once for each type
+ * system.
+ */
+final class RutaModifierStyleMap {
+
+  private final String location;
+
+  private final long lastModified;
+
+  private final String[] typeNames;
+
+  private final String[] startTags;
+
+  private TypeSystem typeSystem;
+
+  private Type[] types;
+
+  private String[] typeStartTags;
+
+  RutaModifierStyleMap(String location, long lastModified, Map<String, StyleMapEntry> styleMap) {
+    super();
+    this.location = location;
+    this.lastModified = lastModified;
+    List<String> names = new ArrayList<String>();
+    for (String each : styleMap.keySet()) {
+      if (each != null) {
+        names.add(each);
+      }
+    }
+    Collections.sort(names, new Comparator<String>() {
+      @Override
+      public int compare(String o1, String o2) {
+        return getShortName(o1).compareTo(getShortName(o2));
+      }
+    });
+    typeNames = names.toArray(new String[names.size()]);
+    startTags = new String[typeNames.length];
+    for (int i = 0; i < typeNames.length; i++) {
+      StyleMapEntry entry = styleMap.get(typeNames[i]);
+      String backgroundColor = "#"
+              + Integer.toHexString(entry.getBackground().getRGB()).substring(2);
+      startTags[i] = "<span style='background:" + backgroundColor + "'>";
+    }
+  }
+
+  /**
+   * @param location
+   *          the location of the style map file
+   * @param lastModified
+   *          the time of the last modification of the file
+   * @return true if this style map was created from the given version of the file
+   */
+  boolean isCreatedFrom(String location, long lastModified) {
+    return this.lastModified == lastModified
+            && (this.location == null ? location == null : this.location.equals(location));
+  }
+
+  /**
+   * @param typeSystem
+   *          the current type system
+   * @return the highlighted types of the style map, which are defined in the type system
+   */
+  Type[] getTypes(TypeSystem typeSystem) {
+    resolveTypes(typeSystem);
+    return types;
+  }
+
+  /**
+   * @param typeSystem
+   *          the current type system
+   * @return the start tags of the highlighted types in the same order
+   */
+  String[] getStartTags(TypeSystem typeSystem) {
+    resolveTypes(typeSystem);
+    return typeStartTags;
+  }
+
+  private void resolveTypes(TypeSystem typeSystem) {
+    if (this.typeSystem == typeSystem) {
+      return;
+    }
+    List<Type> resolvedTypes = new ArrayList<Type>();
+    List<String> resolvedTags = new ArrayList<String>();
+    for (int i = 0; i < typeNames.length; i++) {
+      Type type = typeSystem.getType(typeNames[i]);
+      if (type != null) {
+        resolvedTypes.add(type);
+        resolvedTags.add(startTags[i]);
+      }
+    }
+    types = resolvedTypes.toArray(new Type[resolvedTypes.size()]);
+    typeStartTags = resolvedTags.toArray(new String[resolvedTags.size()]);
+    this.typeSystem = typeSystem;
+  }
+
+  private static String getShortName(String typeName) {
+    return typeName.substring(typeName.lastIndexOf('.') + 1);
+  }
+
+}
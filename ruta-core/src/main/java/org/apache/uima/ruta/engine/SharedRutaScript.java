@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.ruta.RutaEnvironment;
+import org.apache.uima.ruta.RutaModule;
+import org.apache.uima.ruta.RutaStatement;
+import org.apache.uima.ruta.TypeUsageInformation;
+import org.apache.uima.ruta.block.RutaBlock;
+
+/**
+ * A parsed script together with its loaded resources, which is shared by all instances of
+ * {@link RutaEngine} with the same configuration in the same class loader. The environments of
+ * the script keep the variables separately for each thread, so that the engines can process
+ * different CASes concurrently. The script is released when the last engine using it is
+ * destroyed.
+ */
+final class SharedRutaScript {
+
+  private static final Map<String, SharedRutaScript> SCRIPTS = new HashMap<String, SharedRutaScript>();
+
+  private final String key;
+
+  private final RutaModule script;
+
+  private final TypeUsageInformation typeUsageInformation;
+
+  private final List<RutaEnvironment> environments = new ArrayList<RutaEnvironment>();
+
+  private TypeSystem typeSystem;
+
+  private int references = 1;
+
+  private SharedRutaScript(String key, RutaModule script,
+          TypeUsageInformation typeUsageInformation) {
+    super();
+    this.key = key;
+    this.script = script;
+    this.typeUsageInformation = typeUsageInformation;
+    collectEnvironments(script, new HashSet<RutaModule>());
+    for (RutaEnvironment each : environments) {
+      each.setSharedByThreads(true);
+    }
+  }
+
+  /**
+   * Returns the script registered for the given configuration and increases its reference count.
+   * Callers that load the script if none is registered should hold the lock of this class.
+   *
+   * @param key
+   *          the configuration of the engine
+   * @return the shared script, or null if no script is registered for the configuration
+   */
+  static synchronized SharedRutaScript acquire(String key) {
+    SharedRutaScript result = SCRIPTS.get(key);
+    if (result != null) {
+      result.references++;
+    }
+    return result;
+  }
+
+  static synchronized SharedRutaScript register(String key, RutaModule script,
+          TypeUsageInformation typeUsageInformation) {
+    SharedRutaScript result = new SharedRutaScript(key, script, typeUsageInformation);
+    SCRIPTS.put(key, result);
+    return result;
+  }
+
+  /**
+   * Decreases the reference count of the script.
+   *
+   * @return true if no engine uses the script anymore
+   */
+  boolean release() {
+    synchronized (SharedRutaScript.class) {
+      references--;
+      if (references > 0) {
+        return false;
+      }
+      SCRIPTS.remove(key);
+      return true;
+    }
+  }
+
+  RutaModule getScript() {
+    return script;
+  }
+
+  TypeUsageInformation getTypeUsageInformation() {
+    return typeUsageInformation;
+  }
+
+  /**
+   * Removes the variables of the current thread from all environments of the script.
+   */
+  void removeThreadVariables() {
+    for (RutaEnvironment each : environments) {
+      each.removeThreadVariables();
+    }
+  }
+
+  TypeSystem getTypeSystem() {
+    return typeSystem;
+  }
+
+  void setTypeSystem(TypeSystem typeSystem) {
+    this.typeSystem = typeSystem;
+  }
+
+  private void collectEnvironments(RutaModule module, Collection<RutaModule> processed) {
+    if (module == null || processed.contains(module)) {
+      return;
+    }
+    processed.add(module);
+    collectEnvironments(module.getBlock(null));
+    for (RutaBlock each : module.getBlocks().values()) {
+      collectEnvironments(each);
+    }
+    for (RutaModule each : module.getScripts().values()) {
+      collectEnvironments(each, processed);
+    }
+  }
+
+  private void collectEnvironments(RutaBlock block) {
+    environments.add(block.getEnvironment());
+    if (block.getElements() == null) {
+      return;
+    }
+    for (RutaStatement each : block.getElements()) {
+      if (each instanceof RutaBlock) {
+        collectEnvironments((RutaBlock) each);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.ruta.RutaStream;
+import org.apache.uima.ruta.type.RutaBasic;
+
+/**
+ * An Aho-Corasick automaton for the words of a word list, which finds the candidates of all
+ * positions while reading the text of a stream only once. The words and the text are normalized
+ * for the options of the search: characters are folded to lower case if the case is ignored, and
+ * ignored characters as well as spaces, if whitespaces are ignored, are removed. Thus, the automaton
+ * finds a superset of the matches of the word list, and each candidate is confirmed by the word
+ * list itself. The results are the same as for the search that starts a walk through the trie at
+ * each basic.
+ * <p>
+ * The transitions are stored in a hash table with open addressing, and the failure links and
+ * output links in arrays, so that the automaton needs no objects for its states.
+ * </p>
+ */
+final class AhoCorasickAutomaton {
+
+  private static final int ROOT = 0;
+
+  private final boolean ignoreCase;
+
+  private final boolean ignoreWS;
+
+  private final char[] ignoreChars;
+
+  private long[] keys;
+
+  private int[] targets;
+
+  private int transitionCount;
+
+  private int stateCount;
+
+  private int[] depths;
+
+  private int[] failures;
+
+  private int[] outputs;
+
+  private BitSet terminals;
+
+  private boolean emptyWord;
+
+  // only used while the automaton is built
+  private int[] firstChildren;
+
+  private int[] nextSiblings;
+
+  private char[] values;
+
+  AhoCorasickAutomaton(boolean ignoreCase, char[] ignoreChars, boolean ignoreWS) {
+    super();
+    this.ignoreCase = ignoreCase;
+    this.ignoreWS = ignoreWS;
+    this.ignoreChars = ignoreChars == null ? new char[0] : ignoreChars.clone();
+    keys = new long[64];
+    Arrays.fill(keys, -1L);
+    targets = new int[64];
+    depths = new int[16];
+    firstChildren = new int[16];
+    nextSiblings = new int[16];
+    values = new char[16];
+    terminals = new BitSet();
+    firstChildren[ROOT] = -1;
+    nextSiblings[ROOT] = -1;
+    stateCount = 1;
+  }
+
+  /**
+   * Returns the key of the automata for the given options.
+   */
+  static String getKey(boolean ignoreCase, char[] ignoreChars, boolean ignoreWS) {
+    return ignoreCase + "|" + ignoreWS + "|" + (ignoreChars == null ? "" : new String(ignoreChars));
+  }
+
+  /**
+   * Returns the state reached from the given state with the character of a word, which is created
+   * if necessary. Characters that are removed by the normalization do not change the state.
+   */
+  int addChild(int state, char c) {
+    int normalized = normalize(c);
+    if (normalized < 0) {
+      return state;
+    }
+    int child = getTransition(state, (char) normalized);
+    if (child >= 0) {
+      return child;
+    }
+    child = stateCount++;
+    if (child == depths.length) {
+      int length = child * 2;
+      depths = Arrays.copyOf(depths, length);
+      firstChildren = Arrays.copyOf(firstChildren, length);
+      nextSiblings = Arrays.copyOf(nextSiblings, length);
+      values = Arrays.copyOf(values, length);
+    }
+    depths[child] = depths[state] + 1;
+    values[child] = (char) normalized;
+    firstChildren[child] = -1;
+    nextSiblings[child] = firstChildren[state];
+    firstChildren[state] = child;
+    putTransition(state, (char) normalized, child);
+    return child;
+  }
+
+  /**
+   * Marks the state as the end of a word.
+   */
+  void setWordEnd(int state) {
+    if (state == ROOT) {
+      emptyWord = true;
+    } else {
+      terminals.set(state);
+    }
+  }
+
+  /**
+   * Computes the failure links and output links after all words were added.
+   */
+  void build() {
+    failures = new int[stateCount];
+    outputs = new int[stateCount];
+    outputs[ROOT] = -1;
+    int[] queue = new int[stateCount];
+    int head = 0;
+    int tail = 0;
+    for (int child = firstChildren[ROOT]; child >= 0; child = nextSiblings[child]) {
+      failures[child] = ROOT;
+      outputs[child] = terminals.get(child) ? child : -1;
+      queue[tail++] = child;
+    }
+    while (head < tail) {
+      int state = queue[head++];
+      for (int child = firstChildren[state]; child >= 0; child = nextSiblings[child]) {
+        char c = values[child];
+        int failure = failures[state];
+        int next = getTransition(failure, c);
+        while (next < 0 && failure != ROOT) {
+          failure = failures[failure];
+          next = getTransition(failure, c);
+        }
+        failures[child] = next < 0 ? ROOT : next;
+        outputs[child] = terminals.get(child) ? child : outputs[failures[child]];
+        queue[tail++] = child;
+      }
+    }
+    firstChildren = null;
+    nextSiblings = null;
+    values = null;
+    terminals = null;
+  }
+
+  /**
+   * Finds the longest match of the word list starting at each basic of the stream.
+   *
+   * @param list
+   *          the word list that confirms the candidates
+   * @return the matches, which are not added to the indexes
+   */
+  List<AnnotationFS> find(RutaWordList list, RutaStream stream, int size, char[] ignoreChars,
+          int maxIgnoredChars) {
+    List<RutaBasic> basics = new ArrayList<RutaBasic>();
+    List<String> texts = new ArrayList<String>();
+    stream.moveToFirst();
+    while (stream.isValid()) {
+      RutaBasic basic = (RutaBasic) stream.get();
+      basics.add(basic);
+      texts.add(basic.getCoveredText());
+      stream.moveToNext();
+    }
+    int basicCount = basics.size();
+    int[] normalizedBegins = new int[basicCount];
+    int[] normalizedEnds = new int[basicCount];
+    StringBuilder normalizedText = new StringBuilder();
+    for (int i = 0; i < basicCount; i++) {
+      normalizedBegins[i] = normalizedText.length();
+      String text = texts.get(i);
+      for (int j = 0; j < text.length(); j++) {
+        int normalized = normalize(text.charAt(j));
+        if (normalized >= 0) {
+          normalizedText.append((char) normalized);
+        }
+      }
+      normalizedEnds[i] = normalizedText.length();
+    }
+
+    int length = normalizedText.length();
+    boolean[] basicBegins = new boolean[length + 1];
+    int[] lastBasicEndingAt = new int[length + 1];
+    Arrays.fill(lastBasicEndingAt, -1);
+    for (int i = 0; i < basicCount; i++) {
+      basicBegins[normalizedBegins[i]] = true;
+      lastBasicEndingAt[normalizedEnds[i]] = i;
+    }
+
+    // the ends of the candidates starting at each position, in descending order
+    int[] candidateHeads = new int[length + 1];
+    Arrays.fill(candidateHeads, -1);
+    int[] candidateEnds = new int[16];
+    int[] candidateNext = new int[16];
+    int candidateCount = 0;
+    int state = ROOT;
+    for (int i = 0; i < length; i++) {
+      char c = normalizedText.charAt(i);
+      int next = getTransition(state, c);
+      while (next < 0 && state != ROOT) {
+        state = failures[state];
+        next = getTransition(state, c);
+      }
+      state = next < 0 ? ROOT : next;
+      int end = i + 1;
+      if (lastBasicEndingAt[end] < 0) {
+        continue;
+      }
+      for (int output = outputs[state]; output >= 0; output = outputs[failures[output]]) {
+        int begin = end - depths[output];
+        if (basicBegins[begin]) {
+          if (candidateCount == candidateEnds.length) {
+            candidateEnds = Arrays.copyOf(candidateEnds, candidateCount * 2);
+            candidateNext = Arrays.copyOf(candidateNext, candidateCount * 2);
+          }
+          candidateEnds[candidateCount] = end;
+          candidateNext[candidateCount] = candidateHeads[begin];
+          candidateHeads[begin] = candidateCount++;
+        }
+      }
+    }
+
+    List<AnnotationFS> results = new ArrayList<AnnotationFS>();
+    for (int i = 0; i < basicCount; i++) {
+      int begin = normalizedBegins[i];
+      int last = -1;
+      int candidate = candidateHeads[begin];
+      for (; candidate >= 0 && last < 0; candidate = candidateNext[candidate]) {
+        last = findLastBasic(list, texts, i, candidateEnds[candidate], normalizedEnds,
+                lastBasicEndingAt, size, ignoreChars, maxIgnoredChars);
+      }
+      if (last < 0 && emptyWord) {
+        last = findLastBasic(list, texts, i, begin, normalizedEnds, lastBasicEndingAt, size,
+                ignoreChars, maxIgnoredChars);
+      }
+      if (last >= 0) {
+        results.add(new Annotation(stream.getJCas(), basics.get(i).getBegin(),
+                basics.get(last).getEnd()));
+      }
+    }
+    return results;
+  }
+
+  private int findLastBasic(RutaWordList list, List<String> texts, int first, int end,
+          int[] normalizedEnds, int[] lastBasicEndingAt, int size, char[] ignoreChars,
+          int maxIgnoredChars) {
+    for (int last = lastBasicEndingAt[end]; last >= first
+            && normalizedEnds[last] == end; last--) {
+      if (isMatch(list, texts, first, last, size, ignoreChars, maxIgnoredChars)) {
+        return last;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isMatch(RutaWordList list, List<String> texts, int first, int last, int size,
+          char[] ignoreChars, int maxIgnoredChars) {
+    StringBuilder candidate = new StringBuilder();
+    for (int i = first; i <= last; i++) {
+      candidate.append(texts.get(i));
+    }
+    if (!list.contains(candidate.toString(), ignoreCase, size, ignoreChars, maxIgnoredChars,
+            ignoreWS)) {
+      return false;
+    }
+    if (ignoreCase && size > 0) {
+      // shorter prefixes are compared case-sensitive and may stop the extension of the match
+      candidate.setLength(0);
+      for (int i = first; i < last; i++) {
+        candidate.append(texts.get(i));
+        if (!list.containsFragment(candidate.toString(), ignoreCase, size, ignoreChars,
+                maxIgnoredChars, ignoreWS)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private int normalize(char c) {
+    if (ignoreWS && c == ' ') {
+      return -1;
+    }
+    for (char each : ignoreChars) {
+      if (each == c) {
+        return -1;
+      }
+    }
+    if (ignoreCase) {
+      return Character.toLowerCase(Character.toUpperCase(c));
+    }
+    return c;
+  }
+
+  private int getTransition(int state, char c) {
+    long key = ((long) state << 16) | c;
+    int mask = keys.length - 1;
+    for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return targets[i];
+      } else if (keys[i] == -1L) {
+        return -1;
+      }
+    }
+  }
+
+  private void putTransition(int state, char c, int target) {
+    if (2 * (transitionCount + 1) > keys.length) {
+      long[] oldKeys = keys;
+      int[] oldTargets = targets;
+      keys = new long[oldKeys.length * 2];
+      Arrays.fill(keys, -1L);
+      targets = new int[oldKeys.length * 2];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != -1L) {
+          insert(oldKeys[i], oldTargets[i]);
+        }
+      }
+    }
+    insert(((long) state << 16) | c, target);
+    transitionCount++;
+  }
+
+  private void insert(long key, int target) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (keys[i] != -1L) {
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    targets[i] = target;
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read-only {@link MultiTextNode} that is decoded on demand from the binary format of multi tree
+ * word lists. The nodes are numbered in breadth-first order, so that the children of a node are
+ * consecutive nodes sorted by their character. Each word end refers to a set of type indices, and
+ * each type name is stored only once. The format consists of a header (magic number, version and
+ * the number of nodes, types, type sets and type set entries), the index of the first child and
+ * the type set of each node, the offsets and entries of the type sets, the character of each node
+ * and finally the type names.
+ * <p>
+ * Nodes are only created when they are visited, and the types of a node are decoded when they are
+ * requested for the first time.
+ * </p>
+ */
+final class BinaryMultiTextNode extends MultiTextNode {
+
+  private static final int MAGIC = 0x524D5457;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 24;
+
+  private final Trie trie;
+
+  private final int node;
+
+  private BinaryMultiTextNode(Trie trie, int node) {
+    super(trie.values.get(node));
+    this.trie = trie;
+    this.node = node;
+  }
+
+  /**
+   * Returns the root node of the multi tree word list stored in the buffer.
+   *
+   * @param buffer
+   *          the buffer starting with the binary multi tree word list at its current position. The
+   *          content of the buffer must not be modified afterwards.
+   * @param name
+   *          the name of the list
+   * @return the root node
+   * @throws IOException
+   *           when the format is invalid
+   */
+  static MultiTextNode read(ByteBuffer buffer, String name) throws IOException {
+    return new BinaryMultiTextNode(new Trie(buffer.slice(), name), 0);
+  }
+
+  /**
+   * Writes the trie with the given root in the binary format. The stream is not closed.
+   *
+   * @param root
+   *          the root of the trie
+   * @param out
+   *          the stream to write to
+   * @throws IOException
+   *           when there is a problem writing to the stream
+   */
+  static void write(MultiTextNode root, OutputStream out) throws IOException {
+    List<MultiTextNode> nodes = new ArrayList<MultiTextNode>();
+    int[] firstChildren = new int[16];
+    nodes.add(root);
+    for (int i = 0; i < nodes.size(); i++) {
+      if (i + 1 >= firstChildren.length) {
+        firstChildren = Arrays.copyOf(firstChildren, firstChildren.length * 2);
+      }
+      firstChildren[i] = nodes.size();
+      nodes.addAll(new TreeMap<Character, MultiTextNode>(nodes.get(i).getChildren()).values());
+    }
+    int nodeCount = nodes.size();
+    firstChildren[nodeCount] = nodeCount;
+
+    Map<String, Integer> typeIndex = new LinkedHashMap<String, Integer>();
+    Map<List<Integer>, Integer> setIndex = new LinkedHashMap<List<Integer>, Integer>();
+    int entryCount = 0;
+    int[] typeSets = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      MultiTextNode each = nodes.get(i);
+      if (!each.isWordEnd()) {
+        typeSets[i] = -1;
+        continue;
+      }
+      List<Integer> set = new ArrayList<Integer>();
+      for (String type : each.getTypes()) {
+        Integer index = typeIndex.get(type);
+        if (index == null) {
+          index = typeIndex.size();
+          typeIndex.put(type, index);
+        }
+        set.add(index);
+      }
+      Collections.sort(set);
+      Integer index = setIndex.get(set);
+      if (index == null) {
+        index = setIndex.size();
+        setIndex.put(set, index);
+        entryCount += set.size();
+      }
+      typeSets[i] = index;
+    }
+
+    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    dos.writeInt(nodeCount);
+    dos.writeInt(typeIndex.size());
+    dos.writeInt(setIndex.size());
+    dos.writeInt(entryCount);
+    for (int i = 0; i <= nodeCount; i++) {
+      dos.writeInt(firstChildren[i]);
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      dos.writeInt(typeSets[i]);
+    }
+    int offset = 0;
+    for (List<Integer> each : setIndex.keySet()) {
+      dos.writeInt(offset);
+      offset += each.size();
+    }
+    dos.writeInt(offset);
+    for (List<Integer> each : setIndex.keySet()) {
+      for (Integer type : each) {
+        dos.writeInt(type);
+      }
+    }
+    for (MultiTextNode each : nodes) {
+      dos.writeChar(each.getValue());
+    }
+    for (String each : typeIndex.keySet()) {
+      byte[] bytes = each.getBytes(StandardCharsets.UTF_8);
+      dos.writeInt(bytes.length);
+      dos.write(bytes);
+    }
+    dos.flush();
+  }
+
+  @Override
+  public MultiTextNode getChildNode(char c) {
+    int low = trie.firstChildren.get(node);
+    int high = trie.firstChildren.get(node + 1) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char value = trie.values.get(mid);
+      if (value < c) {
+        low = mid + 1;
+      } else if (value > c) {
+        high = mid - 1;
+      } else {
+        return new BinaryMultiTextNode(trie, mid);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Map<Character, MultiTextNode> getChildren() {
+    int begin = trie.firstChildren.get(node);
+    int end = trie.firstChildren.get(node + 1);
+    if (begin == end) {
+      return Collections.emptyMap();
+    }
+    Map<Character, MultiTextNode> result = new LinkedHashMap<Character, MultiTextNode>(
+            (end - begin) * 2);
+    for (int i = begin; i < end; i++) {
+      result.put(trie.values.get(i), new BinaryMultiTextNode(trie, i));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public boolean isWordEnd() {
+    return trie.typeSets.get(node) >= 0;
+  }
+
+  @Override
+  public Collection<String> getTypes() {
+    int set = trie.typeSets.get(node);
+    if (set < 0) {
+      return Collections.emptyList();
+    }
+    return trie.getTypes(set);
+  }
+
+  @Override
+  public MultiTextNode addChild(MultiTextNode n) {
+    throw new UnsupportedOperationException("Binary multi tree word lists are read-only.");
+  }
+
+  @Override
+  public boolean addType(String type) {
+    throw new UnsupportedOperationException("Binary multi tree word lists are read-only.");
+  }
+
+  @Override
+  public void setWordEnd(boolean b) {
+    throw new UnsupportedOperationException("Binary multi tree word lists are read-only.");
+  }
+
+  @Override
+  public void setValue(char c) {
+    throw new UnsupportedOperationException("Binary multi tree word lists are read-only.");
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(trie) + node;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof BinaryMultiTextNode)) {
+      return false;
+    }
+    BinaryMultiTextNode other = (BinaryMultiTextNode) obj;
+    return trie == other.trie && node == other.node;
+  }
+
+  private static final class Trie {
+
+    private final IntBuffer firstChildren;
+
+    private final IntBuffer typeSets;
+
+    private final IntBuffer setOffsets;
+
+    private final IntBuffer setEntries;
+
+    private final CharBuffer values;
+
+    private final String[] typeNames;
+
+    private final AtomicReferenceArray<Collection<String>> decodedSets;
+
+    private Trie(ByteBuffer data, String name) throws IOException {
+      if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+        throw new IOException("Not a binary multi tree word list: " + name);
+      }
+      int version = data.getInt(4);
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version
+                + " of binary multi tree word list: " + name);
+      }
+      int nodeCount = data.getInt(8);
+      int typeCount = data.getInt(12);
+      int setCount = data.getInt(16);
+      int entryCount = data.getInt(20);
+      int typeSetsOffset = HEADER_SIZE + 4 * (nodeCount + 1);
+      int setOffsetsOffset = typeSetsOffset + 4 * nodeCount;
+      int setEntriesOffset = setOffsetsOffset + 4 * (setCount + 1);
+      int valuesOffset = setEntriesOffset + 4 * entryCount;
+      int typeNamesOffset = valuesOffset + 2 * nodeCount;
+      if (nodeCount < 1 || data.remaining() < typeNamesOffset) {
+        throw new IOException("Truncated binary multi tree word list: " + name);
+      }
+      firstChildren = MappedResources.slice(data, HEADER_SIZE, 4 * (nodeCount + 1))
+              .asIntBuffer();
+      typeSets = MappedResources.slice(data, typeSetsOffset, 4 * nodeCount).asIntBuffer();
+      setOffsets = MappedResources.slice(data, setOffsetsOffset, 4 * (setCount + 1))
+              .asIntBuffer();
+      setEntries = MappedResources.slice(data, setEntriesOffset, 4 * entryCount).asIntBuffer();
+      values = MappedResources.slice(data, valuesOffset, 2 * nodeCount).asCharBuffer();
+      decodedSets = new AtomicReferenceArray<Collection<String>>(setCount);
+
+      typeNames = new String[typeCount];
+      ByteBuffer names = MappedResources.slice(data, typeNamesOffset,
+              data.remaining() - typeNamesOffset);
+      for (int i = 0; i < typeCount; i++) {
+        typeNames[i] = readTypeName(names);
+      }
+    }
+
+    private Collection<String> getTypes(int set) {
+      Collection<String> result = decodedSets.get(set);
+      if (result == null) {
+        int begin = setOffsets.get(set);
+        int end = setOffsets.get(set + 1);
+        String[] types = new String[end - begin];
+        for (int i = begin; i < end; i++) {
+          types[i - begin] = typeNames[setEntries.get(i)];
+        }
+        result = Collections.unmodifiableList(Arrays.asList(types));
+        decodedSets.compareAndSet(set, null, result);
+      }
+      return result;
+    }
+
+    private static String readTypeName(ByteBuffer buffer) throws IOException {
+      int length = buffer.remaining() < 4 ? -1 : buffer.getInt();
+      if (length < 0 || buffer.remaining() < length) {
+        throw new IOException("Truncated type names of binary multi tree word list.");
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+}
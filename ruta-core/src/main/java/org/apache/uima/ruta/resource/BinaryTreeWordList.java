@@ -0,0 +1,386 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.RutaStream;
+import org.springframework.core.io.Resource;
+
+/**
+ * An immutable tree word list stored in a compact binary format (file ending <code>.btwl</code>).
+ * The nodes of the trie are numbered in breadth-first order, so that the children of a node are
+ * consecutive nodes sorted by their character. The format consists of a header (magic number,
+ * version and number of nodes), the index of the first child for each node, the character of each
+ * node and a bit set of the nodes that end a word.
+ * <p>
+ * Files are memory-mapped read-only and queried without creating any objects for the nodes. Thus,
+ * the list does not use heap space for the trie and the operating system shares the pages between
+ * all engines and processes that use the same file. Resources that are not located in the file
+ * system, e.g., in a jar, are read into a buffer instead.
+ * </p>
+ */
+public class BinaryTreeWordList implements RutaWordList {
+
+  /** The file ending of binary tree word lists. */
+  public static final String FILE_ENDING = ".btwl";
+
+  private static final int MAGIC = 0x5254574C;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 12;
+
+  private final String name;
+
+  private final int nodeCount;
+
+  private final IntBuffer firstChildren;
+
+  private final CharBuffer values;
+
+  private final ByteBuffer wordEnds;
+
+  private final Map<String, AhoCorasickAutomaton> automata = new ConcurrentHashMap<String, AhoCorasickAutomaton>(
+          2);
+
+  /**
+   * Constructs a binary tree word list from a resource. The resource is mapped into memory if it
+   * is located in the file system.
+   *
+   * @param resource
+   *          - the resource containing the binary tree word list
+   * @throws IOException
+   *           - when there is a problem reading the resource or the format is invalid
+   */
+  public BinaryTreeWordList(Resource resource) throws IOException {
+    this(MappedResources.load(resource), resource.getFilename());
+  }
+
+  /**
+   * Constructs a binary tree word list by mapping a file into memory.
+   *
+   * @param file
+   *          - the file containing the binary tree word list
+   * @throws IOException
+   *           - when there is a problem mapping the file or the format is invalid
+   */
+  public BinaryTreeWordList(File file) throws IOException {
+    this(MappedResources.map(file), file.getName());
+  }
+
+  /**
+   * Constructs a binary tree word list from a buffer. The content of the buffer must not be
+   * modified afterwards.
+   *
+   * @param buffer
+   *          - the buffer containing the binary tree word list starting at its current position
+   * @param name
+   *          - the name of the list
+   * @throws IOException
+   *           - when the format is invalid
+   */
+  public BinaryTreeWordList(ByteBuffer buffer, String name) throws IOException {
+    super();
+    this.name = name;
+    ByteBuffer data = buffer.slice();
+    if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+      throw new IOException("Not a binary tree word list: " + name);
+    }
+    int version = data.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported version " + version + " of binary tree word list: "
+              + name);
+    }
+    nodeCount = data.getInt(8);
+    int valuesOffset = HEADER_SIZE + 4 * (nodeCount + 1);
+    int wordEndsOffset = valuesOffset + 2 * nodeCount;
+    if (nodeCount < 1 || data.remaining() < wordEndsOffset + (nodeCount + 7) / 8) {
+      throw new IOException("Truncated binary tree word list: " + name);
+    }
+    firstChildren = MappedResources.slice(data, HEADER_SIZE, 4 * (nodeCount + 1)).asIntBuffer();
+    values = MappedResources.slice(data, valuesOffset, 2 * nodeCount).asCharBuffer();
+    wordEnds = MappedResources.slice(data, wordEndsOffset, (nodeCount + 7) / 8);
+  }
+
+  /**
+   * Writes the trie with the given root in the binary format. The stream is not closed.
+   *
+   * @param root
+   *          - the root of the trie
+   * @param out
+   *          - the stream to write to
+   * @throws IOException
+   *           - when there is a problem writing to the stream
+   */
+  public static void write(TextNode root, OutputStream out) throws IOException {
+    List<TextNode> nodes = new ArrayList<TextNode>();
+    int[] firstChildren = new int[16];
+    nodes.add(root);
+    for (int i = 0; i < nodes.size(); i++) {
+      if (i + 1 >= firstChildren.length) {
+        firstChildren = Arrays.copyOf(firstChildren, firstChildren.length * 2);
+      }
+      firstChildren[i] = nodes.size();
+      nodes.addAll(new TreeMap<Character, TextNode>(nodes.get(i).getChildren()).values());
+    }
+    int nodeCount = nodes.size();
+    firstChildren[nodeCount] = nodeCount;
+
+    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    dos.writeInt(nodeCount);
+    for (int i = 0; i <= nodeCount; i++) {
+      dos.writeInt(firstChildren[i]);
+    }
+    for (TextNode each : nodes) {
+      dos.writeChar(each.getValue());
+    }
+    int bits = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      if (nodes.get(i).isWordEnd()) {
+        bits |= 1 << (i & 7);
+      }
+      if ((i & 7) == 7 || i == nodeCount - 1) {
+        dos.writeByte(bits);
+        bits = 0;
+      }
+    }
+    dos.flush();
+  }
+
+  /**
+   * Returns the number of nodes including the root.
+   *
+   * @return the number of nodes
+   */
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  @Override
+  public boolean contains(String s, boolean ignoreCase, int size, char[] ignoreChars,
+          int maxIgnoreChars, boolean ignoreWS) {
+    if (s == null) {
+      return false;
+    }
+    return recursiveContains(0, s, 0, ignoreCase && s.length() > size, false, ignoreChars,
+            maxIgnoreChars, ignoreWS);
+  }
+
+  @Override
+  public boolean containsFragment(String s, boolean ignoreCase, int size, char[] ignoreChars,
+          int maxIgnoreChars, boolean ignoreWS) {
+    return recursiveContains(0, s, 0, ignoreCase && s.length() > size, true, ignoreChars,
+            maxIgnoreChars, ignoreWS);
+  }
+
+  private boolean recursiveContains(int pointer, String text, int index, boolean ignoreCase,
+          boolean fragment, char[] ignoreChars, int maxIgnoreChars, boolean ignoreWS) {
+    if (pointer < 0) {
+      return false;
+    }
+    if (index == text.length()) {
+      return fragment || isWordEnd(pointer);
+    }
+    char charAt = text.charAt(index);
+    boolean charAtIgnored = false;
+    if (ignoreChars != null) {
+      for (char each : ignoreChars) {
+        if (each == charAt) {
+          charAtIgnored = true;
+          maxIgnoreChars--;
+          break;
+        }
+      }
+      charAtIgnored &= index != 0;
+      if (maxIgnoreChars < 0) {
+        return false;
+      }
+    }
+    int next = ++index;
+
+    boolean result = false;
+
+    int wsNode = getChild(pointer, ' ');
+    if (ignoreWS && wsNode >= 0) {
+      result |= recursiveContains(wsNode, text, --next, ignoreCase, fragment, ignoreChars,
+              maxIgnoreChars, ignoreWS);
+    }
+
+    if (ignoreCase) {
+      int childNodeL = getChild(pointer, Character.toLowerCase(charAt));
+      int childNodeU = getChild(pointer, Character.toUpperCase(charAt));
+      if (childNodeL < 0 && ignoreWS) {
+        childNodeL = skipWS(pointer, charAt);
+      }
+      if (childNodeU < 0 && ignoreWS) {
+        childNodeU = skipWS(pointer, charAt);
+      }
+      if (charAtIgnored && childNodeL < 0 && childNodeU < 0) {
+        result |= recursiveContains(pointer, text, next, ignoreCase, fragment, ignoreChars,
+                maxIgnoreChars, ignoreWS);
+      } else {
+        result |= recursiveContains(childNodeL, text, next, ignoreCase, fragment, ignoreChars,
+                maxIgnoreChars, ignoreWS);
+        if (childNodeL != childNodeU) { // Do not go into the same tree.
+          result |= recursiveContains(childNodeU, text, next, ignoreCase, fragment, ignoreChars,
+                  maxIgnoreChars, ignoreWS);
+        }
+      }
+    } else {
+      int childNode = getChild(pointer, charAt);
+      if (childNode < 0 && ignoreWS) {
+        childNode = skipWS(pointer, charAt);
+      }
+      if (charAtIgnored && childNode < 0) {
+        result |= recursiveContains(pointer, text, next, ignoreCase, fragment, ignoreChars,
+                maxIgnoreChars, ignoreWS);
+      } else {
+        result |= recursiveContains(childNode, text, next, ignoreCase, fragment, ignoreChars,
+                maxIgnoreChars, ignoreWS);
+      }
+    }
+    return result;
+  }
+
+  private int skipWS(int pointer, char charAt) {
+    int childNode = getChild(pointer, ' ');
+    while (childNode >= 0) {
+      int node = getChild(childNode, charAt);
+      if (node >= 0) {
+        return node;
+      }
+      childNode = getChild(childNode, ' ');
+    }
+    return -1;
+  }
+
+  private int getChild(int node, char c) {
+    int low = firstChildren.get(node);
+    int high = firstChildren.get(node + 1) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      char value = values.get(mid);
+      if (value < c) {
+        low = mid + 1;
+      } else if (value > c) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isWordEnd(int node) {
+    return (wordEnds.get(node >>> 3) & (1 << (node & 7))) != 0;
+  }
+
+  @Override
+  public List<AnnotationFS> find(RutaStream stream, boolean ignoreCase, int size,
+          char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
+    return TreeWordList.find(this, stream, ignoreCase, size, ignoreChars, maxIgnoredChars,
+            ignoreWS);
+  }
+
+  /**
+   * Finds the same annotations as
+   * {@link #find(RutaStream, boolean, int, char[], int, boolean)}, but reads the text of the stream
+   * only once with an Aho-Corasick automaton instead of walking through the trie at each basic. The
+   * automaton is created on the heap for each combination of options when it is used for the first
+   * time.
+   *
+   * @param stream
+   *          - the stream to search in
+   * @param ignoreCase
+   *          - ignore the case of candidates longer than the given size
+   * @param size
+   *          - the maximal length of candidates whose case is not ignored
+   * @param ignoreChars
+   *          - characters that may be skipped in the text
+   * @param maxIgnoredChars
+   *          - the maximal number of skipped characters
+   * @param ignoreWS
+   *          - ignore whitespaces in the words of the list
+   * @return the longest match starting at each basic
+   */
+  public List<AnnotationFS> findWithAutomaton(RutaStream stream, boolean ignoreCase, int size,
+          char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
+    String key = AhoCorasickAutomaton.getKey(ignoreCase, ignoreChars, ignoreWS);
+    AhoCorasickAutomaton automaton = automata.get(key);
+    if (automaton == null) {
+      automaton = new AhoCorasickAutomaton(ignoreCase, ignoreChars, ignoreWS);
+      addWords(automaton, 0, 0);
+      automaton.build();
+      automata.put(key, automaton);
+    }
+    return automaton.find(this, stream, size, ignoreChars, maxIgnoredChars);
+  }
+
+  private void addWords(AhoCorasickAutomaton automaton, int node, int state) {
+    if (isWordEnd(node)) {
+      automaton.setWordEnd(state);
+    }
+    int end = firstChildren.get(node + 1);
+    for (int child = firstChildren.get(node); child < end; child++) {
+      addWords(automaton, child, automaton.addChild(state, values.get(child)));
+    }
+  }
+
+  @Override
+  public List<AnnotationFS> find(RutaStream stream, Map<String, Object> typeMap, boolean ignoreCase,
+          int ignoreLength, boolean edit, double distance, String ignoreToken) {
+    return null;
+  }
+
+  @Override
+  public List<String> contains(String string, boolean ignoreCase, int ignoreLength, boolean edit,
+          double distance, String ignoreToken) {
+    return null;
+  }
+
+  @Override
+  public List<String> containsFragment(String string, boolean ignoreCase, int ignoreLength,
+          boolean edit, double distance, String ignoreToken) {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
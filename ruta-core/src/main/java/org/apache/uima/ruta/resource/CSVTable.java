@@ -19,16 +19,27 @@
 
 package org.apache.uima.ruta.resource;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.uima.ruta.block.RutaBlock;
@@ -36,12 +47,35 @@ import org.apache.uima.ruta.engine.RutaEngine;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 
+/**
+ * A table loaded from a CSV file. The values are stored by column, and equal values share the same
+ * string instance. Rows are looked up with hash indexes, which are built for a column when it is
+ * looked up for the first time.
+ * <p>
+ * A table can also be stored in a binary format (file ending <code>.bcsv</code>), which contains
+ * the distinct values and the index of the value of each cell, and is read without CSV parsing.
+ * </p>
+ */
 public class CSVTable implements RutaTable {
   public static final String DEFAULT_CSV_SEPARATOR = ";";
 
-  private List<List<String>> tableData;
+  /** The file ending of tables in the binary format. */
+  public static final String BINARY_FILE_ENDING = ".bcsv";
+
+  private static final int MAGIC = 0x52435356;
+
+  private static final int VERSION = 1;
+
+  /** The values by column and row. Missing values of shorter rows are empty strings. */
+  private String[][] columns;
+
+  /** The number of values in each row. */
+  private int[] rowLengths;
+
+  private final Map<Integer, RutaWordList> columnWordLists = new ConcurrentHashMap<Integer, RutaWordList>(
+          2);
 
-  private Map<Integer, RutaWordList> columnWordLists = new HashMap<Integer, RutaWordList>(2);
+  private final Map<Integer, ColumnIndex> columnIndexes = new HashMap<Integer, ColumnIndex>(2);
 
   private final String separator;
 
@@ -59,7 +93,12 @@ public class CSVTable implements RutaTable {
     InputStream stream = null;
     try {
       stream = table.getInputStream();
-      buildTable(stream);
+      String name = table.getFilename();
+      if (name != null && name.endsWith(BINARY_FILE_ENDING)) {
+        readBinaryTable(stream);
+      } else {
+        buildTable(stream);
+      }
     } finally {
       if (stream != null) {
         stream.close();
@@ -77,28 +116,140 @@ public class CSVTable implements RutaTable {
     buildTable(stream);
   }
 
-  private void buildTable(InputStream stream) {
-    Scanner sc = new Scanner(stream, Charset.forName("UTF-8").name());
-    sc.useDelimiter("\\n");
-    tableData = new ArrayList<List<String>>();
-    while (sc.hasNext()) {
-      String line = sc.next().trim();
-      // Quote separator to ignore special characters in regex
-      String quotedSeparator = Pattern.quote(separator);
-      // add spacer between 2 followed separators without any other characters
-      line = line.replaceAll(quotedSeparator + quotedSeparator, separator + " " + separator);
-      String[] lineElements = line.split(quotedSeparator);
-      List<String> row = Arrays.asList(lineElements);
-      tableData.add(row);
+  private void buildTable(InputStream stream) throws IOException {
+    BufferedReader reader = new BufferedReader(
+            new InputStreamReader(stream, StandardCharsets.UTF_8));
+    // Quote separator to ignore special characters in regex
+    String quotedSeparator = Pattern.quote(separator);
+    Pattern separatorPattern = Pattern.compile(quotedSeparator);
+    // add spacer between 2 followed separators without any other characters
+    Pattern emptyCellPattern = Pattern.compile(quotedSeparator + quotedSeparator);
+    String spacer = Matcher.quoteReplacement(separator + " " + separator);
+    Map<String, String> values = new HashMap<String, String>();
+    List<String[]> rows = new ArrayList<String[]>();
+    String line = null;
+    while ((line = reader.readLine()) != null) {
+      line = emptyCellPattern.matcher(line.trim()).replaceAll(spacer);
+      String[] row = separatorPattern.split(line);
+      for (int i = 0; i < row.length; i++) {
+        row[i] = share(row[i], values);
+      }
+      rows.add(row);
+    }
+    reader.close();
+    setRows(rows);
+  }
+
+  private void setRows(List<String[]> rows) {
+    int columnCount = 0;
+    rowLengths = new int[rows.size()];
+    for (int i = 0; i < rowLengths.length; i++) {
+      rowLengths[i] = rows.get(i).length;
+      columnCount = Math.max(columnCount, rowLengths[i]);
+    }
+    columns = new String[columnCount][rowLengths.length];
+    for (int column = 0; column < columnCount; column++) {
+      String[] columnData = columns[column];
+      for (int row = 0; row < columnData.length; row++) {
+        String[] rowData = rows.get(row);
+        columnData[row] = column < rowData.length ? rowData[column] : "";
+      }
+    }
+  }
+
+  private static String share(String value, Map<String, String> values) {
+    String result = values.get(value);
+    if (result == null) {
+      values.put(value, value);
+      result = value;
+    }
+    return result;
+  }
+
+  private void readBinaryTable(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a binary table.");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported version " + version + " of binary table.");
+    }
+    int rowCount = in.readInt();
+    int columnCount = in.readInt();
+    String[] values = new String[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      values[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    rowLengths = new int[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      rowLengths[i] = in.readInt();
+    }
+    columns = new String[columnCount][rowCount];
+    for (String[] each : columns) {
+      for (int i = 0; i < rowCount; i++) {
+        each[i] = values[in.readInt()];
+      }
+    }
+  }
+
+  /**
+   * Writes the table in the binary format, which can be loaded without parsing the CSV file again.
+   * The stream is not closed.
+   * 
+   * @param out
+   *          the stream to write to
+   * @throws IOException
+   *           When there is a problem writing to the stream.
+   */
+  public void writeBinaryTable(OutputStream out) throws IOException {
+    Map<String, Integer> values = new LinkedHashMap<String, Integer>();
+    values.put("", 0);
+    for (String[] each : columns) {
+      for (String value : each) {
+        if (!values.containsKey(value)) {
+          values.put(value, values.size());
+        }
+      }
+    }
+    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    dos.writeInt(rowLengths.length);
+    dos.writeInt(columns.length);
+    dos.writeInt(values.size());
+    for (String each : values.keySet()) {
+      byte[] bytes = each.getBytes(StandardCharsets.UTF_8);
+      dos.writeInt(bytes.length);
+      dos.write(bytes);
+    }
+    for (int each : rowLengths) {
+      dos.writeInt(each);
+    }
+    for (String[] each : columns) {
+      for (String value : each) {
+        dos.writeInt(values.get(value));
+      }
+    }
+    dos.flush();
+  }
+
+  public void createBinaryFile(String path) throws IOException {
+    OutputStream output = new FileOutputStream(path);
+    try {
+      writeBinaryTable(output);
+    } finally {
+      output.close();
     }
-    sc.close();
   }
 
   @Override
   public RutaWordList getWordList(int index, RutaBlock parent) {
     RutaWordList list = columnWordLists.get(index);
     if (list == null) {
-      if (index > 0 && index <= tableData.get(0).size()) {
+      if (index > 0 && rowLengths.length > 0 && index <= rowLengths[0]) {
         Boolean dictRemoveWS = (Boolean) parent.getContext().getConfigParameterValue(
                 RutaEngine.PARAM_DICT_REMOVE_WS);
         if (dictRemoveWS == null) {
@@ -112,40 +263,140 @@ public class CSVTable implements RutaTable {
   }
 
   private List<String> getColumnData(int i) {
-    List<String> result = new LinkedList<String>();
-    for (List<String> each : tableData) {
-      if (each.size() > i) {
-        result.add(each.get(i));
-      } else {
-        result.add("");
-      }
+    if (i < columns.length) {
+      return Arrays.asList(columns[i]);
     }
-    return result;
+    return Collections.nCopies(rowLengths.length, "");
   }
 
   @Override
   public String getEntry(int row, int column) {
-    return tableData.get(row).get(column);
+    if (column < 0 || column >= rowLengths[row]) {
+      throw new IndexOutOfBoundsException("Row " + row + " has no column " + column);
+    }
+    return columns[column][row];
+  }
+
+  /**
+   * @return the number of rows of the table
+   */
+  public int getRowCount() {
+    return rowLengths.length;
   }
 
   @Override
   public List<String> getRowWhere(int column, String lookupValue, boolean ignoreCase) {
-    List<String> columnData = getColumnData(column);
-    int i = 0;
-    for (String tableValue : columnData) {
-      if (ignoreCase ? tableValue.equalsIgnoreCase(lookupValue) : tableValue.equals(lookupValue)) {
-        return tableData.get(i);
+    if (column < 0) {
+      throw new IndexOutOfBoundsException("Invalid column " + column);
+    }
+    String key = ignoreCase ? foldCase(lookupValue) : lookupValue;
+    ColumnIndex index = getColumnIndex(column);
+    Integer row = index.getRows(ignoreCase, false).get(key);
+    if (row == null) {
+      row = index.getRows(ignoreCase, true).get(key);
+    }
+    if (row == null) {
+      return new ArrayList<>();
+    }
+    return new Row(row);
+  }
+
+  private synchronized ColumnIndex getColumnIndex(int column) {
+    ColumnIndex result = columnIndexes.get(column);
+    if (result == null) {
+      result = new ColumnIndex(getColumnData(column));
+      columnIndexes.put(column, result);
+    }
+    return result;
+  }
+
+  /**
+   * Maps the characters of the value so that two values are equal if and only if they are equal
+   * according to {@link String#equalsIgnoreCase(String)}.
+   */
+  private static String foldCase(String value) {
+    char[] chars = value.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Removes the characters matched by the regular expression <code>\s</code>.
+   */
+  private static String removeWhitespaces(String value) {
+    StringBuilder result = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      boolean whitespace = c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f'
+              || c == '\r';
+      if (whitespace && result == null) {
+        result = new StringBuilder(value.length());
+        result.append(value, 0, i);
+      } else if (!whitespace && result != null) {
+        result.append(c);
       }
-      i++;
     }
-    i = 0;
-    for (String tableValue : columnData) {
-      String tableValueWithoutSpacers = tableValue.replaceAll("\\s", "");
-      if (ignoreCase ? tableValueWithoutSpacers.equalsIgnoreCase(lookupValue) : tableValueWithoutSpacers.equals(lookupValue)) {
-        return tableData.get(i);
+    return result == null ? value : result.toString();
+  }
+
+  /**
+   * The first row of each value of a column, for exact and case-insensitive lookups of the values
+   * with and without whitespaces. Each of the maps is built when it is needed for the first time.
+   */
+  private static class ColumnIndex {
+
+    private final List<String> values;
+
+    private final Map<String, Integer>[] rows;
+
+    @SuppressWarnings("unchecked")
+    ColumnIndex(List<String> values) {
+      this.values = values;
+      this.rows = new Map[4];
+    }
+
+    synchronized Map<String, Integer> getRows(boolean ignoreCase, boolean withoutWhitespaces) {
+      int variant = (ignoreCase ? 1 : 0) + (withoutWhitespaces ? 2 : 0);
+      Map<String, Integer> result = rows[variant];
+      if (result == null) {
+        result = new HashMap<String, Integer>(values.size() * 2);
+        int row = 0;
+        for (String each : values) {
+          String key = withoutWhitespaces ? removeWhitespaces(each) : each;
+          key = ignoreCase ? foldCase(key) : key;
+          if (!result.containsKey(key)) {
+            result.put(key, row);
+          }
+          row++;
+        }
+        rows[variant] = result;
       }
-      i++;
+      return result;
+    }
+  }
+
+  /**
+   * A view of the values of a row.
+   */
+  private class Row extends AbstractList<String> {
+
+    private final int row;
+
+    Row(int row) {
+      super();
+      this.row = row;
+    }
+
+    @Override
+    public String get(int index) {
+      return getEntry(row, index);
+    }
+
+    @Override
+    public int size() {
+      return rowLengths[row];
     }
-    return new ArrayList<>();
   }
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.core.io.Resource;
+
+/**
+ * Utility methods for accessing the binary resource formats.
+ */
+final class MappedResources {
+
+  private MappedResources() {
+  }
+
+  /**
+   * Maps the resource into memory if it is located in the file system, or reads it into a buffer
+   * otherwise, e.g., if it is contained in a jar.
+   */
+  static ByteBuffer load(Resource resource) throws IOException {
+    File file = null;
+    try {
+      file = resource.getFile();
+    } catch (IOException e) {
+      // not located in the file system
+    }
+    if (file != null && file.isFile()) {
+      return map(file);
+    }
+    InputStream stream = resource.getInputStream();
+    try {
+      return read(stream);
+    } finally {
+      stream.close();
+    }
+  }
+
+  static ByteBuffer read(InputStream stream) throws IOException {
+    return ByteBuffer.wrap(IOUtils.toByteArray(stream)).asReadOnlyBuffer();
+  }
+
+  static ByteBuffer map(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Binary resource is too large: " + file);
+      }
+      // the mapping remains valid after the channel is closed
+      return channel.map(MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      raf.close();
+    }
+  }
+
+  static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+    ByteBuffer result = buffer.duplicate();
+    result.position(offset);
+    result.limit(offset + length);
+    return result.slice();
+  }
+
+}
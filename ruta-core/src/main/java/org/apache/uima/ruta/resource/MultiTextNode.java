@@ -88,6 +88,17 @@ public class MultiTextNode {
     setWordEnd(isWordEnd);
   }
 
+  /**
+   * Constructs a MultiTextNode without allocating the map of child nodes, which is created when
+   * the first child is added.
+   * 
+   * @param value
+   *          The Character represented by the node.
+   */
+  MultiTextNode(char value) {
+    this.value = value;
+  }
+
   /**
    * Adds the MultiTextNode n to the map of children.
    * 
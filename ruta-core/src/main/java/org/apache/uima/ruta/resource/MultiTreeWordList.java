@@ -55,6 +55,9 @@ import org.springframework.core.io.Resource;
  */
 public class MultiTreeWordList implements RutaWordList {
 
+  /** The file ending of binary multi tree word lists. */
+  public static final String BINARY_FILE_ENDING = ".bmtwl";
+
   private static final String ENCODING = "UTF-8";
 
   private MultiTreeWordListPersistence persistence = new MultiTreeWordListPersistence();
@@ -141,6 +144,12 @@ public class MultiTreeWordList implements RutaWordList {
 
     if (name.endsWith(".mtwl")) {
       persistence.readMTWL(root, stream, ENCODING);
+    } else if (name.endsWith(BINARY_FILE_ENDING)) {
+      try {
+        root = persistence.readBinaryMTWL(MappedResources.read(stream), name);
+      } finally {
+        stream.close();
+      }
     } else if (name.endsWith(".txt")) {
       buildNewTree(stream, name);
     }
@@ -227,6 +236,18 @@ public class MultiTreeWordList implements RutaWordList {
    *           When there is a problem reading the resource.
    */
   private void load(Resource resource, String name) throws IOException {
+    if (name != null && name.endsWith(BINARY_FILE_ENDING)) {
+      MultiTextNode binaryRoot = persistence.readBinaryMTWL(MappedResources.load(resource), name);
+      if (root.getChildren().isEmpty() && !(root instanceof BinaryMultiTextNode)) {
+        // read the list in place if it is the only one
+        root = binaryRoot;
+      } else {
+        ensureModifiable();
+        copy(binaryRoot, root);
+      }
+      return;
+    }
+    ensureModifiable();
     InputStream stream = null;
     try {
       stream = resource.getInputStream();
@@ -238,7 +259,7 @@ public class MultiTreeWordList implements RutaWordList {
         persistence.readMTWL(root, stream, "UTF-8");
       } else {
         throw new IllegalArgumentException(
-                "File name should end with .mtwl or .txt, found " + name);
+                "File name should end with .mtwl, .bmtwl or .txt, found " + name);
       }
     } finally {
       IOUtils.closeQuietly(stream);
@@ -275,6 +296,7 @@ public class MultiTreeWordList implements RutaWordList {
    *          The type of the string.
    */
   public void addWord(String s, String type) {
+    ensureModifiable();
 
     // Create Nodes from all chars of the strings besides the last one
     MultiTextNode pointer = root;
@@ -1032,37 +1054,37 @@ public class MultiTreeWordList implements RutaWordList {
    */
   public Map<String, Set<String>> editDistance(String query, int distance, boolean ignoreCase,
           String ignoreToken, boolean fragment) {
+    // All operations have unit costs, but the characters of the ignore token can be inserted for
+    // free. This is realized without the recursive search and its cost map.
+    return new UnitCostEditDistance(this, query, distance, ignoreCase, ignoreToken, fragment)
+            .search(root);
+  }
 
-    // The second alternative realizes the fragment functionality by
-    // setting the insert costs of the ignored character to zero. This
-    // is much more elegant and easier to maintain. I don't know if the
-    // other way is faster, so I did not delete it yet.
-
-    Map<Character, Double> oldInsertCosts = new HashMap<Character, Double>();
-    EditDistanceCostMap edcm = new EditDistanceCostMap();
-
-    // We need to store the old insert costs before we set them to zero.
-    for (char c : ignoreToken.toCharArray()) {
-      oldInsertCosts.put(c, edcm.getInsertCosts(c));
-      edcm.setInsertCosts(c, 0.0);
-    }
-
-    Map<String, Set<String>> result = null;
-
+  /**
+   * Returns a map with all strings within a specified edit distance to the string query as keys
+   * and the files they belong to as values, using the given costs of the edit operations.
+   * 
+   * @param query
+   *          - The query string.
+   * @param distance
+   *          - The specified edit distance.
+   * @param ignoreCase
+   *          - Indicates whether we search case sensitive or not.
+   * @param fragment
+   *          - Indicates whether we search for fragments of the query string or not.
+   * @param costMap
+   *          - The costs of the edit operations.
+   * @return A map with all strings within a specified edit distance to the string query as keys
+   *         and the files they belong to as values.
+   */
+  public Map<String, Set<String>> editDistance(String query, double distance, boolean ignoreCase,
+          boolean fragment, EditDistanceCostMap costMap) {
     if (ignoreCase) {
-      result = editDistanceClever(root, query.toLowerCase(), "", distance, 0, true, fragment, edcm,
-              false, false);
-    } else {
-      result = editDistanceClever(root, query, "", distance, 0, false, fragment, edcm, false,
-              false);
-    }
-
-    // Restoring of the old insert costs.
-    for (Entry<Character, Double> c : oldInsertCosts.entrySet()) {
-      edcm.setDeleteCosts(c.getKey(), c.getValue());
+      return editDistanceClever(root, query.toLowerCase(), "", distance, 0, true, fragment,
+              costMap, false, false);
     }
-
-    return result;
+    return editDistanceClever(root, query, "", distance, 0, false, fragment, costMap, false,
+            false);
   }
 
   /**
@@ -1327,4 +1349,36 @@ public class MultiTreeWordList implements RutaWordList {
     persistence.createMTWLFile(root, path, compress, encoding);
   }
 
+  public void createBinaryMTWLFile(String path) throws IOException {
+    persistence.createBinaryMTWLFile(root, path);
+  }
+
+  /**
+   * Replaces a read-only root of a binary multi tree word list with a copy that can be extended.
+   */
+  private void ensureModifiable() {
+    if (root instanceof BinaryMultiTextNode) {
+      MultiTextNode copy = new MultiTextNode();
+      copy(root, copy);
+      root = copy;
+    }
+  }
+
+  private void copy(MultiTextNode source, MultiTextNode target) {
+    for (MultiTextNode each : source.getChildren().values()) {
+      MultiTextNode child = target.getChildNode(each.getValue());
+      if (child == null) {
+        child = new MultiTextNode(each.getValue(), false);
+        target.addChild(child);
+      }
+      if (each.isWordEnd()) {
+        child.setWordEnd(true);
+        for (String type : each.getTypes()) {
+          child.addType(type);
+        }
+      }
+      copy(each, child);
+    }
+  }
+
 }
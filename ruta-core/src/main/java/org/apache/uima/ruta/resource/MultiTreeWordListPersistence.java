@@ -26,8 +26,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -100,6 +102,28 @@ public class MultiTreeWordListPersistence {
     }
   }
 
+  /**
+   * Reads a multi tree word list in the binary format. The nodes are decoded from the buffer when
+   * they are visited.
+   * 
+   * @param buffer
+   *          - the buffer containing the list, e.g., a mapped file
+   * @param name
+   *          - the name of the list
+   * @return the read-only root node of the list
+   * @throws IOException
+   *           - when the format is invalid
+   */
+  public MultiTextNode readBinaryMTWL(ByteBuffer buffer, String name) throws IOException {
+    return BinaryMultiTextNode.read(buffer, name);
+  }
+
+  public void createBinaryMTWLFile(MultiTextNode root, String path) throws IOException {
+    try (OutputStream output = new FileOutputStream(path)) {
+      BinaryMultiTextNode.write(root, output);
+    }
+  }
+
   public void createMTWLFile(MultiTextNode root, String path) throws IOException {
     createMTWLFile(root, path, true, "UTF-8");
   }
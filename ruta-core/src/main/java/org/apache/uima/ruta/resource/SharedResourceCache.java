@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.resource;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * A cache for dictionaries and tables that is shared by all analysis engines of the virtual
+ * machine. Resources are identified by their URL and the options used to load them, e.g., whether
+ * whitespaces are removed or the separator of the columns. Thus, engines with the same resources
+ * and options share one instance instead of loading their own copy, and a reloaded script reuses
+ * the instances that are still in use.
+ * <p>
+ * The cache holds its values only weakly: an entry is released as soon as no engine refers to it
+ * anymore. The last modification time and the length of a resource are stored with its entry, and
+ * a resource that was changed since then is loaded again. The loaded instances must not be modified
+ * afterwards, since they are shared by several engines and threads.
+ * </p>
+ */
+public final class SharedResourceCache {
+
+  /**
+   * Creates the value for a resource that is not contained in the cache.
+   *
+   * @param <T>
+   *          the type of the value
+   */
+  public interface Loader<T> {
+
+    /**
+     * @param resource
+     *          the resource to load
+     * @return the loaded value
+     * @throws IOException
+     *           when there is a problem reading the resource
+     */
+    T load(Resource resource) throws IOException;
+  }
+
+  private static final SharedResourceCache INSTANCE = new SharedResourceCache();
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong reloads = new AtomicLong();
+
+  /**
+   * @return the cache of the virtual machine
+   */
+  public static SharedResourceCache getInstance() {
+    return INSTANCE;
+  }
+
+  SharedResourceCache() {
+    super();
+  }
+
+  /**
+   * Returns the cached value of the resource, or loads it if it is not cached, was released or was
+   * modified since it was loaded. Concurrent requests of the same resource and options load the
+   * resource only once.
+   *
+   * @param resource
+   *          the resource
+   * @param options
+   *          a description of the kind of value and the options that influence the loading, which
+   *          is part of the key of the cache
+   * @param loader
+   *          the loader that creates the value. All loaders used with the same options must create
+   *          equivalent values of the same type.
+   * @return the shared value
+   * @throws IOException
+   *           when there is a problem reading the resource
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(Resource resource, String options, Loader<T> loader) throws IOException {
+    String key = getLocation(resource) + "|" + options;
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      Entry newEntry = new Entry();
+      entry = entries.putIfAbsent(key, newEntry);
+      if (entry == null) {
+        entry = newEntry;
+      }
+    }
+    return (T) entry.get(resource, loader);
+  }
+
+  /**
+   * @return the number of requests that returned a cached value
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of requests that loaded a resource, including reloads
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of requests that loaded a resource again because it was modified
+   */
+  public long getReloadCount() {
+    return reloads.get();
+  }
+
+  /**
+   * @return the ratio of the requests that returned a cached value, or 0 if there were no requests
+   */
+  public double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  /**
+   * @return the number of values that are still in use
+   */
+  public int size() {
+    int size = 0;
+    for (Entry each : entries.values()) {
+      if (each.isAlive()) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the summed size of the resources whose values are still in use. The size of the loaded
+   * values differs from the size of the resources, but is proportional for a kind of resource.
+   *
+   * @return the size of the retained resources in bytes, if known
+   */
+  public long getRetainedBytes() {
+    long result = 0;
+    for (Entry each : entries.values()) {
+      result += each.getRetainedBytes();
+    }
+    return result;
+  }
+
+  /**
+   * Removes all entries and resets the statistics. Values that are in use remain valid, but are not
+   * shared with later requests.
+   */
+  public void clear() {
+    entries.clear();
+    hits.set(0);
+    misses.set(0);
+    reloads.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "SharedResourceCache [entries=" + size() + ", hits=" + hits.get() + ", misses="
+            + misses.get() + ", reloads=" + reloads.get() + ", retainedBytes="
+            + getRetainedBytes() + "]";
+  }
+
+  private void removeReleasedEntries(Entry current) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      Entry each = iterator.next();
+      if (each != current && each.isReleased()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static String getLocation(Resource resource) {
+    try {
+      return resource.getURL().toExternalForm();
+    } catch (IOException e) {
+      return resource.getDescription();
+    }
+  }
+
+  private static long getLastModified(Resource resource) {
+    try {
+      return resource.lastModified();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static long getContentLength(Resource resource) {
+    try {
+      return resource.contentLength();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private final class Entry {
+
+    private volatile WeakReference<Object> value;
+
+    private long lastModified;
+
+    private long contentLength;
+
+    synchronized Object get(Resource resource, Loader<?> loader) throws IOException {
+      long currentLastModified = getLastModified(resource);
+      long currentContentLength = getContentLength(resource);
+      Object result = value == null ? null : value.get();
+      if (result != null && currentLastModified == lastModified
+              && currentContentLength == contentLength) {
+        hits.incrementAndGet();
+        return result;
+      }
+      misses.incrementAndGet();
+      if (result != null) {
+        reloads.incrementAndGet();
+      } else {
+        // the entry is not released while it is loaded, it stays in the cache
+        value = null;
+        removeReleasedEntries(this);
+      }
+      result = loader.load(resource);
+      value = new WeakReference<Object>(result);
+      lastModified = currentLastModified;
+      contentLength = currentContentLength;
+      return result;
+    }
+
+    boolean isAlive() {
+      WeakReference<Object> reference = value;
+      return reference != null && reference.get() != null;
+    }
+
+    boolean isReleased() {
+      WeakReference<Object> reference = value;
+      return reference != null && reference.get() == null;
+    }
+
+    synchronized long getRetainedBytes() {
+      return isAlive() && contentLength > 0 ? contentLength : 0;
+    }
+  }
+
+}
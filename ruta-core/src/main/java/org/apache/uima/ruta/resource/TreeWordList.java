@@ -26,12 +26,14 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -56,6 +58,9 @@ public class TreeWordList implements RutaWordList {
 
   private boolean dictRemoveWS = false;
 
+  private final Map<String, AhoCorasickAutomaton> automata = new ConcurrentHashMap<String, AhoCorasickAutomaton>(
+          2);
+
   /**
    * Default constructor
    */
@@ -144,6 +149,7 @@ public class TreeWordList implements RutaWordList {
 
   public void buildNewTree(List<String> data) {
     this.root = new TextNode();
+    automata.clear();
 
     if (data == null) {
       return;
@@ -167,6 +173,7 @@ public class TreeWordList implements RutaWordList {
     Scanner scan = new Scanner(stream, "UTF-8");
     // creating a new tree
     this.root = new TextNode();
+    automata.clear();
     while (scan.hasNextLine()) {
       String s = scan.nextLine().trim();
       // HOTFIX for old formats
@@ -201,6 +208,7 @@ public class TreeWordList implements RutaWordList {
       return;
     }
 
+    automata.clear();
     TextNode pointer = root;
     for (Character each : s.toCharArray()) {
       if (dictRemoveWS && Character.isWhitespace(each)) {
@@ -327,6 +335,16 @@ public class TreeWordList implements RutaWordList {
   @Override
   public List<AnnotationFS> find(RutaStream stream, boolean ignoreCase, int size,
           char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
+    return find(this, stream, ignoreCase, size, ignoreChars, maxIgnoredChars, ignoreWS);
+  }
+
+  /**
+   * Finds the longest matches of the given word list starting at each basic of the stream, using
+   * only {@link RutaWordList#contains(String, boolean, int, char[], int, boolean)} and
+   * {@link RutaWordList#containsFragment(String, boolean, int, char[], int, boolean)}.
+   */
+  static List<AnnotationFS> find(RutaWordList list, RutaStream stream, boolean ignoreCase,
+          int size, char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
     ArrayList<AnnotationFS> results = new ArrayList<AnnotationFS>();
     stream.moveToFirst();
     FSIterator<AnnotationFS> streamPointer = stream.copy();
@@ -341,13 +359,13 @@ public class TreeWordList implements RutaWordList {
       // String lastCandidate = candidate.toString();
       Annotation interResult = null;
       while (streamPointer.isValid()) {
-        if (containsFragment(candidate.toString(), ignoreCase, size, ignoreChars, maxIgnoredChars,
-                ignoreWS)) {
+        if (list.containsFragment(candidate.toString(), ignoreCase, size, ignoreChars,
+                maxIgnoredChars, ignoreWS)) {
           streamPointer.moveToNext();
           if (streamPointer.isValid()) {
             RutaBasic next = (RutaBasic) streamPointer.get();
-            if (contains(candidate.toString(), ignoreCase, size, ignoreChars, maxIgnoredChars,
-                    ignoreWS)) {
+            if (list.contains(candidate.toString(), ignoreCase, size, ignoreChars,
+                    maxIgnoredChars, ignoreWS)) {
               interResult = new Annotation(stream.getJCas(), basicsToAdd.get(0).getBegin(),
                       basicsToAdd.get(basicsToAdd.size() - 1).getEnd());
             }
@@ -355,12 +373,12 @@ public class TreeWordList implements RutaWordList {
             candidate.append(next.getCoveredText());
             basicsToAdd.add(next);
           } else {
-            tryToCreateAnnotation(stream, ignoreCase, size, results, basicsToAdd,
+            tryToCreateAnnotation(list, stream, ignoreCase, size, results, basicsToAdd,
                     candidate.toString(), interResult, ignoreChars, maxIgnoredChars, ignoreWS);
           }
         } else {
           basicsToAdd.remove(basicsToAdd.size() - 1);
-          tryToCreateAnnotation(stream, ignoreCase, size, results, basicsToAdd,
+          tryToCreateAnnotation(list, stream, ignoreCase, size, results, basicsToAdd,
                   candidate.toString(), interResult, ignoreChars, maxIgnoredChars, ignoreWS);
           break;
         }
@@ -376,11 +394,56 @@ public class TreeWordList implements RutaWordList {
     return find(stream, ignoreCase, size, null, 0, ignoreWS);
   }
 
-  private void tryToCreateAnnotation(RutaStream stream, boolean ignoreCase, int size,
-          ArrayList<AnnotationFS> results, List<RutaBasic> basicsToAdd, String lastCandidate,
-          Annotation interResult, char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
+  /**
+   * Finds the same annotations as
+   * {@link #find(RutaStream, boolean, int, char[], int, boolean)}, but reads the text of the stream
+   * only once with an Aho-Corasick automaton instead of walking through the tree at each basic. The
+   * automaton is created for each combination of options when it is used for the first time.
+   * 
+   * @param stream
+   *          - the stream to search in
+   * @param ignoreCase
+   *          - ignore the case of candidates longer than the given size
+   * @param size
+   *          - the maximal length of candidates whose case is not ignored
+   * @param ignoreChars
+   *          - characters that may be skipped in the text
+   * @param maxIgnoredChars
+   *          - the maximal number of skipped characters
+   * @param ignoreWS
+   *          - ignore whitespaces in the words of the list
+   * @return the longest match starting at each basic
+   */
+  public List<AnnotationFS> findWithAutomaton(RutaStream stream, boolean ignoreCase, int size,
+          char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
+    String key = AhoCorasickAutomaton.getKey(ignoreCase, ignoreChars, ignoreWS);
+    AhoCorasickAutomaton automaton = automata.get(key);
+    if (automaton == null) {
+      automaton = new AhoCorasickAutomaton(ignoreCase, ignoreChars, ignoreWS);
+      if (root != null) {
+        addWords(automaton, root, 0);
+      }
+      automaton.build();
+      automata.put(key, automaton);
+    }
+    return automaton.find(this, stream, size, ignoreChars, maxIgnoredChars);
+  }
+
+  private void addWords(AhoCorasickAutomaton automaton, TextNode node, int state) {
+    if (node.isWordEnd()) {
+      automaton.setWordEnd(state);
+    }
+    for (TextNode each : node.getChildren().values()) {
+      addWords(automaton, each, automaton.addChild(state, each.getValue()));
+    }
+  }
+
+  private static void tryToCreateAnnotation(RutaWordList list, RutaStream stream,
+          boolean ignoreCase, int size, ArrayList<AnnotationFS> results,
+          List<RutaBasic> basicsToAdd, String lastCandidate, Annotation interResult,
+          char[] ignoreChars, int maxIgnoredChars, boolean ignoreWS) {
     if (basicsToAdd.size() >= 1
-            && contains(lastCandidate, ignoreCase, size, ignoreChars, maxIgnoredChars, ignoreWS)) {
+            && list.contains(lastCandidate, ignoreCase, size, ignoreChars, maxIgnoredChars, ignoreWS)) {
 
       results.add(new Annotation(stream.getJCas(), basicsToAdd.get(0).getBegin(),
               basicsToAdd.get(basicsToAdd.size() - 1).getEnd()));
@@ -399,6 +462,7 @@ public class TreeWordList implements RutaWordList {
       }
       InputStreamReader streamReader = new InputStreamReader(is, encoding);
       this.root = new TextNode();
+      automata.clear();
 
       XMLEventHandler handler = new XMLEventHandler(root);
       XMLReader reader = XMLUtils.createXMLReader();
@@ -428,6 +492,24 @@ public class TreeWordList implements RutaWordList {
     }
   }
 
+  /**
+   * Writes the tree in the binary format of {@link BinaryTreeWordList}, which can be
+   * memory-mapped instead of being parsed.
+   * 
+   * @param path
+   *          - the path of the file to write
+   * @throws IOException
+   *           - when there is a problem writing the file
+   */
+  public void createBinaryTWLFile(String path) throws IOException {
+    OutputStream output = new FileOutputStream(path);
+    try {
+      BinaryTreeWordList.write(root, output);
+    } finally {
+      output.close();
+    }
+  }
+
   private void writeCompressedTWLFile(TextNode root, String path, String encoding)
           throws IOException {
     FileOutputStream fos = new FileOutputStream(path);
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approximate lookup of a query in a multi tree word list with unit costs for all edit operations,
+ * except for inserted characters of the ignore token, which are free. The trie is traversed once
+ * and each node extends the row of the dynamic programming matrix of its parent, so that common
+ * prefixes of the words are only compared once. The rows are restricted to the band of cells within
+ * the maximal distance, and subtrees without such cells are skipped. The rows and the characters of
+ * the current path are reused, so that no objects are created for visited nodes, but only for the
+ * results.
+ * <p>
+ * The results are the same as those of the recursive search of {@link MultiTreeWordList} with the
+ * default {@link EditDistanceCostMap}: characters of the query cannot be deleted before the first
+ * character of a word, and the remaining characters at the end of a word are inserted.
+ * </p>
+ */
+final class UnitCostEditDistance {
+
+  private static final int INFINITE = Integer.MAX_VALUE / 2;
+
+  private final MultiTreeWordList list;
+
+  private final String query;
+
+  private final int distance;
+
+  private final boolean ignoreCase;
+
+  private final String ignoreToken;
+
+  private final boolean fragment;
+
+  /** The costs of inserting the query from the given index to its end. */
+  private final int[] remainingCosts;
+
+  private int[][] rows;
+
+  private int[] lows;
+
+  private int[] highs;
+
+  private char[] path;
+
+  private final EditDistanceResultMap result = new EditDistanceResultMap();
+
+  UnitCostEditDistance(MultiTreeWordList list, String query, int distance, boolean ignoreCase,
+          String ignoreToken, boolean fragment) {
+    super();
+    this.list = list;
+    this.query = ignoreCase ? query.toLowerCase() : query;
+    this.distance = distance;
+    this.ignoreCase = ignoreCase;
+    this.ignoreToken = ignoreToken;
+    this.fragment = fragment;
+    int length = this.query.length();
+    remainingCosts = new int[length + 1];
+    for (int i = length - 1; i >= 0; i--) {
+      remainingCosts[i] = remainingCosts[i + 1] + getInsertCosts(this.query.charAt(i));
+    }
+    rows = new int[16][length + 1];
+    lows = new int[16];
+    highs = new int[16];
+    path = new char[16];
+  }
+
+  Map<String, Set<String>> search(MultiTextNode root) {
+    if (distance >= 0) {
+      rows[0][0] = 0;
+      lows[0] = 0;
+      highs[0] = 0;
+      visit(root, 0);
+    }
+    return result;
+  }
+
+  private void visit(MultiTextNode node, int depth) {
+    if (node.isWordEnd() || fragment) {
+      collect(node, depth);
+    }
+    ensureDepth(depth + 1);
+    for (MultiTextNode child : node.getChildren().values()) {
+      char value = child.getValue();
+      if (advance(depth, value)) {
+        path[depth] = value;
+        visit(child, depth + 1);
+      }
+    }
+  }
+
+  /**
+   * Computes the row of a child node with the given character from the row of its parent.
+   * 
+   * @return true, if the row contains a cell within the maximal distance
+   */
+  private boolean advance(int depth, char value) {
+    int[] parent = rows[depth];
+    int parentLow = lows[depth];
+    int parentHigh = highs[depth];
+    int[] row = rows[depth + 1];
+    int insertCosts = getInsertCosts(value);
+    int low = -1;
+    int high = -1;
+    int previous = INFINITE;
+    for (int i = parentLow; i < row.length; i++) {
+      // delete a character of the query
+      int costs = previous + 1;
+      if (i <= parentHigh) {
+        // insert the character of the node
+        costs = Math.min(costs, parent[i] + insertCosts);
+      }
+      if (i > parentLow && i - 1 <= parentHigh) {
+        // match or replace
+        costs = Math.min(costs, parent[i - 1] + (matches(value, query.charAt(i - 1)) ? 0 : 1));
+      }
+      if (costs > distance) {
+        if (i > parentHigh) {
+          break;
+        }
+        costs = INFINITE;
+      } else {
+        if (low < 0) {
+          low = i;
+        }
+        high = i;
+      }
+      row[i] = costs;
+      previous = costs;
+    }
+    lows[depth + 1] = low;
+    highs[depth + 1] = high;
+    return low >= 0;
+  }
+
+  private void collect(MultiTextNode node, int depth) {
+    int[] row = rows[depth];
+    int costs = INFINITE;
+    for (int i = lows[depth]; i <= highs[depth]; i++) {
+      costs = Math.min(costs, row[i] + remainingCosts[i]);
+    }
+    if (costs <= distance) {
+      Collection<String> types = fragment ? list.getTypeCone(node) : node.getTypes();
+      if (!types.isEmpty()) {
+        String key = new String(path, 0, depth);
+        for (String each : types) {
+          result.put(key, each);
+        }
+      }
+    }
+  }
+
+  private boolean matches(char value, char queryChar) {
+    if (ignoreCase) {
+      return Character.toLowerCase(value) == Character.toLowerCase(queryChar);
+    }
+    return value == queryChar;
+  }
+
+  private int getInsertCosts(char c) {
+    return ignoreToken.indexOf(c) >= 0 ? 0 : 1;
+  }
+
+  private void ensureDepth(int depth) {
+    if (depth >= rows.length) {
+      int length = Math.max(depth + 1, rows.length * 2);
+      int oldLength = rows.length;
+      rows = Arrays.copyOf(rows, length);
+      for (int i = oldLength; i < length; i++) {
+        rows[i] = new int[remainingCosts.length];
+      }
+      lows = Arrays.copyOf(lows, length);
+      highs = Arrays.copyOf(highs, length);
+      path = Arrays.copyOf(path, length);
+    }
+  }
+
+}
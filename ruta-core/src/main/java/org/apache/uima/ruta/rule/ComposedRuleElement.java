@@ -560,7 +560,7 @@ public class ComposedRuleElement extends AbstractRuleElement implements RuleElem
             conditions.size());
     for (AbstractRutaCondition condition : conditions) {
       crowd.beginVisit(condition, null);
-      EvaluatedCondition eval = condition.eval(context, stream, crowd);
+      EvaluatedCondition eval = stream.evalCondition(condition, context, crowd);
       crowd.endVisit(condition, null);
       evaluatedConditions.add(eval);
       if (!eval.isValue()) {
@@ -47,7 +47,9 @@ import org.apache.uima.ruta.expression.bool.IBooleanExpression;
 import org.apache.uima.ruta.expression.number.INumberExpression;
 import org.apache.uima.ruta.expression.string.AbstractStringExpression;
 import org.apache.uima.ruta.expression.string.IStringExpression;
+import org.apache.uima.ruta.expression.string.SimpleStringExpression;
 import org.apache.uima.ruta.expression.type.ITypeExpression;
+import org.apache.uima.ruta.utils.PatternCache;
 import org.apache.uima.ruta.utils.UIMAUtils;
 import org.apache.uima.ruta.visitor.InferenceCrowd;
 
@@ -57,6 +59,8 @@ public class RegExpRule extends AbstractRule {
 
   private IStringExpression regexpExpr;
 
+  private volatile Pattern staticPattern;
+
   private Map<ITypeExpression, Map<IStringExpression, IRutaExpression>> featureAssignments;
 
   public RegExpRule(AbstractStringExpression regexp,
@@ -79,14 +83,22 @@ public class RegExpRule extends AbstractRule {
     }
 
     AnnotationFS documentAnnotation = stream.getDocumentAnnotation();
-    String document = documentAnnotation.getCoveredText();
-    int delta = documentAnnotation.getBegin();
+    String document = documentAnnotation.getView().getDocumentText();
+    int delta = 0;
+    if (document == null) {
+      document = documentAnnotation.getCoveredText();
+      delta = documentAnnotation.getBegin();
+    }
 
     Map<Integer, List<Type>> groupTypes = getGroup2Types(context, stream);
     Map<Integer, Map<Type, Map<String, Object>>> fa = getFeatureAssignmentMap(stream);
 
-    Pattern pattern = Pattern.compile(regexpString, Pattern.MULTILINE | Pattern.DOTALL);
+    Pattern pattern = getPattern(regexpString);
     Matcher matcher = pattern.matcher(document);
+    if (delta == 0) {
+      // match the region of the window without copying its covered text
+      matcher.region(documentAnnotation.getBegin(), documentAnnotation.getEnd());
+    }
     int groupCount = matcher.groupCount();
     while (matcher.find()) {
       RegExpRuleMatch ruleMatch = new RegExpRuleMatch(this);
@@ -114,6 +126,18 @@ public class RegExpRule extends AbstractRule {
     return ruleApply;
   }
 
+  private Pattern getPattern(String regexpString) {
+    int flags = Pattern.MULTILINE | Pattern.DOTALL;
+    if (!(regexpExpr instanceof SimpleStringExpression)) {
+      return PatternCache.getInstance().getPattern(regexpString, flags);
+    }
+    // a static pattern is compiled only once
+    if (staticPattern == null) {
+      staticPattern = Pattern.compile(regexpString, flags);
+    }
+    return staticPattern;
+  }
+
   private Map<Integer, Map<Type, Map<String, Object>>> getFeatureAssignmentMap(RutaStream stream) {
     Map<Integer, Map<Type, Map<String, Object>>> result = new HashMap<Integer, Map<Type, Map<String, Object>>>();
     Set<Entry<ITypeExpression, Map<IStringExpression, IRutaExpression>>> entrySet = featureAssignments
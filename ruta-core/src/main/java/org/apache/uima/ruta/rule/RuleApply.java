@@ -37,6 +37,8 @@ public class RuleApply extends ScriptApply {
 
   private boolean acceptMatches;
 
+  private int maxMatches = Integer.MAX_VALUE;
+
   public RuleApply(RutaStatement tme, boolean remember) {
     super(tme);
     list = new ArrayList<AbstractRuleMatch<? extends AbstractRule>>();
@@ -52,7 +54,7 @@ public class RuleApply extends ScriptApply {
       applied++;
     }
     tried++;
-    if (acceptMatches) {
+    if (acceptMatches && list.size() < maxMatches) {
       list.add(match);
     }
     if (tried > stream.getMaxRuleMatches()) {
@@ -77,6 +79,20 @@ public class RuleApply extends ScriptApply {
     this.acceptMatches = acceptMatches;
   }
 
+  public int getMaxMatches() {
+    return maxMatches;
+  }
+
+  /**
+   * Limits the number of remembered matches. The tried and applied matches are still counted.
+   * 
+   * @param maxMatches
+   *          the maximum number of matches in the list
+   */
+  public void setMaxMatches(int maxMatches) {
+    this.maxMatches = maxMatches;
+  }
+
   public void addAll(List<RuleMatch> matches, RutaStream stream) {
     for (RuleMatch ruleMatch : matches) {
       add(ruleMatch, stream);
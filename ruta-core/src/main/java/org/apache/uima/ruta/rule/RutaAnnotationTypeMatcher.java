@@ -83,7 +83,8 @@ public class RutaAnnotationTypeMatcher implements RutaMatcher {
             // TODO what about dynamic windowing?
             result.add(stream.getDocumentAnnotation());
           } else {
-            result.addAll(stream.getAnnotations(type));
+            // rules starting with the same type share the candidates
+            result.addAll(stream.getAnchorCandidates(type));
           }
           if (expression.getFeatureExpression() != null) {
             result = new ArrayList<>(expression.getFeatureExpression().getAnnotations(result,
@@ -28,6 +28,7 @@ import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.block.RutaBlock;
 import org.apache.uima.ruta.expression.string.IStringExpression;
+import org.apache.uima.ruta.expression.string.SimpleStringExpression;
 import org.apache.uima.ruta.type.RutaBasic;
 
 public class RutaLiteralMatcher implements RutaMatcher {
@@ -41,6 +42,11 @@ public class RutaLiteralMatcher implements RutaMatcher {
 
   @Override
   public List<AnnotationFS> getMatchingAnnotations(RutaBlock parent, RutaStream stream) {
+    if (expression instanceof SimpleStringExpression) {
+      // the value does not depend on the context: rules with the same literal share the candidates
+      String value = ((SimpleStringExpression) expression).getValue();
+      return new ArrayList<AnnotationFS>(stream.getLiteralAnchorCandidates(value));
+    }
     List<AnnotationFS> result = new ArrayList<AnnotationFS>();
     AnnotationFS windowAnnotation = stream.getDocumentAnnotation();
     List<RutaBasic> list = stream.getBasicsInWindow(windowAnnotation);
@@ -78,7 +78,7 @@ public class RutaOptionalRuleElement extends RutaRuleElement {
     if (base) {
       for (AbstractRutaCondition condition : conditions) {
         crowd.beginVisit(condition, null);
-        EvaluatedCondition eval = condition.eval(context, stream, crowd);
+        EvaluatedCondition eval = stream.evalCondition(condition, context, crowd);
         crowd.endVisit(condition, null);
         evaluatedConditions.add(eval);
         if (!eval.isValue()) {
@@ -20,10 +20,10 @@
 package org.apache.uima.ruta.rule;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -40,8 +40,9 @@ public class RutaRule extends AbstractRule {
   private ComposedRuleElement root;
 
   /**
-   * labels of all rule elements including those in inlined rules. The values store the values of
-   * overridden variables.
+   * labels of all rule elements including those in inlined rules. The values of overridden
+   * variables are stored for each application of the rule, since the rule can be applied
+   * concurrently.
    */
   private Map<String, Object> labels;
 
@@ -59,12 +60,12 @@ public class RutaRule extends AbstractRule {
   public RuleApply apply(RutaStream stream, InferenceCrowd crowd, boolean remember) {
     RuleApply ruleApply = new RuleApply(this, remember);
     MatchContext context = new MatchContext(getParent());
-    prepareEnvironment(context, stream);
+    Map<String, Object> overridden = prepareEnvironment(context, stream);
     crowd.beginVisit(this, ruleApply);
     RuleMatch ruleMatch = new RuleMatch(this);
     root.startMatch(ruleMatch, ruleApply, null, null, stream, crowd);
     crowd.endVisit(this, ruleApply);
-    cleanupEnvironment(context, stream);
+    cleanupEnvironment(context, overridden);
     return ruleApply;
   }
 
@@ -138,22 +139,25 @@ public class RutaRule extends AbstractRule {
     }
   }
 
-  private void prepareEnvironment(MatchContext context, RutaStream stream) {
+  private Map<String, Object> prepareEnvironment(MatchContext context, RutaStream stream) {
+    Map<String, Object> overridden = Collections.emptyMap();
     if (isInlined()) {
       // only the actual rule may setup the environment
-      return;
+      return overridden;
     }
     RutaBlock parent = context.getParent();
     RutaEnvironment environment = parent.getEnvironment();
-    for (Entry<String, Object> entry : labels.entrySet()) {
-      String label = entry.getKey();
+    for (String label : labels.keySet()) {
       if (environment.isVariable(label)) {
         Class<?> variableType = environment.getVariableType(label);
         Class<?> variableGenericType = environment.getVariableGenericType(label);
         if (variableType != null && variableGenericType != null
                 && variableType.isAssignableFrom(List.class)
                 && variableGenericType.isAssignableFrom(AnnotationFS.class)) {
-          labels.put(label, environment.getVariableValue(label, stream));
+          if (overridden.isEmpty()) {
+            overridden = new HashMap<>();
+          }
+          overridden.put(label, environment.getVariableValue(label, stream));
         } else if (variableType != null && variableType.isAssignableFrom(AnnotationFS.class)) {
         } else {
           String type = variableType == null ? "unknown" : variableType.getSimpleName();
@@ -165,18 +169,18 @@ public class RutaRule extends AbstractRule {
         environment.addVariable(label, RutaConstants.RUTA_VARIABLE_ANNOTATION_LIST);
       }
     }
+    return overridden;
   }
 
-  private void cleanupEnvironment(MatchContext context, RutaStream stream) {
+  private void cleanupEnvironment(MatchContext context, Map<String, Object> overridden) {
     if (isInlined()) {
       // only the actual rule may revert the environment
       return;
     }
     RutaBlock parent = context.getParent();
     RutaEnvironment environment = parent.getEnvironment();
-    for (Entry<String, Object> entry : labels.entrySet()) {
-      String label = entry.getKey();
-      Object value = entry.getValue();
+    for (String label : labels.keySet()) {
+      Object value = overridden.get(label);
       if (value == null) {
         environment.removeVariable(label);
       } else {
@@ -394,7 +394,7 @@ public class RutaRuleElement extends AbstractRuleElement {
     if (base) {
       for (AbstractRutaCondition condition : conditions) {
         crowd.beginVisit(condition, null);
-        EvaluatedCondition eval = condition.eval(context, stream, crowd);
+        EvaluatedCondition eval = stream.evalCondition(condition, context, crowd);
         crowd.endVisit(condition, null);
         evaluatedConditions.add(eval);
         if (!eval.isValue()) {
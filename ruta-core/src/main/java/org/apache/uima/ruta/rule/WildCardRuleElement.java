@@ -733,7 +733,7 @@ public class WildCardRuleElement extends AbstractRuleElement {
     if (base) {
       for (AbstractRutaCondition condition : conditions) {
         crowd.beginVisit(condition, null);
-        EvaluatedCondition eval = condition.eval(context, stream, crowd);
+        EvaluatedCondition eval = stream.evalCondition(condition, context, crowd);
         crowd.endVisit(condition, null);
         evaluatedConditions.add(eval);
         if (!eval.isValue()) {
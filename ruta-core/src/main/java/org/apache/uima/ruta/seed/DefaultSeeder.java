@@ -26,7 +26,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.uima.cas.CAS;
-import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.util.CasUtil;
@@ -40,32 +39,39 @@ public class DefaultSeeder extends TextSeeder {
   private final Pattern markupPattern = Pattern.compile(
           "</?\\w[\\w-]*((\\s+[\\w-]+(\\s*=\\s*(?:\".*?\"|'.*?'|[^'\">\\s]+))?)+\\s*|\\s*)/?>");
 
-  public Type seed(String text, CAS cas) {
-    Type result = super.seed(text, cas);
-    JCas jCas = null;
-    try {
-      jCas = cas.getJCas();
-    } catch (CASException e) {
-      throw new RuntimeException(e);
-    }
-
+  @Override
+  protected void addSeeds(String text, JCas jCas, List<AnnotationFS> seeds) {
+    CAS cas = jCas.getCas();
+    Type type = cas.getTypeSystem().getType(seedType);
     // FIXME: lexer rules for html markup won't work. Therefore, those rules where removed in the
     // grammar and the functionality is included directly with regex
-    if (text != null) {
-      Matcher matcher = markupPattern.matcher(text);
-      Collection<AnnotationFS> toRemove = new LinkedList<AnnotationFS>();
-      while (matcher.find()) {
-        int begin = matcher.start();
-        int end = matcher.end();
-        MARKUP markup = new MARKUP(jCas, begin, end);
-        markup.addToIndexes();
-        List<AnnotationFS> selectCovered = CasUtil.selectCovered(result, markup);
+    Matcher matcher = markupPattern.matcher(text);
+    Collection<AnnotationFS> toRemove = new LinkedList<AnnotationFS>();
+    int next = 0;
+    int size = seeds.size();
+    while (matcher.find()) {
+      int begin = matcher.start();
+      int end = matcher.end();
+      MARKUP markup = new MARKUP(jCas, begin, end);
+      markup.addToIndexes();
+      if (size == 0) {
+        List<AnnotationFS> selectCovered = CasUtil.selectCovered(type, markup);
         toRemove.addAll(selectCovered);
+        continue;
+      }
+      // the seeds are sorted and do not overlap: skip the seeds covered by the markup
+      while (next < size && seeds.get(next).getBegin() < begin) {
+        cas.addFsToIndexes(seeds.get(next++));
       }
-      for (AnnotationFS each : toRemove) {
-        cas.removeFsFromIndexes(each);
+      while (next < size && seeds.get(next).getEnd() <= end) {
+        next++;
       }
     }
-    return result;
+    while (next < size) {
+      cas.addFsToIndexes(seeds.get(next++));
+    }
+    for (AnnotationFS each : toRemove) {
+      cas.removeFsFromIndexes(each);
+    }
   }
 }
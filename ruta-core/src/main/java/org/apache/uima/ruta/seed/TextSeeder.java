@@ -19,8 +19,10 @@
 
 package org.apache.uima.ruta.seed;
 
-import java.io.BufferedReader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
@@ -29,10 +31,19 @@ import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.ruta.type.TokenSeed;
 
+/**
+ * Seeder that creates the token annotations using the JFlex lexer. The lexer and its buffer are
+ * reused for all documents seeded by the same instance. The annotations of a document are first
+ * created and then added to the indexes in one batch.
+ */
 public class TextSeeder implements RutaAnnotationSeeder {
 
   public static final String seedType = "org.apache.uima.ruta.type.TokenSeed";
 
+  private SeedLexer lexer;
+
+  private final List<AnnotationFS> seeds = new ArrayList<AnnotationFS>();
+
   public Type seed(String text, CAS cas) {
     Type result = null;
     JCas jCas = null;
@@ -44,27 +55,62 @@ public class TextSeeder implements RutaAnnotationSeeder {
     } catch (CASException e) {
       throw new RuntimeException(e);
     }
+    if (jCas == null || text == null) {
+      return result;
+    }
     // do not apply seeding if there are already annotations of this seed type
-    if (jCas == null || size != 0 || text == null) {
+    if (size != 0) {
+      addSeeds(text, jCas, Collections.<AnnotationFS> emptyList());
       return result;
     }
-    BufferedReader reader = new BufferedReader(new StringReader(text));
-    final SeedLexer sourceLexer = new SeedLexer(reader);
-    sourceLexer.setJCas(jCas);
+    try {
+      addSeeds(text, jCas, createSeeds(text, jCas));
+    } finally {
+      seeds.clear();
+    }
+    return result;
+  }
+
+  /**
+   * Adds the created seed annotations to the indexes.
+   * 
+   * @param text
+   *          the seeded text
+   * @param jCas
+   *          the seeded CAS
+   * @param seeds
+   *          the created seeds sorted by their offsets, or an empty list if the CAS already
+   *          contained seeds
+   */
+  protected void addSeeds(String text, JCas jCas, List<AnnotationFS> seeds) {
+    CAS cas = jCas.getCas();
+    for (AnnotationFS each : seeds) {
+      cas.addFsToIndexes(each);
+    }
+  }
+
+  private List<AnnotationFS> createSeeds(String text, JCas jCas) {
+    StringReader reader = new StringReader(text);
+    if (lexer == null) {
+      lexer = new SeedLexer(reader);
+    } else {
+      lexer.yyreset(reader);
+    }
+    lexer.setJCas(jCas);
     AnnotationFS a = null;
 
     try {
-      a = sourceLexer.yylex();
+      a = lexer.yylex();
     } catch (Exception e) {
     }
     while (a != null) {
-      cas.addFsToIndexes(a);
+      seeds.add(a);
       try {
-        a = sourceLexer.yylex();
+        a = lexer.yylex();
       } catch (Exception e) {
       }
     }
-
-    return result;
+    lexer.setJCas(null);
+    return seeds;
   }
 }
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of compiled regular expressions, which is shared by all rules and conditions.
+ * Compiled patterns are immutable and can be used by several threads. If the cache is full, the
+ * least recently used pattern is removed.
+ */
+public final class PatternCache {
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  private static final PatternCache INSTANCE = new PatternCache(DEFAULT_MAXIMUM_SIZE);
+
+  private final Map<Key, Pattern> patterns;
+
+  private long hits = 0;
+
+  private long misses = 0;
+
+  public PatternCache(final int maximumSize) {
+    super();
+    patterns = new LinkedHashMap<Key, Pattern>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+        return size() > maximumSize;
+      }
+    };
+  }
+
+  /**
+   * @return the cache shared within the class loader
+   */
+  public static PatternCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the compiled pattern for the given regular expression and flags, which is compiled if
+   * it is not contained in the cache.
+   * 
+   * @param regex
+   *          the regular expression
+   * @param flags
+   *          the match flags of {@link Pattern}
+   * @return the compiled pattern
+   */
+  public synchronized Pattern getPattern(String regex, int flags) {
+    Key key = new Key(regex, flags);
+    Pattern result = patterns.get(key);
+    if (result != null) {
+      hits++;
+      return result;
+    }
+    misses++;
+    result = Pattern.compile(regex, flags);
+    patterns.put(key, result);
+    return result;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return patterns.size();
+  }
+
+  public synchronized void clear() {
+    patterns.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  private static class Key {
+
+    private final String regex;
+
+    private final int flags;
+
+    private Key(String regex, int flags) {
+      super();
+      this.regex = regex;
+      this.flags = flags;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * regex.hashCode() + flags;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return flags == other.flags && regex.equals(other.regex);
+    }
+  }
+
+}
@@ -19,6 +19,7 @@
 
 package org.apache.uima.ruta.visitor;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -28,6 +29,7 @@ import java.util.Stack;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.ruta.RutaElement;
 import org.apache.uima.ruta.RutaModule;
+import org.apache.uima.ruta.RutaProcessRuntimeException;
 import org.apache.uima.ruta.RutaStatement;
 import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.ScriptApply;
@@ -56,6 +58,14 @@ public class DebugInfoCollectorVisitor implements RutaInferenceVisitor {
 
   private Stack<RutaElement> callStack;
 
+  private int maxMatches = Integer.MAX_VALUE;
+
+  private DebugInfoWriter writer;
+
+  private int engine;
+
+  private int document;
+
   public DebugInfoCollectorVisitor(boolean createDebugInfo, boolean withMatches, List<String> ids,
           RutaVerbalizer verbalizer) {
     super();
@@ -82,6 +92,37 @@ public class DebugInfoCollectorVisitor implements RutaInferenceVisitor {
     return createDebugInfo || ids.contains("" + rule.getId());
   }
 
+  /**
+   * Limits the number of matches that are remembered for each rule apply.
+   * 
+   * @param maxMatches
+   *          the maximum number of matches of a rule apply
+   */
+  public void setMaxMatches(int maxMatches) {
+    this.maxMatches = maxMatches;
+  }
+
+  /**
+   * Writes the debug information with the given writer instead of adding it to the CAS.
+   * 
+   * @param writer
+   *          the writer of the debug information
+   * @param engine
+   *          the number of the engine instance
+   * @param document
+   *          the index of the document
+   */
+  public void setWriter(DebugInfoWriter writer, int engine, int document) {
+    this.writer = writer;
+    this.engine = engine;
+    this.document = document;
+  }
+
+  private boolean rememberMatches(RutaElement element) {
+    return withMatches
+            && (ids.isEmpty() || ids.contains(String.valueOf(((AbstractRule) element).getId())));
+  }
+
   @Override
   public void beginVisit(RutaElement element, ScriptApply result) {
     if (element instanceof RutaStatement) {
@@ -96,7 +137,11 @@ public class DebugInfoCollectorVisitor implements RutaInferenceVisitor {
       applies.put(stmt, stack);
       if (result instanceof RuleApply) {
         RuleApply ra = (RuleApply) result;
-        ra.setAcceptMatches(ra.isAcceptMatches() || withMatches);
+        if (!ra.isAcceptMatches() && rememberMatches(element)) {
+          // the matches are only remembered for the debug information and can be limited
+          ra.setAcceptMatches(true);
+          ra.setMaxMatches(maxMatches);
+        }
       }
     }
   }
@@ -163,7 +208,13 @@ public class DebugInfoCollectorVisitor implements RutaInferenceVisitor {
 
   @Override
   public void finished(RutaStream stream, List<RutaInferenceVisitor> visitors) {
-    if (createDebugInfo) {
+    if (createDebugInfo && writer != null) {
+      try {
+        writer.write(engine, document, rootApply, getTimeInfo(visitors));
+      } catch (IOException e) {
+        throw new RutaProcessRuntimeException(e);
+      }
+    } else if (createDebugInfo) {
       Map<RutaElement, Long> timeInfo = getTimeInfo(visitors);
 
       DebugScriptApply debugScriptApply = debugFactory.createDebugScriptApply(rootApply, stream,
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.visitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.RutaElement;
+import org.apache.uima.ruta.RutaStatement;
+import org.apache.uima.ruta.ScriptApply;
+import org.apache.uima.ruta.block.BlockApply;
+import org.apache.uima.ruta.rule.AbstractRule;
+import org.apache.uima.ruta.rule.AbstractRuleMatch;
+import org.apache.uima.ruta.rule.RuleApply;
+import org.apache.uima.ruta.rule.RuleMatch;
+import org.apache.uima.ruta.verbalize.RutaVerbalizer;
+
+/**
+ * Writes the debug information of a script execution as tab-separated records instead of creating
+ * feature structures in the CAS. Each document starts with a DOCUMENT record with the index of the
+ * document and the number of the engine instance that processed it. The records of the
+ * applied blocks and rules contain their nesting depth, the number of tried and applied matches,
+ * the time in milliseconds if available, and the verbalized element. Rules additionally contain
+ * their id and script. If matches were remembered, each match is written as a MATCH record with its
+ * offsets.
+ */
+public class DebugInfoWriter implements Closeable {
+
+  // the writers of the files that are currently open, shared by all engines
+  private static final Map<String, DebugInfoWriter> WRITERS = new HashMap<String, DebugInfoWriter>();
+
+  // the files that were already written, they are appended when they are opened again
+  private static final Set<String> WRITTEN = new HashSet<String>();
+
+  private final Writer writer;
+
+  private final RutaVerbalizer verbalizer;
+
+  private final String path;
+
+  private int references = 1;
+
+  public DebugInfoWriter(Writer writer, RutaVerbalizer verbalizer) {
+    this(writer, verbalizer, null);
+  }
+
+  private DebugInfoWriter(Writer writer, RutaVerbalizer verbalizer, String path) {
+    super();
+    this.writer = writer;
+    this.verbalizer = verbalizer;
+    this.path = path;
+  }
+
+  /**
+   * Returns the writer of the given file, which is shared by all callers until each of them closed
+   * it. The records of a document are not interleaved with the records of other documents. The file
+   * is overwritten when it is opened for the first time, and appended when it is opened again.
+   * 
+   * @param path
+   *          the path of the file
+   * @param verbalizer
+   *          the verbalizer for the elements
+   * @return the shared writer of the file
+   * @throws IOException
+   *           if the file cannot be opened
+   */
+  public static DebugInfoWriter open(String path, RutaVerbalizer verbalizer) throws IOException {
+    String key = new File(path).getAbsolutePath();
+    synchronized (DebugInfoWriter.class) {
+      DebugInfoWriter result = WRITERS.get(key);
+      if (result != null) {
+        result.references++;
+        return result;
+      }
+      boolean append = !WRITTEN.add(key);
+      Writer writer = new OutputStreamWriter(new FileOutputStream(key, append), "UTF-8");
+      result = new DebugInfoWriter(writer, verbalizer, key);
+      WRITERS.put(key, result);
+      return result;
+    }
+  }
+
+  /**
+   * @param engine
+   *          the number of the engine instance
+   * @param document
+   *          the index of the document
+   * @param rootApply
+   *          the result of the script execution
+   * @param timeInfo
+   *          the times of the elements in milliseconds, or null
+   * @throws IOException
+   *           if the records cannot be written
+   */
+  public synchronized void write(int engine, int document, ScriptApply rootApply,
+          Map<RutaElement, Long> timeInfo) throws IOException {
+    writer.write("DOCUMENT\t");
+    writer.write(Integer.toString(document));
+    writer.write("\t");
+    writer.write(Integer.toString(engine));
+    writer.write("\n");
+    if (rootApply != null) {
+      write(rootApply, 0, timeInfo);
+    }
+    writer.flush();
+  }
+
+  private void write(ScriptApply apply, int depth, Map<RutaElement, Long> timeInfo)
+          throws IOException {
+    RutaElement element = apply.getElement();
+    if (apply instanceof BlockApply) {
+      BlockApply blockApply = (BlockApply) apply;
+      RuleApply ruleApply = blockApply.getRuleApply();
+      writer.write("BLOCK\t");
+      writeApply(ruleApply, depth, element, timeInfo);
+      writer.write(normalize(verbalizer.verbalize(element)));
+      writer.write("\n");
+      for (ScriptApply each : blockApply.getInnerApplies()) {
+        write(each, depth + 1, timeInfo);
+      }
+    } else if (apply instanceof RuleApply) {
+      RuleApply ruleApply = (RuleApply) apply;
+      writer.write("RULE\t");
+      writeApply(ruleApply, depth, element, timeInfo);
+      if (element instanceof AbstractRule) {
+        writer.write(Integer.toString(((AbstractRule) element).getId()));
+      }
+      writer.write("\t");
+      if (element instanceof RutaStatement) {
+        writer.write(((RutaStatement) element).getParent().getScript().getRootBlock()
+                .getNamespace());
+      }
+      writer.write("\t");
+      writer.write(normalize(verbalizer.verbalize(element)));
+      writer.write("\n");
+      for (AbstractRuleMatch<? extends AbstractRule> each : ruleApply.getList()) {
+        writeMatch(each, depth + 1, timeInfo);
+      }
+    }
+  }
+
+  private void writeApply(RuleApply ruleApply, int depth, RutaElement element,
+          Map<RutaElement, Long> timeInfo) throws IOException {
+    writer.write(Integer.toString(depth));
+    writer.write("\t");
+    writer.write(Integer.toString(ruleApply == null ? 0 : ruleApply.getTried()));
+    writer.write("\t");
+    writer.write(Integer.toString(ruleApply == null ? 0 : ruleApply.getApplied()));
+    writer.write("\t");
+    Long time = timeInfo == null ? null : timeInfo.get(element);
+    writer.write(time == null ? "-1" : time.toString());
+    writer.write("\t");
+  }
+
+  private void writeMatch(AbstractRuleMatch<? extends AbstractRule> match, int depth,
+          Map<RutaElement, Long> timeInfo) throws IOException {
+    int begin = -1;
+    int end = -1;
+    List<AnnotationFS> matchedAnnotationsOfRoot = match.getMatchedAnnotationsOfRoot();
+    if (!matchedAnnotationsOfRoot.isEmpty() && matchedAnnotationsOfRoot.get(0) != null) {
+      begin = matchedAnnotationsOfRoot.get(0).getBegin();
+      end = matchedAnnotationsOfRoot.get(0).getEnd();
+    }
+    writer.write("MATCH\t");
+    writer.write(Integer.toString(depth));
+    writer.write("\t");
+    writer.write(Boolean.toString(match.matchedCompletely()));
+    writer.write("\t");
+    writer.write(Integer.toString(begin));
+    writer.write("\t");
+    writer.write(Integer.toString(end));
+    writer.write("\n");
+    if (match instanceof RuleMatch) {
+      for (ScriptApply each : ((RuleMatch) match).getDelegateApply().values()) {
+        write(each, depth + 1, timeInfo);
+      }
+    }
+  }
+
+  private String normalize(String string) {
+    return string.replaceAll("\\s+", " ");
+  }
+
+  /**
+   * Closes the writer. A shared writer is closed when all callers that opened it closed it.
+   */
+  @Override
+  public void close() throws IOException {
+    if (path != null) {
+      synchronized (DebugInfoWriter.class) {
+        if (--references > 0) {
+          return;
+        }
+        WRITERS.remove(path);
+      }
+    }
+    synchronized (this) {
+      writer.close();
+    }
+  }
+
+}
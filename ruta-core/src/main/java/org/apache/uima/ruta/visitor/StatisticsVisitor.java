@@ -19,9 +19,14 @@
 
 package org.apache.uima.ruta.visitor;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.uima.cas.Feature;
@@ -32,6 +37,7 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.DoubleArray;
 import org.apache.uima.jcas.cas.IntegerArray;
 import org.apache.uima.jcas.cas.StringArray;
+import org.apache.uima.ruta.ConditionCache;
 import org.apache.uima.ruta.RutaElement;
 import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.ScriptApply;
@@ -43,111 +49,146 @@ import org.apache.uima.ruta.type.Statistics;
 import org.apache.uima.ruta.utils.UIMAUtils;
 import org.apache.uima.ruta.verbalize.RutaVerbalizer;
 
+/**
+ * Counts the evaluations of conditions and the executions of actions and measures their time,
+ * grouped by the name of the condition or action. The name of an element is verbalized only once
+ * when the element is visited for the first time, and the measurements are stored in primitive
+ * counters of the name. The counters are aggregated over all processed documents, and the values of
+ * the current document are added to the CAS if requested.
+ */
 public class StatisticsVisitor implements RutaInferenceVisitor {
 
-  private Map<String, Long> conditionTime;
+  private static final double NANOS_PER_MILLI = 1000000d;
+
+  private final RutaVerbalizer verbalizer;
+
+  private final boolean addToCas;
+
+  private final Map<RutaElement, Counter> elementCounters = new IdentityHashMap<RutaElement, Counter>();
+
+  private final Map<String, Counter> conditionCounters = new LinkedHashMap<String, Counter>();
 
-  private Map<String, Long> actionTime;
+  private final Map<String, Counter> actionCounters = new LinkedHashMap<String, Counter>();
 
-  private Map<String, Integer> conditionAmount;
+  private final Map<String, Counter> cacheCounters = new LinkedHashMap<String, Counter>();
 
-  private Map<String, Integer> actionAmount;
+  private Counter[] visited = new Counter[16];
 
-  private Map<String, Long> conditionDelta;
+  private long[] startTimes = new long[16];
 
-  private Map<String, Long> actionDelta;
+  private int depth = 0;
 
-  private RutaVerbalizer verbalizer;
+  private int document = 0;
+
+  private boolean documentFinished = false;
 
   public StatisticsVisitor(RutaVerbalizer verbalizer) {
+    this(verbalizer, true);
+  }
+
+  /**
+   * @param verbalizer
+   *          the verbalizer for the names of the conditions and actions
+   * @param addToCas
+   *          true if the statistics of each document should be added to its CAS
+   */
+  public StatisticsVisitor(RutaVerbalizer verbalizer, boolean addToCas) {
     super();
     this.verbalizer = verbalizer;
-    conditionTime = new HashMap<String, Long>();
-    actionTime = new HashMap<String, Long>();
-    conditionAmount = new HashMap<String, Integer>();
-    actionAmount = new HashMap<String, Integer>();
-    conditionDelta = new HashMap<String, Long>();
-    actionDelta = new HashMap<String, Long>();
+    this.addToCas = addToCas;
+  }
+
+  /**
+   * Starts the counters of a new document. Visits that were not finished, e.g., because the
+   * previous document failed, are discarded.
+   */
+  public void startDocument() {
+    Arrays.fill(visited, 0, depth, null);
+    depth = 0;
+    document++;
+    documentFinished = false;
   }
 
   @Override
   public void beginVisit(RutaElement element, ScriptApply result) {
-    if (element instanceof AbstractRutaCondition) {
-      AbstractRutaCondition c = (AbstractRutaCondition) element;
-      String name = verbalizer.verbalizeName(c);
-      Integer amount = conditionAmount.get(name);
-      if (amount == null)
-        amount = 0;
-      amount++;
-      conditionAmount.put(name, amount);
-      conditionDelta.put(name, System.currentTimeMillis());
-    } else if (element instanceof AbstractRutaAction) {
-      AbstractRutaAction a = (AbstractRutaAction) element;
-      String name = verbalizer.verbalizeName(a);
-      Integer amount = actionAmount.get(name);
-      if (amount == null)
-        amount = 0;
-      amount++;
-      actionAmount.put(name, amount);
-      actionDelta.put(name, System.currentTimeMillis());
+    if (depth == 0 && documentFinished) {
+      startDocument();
+    }
+    Counter counter = getCounter(element);
+    if (counter == null) {
+      return;
     }
+    counter.increment(document);
+    if (depth == visited.length) {
+      visited = Arrays.copyOf(visited, depth * 2);
+      startTimes = Arrays.copyOf(startTimes, depth * 2);
+    }
+    visited[depth] = counter;
+    startTimes[depth++] = System.nanoTime();
   }
 
   @Override
   public void endVisit(RutaElement element, ScriptApply result) {
-    if (element instanceof AbstractRutaCondition) {
-      AbstractRutaCondition c = (AbstractRutaCondition) element;
-      String name = verbalizer.verbalizeName(c);
-      Long start = conditionDelta.get(name);
-      long delta = System.currentTimeMillis() - start;
-      Long total = conditionTime.get(name);
-      if (total == null)
-        total = 0L;
-      total += delta;
-      conditionTime.put(name, total);
-    } else if (element instanceof AbstractRutaAction) {
-      AbstractRutaAction a = (AbstractRutaAction) element;
-      String name = verbalizer.verbalizeName(a);
-      Long start = actionDelta.get(name);
-      long delta = System.currentTimeMillis() - start;
-      Long total = actionTime.get(name);
-      if (total == null)
-        total = 0L;
-      total += delta;
-      actionTime.put(name, total);
+    long end = System.nanoTime();
+    if (depth == 0 || !(element instanceof AbstractRutaCondition
+            || element instanceof AbstractRutaAction)) {
+      return;
+    }
+    depth--;
+    visited[depth].addTime(document, end - startTimes[depth]);
+    visited[depth] = null;
+  }
+
+  private Counter getCounter(RutaElement element) {
+    Counter counter = elementCounters.get(element);
+    if (counter == null) {
+      Map<String, Counter> counters;
+      if (element instanceof AbstractRutaCondition) {
+        counters = conditionCounters;
+      } else if (element instanceof AbstractRutaAction) {
+        counters = actionCounters;
+      } else {
+        return null;
+      }
+      String name = verbalizer.verbalizeName(element);
+      counter = counters.get(name);
+      if (counter == null) {
+        counter = new Counter(name);
+        counters.put(name, counter);
+      }
+      elementCounters.put(element, counter);
     }
+    return counter;
   }
 
   @Override
   public void finished(RutaStream stream, List<RutaInferenceVisitor> visitors) {
+    // the hits of the condition cache are reported with the number of lookups and the hit ratio
+    collectConditionCacheHits(stream.getConditionCache());
+    documentFinished = true;
+    if (!addToCas) {
+      return;
+    }
     List<String> names = new ArrayList<String>();
     List<Double> totals = new ArrayList<Double>();
     List<Integer> amounts = new ArrayList<Integer>();
     List<Double> parts = new ArrayList<Double>();
-    for (String each : conditionTime.keySet()) {
-      double total = conditionTime.get(each);
-      double amount = conditionAmount.get(each);
-      double part = total / amount;
-      part *= 10000;
-      part = Math.round(part);
-      part /= 10000;
-      names.add(each);
-      totals.add(total);
-      amounts.add((int) amount);
-      parts.add(part);
-    }
-
-    for (String each : actionTime.keySet()) {
-      double total = actionTime.get(each);
-      double amount = actionAmount.get(each);
-      double part = total / amount;
-      part *= 10000;
-      part = Math.round(part);
-      part /= 10000;
-      names.add(each);
+    for (Counter each : getDocumentCounters()) {
+      double total = each.documentTime / NANOS_PER_MILLI;
+      names.add(each.name);
       totals.add(total);
-      amounts.add((int) amount);
-      parts.add(part);
+      amounts.add(each.documentAmount);
+      parts.add(round(total / each.documentAmount));
+    }
+    for (Counter each : cacheCounters.values()) {
+      if (each.document != document || each.documentAmount == 0) {
+        continue;
+      }
+      double hits = each.documentTime;
+      names.add(each.name + " (cache hits)");
+      totals.add(hits);
+      amounts.add(each.documentAmount);
+      parts.add(round(hits / each.documentAmount));
     }
     JCas jCas = stream.getJCas();
     StringArray nameArray = UIMAUtils.toStringArray(jCas, names.toArray(new String[] {}));
@@ -168,6 +209,83 @@ public class StatisticsVisitor implements RutaInferenceVisitor {
     jCas.getCas().addFsToIndexes(fs);
   }
 
+  private List<Counter> getDocumentCounters() {
+    List<Counter> result = new ArrayList<Counter>();
+    for (Counter each : conditionCounters.values()) {
+      if (each.document == document) {
+        result.add(each);
+      }
+    }
+    for (Counter each : actionCounters.values()) {
+      if (each.document == document) {
+        result.add(each);
+      }
+    }
+    return result;
+  }
+
+  private void collectConditionCacheHits(ConditionCache cache) {
+    if (cache == null) {
+      return;
+    }
+    for (AbstractRutaCondition each : cache.getConditions()) {
+      int lookups = cache.getLookupCount(each);
+      if (lookups == 0) {
+        continue;
+      }
+      Counter counter = getCounter(each);
+      Counter cacheCounter = cacheCounters.get(counter.name);
+      if (cacheCounter == null) {
+        cacheCounter = new Counter(counter.name);
+        cacheCounters.put(counter.name, cacheCounter);
+      }
+      // the hits are stored as time of the counter
+      cacheCounter.add(document, lookups, cache.getHitCount(each));
+    }
+  }
+
+  /**
+   * Writes the statistics of all processed documents as tab-separated values: the name of the
+   * condition or action, the number of evaluations, the total time and the average time in
+   * milliseconds. The hits of the condition cache are written with the number of lookups, the
+   * number of hits and the hit ratio.
+   * 
+   * @param writer
+   *          the target of the statistics
+   * @throws IOException
+   *           if the statistics cannot be written
+   */
+  public void writeReport(Writer writer) throws IOException {
+    writer.write("name\tamount\ttotal\tpart\n");
+    for (Map<String, Counter> counters : Arrays.asList(conditionCounters, actionCounters)) {
+      for (Counter each : counters.values()) {
+        double total = each.time / NANOS_PER_MILLI;
+        writeLine(writer, each.name, each.amount, total, total / each.amount);
+      }
+    }
+    for (Counter each : cacheCounters.values()) {
+      writeLine(writer, each.name + " (cache hits)", each.amount, each.time,
+              (double) each.time / each.amount);
+    }
+    writer.flush();
+  }
+
+  private void writeLine(Writer writer, String name, long amount, double total, double part)
+          throws IOException {
+    writer.write(name.replaceAll("\\s+", " "));
+    writer.write("\t");
+    writer.write(Long.toString(amount));
+    writer.write("\t");
+    writer.write(String.format(Locale.US, "%.4f", total));
+    writer.write("\t");
+    writer.write(String.format(Locale.US, "%.4f", part));
+    writer.write("\n");
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 10000) / 10000d;
+  }
+
   private int[] getIntegerArray(List<Integer> array) {
     int[] result = new int[array.size()];
     int i = 0;
@@ -186,20 +304,60 @@ public class StatisticsVisitor implements RutaInferenceVisitor {
     return result;
   }
 
+  /**
+   * @return the time in milliseconds spent in the conditions of the last document
+   */
   public Map<String, Long> getConditionTime() {
-    return conditionTime;
+    return getDocumentTimes(conditionCounters);
   }
 
+  /**
+   * @return the time in milliseconds spent in the actions of the last document
+   */
   public Map<String, Long> getActionTime() {
-    return actionTime;
+    return getDocumentTimes(actionCounters);
   }
 
   public Map<String, Integer> getConditionAmount() {
-    return conditionAmount;
+    return getDocumentAmounts(conditionCounters);
   }
 
   public Map<String, Integer> getActionAmount() {
-    return actionAmount;
+    return getDocumentAmounts(actionCounters);
+  }
+
+  public Map<String, Integer> getConditionCacheHits() {
+    Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+    for (Counter each : cacheCounters.values()) {
+      if (each.document == document) {
+        result.put(each.name, (int) each.documentTime);
+      }
+    }
+    return result;
+  }
+
+  public Map<String, Integer> getConditionCacheLookups() {
+    return getDocumentAmounts(cacheCounters);
+  }
+
+  private Map<String, Long> getDocumentTimes(Map<String, Counter> counters) {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (Counter each : counters.values()) {
+      if (each.document == document) {
+        result.put(each.name, Math.round(each.documentTime / NANOS_PER_MILLI));
+      }
+    }
+    return result;
+  }
+
+  private Map<String, Integer> getDocumentAmounts(Map<String, Counter> counters) {
+    Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+    for (Counter each : counters.values()) {
+      if (each.document == document) {
+        result.put(each.name, each.documentAmount);
+      }
+    }
+    return result;
   }
 
   @Override
@@ -207,4 +365,48 @@ public class StatisticsVisitor implements RutaInferenceVisitor {
           AbstractRuleMatch<? extends AbstractRule> creator) {
   }
 
+  /**
+   * The number of evaluations and the time in nanoseconds of all elements with the same name, for
+   * all documents and for the current document.
+   */
+  private static class Counter {
+
+    private final String name;
+
+    private long amount;
+
+    private long time;
+
+    private int document = -1;
+
+    private int documentAmount;
+
+    private long documentTime;
+
+    private Counter(String name) {
+      super();
+      this.name = name;
+    }
+
+    private void increment(int currentDocument) {
+      add(currentDocument, 1, 0);
+    }
+
+    private void addTime(int currentDocument, long nanos) {
+      add(currentDocument, 0, nanos);
+    }
+
+    private void add(int currentDocument, int count, long nanos) {
+      if (document != currentDocument) {
+        document = currentDocument;
+        documentAmount = 0;
+        documentTime = 0;
+      }
+      amount += count;
+      documentAmount += count;
+      time += nanos;
+      documentTime += nanos;
+    }
+  }
+
 }
@@ -19,45 +19,213 @@
 
 package org.apache.uima.ruta.visitor;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.ruta.RutaElement;
 import org.apache.uima.ruta.RutaStream;
 import org.apache.uima.ruta.ScriptApply;
 import org.apache.uima.ruta.rule.AbstractRule;
 import org.apache.uima.ruta.rule.AbstractRuleMatch;
+import org.apache.uima.ruta.verbalize.RutaVerbalizer;
 
+/**
+ * Measures the time spent in the visited elements, e.g., blocks, rules, conditions and actions.
+ * The measurements are stored in a call tree with one node for each path of elements, which
+ * aggregates the number of calls, the total time and the self time in nanoseconds over all
+ * processed documents. Nested and repeated executions of the same element are all counted. The
+ * call tree can be written as collapsed stacks, which are supported by common flame graph tools.
+ */
 public class TimeProfilerVisitor implements RutaInferenceVisitor {
 
-  private Map<RutaElement, Long> timeInfo;
+  private final CallNode root = new CallNode(null, null);
+
+  private CallNode current = root;
+
+  private long[] startTimes = new long[16];
+
+  private long[] childTimes = new long[16];
+
+  private int depth = 0;
+
+  private int document = 0;
+
+  private boolean documentFinished = false;
+
+  // the nodes measured in the current document
+  private final List<CallNode> documentNodes = new ArrayList<CallNode>();
 
   public TimeProfilerVisitor() {
     super();
-    timeInfo = new HashMap<RutaElement, Long>();
+  }
+
+  /**
+   * Starts the measurements of a new document. Visits that were not finished, e.g., because the
+   * previous document failed, are discarded.
+   */
+  public void startDocument() {
+    current = root;
+    depth = 0;
+    document++;
+    documentFinished = false;
+    documentNodes.clear();
   }
 
   @Override
   public void beginVisit(RutaElement element, ScriptApply result) {
-    getTimeInfo().put(element, System.currentTimeMillis());
+    if (depth == 0 && documentFinished) {
+      startDocument();
+    }
+    current = current.getChild(element);
+    if (depth == startTimes.length) {
+      startTimes = Arrays.copyOf(startTimes, depth * 2);
+      childTimes = Arrays.copyOf(childTimes, depth * 2);
+    }
+    childTimes[depth] = 0;
+    startTimes[depth++] = System.nanoTime();
   }
 
   @Override
   public void endVisit(RutaElement element, ScriptApply result) {
-    Long start = getTimeInfo().get(element);
-    long value = System.currentTimeMillis() - start;
-    getTimeInfo().put(element, value);
+    long end = System.nanoTime();
+    int unwind = 0;
+    CallNode node = current;
+    while (unwind < depth && node.element != element) {
+      node = node.parent;
+      unwind++;
+    }
+    if (unwind == depth) {
+      // the element is not visited
+      return;
+    }
+    // unbalanced visit: the missing visits end with the element
+    for (int i = 0; i <= unwind; i++) {
+      endCurrentVisit(end);
+    }
+  }
+
+  private void endCurrentVisit(long end) {
+    depth--;
+    long time = end - startTimes[depth];
+    current.count++;
+    current.totalTime += time;
+    current.selfTime += time - childTimes[depth];
+    if (current.document != document) {
+      current.document = document;
+      current.documentTime = 0;
+      documentNodes.add(current);
+    }
+    current.documentTime += time;
+    if (depth > 0) {
+      childTimes[depth - 1] += time;
+    }
+    current = current.parent;
   }
 
   @Override
   public void finished(RutaStream stream, List<RutaInferenceVisitor> visitors) {
-    // others do the work
+    documentFinished = true;
   }
 
+  /**
+   * Returns the time spent in the elements while processing the last document. The time of an
+   * element that is executed within itself, e.g., by a recursive block, is counted only once.
+   * 
+   * @return the time in milliseconds for each visited element
+   */
   public Map<RutaElement, Long> getTimeInfo() {
-    return timeInfo;
+    Map<RutaElement, Long> nanos = new HashMap<RutaElement, Long>();
+    for (CallNode each : documentNodes) {
+      if (!each.nested) {
+        Long time = nanos.get(each.element);
+        nanos.put(each.element, time == null ? each.documentTime : time + each.documentTime);
+      }
+    }
+    Map<RutaElement, Long> result = new HashMap<RutaElement, Long>();
+    for (Map.Entry<RutaElement, Long> each : nanos.entrySet()) {
+      result.put(each.getKey(), TimeUnit.NANOSECONDS.toMillis(each.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the measurements of all processed documents aggregated for each element.
+   * 
+   * @return the profile of each visited element in the order of the first visit
+   */
+  public Map<RutaElement, ElementProfile> getElementProfiles() {
+    Map<RutaElement, ElementProfile> result = new LinkedHashMap<RutaElement, ElementProfile>();
+    collectElementProfiles(root, result);
+    return result;
+  }
+
+  private void collectElementProfiles(CallNode node, Map<RutaElement, ElementProfile> result) {
+    for (CallNode child : node.getChildren()) {
+      ElementProfile profile = result.get(child.element);
+      if (profile == null) {
+        profile = new ElementProfile();
+        result.put(child.element, profile);
+      }
+      profile.count += child.count;
+      profile.selfTime += child.selfTime;
+      if (!child.nested) {
+        profile.totalTime += child.totalTime;
+      }
+      collectElementProfiles(child, result);
+    }
+  }
+
+  /**
+   * Writes the call tree in the collapsed stack format: one line for each path of elements
+   * separated by semicolons followed by the self time in nanoseconds.
+   * 
+   * @param writer
+   *          the target of the stacks
+   * @param verbalizer
+   *          the verbalizer for the names of the elements
+   * @throws IOException
+   *           if the stacks cannot be written
+   */
+  public void writeCollapsedStacks(Writer writer, RutaVerbalizer verbalizer) throws IOException {
+    Map<RutaElement, String> names = new HashMap<RutaElement, String>();
+    for (CallNode child : root.getChildren()) {
+      writeCollapsedStacks(child, "", writer, verbalizer, names);
+    }
+    writer.flush();
+  }
+
+  private void writeCollapsedStacks(CallNode node, String prefix, Writer writer,
+          RutaVerbalizer verbalizer, Map<RutaElement, String> names) throws IOException {
+    String name = names.get(node.element);
+    if (name == null) {
+      name = verbalizer.verbalize(node.element);
+      if (StringUtils.isBlank(name)) {
+        name = verbalizer.verbalizeName(node.element);
+      }
+      name = name.replaceAll("[;\\s]+", " ").trim();
+      names.put(node.element, name);
+    }
+    String stack = prefix.isEmpty() ? name : prefix + ";" + name;
+    if (node.selfTime > 0) {
+      writer.write(stack);
+      writer.write(" ");
+      writer.write(Long.toString(node.selfTime));
+      writer.write("\n");
+    }
+    for (CallNode child : node.getChildren()) {
+      writeCollapsedStacks(child, stack, writer, verbalizer, names);
+    }
   }
 
   @Override
@@ -65,4 +233,85 @@ public class TimeProfilerVisitor implements RutaInferenceVisitor {
           AbstractRuleMatch<? extends AbstractRule> creator) {
   }
 
+  /**
+   * Aggregated measurements of an element. The total time of an element that is executed within
+   * itself is counted only once.
+   */
+  public static class ElementProfile {
+
+    private long count;
+
+    private long totalTime;
+
+    private long selfTime;
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalTime() {
+      return totalTime;
+    }
+
+    public long getSelfTime() {
+      return selfTime;
+    }
+  }
+
+  private static class CallNode {
+
+    private final RutaElement element;
+
+    private final CallNode parent;
+
+    private final boolean nested;
+
+    private Map<RutaElement, CallNode> children;
+
+    private long count;
+
+    private long totalTime;
+
+    private long selfTime;
+
+    private int document = -1;
+
+    private long documentTime;
+
+    private CallNode(RutaElement element, CallNode parent) {
+      super();
+      this.element = element;
+      this.parent = parent;
+      this.nested = isNested(element, parent);
+    }
+
+    private static boolean isNested(RutaElement element, CallNode parent) {
+      for (CallNode each = parent; each != null; each = each.parent) {
+        if (each.element == element) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private CallNode getChild(RutaElement element) {
+      if (children == null) {
+        children = new LinkedHashMap<RutaElement, CallNode>();
+      }
+      CallNode child = children.get(element);
+      if (child == null) {
+        child = new CallNode(element, this);
+        children.put(element, child);
+      }
+      return child;
+    }
+
+    private Collection<CallNode> getChildren() {
+      if (children == null) {
+        return Collections.emptyList();
+      }
+      return children.values();
+    }
+  }
+
 }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.apache.uima.ruta.type.RutaBasic;
+import org.apache.uima.ruta.visitor.InferenceCrowd;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddAnnotationsTest {
+
+  private static final String DOCUMENT = "Peter Kluegl and Joern Kottmann work on UIMA Ruta.";
+
+  private static final int[][] SPANS = { { 1, 0, 12 }, { 1, 6, 12 }, { 1, 0, 12 }, { 1, 2, 9 },
+      { 2, 6, 16 }, { 1, 17, 31 }, { 2, 0, 5 }, { 1, 45, 49 }, { 1, 40, 49 }, { 1, 44, 44 } };
+
+  @Test
+  public void testSameAsSingleAnnotations() throws Exception {
+    for (boolean lowMemoryProfile : new boolean[] { false, true }) {
+      for (boolean sparseAnchorProfile : new boolean[] { false, true }) {
+        RutaStream single = createStream(lowMemoryProfile, sparseAnchorProfile);
+        RutaStream bulk = createStream(lowMemoryProfile, sparseAnchorProfile);
+        List<AnnotationFS> singleAnnotations = createAnnotations(single.getCas());
+        List<AnnotationFS> bulkAnnotations = createAnnotations(bulk.getCas());
+
+        for (AnnotationFS each : singleAnnotations) {
+          single.addAnnotation(each, true, null);
+        }
+        bulk.addAnnotations(bulkAnnotations, true, null);
+        assertSameBasics(single, bulk);
+
+        // the counts of overlapping annotations are reduced one by one
+        for (int i = 0; i < SPANS.length; i++) {
+          single.removeAnnotation(singleAnnotations.get(i));
+          bulk.removeAnnotation(bulkAnnotations.get(i));
+          assertSameBasics(single, bulk);
+        }
+        single.getCas().release();
+        bulk.getCas().release();
+      }
+    }
+  }
+
+  private RutaStream createStream(boolean lowMemoryProfile, boolean sparseAnchorProfile)
+          throws Exception {
+    CAS cas = RutaTestUtils.getCAS(DOCUMENT);
+    Type tokenType = RutaTestUtils.getTestType(cas, 10);
+    Matcher matcher = Pattern.compile("\\w+|\\.").matcher(DOCUMENT);
+    while (matcher.find()) {
+      cas.addFsToIndexes(cas.createAnnotation(tokenType, matcher.start(), matcher.end()));
+    }
+    Type basicType = cas.getTypeSystem().getType(RutaBasic.class.getName());
+    FilterManager filter = new FilterManager(Collections.<Type> emptyList(), true, cas);
+    RutaStream stream = new RutaStream(cas, basicType, filter, lowMemoryProfile, false, true,
+            null, InferenceCrowd.emptyCrowd);
+    stream.setSparseAnchorProfile(sparseAnchorProfile);
+    stream.initalizeBasics(new String[] { CAS.TYPE_NAME_ANNOTATION }, false);
+    return stream;
+  }
+
+  private List<AnnotationFS> createAnnotations(CAS cas) {
+    List<AnnotationFS> result = new ArrayList<AnnotationFS>();
+    for (int[] each : SPANS) {
+      result.add(cas.createAnnotation(RutaTestUtils.getTestType(cas, each[0]), each[1], each[2]));
+    }
+    return result;
+  }
+
+  private void assertSameBasics(RutaStream expected, RutaStream actual) {
+    List<RutaBasic> expectedBasics = new ArrayList<RutaBasic>(
+            expected.getAllBasicsInWindow(expected.getDocumentAnnotation()));
+    List<RutaBasic> actualBasics = new ArrayList<RutaBasic>(
+            actual.getAllBasicsInWindow(actual.getDocumentAnnotation()));
+    Assert.assertEquals(expectedBasics.size(), actualBasics.size());
+    for (int i = 0; i < expectedBasics.size(); i++) {
+      RutaBasic e = expectedBasics.get(i);
+      RutaBasic a = actualBasics.get(i);
+      Assert.assertEquals(e.getBegin(), a.getBegin());
+      Assert.assertEquals(e.getEnd(), a.getEnd());
+      for (int typeIndex = 1; typeIndex <= 2; typeIndex++) {
+        Type eType = RutaTestUtils.getTestType(expected.getCas(), typeIndex);
+        Type aType = RutaTestUtils.getTestType(actual.getCas(), typeIndex);
+        String message = e.getCoveredText() + " " + typeIndex;
+        Assert.assertEquals(message, e.isPartOf(eType), a.isPartOf(aType));
+        Assert.assertEquals(message, e.getBeginAnchors(eType).size(),
+                a.getBeginAnchors(aType).size());
+        Assert.assertEquals(message, e.getEndAnchors(eType).size(),
+                a.getEndAnchors(aType).size());
+      }
+    }
+  }
+
+}
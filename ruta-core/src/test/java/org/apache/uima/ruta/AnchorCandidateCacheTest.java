@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Test;
+
+public class AnchorCandidateCacheTest {
+
+  @Test
+  public void testModificationsBetweenRules() throws Exception {
+    String document = "Peter Kluegl and Peter Pan.";
+    String script = "CW{-> T1};\n" + "\"Peter\"{-> T2};\n" + "T1{-> T9};\n"
+            + "T2{-> UNMARK(T1)};\n" + "T1{-> T3};\n" + "\"Peter\" CW{-> T4};\n" + "CW{-> T5} SW;\n" + "T4{-> T5};\n"
+            + "T5{-> T6};\n";
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 2, "Kluegl", "Pan");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 2, "Peter", "Peter");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 2, "Kluegl", "Pan");
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 2, "Kluegl", "Pan");
+    RutaTestUtils.assertAnnotationsEquals(cas, 6, 3, "Kluegl", "Kluegl", "Pan");
+    RutaTestUtils.assertAnnotationsEquals(cas, 9, 4, "Peter", "Kluegl", "Peter", "Pan");
+
+    cas.release();
+  }
+
+  @Test
+  public void testVisibilityAndWindows() throws Exception {
+    String document = "A b. C d.";
+    String script = "\"b\"{-> T1};\n" + "SW{-> T2};\n" + "RETAINTYPE(SPACE);\n"
+            + "SPACE \"b\"{-> T3};\n" + "SPACE SW{-> T4};\n" + "RETAINTYPE;\n"
+            + "SPACE \"d\"{-> T5};\n" + "\"C\" -> T6;\n"
+            + "BLOCK(window) T6 {} {\"C\"{-> T7}; CW{-> T8};}\n";
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 1, "b");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 2, "b", "d");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 1, "b");
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 2, "b", "d");
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 0);
+    RutaTestUtils.assertAnnotationsEquals(cas, 6, 1, "C");
+    RutaTestUtils.assertAnnotationsEquals(cas, 7, 1, "C");
+    RutaTestUtils.assertAnnotationsEquals(cas, 8, 1, "C");
+
+    cas.release();
+  }
+
+}
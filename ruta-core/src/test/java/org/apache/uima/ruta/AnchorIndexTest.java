@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.apache.uima.ruta.type.RutaBasic;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AnchorIndexTest {
+
+  @Test
+  public void testNavigation() throws Exception {
+    CAS cas = RutaTestUtils.getCAS("Some text.");
+    JCas jcas = cas.getJCas();
+    AnchorIndex index = new AnchorIndex(4);
+    RutaBasic first = new RutaBasic(jcas, 0, 4);
+    RutaBasic second = new RutaBasic(jcas, 5, 9);
+    RutaBasic third = new RutaBasic(jcas, 9, 10);
+    index.add(first);
+    index.add(second);
+    index.add(third);
+
+    Assert.assertEquals(3, index.size());
+    Assert.assertSame(first, index.getFirst());
+    Assert.assertSame(third, index.getLast());
+    Assert.assertSame(second, index.getBeginAnchor(5));
+    Assert.assertSame(second, index.getEndAnchor(9));
+    Assert.assertNull(index.getBeginAnchor(4));
+    Assert.assertNull(index.getBeginAnchor(42));
+    Assert.assertSame(first, index.floorBegin(4));
+    Assert.assertSame(second, index.ceilingBegin(4));
+    Assert.assertSame(second, index.next(first));
+    Assert.assertSame(first, index.previous(second));
+    Assert.assertNull(index.next(third));
+    Assert.assertNull(index.previous(first));
+
+    List<RutaBasic> basics = new ArrayList<RutaBasic>(index.getBasics(2, 10));
+    Assert.assertEquals(2, basics.size());
+    Assert.assertSame(second, basics.get(0));
+    Assert.assertSame(third, basics.get(1));
+    Assert.assertTrue(index.getBasics(10, 10).isEmpty());
+
+    cas.release();
+  }
+
+  @Test
+  public void testSplit() throws Exception {
+    CAS cas = RutaTestUtils.getCAS("Some text.");
+    JCas jcas = cas.getJCas();
+    AnchorIndex index = new AnchorIndex(10);
+    RutaBasic basic = new RutaBasic(jcas, 0, 10);
+    index.add(basic);
+    Assert.assertEquals(1, index.getBasics(0, 10).size());
+
+    basic.setEnd(4);
+    RutaBasic tail = new RutaBasic(jcas, 4, 10);
+    index.split(basic, tail);
+
+    Assert.assertEquals(2, index.size());
+    Assert.assertSame(basic, index.getEndAnchor(4));
+    Assert.assertSame(tail, index.getBeginAnchor(4));
+    Assert.assertSame(tail, index.getEndAnchor(10));
+    Assert.assertSame(tail, index.next(basic));
+    Assert.assertSame(basic, index.previous(tail));
+    Assert.assertEquals(2, index.getBasics(0, 10).size());
+
+    cas.release();
+  }
+
+  @Test
+  public void testStreamSplitsBasics() throws Exception {
+    String document = "Peter Kluegl";
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, "\"ue\" -> T1; W{CONTAINS(T1) -> T2}; T1{PARTOF(T2) -> T3};");
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 1, "ue");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 1, "Kluegl");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 1, "ue");
+
+    cas.release();
+  }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.util.CasUtil;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.apache.uima.ruta.type.RutaBasic;
+import org.apache.uima.ruta.visitor.InferenceCrowd;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+public class AnnotationCursorTest {
+
+  private static final String DOCUMENT = "Peter Kluegl and Joern Kottmann work on UIMA Ruta.";
+
+  private static final int[][] SPANS = { { 1, 0, 12 }, { 1, 6, 12 }, { 2, 0, 12 }, { 1, 2, 9 },
+      { 2, 6, 16 }, { 1, 17, 31 }, { 2, 0, 5 }, { 1, 45, 49 }, { 1, 40, 49 }, { 1, 44, 44 },
+      { 2, 49, 50 }, { 1, 0, 50 } };
+
+  @Test
+  public void testAnnotationsInWindow() throws Exception {
+    RutaStream stream = createStream();
+    CAS cas = stream.getCas();
+    List<AnnotationFS> windows = new ArrayList<AnnotationFS>(createAnnotations(stream));
+    windows.add(cas.createAnnotation(RutaTestUtils.getTestType(cas, 3), 5, 45));
+    windows.add(cas.createAnnotation(RutaTestUtils.getTestType(cas, 3), 44, 44));
+    windows.add(cas.getDocumentAnnotation());
+    List<Type> types = Arrays.asList(RutaTestUtils.getTestType(cas, 1),
+            RutaTestUtils.getTestType(cas, 2), cas.getAnnotationType());
+
+    for (AnnotationFS window : windows) {
+      for (Type type : types) {
+        List<AnnotationFS> expected = new ArrayList<AnnotationFS>();
+        if (cas.getTypeSystem().subsumes(type, window.getType())) {
+          expected.add(window);
+        }
+        expected.addAll(CasUtil.selectCovered(cas, type, window));
+        Assert.assertEquals(window + " " + type, expected,
+                stream.getAnnotationsInWindow(window, type));
+      }
+    }
+    cas.release();
+  }
+
+  @Test
+  public void testVisibleAnnotations() throws Exception {
+    RutaStream stream = createStream();
+    CAS cas = stream.getCas();
+    List<AnnotationFS> windows = createAnnotations(stream);
+    Type type = RutaTestUtils.getTestType(cas, 1);
+    stream.filterTypes(Collections.singletonList(RutaTestUtils.getTestType(cas, 2)));
+
+    for (AnnotationFS each : windows) {
+      RutaStream window = stream.getWindowStream(each, each.getType());
+      window.filterTypes(Collections.singletonList(RutaTestUtils.getTestType(cas, 2)));
+      List<AnnotationFS> expected = new ArrayList<AnnotationFS>();
+      for (AnnotationFS annotation : cas.getAnnotationIndex(type)) {
+        if (annotation.getBegin() >= each.getBegin() && annotation.getEnd() <= each.getEnd()
+                && window.isVisible(annotation)) {
+          expected.add(annotation);
+        }
+      }
+      Assert.assertEquals(each.toString(), expected,
+              new ArrayList<AnnotationFS>(window.getAnnotations(type)));
+    }
+
+    List<AnnotationFS> expected = new ArrayList<AnnotationFS>();
+    for (AnnotationFS annotation : cas.getAnnotationIndex(type)) {
+      if (stream.isVisible(annotation)) {
+        expected.add(annotation);
+      }
+    }
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, new ArrayList<AnnotationFS>(stream.getAnnotations(type)));
+    cas.release();
+  }
+
+  @Test
+  public void testOverlappingAnnotations() throws Exception {
+    RutaStream stream = createStream();
+    CAS cas = stream.getCas();
+    List<AnnotationFS> windows = createAnnotations(stream);
+    Type type = RutaTestUtils.getTestType(cas, 1);
+
+    for (AnnotationFS window : windows) {
+      List<AnnotationFS> expected = new ArrayList<AnnotationFS>();
+      for (AnnotationFS annotation : cas.getAnnotationIndex(type)) {
+        if (annotation.getBegin() <= window.getBegin() && annotation.getEnd() >= window.getEnd()) {
+          expected.add(0, annotation);
+        }
+      }
+      Assert.assertEquals(window.toString(), expected,
+              stream.getOverappingAnnotations(window, type));
+    }
+    cas.release();
+  }
+
+  @Test
+  @Ignore
+  public void testAllocation() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append(DOCUMENT).append(' ');
+    }
+    CAS cas = RutaTestUtils.getCAS(sb.toString());
+    Type tokenType = RutaTestUtils.getTestType(cas, 10);
+    Matcher matcher = Pattern.compile("\\w+|\\.").matcher(sb);
+    while (matcher.find()) {
+      cas.addFsToIndexes(cas.createAnnotation(tokenType, matcher.start(), matcher.end()));
+    }
+    RutaStream stream = createStream(cas);
+    AnnotationFS window = cas.createAnnotation(RutaTestUtils.getTestType(cas, 3), 1000, 2000);
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    for (int round = 0; round < 3; round++) {
+      long bytes = bean.getThreadAllocatedBytes(threadId);
+      long start = System.currentTimeMillis();
+      int count = 0;
+      for (int i = 0; i < 10000; i++) {
+        count += stream.getAnnotationsInWindow(window, tokenType).size();
+      }
+      System.out.println("list: " + (System.currentTimeMillis() - start) + "ms, "
+              + (bean.getThreadAllocatedBytes(threadId) - bytes) / 10000 + " bytes/call, " + count);
+
+      bytes = bean.getThreadAllocatedBytes(threadId);
+      start = System.currentTimeMillis();
+      count = 0;
+      for (int i = 0; i < 10000; i++) {
+        AnnotationCursor cursor = stream.getAnnotationCursor(tokenType, window);
+        while (cursor.isValid()) {
+          count++;
+          cursor.moveToNext();
+        }
+      }
+      System.out.println("cursor: " + (System.currentTimeMillis() - start) + "ms, "
+              + (bean.getThreadAllocatedBytes(threadId) - bytes) / 10000 + " bytes/call, " + count);
+    }
+    cas.release();
+  }
+
+  private RutaStream createStream() throws Exception {
+    CAS cas = RutaTestUtils.getCAS(DOCUMENT);
+    Type tokenType = RutaTestUtils.getTestType(cas, 10);
+    Matcher matcher = Pattern.compile("\\w+|\\.").matcher(DOCUMENT);
+    while (matcher.find()) {
+      cas.addFsToIndexes(cas.createAnnotation(tokenType, matcher.start(), matcher.end()));
+    }
+    return createStream(cas);
+  }
+
+  private RutaStream createStream(CAS cas) {
+    Type basicType = cas.getTypeSystem().getType(RutaBasic.class.getName());
+    FilterManager filter = new FilterManager(Collections.<Type> emptyList(), true, cas);
+    RutaStream stream = new RutaStream(cas, basicType, filter, false, false, true, null,
+            InferenceCrowd.emptyCrowd);
+    stream.initalizeBasics(new String[] { CAS.TYPE_NAME_ANNOTATION }, false);
+    return stream;
+  }
+
+  private List<AnnotationFS> createAnnotations(RutaStream stream) {
+    CAS cas = stream.getCas();
+    List<AnnotationFS> result = new ArrayList<AnnotationFS>();
+    for (int[] each : SPANS) {
+      AnnotationFS annotation = cas.createAnnotation(RutaTestUtils.getTestType(cas, each[0]),
+              each[1], each[2]);
+      stream.addAnnotation(annotation, true, null);
+      result.add(annotation);
+    }
+    return result;
+  }
+
+}
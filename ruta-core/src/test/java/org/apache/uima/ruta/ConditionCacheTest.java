@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.apache.uima.ruta.type.Statistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConditionCacheTest {
+
+  @Test
+  public void testModificationsBetweenRules() throws Exception {
+    String document = "Peter Kluegl and Peter Pan.";
+    String script = "CW{-PARTOF(T1) -> T2};\n";
+    script += "\"Peter\"{-> T1};\n";
+    script += "CW{-PARTOF(T1) -> T3};\n";
+    script += "Document{CONTAINS(T3, 2, 2) -> T4};\n";
+    script += "\"Pan\"{-> UNMARK(T3)};\n";
+    script += "Document{CONTAINS(T3, 2, 2) -> T5};\n";
+    script += "STRING s = \"K.*\";\n";
+    script += "CW{REGEXP(s) -> T6};\n";
+    script += "Document{-> ASSIGN(s, \"P.*\")};\n";
+    script += "CW{REGEXP(s) -> T7};\n";
+    script += "Document{-> RETAINTYPE(SPACE)};\n";
+    script += "Document{CONTAINS(SPACE) -> T8};\n";
+    script += "Document{-> RETAINTYPE};\n";
+    script += "Document{CONTAINS(SPACE) -> T9};\n";
+    script += "CW{-> T10};\n";
+    script += "CW{-> T10};\n";
+    script += "BLOCK(window) T10 {} {\n";
+    script += "CW{-PARTOF(T11) -> T11};\n";
+    script += "}\n";
+
+    for (boolean conditionCache : new boolean[] { false, true }) {
+      Map<String, Object> parameters = new HashMap<String, Object>();
+      parameters.put(RutaEngine.PARAM_CONDITION_CACHE, conditionCache);
+      CAS cas = RutaTestUtils.getCAS(document);
+      Ruta.apply(cas, script, parameters);
+
+      RutaTestUtils.assertAnnotationsEquals(cas, 2, 4, "Peter", "Kluegl", "Peter", "Pan");
+      RutaTestUtils.assertAnnotationsEquals(cas, 3, 1, "Kluegl");
+      RutaTestUtils.assertAnnotationsEquals(cas, 4, 1, document);
+      RutaTestUtils.assertAnnotationsEquals(cas, 5, 0);
+      RutaTestUtils.assertAnnotationsEquals(cas, 6, 1, "Kluegl");
+      RutaTestUtils.assertAnnotationsEquals(cas, 7, 3, "Peter", "Peter", "Pan");
+      RutaTestUtils.assertAnnotationsEquals(cas, 8, 1, document);
+      RutaTestUtils.assertAnnotationsEquals(cas, 9, 0);
+      RutaTestUtils.assertAnnotationsEquals(cas, 11, 4, "Peter", "Kluegl", "Peter", "Pan");
+
+      cas.release();
+    }
+  }
+
+  @Test
+  public void testStatistics() throws Exception {
+    String document = "Peter Kluegl and Peter Pan.";
+    String script = "CW{-> T1};\n";
+    script += "CW{-> T1};\n";
+    script += "BLOCK(window) T1 {} {\n";
+    script += "CW{REGEXP(\"P.*\") -> T2};\n";
+    script += "}\n";
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_CONDITION_CACHE, true);
+    parameters.put(RutaEngine.PARAM_STATISTICS, true);
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script, parameters);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 6, "Peter", "Peter", "Peter", "Peter", "Pan",
+            "Pan");
+    Type type = cas.getTypeSystem().getType(Statistics.class.getName());
+    FSIterator<FeatureStructure> iterator = cas.getIndexRepository().getAllIndexedFS(type);
+    Assert.assertTrue(iterator.hasNext());
+    Statistics statistics = (Statistics) iterator.next();
+    int index = statistics.getName().toStringArray().length;
+    for (int i = 0; i < statistics.getName().size(); i++) {
+      if ("REGEXP (cache hits)".equals(statistics.getName(i))) {
+        index = i;
+      }
+    }
+    Assert.assertTrue(index < statistics.getName().size());
+    Assert.assertEquals(4, statistics.getTotal(index), 0);
+    Assert.assertEquals(8, statistics.getAmount(index));
+    Assert.assertEquals(0.5, statistics.getPart(index), 0);
+
+    cas.release();
+  }
+
+}
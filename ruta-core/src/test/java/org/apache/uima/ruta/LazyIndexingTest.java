@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.apache.uima.ruta.type.RutaBasic;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LazyIndexingTest {
+
+  private static final String DOCUMENT = "Peter Kluegl, Joern Kottmann, Marshall Schor.";
+
+  private static final String SCRIPT = "CW{PARTOF(Person) -> T1};\n"
+          + "CW{STARTSWITH(FirstName) -> T2};\n" + "Person{CONTAINS(LastName) -> T3};\n"
+          + "\"ue\" -> T4;\n" + "T4{PARTOF(LastName) -> T5};\n"
+          + "FirstName{-> UNMARK(FirstName)};\n" + "CW{PARTOF(Person) -> T6};\n"
+          + "CW{-PARTOF(FirstName) -> T7};\n";
+
+  @Test
+  public void testExistingAnnotations() throws Exception {
+    assertResult(apply(getCASWithAnnotations(), false));
+    assertResult(apply(getCASWithAnnotations(), true));
+  }
+
+  @Test
+  public void testExistingBasics() throws Exception {
+    CAS cas = getCASWithAnnotations();
+    Ruta.apply(cas, "CW{-> T10};");
+    assertResult(apply(cas, true));
+  }
+
+  @Test
+  public void testNewAnnotations() throws Exception {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_LAZY_INDEXING, true);
+    CAS cas = getCASWithAnnotations();
+    Ruta.apply(cas, "CW{-> Person}; CW{-> T1}; Person{-> T2};", parameters);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 15, "Peter Kluegl", "Peter", "Peter",
+            "Kluegl", "Kluegl", "Joern Kottmann", "Joern", "Joern", "Kottmann", "Kottmann",
+            "Marshall Schor", "Marshall", "Marshall", "Schor", "Schor");
+
+    cas.release();
+  }
+
+  @Test
+  public void testUnusedTypesAreNotIndexed() throws Exception {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_LAZY_INDEXING, true);
+    CAS cas = getCASWithAnnotations();
+    Ruta.apply(cas, "CW{-> T1};", parameters);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    Type personType = cas.getTypeSystem().getType("Person");
+    int basics = 0;
+    for (AnnotationFS each : cas.getAnnotationIndex(cas.getTypeSystem().getType(
+            RutaBasic.class.getName()))) {
+      RutaBasic basic = (RutaBasic) each;
+      Assert.assertNull(basic.getLazyIndexer());
+      Assert.assertFalse(basic.isPartOf(personType));
+      Assert.assertTrue(basic.getBeginAnchors(personType).isEmpty());
+      basics++;
+    }
+    Assert.assertTrue(basics > 0);
+
+    cas.release();
+  }
+
+  private CAS getCASWithAnnotations() throws Exception {
+    Map<String, String> typeMap = new TreeMap<String, String>();
+    typeMap.put("Person", CAS.TYPE_NAME_ANNOTATION);
+    typeMap.put("FirstName", "Person");
+    typeMap.put("LastName", "Person");
+    CAS cas = RutaTestUtils.getCAS(DOCUMENT, typeMap, null);
+    Type personType = cas.getTypeSystem().getType("Person");
+    Type firstNameType = cas.getTypeSystem().getType("FirstName");
+    Type lastNameType = cas.getTypeSystem().getType("LastName");
+    int[][] names = new int[][] { { 0, 5, 12 }, { 14, 19, 28 }, { 30, 38, 44 } };
+    for (int[] each : names) {
+      cas.addFsToIndexes(cas.createAnnotation(personType, each[0], each[2]));
+      cas.addFsToIndexes(cas.createAnnotation(firstNameType, each[0], each[1]));
+      cas.addFsToIndexes(cas.createAnnotation(lastNameType, each[1] + 1, each[2]));
+    }
+    return cas;
+  }
+
+  private CAS apply(CAS cas, boolean lazy) throws Exception {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_LAZY_INDEXING, lazy);
+    Ruta.apply(cas, SCRIPT, parameters);
+    return cas;
+  }
+
+  private void assertResult(CAS cas) {
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 3, "Peter", "Joern", "Marshall");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 6, "Peter Kluegl", "Kluegl", "Joern Kottmann",
+            "Kottmann", "Marshall Schor", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 1, "ue");
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 1, "ue");
+    RutaTestUtils.assertAnnotationsEquals(cas, 6, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 7, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    cas.release();
+  }
+}
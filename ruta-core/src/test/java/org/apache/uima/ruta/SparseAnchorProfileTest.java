@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Test;
+
+public class SparseAnchorProfileTest {
+
+  private static final String DOCUMENT = "Peter Kluegl, Joern Kottmann, Marshall Schor.";
+
+  private static final String SCRIPT = "CW{-> FirstName} CW{-> LastName} COMMA;\n" + "CW{-> FirstName} CW{-> LastName} PERIOD;\n"
+          + "(FirstName LastName){-> Person};\n" + "Person{-> T1};\n" + "CW{PARTOF(Person) -> T2};\n"
+          + "CW{STARTSWITH(Person) -> T3};\n" + "CW{ENDSWITH(Person) -> T4};\n"
+          + "\"ue\" -> T5;\n" + "CW{CONTAINS(T5) -> T6};\n" + "T5{PARTOF(LastName) -> T7};\n"
+          + "Document{-> UNMARK(FirstName)};\n" + "CW{PARTOF(Person) -> T8};\n";
+
+  @Test
+  public void testAllProfiles() throws Exception {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    assertResult(apply(parameters));
+
+    parameters.put(RutaEngine.PARAM_LOW_MEMORY_PROFILE, true);
+    assertResult(apply(parameters));
+
+    parameters.put(RutaEngine.PARAM_LOW_MEMORY_PROFILE, false);
+    parameters.put(RutaEngine.PARAM_SPARSE_ANCHOR_PROFILE, true);
+    assertResult(apply(parameters));
+  }
+
+  @Test
+  public void testSwitchProfile() throws Exception {
+    CAS cas = getCAS();
+    Ruta.apply(cas, "CW{-> FirstName} CW COMMA;");
+
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_SPARSE_ANCHOR_PROFILE, true);
+    Ruta.apply(cas, "CW{PARTOF(Person) -> T1}; CW{STARTSWITH(Person) -> T2};", parameters);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 2, "Peter", "Joern");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 2, "Peter", "Joern");
+
+    parameters.put(RutaEngine.PARAM_SPARSE_ANCHOR_PROFILE, false);
+    Ruta.apply(cas, "CW{PARTOF(Person) -> T3};", parameters);
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 2, "Peter", "Joern");
+
+    cas.release();
+  }
+
+  private CAS getCAS() throws Exception {
+    Map<String, String> typeMap = new TreeMap<String, String>();
+    typeMap.put("Person", CAS.TYPE_NAME_ANNOTATION);
+    typeMap.put("FirstName", "Person");
+    typeMap.put("LastName", "Person");
+    return RutaTestUtils.getCAS(DOCUMENT, typeMap, null);
+  }
+
+  private CAS apply(Map<String, Object> parameters) throws Exception {
+    CAS cas = getCAS();
+    Ruta.apply(cas, SCRIPT, parameters);
+    return cas;
+  }
+
+  private void assertResult(CAS cas) {
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 9, "Peter Kluegl", "Peter", "Kluegl",
+            "Joern Kottmann", "Joern", "Kottmann", "Marshall Schor", "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 1, "ue");
+    RutaTestUtils.assertAnnotationsEquals(cas, 6, 1, "Kluegl");
+    RutaTestUtils.assertAnnotationsEquals(cas, 7, 1, "ue");
+    RutaTestUtils.assertAnnotationsEquals(cas, 8, 6, "Peter", "Kluegl", "Joern", "Kottmann",
+            "Marshall", "Schor");
+    cas.release();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Test;
+
+public class VisibilityIndexTest {
+
+  @Test
+  public void testModifiedHiddenTypes() throws Exception {
+    String document = "Peter Kluegl and Peter Pan.";
+    String script = "\"Kluegl\"{-> T1};\n";
+    script += "Document{-> FILTERTYPE(T1)};\n";
+    script += "CW{-> T2};\n";
+    script += "\"Peter\"{-> T1};\n";
+    script += "CW{-> T3};\n";
+    script += "Document{-> FILTERTYPE};\n";
+    script += "\"Kluegl\"{-> UNMARK(T1)};\n";
+    script += "Document{-> FILTERTYPE(T1)};\n";
+    script += "CW{-> T4};\n";
+    script += "Document{-> FILTERTYPE(W)};\n";
+    script += "ANY{-> T5};\n";
+    script += "Document{-> FILTERTYPE};\n";
+    script += "\"Pa\" -> T6;\n";
+    script += "Document{-> FILTERTYPE(T6)};\n";
+    script += "ANY{-> T7};\n";
+    script += "Document{-> FILTERTYPE};\n";
+    script += "W{REGEXP(\"and\") -> T8};\n";
+    script += "BLOCK(window) T8 {} {\n";
+    script += "Document{-> RETAINTYPE(SPACE)};\n";
+    script += "ANY{-> T9};\n";
+    script += "}\n";
+    script += "Document{-> FILTERTYPE(T1, T8)};\n";
+    script += "W{-> T10};\n";
+
+    for (boolean lazyIndexing : new boolean[] { false, true }) {
+      Map<String, Object> parameters = new HashMap<String, Object>();
+      parameters.put(RutaEngine.PARAM_LAZY_INDEXING, lazyIndexing);
+      CAS cas = RutaTestUtils.getCAS(document);
+      Ruta.apply(cas, script, parameters);
+
+      RutaTestUtils.assertAnnotationsEquals(cas, 2, 3, "Peter", "Peter", "Pan");
+      RutaTestUtils.assertAnnotationsEquals(cas, 3, 1, "Pan");
+      RutaTestUtils.assertAnnotationsEquals(cas, 4, 2, "Kluegl", "Pan");
+      RutaTestUtils.assertAnnotationsEquals(cas, 5, 1, ".");
+      RutaTestUtils.assertAnnotationsEquals(cas, 6, 1, "Pa");
+      RutaTestUtils.assertAnnotationsEquals(cas, 7, 5, "Peter", "Kluegl", "and", "Peter", ".");
+      RutaTestUtils.assertAnnotationsEquals(cas, 9, 1, "and");
+      RutaTestUtils.assertAnnotationsEquals(cas, 10, 2, "Kluegl", "Pan");
+
+      cas.release();
+    }
+  }
+
+}
@@ -45,7 +45,7 @@ public class TrieTest {
     String name = this.getClass().getSimpleName();
     String namespace = this.getClass().getPackage().getName().replaceAll("\\.", "/");
 
-    for (String scriptname : new String[] { name, name + "_compressed" }) {
+    for (String scriptname : new String[] { name, name + "_compressed", name + "_binary" }) {
 
       CAS cas = null;
       try {
@@ -23,6 +23,7 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.ruta.engine.Ruta;
 import org.apache.uima.ruta.engine.RutaEngine;
 import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Ignore;
 import org.junit.Test;
 
 public class RutaScriptBlockTest {
@@ -95,4 +96,51 @@ public class RutaScriptBlockTest {
     cas.release();
   }
 
+  @Test
+  public void testFilterOfPreviousWindow() throws Exception {
+    String script = "\"[A-Z][^.]*\\\\.\" -> T1;\n";
+    script += "BLOCK(sentence) T1{} {\n";
+    script += "CW{REGEXP(\"Peter\") -> FILTERTYPE(CW)};\n";
+    script += "W{-> T2};\n";
+    script += "Document{-> T3};\n";
+    script += "BLOCK(num) NUM{} {\n";
+    script += "Document{-> T4};\n";
+    script += "}\n";
+    script += "}\n";
+    script += "W{-> T5};\n";
+
+    CAS cas = RutaTestUtils.getCAS("Peter Kluegl. Pan 22 rules. Kluegl Pan.");
+    Ruta.apply(cas, script);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 4, "Pan", "rules", "Kluegl", "Pan");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 3, "Peter Kluegl.", "Pan 22 rules.",
+            "Kluegl Pan.");
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 1, "22");
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 6, "Peter", "Kluegl", "Pan", "rules", "Kluegl",
+            "Pan");
+    cas.release();
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    int sentences = 10000;
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < sentences; i++) {
+      sb.append("Peter Kluegl wrote 2 rules. ");
+    }
+    String script = "(# PERIOD){-> T1};\n";
+    script += "BLOCK(sentence) T1{} {\n";
+    script += "CW{-> T2} CW;\n";
+    script += "}\n";
+
+    CAS cas = RutaTestUtils.getCAS(sb.toString());
+
+    long start = System.currentTimeMillis();
+    Ruta.apply(cas, script);
+    long end = System.currentTimeMillis();
+    System.out.println("BLOCK over " + sentences + " sentences: " + (end - start) + "ms");
+    cas.release();
+  }
+
 }
@@ -85,4 +85,37 @@ public class ContainsTest {
     RutaTestUtils.assertAnnotationsEquals(cas, 3, 1);
 
   }
+
+  @Test
+  public void testCountsAfterModifications() throws Exception {
+    String document = "A b C d E.";
+
+    String script = "CW{-> T1};";
+    script += "Document{CONTAINS(T1, 3, 3) -> T2};";
+    script += "(SW CW){-> T1};";
+    script += "Document{CONTAINS(T1, 5, 5) -> T3};";
+    script += "(CW SW){-> T4};";
+    // annotations ending after the window are not counted
+    script += "T4{CONTAINS(T1, 1, 1) -> T5};";
+    script += "T4{CONTAINS(T1, 100, 100, true) -> T6};";
+    script += "CW{-> UNMARK(T1)};";
+    script += "Document{CONTAINS(T1, 2, 2) -> T7};";
+    script += "RETAINTYPE(SPACE);";
+    script += "Document{CONTAINS(SPACE, 4, 4) -> T8};";
+    script += "RETAINTYPE;";
+    script += "Document{CONTAINS(SPACE, 0, 0) -> T9};";
+
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 1, document);
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 1, document);
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 2, "A b", "C d");
+    RutaTestUtils.assertAnnotationsEquals(cas, 6, 2, "A b", "C d");
+    RutaTestUtils.assertAnnotationsEquals(cas, 7, 1, document);
+    RutaTestUtils.assertAnnotationsEquals(cas, 8, 1, document);
+    RutaTestUtils.assertAnnotationsEquals(cas, 9, 1, document);
+
+    cas.release();
+  }
 }
@@ -20,6 +20,7 @@
 package org.apache.uima.ruta.condition;
 
 import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
 import org.apache.uima.ruta.engine.RutaTestUtils;
 import org.junit.Test;
 
@@ -37,4 +38,25 @@ public class RegExpTest {
 
     cas.release();
   }
+
+  @Test
+  public void testBoundariesOfAnnotation() throws Exception {
+    String document = "Some text, more text.";
+    String script = "W{REGEXP(\"^t.*\")-> T1};\n" + "W{REGEXP(\".*t$\")-> T2};\n"
+            + "W{REGEXP(\"(?<=Some ).*\")-> T3};\n" + "W{REGEXP(\"\\\\bmore\\\\b\")-> T4};\n"
+            + "STRING s;\n" + "W{REGEXP(s, \"m.*\")-> T5};\n" + "Document{-> ASSIGN(s, \"more\")};\n"
+            + "W{REGEXP(s, \"m.*\")-> T6};\n" + "W{REGEXP(\"T\" + \"EXT\", true)-> T7};\n";
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 2, "text", "text");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 2, "text", "text");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 0);
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 1, "more");
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 0);
+    RutaTestUtils.assertAnnotationsEquals(cas, 6, 4, "Some", "text", "more", "text");
+    RutaTestUtils.assertAnnotationsEquals(cas, 7, 2, "text", "text");
+
+    cas.release();
+  }
 }
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
@@ -32,12 +34,14 @@ import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.cas.text.AnnotationIndex;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
 import org.apache.uima.fit.factory.JCasFactory;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceSpecifier;
 import org.apache.uima.util.FileUtils;
 import org.apache.uima.util.XMLInputSource;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 public class HtmlConverterTest {
@@ -524,4 +528,83 @@ public class HtmlConverterTest {
 
     cas.release();
   }
+
+  @Test
+  public void testStreamingConversion() throws Exception {
+    String edgeCases = "<html><head><title>Title</title></head><body>\n<p>a &amp; b&#160;c&unknown;"
+            + "</p><script>if (a<b) { x = '<p>'; }</script><br/>d\r\ne<div><span>f</span>"
+            + "</div> &lt;g&gt; <!-- comment --> h</body>tail</html>";
+    Object[][] configurations = new Object[][] {
+        {},
+        { HtmlConverter.PARAM_CONVERSION_POLICY, "explicit",
+            HtmlConverter.PARAM_CONVERSION_PATTERNS, new String[] { "&nbsp;", "&amp;", "&#160;" },
+            HtmlConverter.PARAM_CONVERSION_REPLACEMENTS, new String[] { " ", "&", "" } },
+        { HtmlConverter.PARAM_CONVERSION_POLICY, "none", HtmlConverter.PARAM_REPLACE_LINEBREAKS,
+            false, HtmlConverter.PARAM_SKIP_WHITESPACES, false },
+        { HtmlConverter.PARAM_PROCESS_ALL, true, HtmlConverter.PARAM_LINEBREAK_REPLACEMENT, " ",
+            HtmlConverter.PARAM_GAP_INDUCING_TAGS, new String[] { "span", "p" },
+            HtmlConverter.PARAM_USE_SPACE_GAP, true },
+        { HtmlConverter.PARAM_NEWLINE_INDUCING_TAG_REGEXP, "t.*",
+            HtmlConverter.PARAM_GAP_INDUCING_TAGS, new String[] { "b", "p" },
+            HtmlConverter.PARAM_GAP_TEXT, "||" } };
+    for (String html : new String[] { htmlWin, htmlUnix, htmlDecoding, htmlDecodingAnnotations,
+        htmlWithComments, htmlWithCommentsAndScript, edgeCases }) {
+      for (Object[] configuration : configurations) {
+        List<String> expected = convert(html, configuration, false);
+        List<String> actual = convert(html, configuration, true);
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  private List<String> convert(String html, Object[] configuration, boolean streaming)
+          throws Exception {
+    Object[] parameters = new Object[configuration.length + 4];
+    System.arraycopy(configuration, 0, parameters, 0, configuration.length);
+    parameters[configuration.length] = HtmlConverter.PARAM_OUTPUT_VIEW;
+    parameters[configuration.length + 1] = outputViewName;
+    parameters[configuration.length + 2] = HtmlConverter.PARAM_STREAMING;
+    parameters[configuration.length + 3] = streaming;
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(HtmlConverter.class, parameters);
+    JCas jcas = JCasFactory.createJCas();
+    CAS cas = jcas.getCas();
+    cas.setDocumentText(html);
+    Type boldType = cas.getTypeSystem().getType(HtmlAnnotator.NAMESPACE + "B");
+    for (int i = 0; i < html.length(); i += 3) {
+      cas.addFsToIndexes(cas.createAnnotation(boldType, i, Math.min(i + 7, html.length())));
+    }
+    ae.process(cas);
+    ae.destroy();
+
+    CAS modifiedView = cas.getView(outputViewName);
+    List<String> result = new ArrayList<String>();
+    result.add(modifiedView.getDocumentText());
+    for (AnnotationFS each : modifiedView.getAnnotationIndex(boldType)) {
+      result.add(each.getBegin() + "-" + each.getEnd());
+    }
+    return result;
+  }
+
+  @Test
+  @Ignore
+  public void testPerformance() throws Exception {
+    StringBuilder html = new StringBuilder("<html><body>");
+    for (int i = 0; i < 100000; i++) {
+      html.append("<p>Paragraph ").append(i).append(" with <b>bold</b> text&nbsp;and &amp; more\n");
+      html.append("content.</p>\n");
+    }
+    html.append("</body></html>");
+    for (boolean streaming : new boolean[] { false, true, false, true }) {
+      AnalysisEngine ae = AnalysisEngineFactory.createEngine(HtmlConverter.class,
+              HtmlConverter.PARAM_OUTPUT_VIEW, outputViewName, HtmlConverter.PARAM_STREAMING,
+              streaming);
+      JCas jcas = JCasFactory.createJCas();
+      jcas.setDocumentText(html.toString());
+      long start = System.currentTimeMillis();
+      ae.process(jcas);
+      System.out.println("streaming=" + streaming + ": " + (System.currentTimeMillis() - start)
+              + "ms");
+      ae.destroy();
+    }
+  }
 }
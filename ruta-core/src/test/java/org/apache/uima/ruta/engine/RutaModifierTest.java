@@ -21,6 +21,7 @@ package org.apache.uima.ruta.engine;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -32,11 +33,17 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.resource.ResourceSpecifier;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.FileUtils;
 import org.apache.uima.util.XMLInputSource;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class RutaModifierTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void test() throws Exception {
     String namespace = this.getClass().getPackage().getName().replaceAll("\\.", "/");
@@ -83,5 +90,60 @@ public class RutaModifierTest {
     ae.destroy();
   }
 
-  
+  @Test
+  public void testModifiedStyleMap() throws Exception {
+    String namespace = this.getClass().getPackage().getName().replaceAll("\\.", "/");
+    URL url = HtmlAnnotator.class.getClassLoader().getResource(
+            "org/apache/uima/ruta/engine/Modifier.xml");
+    XMLInputSource in = new XMLInputSource(url);
+    AnalysisEngineDescription aed = (AnalysisEngineDescription) UIMAFramework.getXMLParser()
+            .parseResourceSpecifier(in);
+    File styleMap = folder.newFile("Styles.xml");
+    writeStyleMap(styleMap, "red");
+    AnalysisEngine ae = UIMAFramework.produceAnalysisEngine(aed);
+    ae.setConfigParameterValue(RutaModifier.PARAM_OUTPUT_LOCATION, "");
+    ae.setConfigParameterValue(RutaModifier.PARAM_STYLE_MAP, "Styles");
+    ae.setConfigParameterValue(RutaModifier.PARAM_DESCRIPTOR_PATHS,
+            new String[] { folder.getRoot().getAbsolutePath() });
+    ae.reconfigure();
+
+    String script = namespace + "/" + this.getClass().getSimpleName()
+            + RutaEngine.SCRIPT_FILE_EXTENSION;
+    CAS cas = RutaTestUtils.process(script, namespace + "/test.html", 50);
+    ae.process(cas);
+    assertEquals(getHighlighted("#ff0000"),
+            cas.getView(RutaModifier.DEFAULT_MODIFIED_VIEW).getDocumentText());
+    cas.release();
+
+    writeStyleMap(styleMap, "blue");
+    styleMap.setLastModified(styleMap.lastModified() + 10000);
+    cas = RutaTestUtils.process(script, namespace + "/test.html", 50);
+    ae.process(cas);
+    assertEquals(getHighlighted("#0000ff"),
+            cas.getView(RutaModifier.DEFAULT_MODIFIED_VIEW).getDocumentText());
+    cas.release();
+    ae.destroy();
+  }
+
+  private String getHighlighted(String background) {
+    StringBuilder sb = new StringBuilder();
+    String[] words = new String[] { "start", " ", "of", " ", "body", "", "normal", " ", "BOLD", "",
+        "end", " ", "of", " ", "body" };
+    for (int i = 0; i < words.length; i++) {
+      if (i % 2 == 0) {
+        sb.append("<span style='background:" + background + "'>" + words[i] + "</span>");
+      } else {
+        sb.append(words[i]);
+      }
+    }
+    return sb.toString();
+  }
+
+  private void writeStyleMap(File file, String background) throws Exception {
+    FileUtils.saveString2File("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<styleMap>\n<rule>\n"
+            + "<pattern>org.apache.uima.ruta.type.SW</pattern>\n<label>SW</label>\n"
+            + "<style>color:black;background:" + background
+            + ";checked:true;hidden:false;</style>\n</rule>\n</styleMap>\n", file);
+  }
+
 }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.ruta.type.FalsePositive;
+import org.apache.uima.ruta.type.TruePositive;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SharedScriptTest {
+
+  private static final String RULES = "INT c;\n" + "w:CW{-> ASSIGN(c, c + 1)};\n"
+          + "Document{IF(c == 3) -> TruePositive};\n" + "Document{IF(c != 3) -> FalsePositive};";
+
+  @Test
+  public void testConcurrentProcessing() throws Exception {
+    int threads = 4;
+    final List<AnalysisEngine> engines = new ArrayList<AnalysisEngine>();
+    for (int i = 0; i < threads; i++) {
+      engines.add(AnalysisEngineFactory.createEngine(RutaEngine.class, RutaEngine.PARAM_RULES,
+              RULES, RutaEngine.PARAM_SHARED_SCRIPT, true));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    for (final AnalysisEngine ae : engines) {
+      results.add(executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          int correct = 0;
+          JCas jcas = ae.newJCas();
+          for (int i = 0; i < 50; i++) {
+            jcas.reset();
+            jcas.setDocumentText("Some Capitalized Words " + i + " and more.");
+            ae.process(jcas);
+            if (JCasUtil.select(jcas, TruePositive.class).size() == 1
+                    && JCasUtil.select(jcas, FalsePositive.class).isEmpty()) {
+              correct++;
+            }
+          }
+          return correct;
+        }
+      }));
+    }
+    for (Future<Integer> each : results) {
+      Assert.assertEquals(50, each.get().intValue());
+    }
+    executor.shutdown();
+
+    for (AnalysisEngine each : engines) {
+      each.destroy();
+    }
+  }
+
+  @Test
+  public void testVariableValuesOfEngine() throws Exception {
+    AnalysisEngine first = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_SHARED_SCRIPT, true);
+    AnalysisEngine second = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_SHARED_SCRIPT, true);
+
+    JCas jcas = first.newJCas();
+    jcas.setDocumentText("Only Two words.");
+    first.process(jcas);
+    Assert.assertEquals(0, JCasUtil.select(jcas, TruePositive.class).size());
+    Assert.assertEquals(1, JCasUtil.select(jcas, FalsePositive.class).size());
+    first.destroy();
+
+    jcas.reset();
+    jcas.setDocumentText("Now Three Words.");
+    second.process(jcas);
+    Assert.assertEquals(1, JCasUtil.select(jcas, TruePositive.class).size());
+    Assert.assertEquals(0, JCasUtil.select(jcas, FalsePositive.class).size());
+    second.destroy();
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.resource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.apache.uima.ruta.engine.RutaTestUtils.TestFeature;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AhoCorasickAutomatonTest {
+
+  private static final List<String> WORDS = Arrays.asList("Peter", "peter", "PETER", "Kluegl",
+          "Dr", ".", "-", "UIMA", "uima", "Ruta", "e", "g", "New", "York", "new", "york", "Stadt");
+
+  private static final List<String> SEPARATORS = Arrays.asList(" ", " ", "", "-", ".", "  ");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSameResultsAsTrieWalk() throws Exception {
+    Random random = new Random(42);
+    File file = new File(folder.getRoot(), "dict.txt");
+    String script = "WORDLIST list = 'dict.txt';\n";
+    int type = 1;
+    for (boolean ignoreCase : new boolean[] { false, true }) {
+      for (int ignoreLength : new int[] { 0, 4 }) {
+        for (boolean ignoreWS : new boolean[] { false, true }) {
+          script += "MARKFAST(T" + type++ + ", list, " + ignoreCase + ", " + ignoreLength + ", "
+                  + ignoreWS + ");\n";
+        }
+      }
+    }
+    for (int i = 0; i < 25; i++) {
+      List<String> entries = new ArrayList<String>();
+      for (int j = 0; j < 10; j++) {
+        entries.add(createText(random, 1 + random.nextInt(3)));
+      }
+      FileUtils.writeLines(file, "UTF-8", entries);
+      String document = createText(random, 40);
+
+      CAS expected = apply(document, script, false, false, null, null);
+      CAS actual = apply(document, script, true, false, null, null);
+      for (int j = 1; j < type; j++) {
+        Assert.assertEquals(entries + " in " + document,
+                getOffsets(expected, RutaTestUtils.getTestType(expected, j)),
+                getOffsets(actual, RutaTestUtils.getTestType(actual, j)));
+      }
+      expected.release();
+      actual.release();
+    }
+  }
+
+  @Test
+  public void testMarkTableWithIgnoredChars() throws Exception {
+    FileUtils.writeLines(new File(folder.getRoot(), "table.csv"), "UTF-8",
+            Arrays.asList("Peter Kluegl;Ruta", "Dr. Peter;UIMA", "e.g.;none"));
+    String document = "Dr. Peter Kluegl, Dr Peter, Peter-Kluegl and e.g. eg, also peter kluegl.";
+    String script = "WORDTABLE table = 'table.csv';\n";
+    script += "MARKTABLE(Person, 1, table, true, 2, \"-.\", 1, \"system\" = 2);\n";
+
+    Map<String, String> complexTypes = new TreeMap<String, String>();
+    String typeName = "org.apache.uima.Person";
+    complexTypes.put(typeName, "uima.tcas.Annotation");
+    Map<String, List<TestFeature>> features = new TreeMap<String, List<TestFeature>>();
+    features.put(typeName, Arrays.asList(new TestFeature("system", "", "uima.cas.String")));
+
+    CAS expected = apply(document, script, false, true, complexTypes, features);
+    CAS actual = apply(document, script, true, true, complexTypes, features);
+    List<String> offsets = getOffsets(expected, expected.getTypeSystem().getType(typeName));
+    Assert.assertFalse(offsets.isEmpty());
+    Assert.assertEquals(offsets, getOffsets(actual, actual.getTypeSystem().getType(typeName)));
+    expected.release();
+    actual.release();
+  }
+
+  private CAS apply(String document, String script, boolean automaton, boolean dictRemoveWS,
+          Map<String, String> complexTypes, Map<String, List<TestFeature>> features)
+          throws Exception {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_RESOURCE_PATHS,
+            new String[] { folder.getRoot().getAbsolutePath() });
+    parameters.put(RutaEngine.PARAM_DICT_AUTOMATON, automaton);
+    parameters.put(RutaEngine.PARAM_DICT_REMOVE_WS, dictRemoveWS);
+    CAS cas = RutaTestUtils.getCAS(document, complexTypes, features);
+    Ruta.apply(cas, script, parameters);
+    return cas;
+  }
+
+  private List<String> getOffsets(CAS cas, Type type) {
+    List<String> result = new ArrayList<String>();
+    for (AnnotationFS each : cas.getAnnotationIndex(type)) {
+      result.add(each.getBegin() + "-" + each.getEnd() + ":" + each.getCoveredText());
+    }
+    return result;
+  }
+
+  private String createText(Random random, int words) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        result.append(SEPARATORS.get(random.nextInt(SEPARATORS.size())));
+      }
+      result.append(WORDS.get(random.nextInt(WORDS.size())));
+    }
+    return result.toString();
+  }
+
+}
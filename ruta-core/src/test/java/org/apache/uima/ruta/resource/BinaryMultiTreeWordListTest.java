@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+public class BinaryMultiTreeWordListTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSameResultsAsXml() throws Exception {
+    MultiTreeWordList xml = new MultiTreeWordList(
+            new ClassPathResource("org/apache/uima/ruta/action/trie.mtwl"));
+    File file = folder.newFile("trie" + MultiTreeWordList.BINARY_FILE_ENDING);
+    xml.createBinaryMTWLFile(file.getAbsolutePath());
+    MultiTreeWordList binary = new MultiTreeWordList(new FileSystemResource(file));
+
+    Assert.assertEquals(new HashSet<String>(xml.keySet()), new HashSet<String>(binary.keySet()));
+    Assert.assertEquals(new HashSet<String>(xml.getTypes()),
+            new HashSet<String>(binary.getTypes()));
+    for (String each : xml.keySet()) {
+      Assert.assertEquals(each, new HashSet<String>(xml.getTypes(each)),
+              new HashSet<String>(binary.getTypes(each)));
+      Assert.assertEquals(each, new HashSet<String>(xml.getTypes(each.toUpperCase(), true)),
+              new HashSet<String>(binary.getTypes(each.toUpperCase(), true)));
+      Assert.assertTrue(binary.contains(each));
+    }
+    char[] ignoreChars = new char[] { ':' };
+    for (String each : Arrays.asList("Peter", "peter", "Pete", "Peter Kluegl", "Kluegl:",
+            "Marshal")) {
+      Assert.assertEquals(each, xml.contains(each, true, 4, ignoreChars, 1, false),
+              binary.contains(each, true, 4, ignoreChars, 1, false));
+      Assert.assertEquals(each, xml.containsFragment(each, false, 0, ignoreChars, 1, false),
+              binary.containsFragment(each, false, 0, ignoreChars, 1, false));
+      Assert.assertEquals(each, xml.editDistance(each, 1), binary.editDistance(each, 1));
+    }
+  }
+
+  @Test
+  public void testCombinedWithOtherLists() throws Exception {
+    File binaryFile = folder.newFile("names" + MultiTreeWordList.BINARY_FILE_ENDING);
+    MultiTreeWordList names = new MultiTreeWordList();
+    names.addWord("Peter", "FirstNames.txt");
+    names.addWord("Kluegl", "LastNames.txt");
+    names.createBinaryMTWLFile(binaryFile.getAbsolutePath());
+    File textFile = folder.newFile("Systems.txt");
+    FileUtils.writeLines(textFile, "UTF-8", Arrays.asList("Ruta", "Peter"));
+
+    MultiTreeWordList list = new MultiTreeWordList(new FileSystemResource(binaryFile),
+            new FileSystemResource(textFile));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("FirstNames.txt", "Systems.txt")),
+            new HashSet<String>(list.getTypes("Peter")));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("LastNames.txt")),
+            new HashSet<String>(list.getTypes("Kluegl")));
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("Systems.txt")),
+            new HashSet<String>(list.getTypes("Ruta")));
+
+    MultiTreeWordList single = new MultiTreeWordList(new FileSystemResource(binaryFile));
+    single.addWord("Marshall", "FirstNames.txt");
+    Assert.assertTrue(single.contains("Marshall"));
+    Assert.assertTrue(single.contains("Kluegl"));
+    Assert.assertFalse(new MultiTreeWordList(new FileSystemResource(binaryFile))
+            .contains("Marshall"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidFormat() throws Exception {
+    new MultiTreeWordListPersistence().readBinaryMTWL(
+            ByteBuffer.wrap("<?xml version=\"1.0\" ?><root></root>".getBytes("UTF-8")),
+            "invalid");
+  }
+
+}
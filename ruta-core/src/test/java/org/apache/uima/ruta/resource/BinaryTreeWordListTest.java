@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+
+public class BinaryTreeWordListTest {
+
+  private static final List<String> WORDS = Arrays.asList("Peter Kluegl", "Peter", "Marshall",
+          "Joern Kottmann", "UIMA", "Ruta", "e.g.");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSameResultsAsTreeWordList() throws Exception {
+    TreeWordList tree = new TreeWordList(WORDS, false);
+    File file = folder.newFile("names" + BinaryTreeWordList.FILE_ENDING);
+    tree.createBinaryTWLFile(file.getAbsolutePath());
+    BinaryTreeWordList binary = new BinaryTreeWordList(new FileSystemResource(file));
+
+    Assert.assertEquals("names.btwl", binary.toString());
+    char[] ignoreChars = new char[] { '-', '.' };
+    for (String each : Arrays.asList("Peter", "Pete", "peter", "PETER", "Peter Kluegl",
+            "PeterKluegl", "Peter  Kluegl", "Peter-Kluegl", "Ma-rshall", "Ruta", "Rutas", "e.g.",
+            "eg", "", "x")) {
+      for (boolean ignoreCase : new boolean[] { false, true }) {
+        for (boolean ignoreWS : new boolean[] { false, true }) {
+          Assert.assertEquals(each, tree.contains(each, ignoreCase, 0, null, 0, ignoreWS),
+                  binary.contains(each, ignoreCase, 0, null, 0, ignoreWS));
+          Assert.assertEquals(each, tree.contains(each, ignoreCase, 0, ignoreChars, 1, ignoreWS),
+                  binary.contains(each, ignoreCase, 0, ignoreChars, 1, ignoreWS));
+          Assert.assertEquals(each, tree.containsFragment(each, ignoreCase, 0, null, 0, ignoreWS),
+                  binary.containsFragment(each, ignoreCase, 0, null, 0, ignoreWS));
+        }
+      }
+    }
+    Assert.assertTrue(binary.contains("UIMA", false, 0, null, 0, false));
+    Assert.assertFalse(binary.contains("uima", false, 0, null, 0, false));
+    Assert.assertTrue(binary.contains("uima", true, 0, null, 0, false));
+    Assert.assertFalse(binary.contains(null, false, 0, null, 0, false));
+  }
+
+  @Test
+  public void testBuffer() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryTreeWordList.write(new TreeWordList(WORDS, false).getRoot(), out);
+    BinaryTreeWordList binary = new BinaryTreeWordList(ByteBuffer.wrap(out.toByteArray()), "local");
+    Assert.assertTrue(binary.contains("Joern Kottmann", false, 0, null, 0, false));
+    Assert.assertTrue(binary.containsFragment("Joern Ko", false, 0, null, 0, false));
+    Assert.assertFalse(binary.contains("Joern", false, 0, null, 0, false));
+
+    BinaryTreeWordList empty = writeAndRead(new TreeWordList((List<String>) null, false));
+    Assert.assertEquals(1, empty.getNodeCount());
+    Assert.assertFalse(empty.contains("Peter", false, 0, null, 0, false));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidFormat() throws Exception {
+    new BinaryTreeWordList(ByteBuffer.wrap("<root></root>".getBytes("UTF-8")), "invalid");
+  }
+
+  @Test
+  public void testMarkFast() throws Exception {
+    File file = folder.newFile("names" + BinaryTreeWordList.FILE_ENDING);
+    new TreeWordList(WORDS, false).createBinaryTWLFile(file.getAbsolutePath());
+
+    String document = "Peter Kluegl and Joern Kottmann work on UIMA Ruta.";
+    String script = "WORDLIST list = 'names.btwl';\n";
+    script += "MARKFAST(T1, list, false, 0, true);\n";
+    script += "MARKFAST(T2, list, true, 0, true);\n";
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_RESOURCE_PATHS,
+            new String[] { folder.getRoot().getAbsolutePath() });
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script, parameters);
+
+    RutaTestUtils.assertAnnotationsEquals(cas, 1, 4, "Peter Kluegl", "Joern Kottmann", "UIMA",
+            "Ruta");
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 4, "Peter Kluegl", "Joern Kottmann", "UIMA",
+            "Ruta");
+
+    cas.release();
+  }
+
+  private BinaryTreeWordList writeAndRead(TreeWordList list) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryTreeWordList.write(list.getRoot(), out);
+    return new BinaryTreeWordList(ByteBuffer.wrap(out.toByteArray()), list.toString());
+  }
+
+}
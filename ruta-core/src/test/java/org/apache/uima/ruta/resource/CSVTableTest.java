@@ -21,13 +21,24 @@ package org.apache.uima.ruta.resource;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
 
 public class CSVTableTest {
   private static final String CUSTOM_SEPARATOR = "#|#";
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Test
   public void testDefaultLookup() throws IOException {
     CSVTable csvTable = new CSVTable(CSVTable.class.getResourceAsStream("test_csvfile.csv"),
@@ -68,6 +79,58 @@ public class CSVTableTest {
     checkValue(csvTable, 4, 2, "AFTER_EMPTY_COLUMN2");
   }
 
+  @Test
+  public void testRowWhere() throws IOException {
+    String content = "Bill Clinton;democrats;1993\nGeorge W. Bush;republicans;2001\n"
+            + "Barack Obama;democrats;2009\nbarack obama;unknown\nGeorgeW.Bush;republicans;2005";
+    CSVTable csvTable = new CSVTable(new ByteArrayInputStream(content.getBytes("UTF-8")),
+            CSVTable.DEFAULT_CSV_SEPARATOR);
+    Assert.assertEquals(Arrays.asList("Barack Obama", "democrats", "2009"),
+            csvTable.getRowWhere(0, "Barack Obama", false));
+    Assert.assertEquals(Arrays.asList("barack obama", "unknown"),
+            csvTable.getRowWhere(0, "barack obama", false));
+    // the first matching row is returned
+    Assert.assertEquals(Arrays.asList("Barack Obama", "democrats", "2009"),
+            csvTable.getRowWhere(0, "BARACK OBAMA", true));
+    Assert.assertEquals(Arrays.asList("Bill Clinton", "democrats", "1993"),
+            csvTable.getRowWhere(1, "democrats", false));
+    // whitespaces of the entries are ignored if there is no exact match
+    Assert.assertEquals(Arrays.asList("Bill Clinton", "democrats", "1993"),
+            csvTable.getRowWhere(0, "BillClinton", false));
+    Assert.assertEquals(Arrays.asList("GeorgeW.Bush", "republicans", "2005"),
+            csvTable.getRowWhere(0, "GeorgeW.Bush", false));
+    Assert.assertEquals(Arrays.asList("GeorgeW.Bush", "republicans", "2005"),
+            csvTable.getRowWhere(0, "georgew.bush", true));
+    Assert.assertEquals(Arrays.asList("Bill Clinton", "democrats", "1993"),
+            csvTable.getRowWhere(0, "billclinton", true));
+    Assert.assertEquals(Collections.emptyList(), csvTable.getRowWhere(0, "Obama", true));
+    Assert.assertEquals(Collections.emptyList(), csvTable.getRowWhere(5, "Obama", true));
+    Assert.assertEquals(2, csvTable.getRowWhere(2, "", false).size());
+  }
+
+  @Test
+  public void testBinaryTable() throws IOException {
+    CSVTable csvTable = new CSVTable(CSVTable.class.getResourceAsStream("test_csvfile.csv"),
+            CSVTable.DEFAULT_CSV_SEPARATOR);
+    File file = folder.newFile("test" + CSVTable.BINARY_FILE_ENDING);
+    csvTable.createBinaryFile(file.getAbsolutePath());
+    CSVTable binaryTable = new CSVTable(new FileSystemResource(file),
+            CSVTable.DEFAULT_CSV_SEPARATOR);
+    for (int row = 0; row < 5; row++) {
+      Assert.assertEquals(csvTable.getRowWhere(0, csvTable.getEntry(row, 0), false),
+              binaryTable.getRowWhere(0, binaryTable.getEntry(row, 0), false));
+    }
+    checkValue(binaryTable, 3, 1, " ");
+    checkValue(binaryTable, 3, 2, "AFTER_EMPTY_COLUMN");
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testMissingEntry() throws IOException {
+    CSVTable csvTable = new CSVTable(CSVTable.class.getResourceAsStream("test_csvfile.csv"),
+            CSVTable.DEFAULT_CSV_SEPARATOR);
+    csvTable.getEntry(0, 2);
+  }
+
   private void checkValue(CSVTable table, int row, int column, String expectedValue) {
     String actualValue = table.getEntry(row, column);
     assertThat(actualValue, is(expectedValue));
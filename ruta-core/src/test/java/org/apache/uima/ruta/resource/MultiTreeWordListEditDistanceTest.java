@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.resource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+public class MultiTreeWordListEditDistanceTest {
+
+  private static final String IGNORE_TOKEN = "-.";
+
+  @Test
+  public void testEditDistance() throws Exception {
+    MultiTreeWordList list = new MultiTreeWordList();
+    list.addWord("Peter", "FirstNames.txt");
+    list.addWord("Petra", "FirstNames.txt");
+    list.addWord("Kluegl", "LastNames.txt");
+    list.addWord("Peter-Kluegl", "Names.txt");
+
+    Assert.assertEquals(Arrays.asList("Peter"), sorted(list.editDistance("Peter", 0).keySet()));
+    Assert.assertEquals(Arrays.asList("Peter", "Petra"),
+            sorted(list.editDistance("Petr", 1).keySet()));
+    Assert.assertEquals(Arrays.asList("Petra"), sorted(list.editDistance("petra", 0, true, "")
+            .keySet()));
+    Assert.assertEquals(Arrays.asList("Peter-Kluegl"),
+            sorted(list.editDistance("PeterKluegl", 0, false, "-").keySet()));
+    Assert.assertTrue(list.editDistance("Peterx", 0).isEmpty());
+    Assert.assertTrue(list.editDistance("Peter", -1).isEmpty());
+  }
+
+  @Test
+  public void testSameResultsAsCostMapSearch() throws Exception {
+    MultiTreeWordList list = new MultiTreeWordList(
+            new ClassPathResource("org/apache/uima/ruta/action/trie.mtwl"));
+    list.addWord("Peter-Kluegl", "Names.txt");
+    list.addWord("U.I.M.A.", "Systems.txt");
+    Random random = new Random(42);
+    for (String each : list.keySet()) {
+      assertSameResults(list, each);
+      assertSameResults(list, mutate(each, random));
+      assertSameResults(list, mutate(mutate(each, random), random));
+    }
+    for (String each : Arrays.asList("", "P", "xPeter", "Peterx", "PETER", "UIMA", "PeterKluegl")) {
+      assertSameResults(list, each);
+    }
+  }
+
+  private void assertSameResults(MultiTreeWordList list, String query) {
+    for (int distance = 0; distance <= 2; distance++) {
+      for (boolean ignoreCase : new boolean[] { false, true }) {
+        for (boolean fragment : new boolean[] { false, true }) {
+          for (String ignoreToken : new String[] { "", IGNORE_TOKEN }) {
+            EditDistanceCostMap costMap = new EditDistanceCostMap();
+            for (char c : ignoreToken.toCharArray()) {
+              costMap.setInsertCosts(c, 0.0);
+            }
+            Map<String, Set<String>> expected = list.editDistance(query, distance, ignoreCase,
+                    fragment, costMap);
+            Map<String, Set<String>> actual = list.editDistance(query, distance, ignoreCase,
+                    ignoreToken, fragment);
+            Assert.assertEquals(query + " " + distance + " " + ignoreCase + " " + fragment + " "
+                    + ignoreToken, expected, actual);
+          }
+        }
+      }
+    }
+  }
+
+  private String mutate(String s, Random random) {
+    StringBuilder sb = new StringBuilder(s);
+    int index = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+    char c = "aeKr.-X".charAt(random.nextInt(7));
+    switch (random.nextInt(3)) {
+      case 0:
+        sb.insert(index, c);
+        break;
+      case 1:
+        if (sb.length() > 0) {
+          sb.deleteCharAt(index);
+        }
+        break;
+      default:
+        if (sb.length() > 0) {
+          sb.setCharAt(index, c);
+        }
+    }
+    return sb.toString();
+  }
+
+  private List<String> sorted(Set<String> set) {
+    String[] result = set.toArray(new String[set.size()]);
+    Arrays.sort(result);
+    return Arrays.asList(result);
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.uima.ruta.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.ruta.engine.Ruta;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.engine.RutaTestUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+public class SharedResourceCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static final SharedResourceCache.Loader<TreeWordList> LOADER;
+
+  static {
+    LOADER = new SharedResourceCache.Loader<TreeWordList>() {
+      @Override
+      public TreeWordList load(Resource resource) throws IOException {
+        return new TreeWordList(resource, false);
+      }
+    };
+  }
+
+  @Test
+  public void testSharedAndReloaded() throws Exception {
+    SharedResourceCache cache = new SharedResourceCache();
+    File file = folder.newFile("names.txt");
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter", "Marshall"));
+    Resource resource = new FileSystemResource(file);
+
+    TreeWordList first = cache.get(resource, "twl", LOADER);
+    Assert.assertSame(first, cache.get(new FileSystemResource(file), "twl", LOADER));
+    TreeWordList other = cache.get(resource, "other", LOADER);
+    Assert.assertNotSame(first, other);
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(0, cache.getReloadCount());
+    Assert.assertEquals(2 * file.length(), cache.getRetainedBytes());
+
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter", "Marshall", "Joern"));
+    file.setLastModified(file.lastModified() + 2000);
+    TreeWordList second = cache.get(resource, "twl", LOADER);
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(1, cache.getReloadCount());
+    Assert.assertFalse(first.contains("Joern", false, 0, null, 0, false));
+    Assert.assertTrue(second.contains("Joern", false, 0, null, 0, false));
+    Assert.assertSame(second, cache.get(resource, "twl", LOADER));
+    Assert.assertTrue(other.contains("Peter", false, 0, null, 0, false));
+
+    cache.clear();
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(0, cache.getHitCount());
+  }
+
+  @Test
+  public void testReloadedAfterRelease() throws Exception {
+    SharedResourceCache cache = new SharedResourceCache();
+    File file = folder.newFile("released.txt");
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter", "Marshall"));
+    Resource resource = new FileSystemResource(file);
+
+    final int[] loads = new int[1];
+    SharedResourceCache.Loader<TreeWordList> loader = new SharedResourceCache.Loader<TreeWordList>() {
+      @Override
+      public TreeWordList load(Resource resource) throws IOException {
+        loads[0]++;
+        return LOADER.load(resource);
+      }
+    };
+    WeakReference<TreeWordList> released = new WeakReference<TreeWordList>(cache.get(resource,
+            "twl", loader));
+    for (int i = 0; i < 20 && released.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assume.assumeTrue(released.get() == null);
+
+    TreeWordList first = cache.get(resource, "twl", loader);
+    TreeWordList second = cache.get(resource, "twl", loader);
+    Assert.assertSame(first, second);
+    Assert.assertEquals(2, loads[0]);
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testEnginesShareWordLists() throws Exception {
+    File file = folder.newFile("shared.txt");
+    FileUtils.writeLines(file, "UTF-8", Arrays.asList("Peter", "UIMA Ruta"));
+    SharedResourceCache cache = SharedResourceCache.getInstance();
+    long misses = cache.getMissCount();
+    long hits = cache.getHitCount();
+
+    String script = "WORDLIST list = 'shared.txt';\n";
+    script += "MARKFAST(T1, list, false, 0, true);\n";
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put(RutaEngine.PARAM_RESOURCE_PATHS,
+            new String[] { folder.getRoot().getAbsolutePath() });
+    parameters.put(RutaEngine.PARAM_SHARE_RESOURCES, true);
+    for (int i = 0; i < 2; i++) {
+      CAS cas = RutaTestUtils.getCAS("Peter works on UIMA Ruta.");
+      Ruta.apply(cas, script, parameters);
+      RutaTestUtils.assertAnnotationsEquals(cas, 1, 2, "Peter", "UIMA Ruta");
+      cas.release();
+    }
+    // the second engine may reuse the list unless it was collected in the meantime
+    Assert.assertEquals(2, cache.getMissCount() - misses + cache.getHitCount() - hits);
+    Assert.assertTrue(cache.getMissCount() - misses >= 1);
+  }
+
+}
@@ -148,6 +148,21 @@ public class RegExpRuleTest {
     RutaTestUtils.assertAnnotationsEquals(cas, 2, 2, "concept", "a");
   }
 
+  @Test
+  public void testBoundariesOfWindow() throws Exception {
+    String document = "First line. Second part";
+    String script = "\"Second part\" -> T1;\n";
+    script += "BLOCK(window) T1 {} {\"^\\\\w+\" -> T2; \"(?<=\\\\. )\\\\w+\" -> T3; \"\\\\w+$\" -> T4;}\n";
+    script += "STRING s = \"\\\\w+\";\n";
+    script += "BLOCK(window) T1 {} {s -> T5;}\n";
+    CAS cas = RutaTestUtils.getCAS(document);
+    Ruta.apply(cas, script);
+    RutaTestUtils.assertAnnotationsEquals(cas, 2, 1, "Second");
+    RutaTestUtils.assertAnnotationsEquals(cas, 3, 0);
+    RutaTestUtils.assertAnnotationsEquals(cas, 4, 1, "part");
+    RutaTestUtils.assertAnnotationsEquals(cas, 5, 2, "Second", "part");
+  }
+
   @Test
   public void testPartitioningInSequentialMatching() throws Exception {
     String document = "11\n11ab\n1122\n11";
@@ -108,6 +108,23 @@ public class DefaultSeederTest {
     cas.release();
   }
 
+  @Test
+  public void testReuseForSeveralDocuments() throws Exception {
+    DefaultSeeder seeder = new DefaultSeeder();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      sb.append("Some <b>long</b> text. ");
+    }
+    String[] documents = new String[] { sb.toString(), "Short <i>text</i>.", "" };
+    int[] expected = new int[] { 18000, 6, 0 };
+    for (int i = 0; i < documents.length; i++) {
+      CAS cas = RutaTestUtils.getCAS(documents[i]);
+      Type type = seeder.seed(documents[i], cas);
+      Assert.assertEquals(expected[i], cas.getAnnotationIndex(type).size());
+      cas.release();
+    }
+  }
+
   @Test
   public void testMarkup() throws Exception {
     String document = "<xref ref-type=\"bibr\" rid=\"b35-ehp0113-000220\">"
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.utils;
+
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternCacheTest {
+
+  @Test
+  public void testHitsAndEviction() {
+    PatternCache cache = new PatternCache(2);
+    Pattern first = cache.getPattern("a+", 0);
+    Assert.assertSame(first, cache.getPattern("a+", 0));
+    Assert.assertNotSame(first, cache.getPattern("a+", Pattern.CASE_INSENSITIVE));
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(2, cache.getMisses());
+
+    cache.getPattern("a+", 0);
+    cache.getPattern("b+", 0);
+    Assert.assertEquals(2, cache.size());
+    // the case insensitive pattern was used least recently
+    cache.getPattern("a+", 0);
+    Assert.assertEquals(3, cache.getHits());
+    cache.getPattern("a+", Pattern.CASE_INSENSITIVE);
+    Assert.assertEquals(4, cache.getMisses());
+
+    cache.clear();
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(0, cache.getHits());
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.visitor;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.type.DebugBlockApply;
+import org.apache.uima.ruta.type.DebugRuleApply;
+import org.apache.uima.ruta.type.DebugScriptApply;
+import org.apache.uima.ruta.type.TruePositive;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DebugInfoCollectorVisitorTest {
+
+  private static final String RULES = "SW{-> MARK(TruePositive)}; CW{-> MARK(FalsePositive)};";
+
+  private static final String TEXT = "A b C d e. Some more words.";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSampledDocumentsAndLimitedMatches() throws Exception {
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_DEBUG, true,
+            RutaEngine.PARAM_DEBUG_WITH_MATCHES, true, RutaEngine.PARAM_DEBUG_SAMPLE_RATE, 2,
+            RutaEngine.PARAM_DEBUG_MAX_MATCHES, 2);
+    JCas jcas = ae.newJCas();
+    for (int i = 0; i < 3; i++) {
+      jcas.reset();
+      jcas.setDocumentText(TEXT);
+      ae.process(jcas);
+      // the matches are limited only in the debug information
+      Assert.assertEquals(5, JCasUtil.select(jcas, TruePositive.class).size());
+      Collection<DebugScriptApply> debug = JCasUtil.select(jcas, DebugScriptApply.class);
+      if (i % 2 == 1) {
+        Assert.assertTrue(debug.isEmpty());
+        continue;
+      }
+      Assert.assertEquals(1, debug.size());
+      List<DebugRuleApply> ruleApplies = getRuleApplies(debug.iterator().next());
+      Assert.assertEquals(2, ruleApplies.size());
+      Assert.assertEquals(5, ruleApplies.get(0).getTried());
+      Assert.assertEquals(5, ruleApplies.get(0).getApplied());
+      Assert.assertEquals(2, ruleApplies.get(0).getRules().size());
+      Assert.assertEquals(3, ruleApplies.get(1).getTried());
+      Assert.assertEquals(2, ruleApplies.get(1).getRules().size());
+    }
+    ae.destroy();
+  }
+
+  @Test
+  public void testMatchesOnlyForRules() throws Exception {
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_DEBUG, true,
+            RutaEngine.PARAM_DEBUG_WITH_MATCHES, true);
+    JCas jcas = ae.newJCas();
+    jcas.setDocumentText(TEXT);
+    ae.process(jcas);
+    List<DebugRuleApply> ruleApplies = getRuleApplies(
+            JCasUtil.selectSingle(jcas, DebugScriptApply.class));
+    String id = String.valueOf(ruleApplies.get(1).getId());
+    ae.destroy();
+
+    ae = AnalysisEngineFactory.createEngine(RutaEngine.class, RutaEngine.PARAM_RULES, RULES,
+            RutaEngine.PARAM_DEBUG, true, RutaEngine.PARAM_DEBUG_WITH_MATCHES, true,
+            RutaEngine.PARAM_DEBUG_ONLY_FOR, new String[] { id });
+    jcas.reset();
+    jcas.setDocumentText(TEXT);
+    ae.process(jcas);
+    ruleApplies = getRuleApplies(JCasUtil.selectSingle(jcas, DebugScriptApply.class));
+    Assert.assertEquals(5, ruleApplies.get(0).getTried());
+    Assert.assertEquals(0, ruleApplies.get(0).getRules().size());
+    Assert.assertEquals(3, ruleApplies.get(1).getRules().size());
+    ae.destroy();
+  }
+
+  @Test
+  public void testDebugOutput() throws Exception {
+    File output = new File(folder.getRoot(), "debug.tsv");
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_DEBUG, true,
+            RutaEngine.PARAM_DEBUG_WITH_MATCHES, true, RutaEngine.PARAM_DEBUG_SAMPLE_RATE, 2,
+            RutaEngine.PARAM_DEBUG_MAX_MATCHES, 4, RutaEngine.PARAM_DEBUG_OUTPUT,
+            output.getAbsolutePath());
+    JCas jcas = ae.newJCas();
+    for (int i = 0; i < 3; i++) {
+      jcas.reset();
+      jcas.setDocumentText(TEXT);
+      ae.process(jcas);
+      Assert.assertTrue(JCasUtil.select(jcas, DebugScriptApply.class).isEmpty());
+    }
+    ae.collectionProcessComplete();
+    ae.destroy();
+
+    List<String> documents = new ArrayList<String>();
+    List<String> rules = new ArrayList<String>();
+    int matches = 0;
+    for (String each : FileUtils.readLines(output, "UTF-8")) {
+      String[] split = each.split("\t");
+      if (split[0].equals("DOCUMENT")) {
+        documents.add(split[1]);
+      } else if (split[0].equals("RULE")) {
+        Assert.assertEquals(each, 8, split.length);
+        rules.add(split[1] + " " + split[2] + " " + split[3]);
+      } else if (split[0].equals("MATCH")) {
+        Assert.assertEquals(each, 5, split.length);
+        Assert.assertTrue(each, Integer.parseInt(split[3]) < Integer.parseInt(split[4]));
+        matches++;
+      } else {
+        Assert.assertEquals(each, "BLOCK", split[0]);
+      }
+    }
+    Assert.assertEquals(2, documents.size());
+    Assert.assertEquals("0", documents.get(0));
+    Assert.assertEquals("2", documents.get(1));
+    Assert.assertEquals(4, rules.size());
+    Assert.assertEquals("1 5 5", rules.get(0));
+    Assert.assertEquals("1 3 3", rules.get(1));
+    Assert.assertEquals(2 * (4 + 3), matches);
+  }
+
+  @Test
+  public void testSharedDebugOutput() throws Exception {
+    File output = new File(folder.getRoot(), "shared.tsv");
+    AnalysisEngine first = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_DEBUG, true,
+            RutaEngine.PARAM_DEBUG_OUTPUT, output.getAbsolutePath());
+    AnalysisEngine second = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, RULES, RutaEngine.PARAM_DEBUG, true,
+            RutaEngine.PARAM_DEBUG_OUTPUT, output.getAbsolutePath());
+    JCas jcas = first.newJCas();
+    jcas.setDocumentText(TEXT);
+    first.process(jcas);
+    jcas.reset();
+    jcas.setDocumentText(TEXT);
+    second.process(jcas);
+    first.collectionProcessComplete();
+    jcas.reset();
+    jcas.setDocumentText(TEXT);
+    second.process(jcas);
+    second.collectionProcessComplete();
+    // the engine is used again and appends its records
+    jcas.reset();
+    jcas.setDocumentText(TEXT);
+    first.process(jcas);
+    first.collectionProcessComplete();
+    first.destroy();
+    second.destroy();
+
+    List<String> documents = new ArrayList<String>();
+    for (String each : FileUtils.readLines(output, "UTF-8")) {
+      String[] split = each.split("\t");
+      if (split[0].equals("DOCUMENT")) {
+        Assert.assertEquals(each, 3, split.length);
+        documents.add(split[1] + " " + split[2]);
+      }
+    }
+    Assert.assertEquals(4, documents.size());
+    String firstEngine = documents.get(0).split(" ")[1];
+    String secondEngine = documents.get(1).split(" ")[1];
+    Assert.assertNotEquals(firstEngine, secondEngine);
+    Assert.assertEquals("0 " + firstEngine, documents.get(0));
+    Assert.assertEquals("0 " + secondEngine, documents.get(1));
+    Assert.assertEquals("1 " + secondEngine, documents.get(2));
+    Assert.assertEquals("1 " + firstEngine, documents.get(3));
+  }
+
+  private List<DebugRuleApply> getRuleApplies(DebugScriptApply root) {
+    List<DebugRuleApply> result = new ArrayList<DebugRuleApply>();
+    if (root instanceof DebugBlockApply) {
+      DebugBlockApply block = (DebugBlockApply) root;
+      for (int i = 0; i < block.getInnerApply().size(); i++) {
+        result.addAll(getRuleApplies((DebugScriptApply) block.getInnerApply(i)));
+      }
+    } else if (root instanceof DebugRuleApply) {
+      result.add((DebugRuleApply) root);
+    }
+    return result;
+  }
+
+}
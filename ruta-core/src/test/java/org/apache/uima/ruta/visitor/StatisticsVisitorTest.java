@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.visitor;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.type.Statistics;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StatisticsVisitorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAggregatedStatistics() throws Exception {
+    File output = new File(folder.getRoot(), "statistics.tsv");
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, "CW{-> MARK(TruePositive)}; SW{REGEXP(\"b.*\")} CW;",
+            RutaEngine.PARAM_STATISTICS, true, RutaEngine.PARAM_STATISTICS_OUTPUT,
+            output.getAbsolutePath());
+    JCas jcas = ae.newJCas();
+    Map<String, Integer> amounts = null;
+    for (int i = 0; i < 3; i++) {
+      jcas.reset();
+      jcas.setDocumentText("A b C d. Some more words.");
+      ae.process(jcas);
+      // each document only contains its own statistics
+      Statistics statistics = JCasUtil.selectSingle(jcas, Statistics.class);
+      Map<String, Integer> documentAmounts = new HashMap<String, Integer>();
+      for (int j = 0; j < statistics.getName().size(); j++) {
+        documentAmounts.put(statistics.getName(j), statistics.getAmount(j));
+      }
+      if (amounts != null) {
+        Assert.assertEquals(amounts, documentAmounts);
+      }
+      amounts = documentAmounts;
+    }
+    ae.collectionProcessComplete();
+    ae.destroy();
+
+    Assert.assertTrue(amounts.get("REGEXP") > 0);
+    Assert.assertTrue(amounts.get("MARK") > 0);
+    List<String> lines = FileUtils.readLines(output, "UTF-8");
+    Assert.assertEquals("name\tamount\ttotal\tpart", lines.get(0));
+    Assert.assertEquals(amounts.size() + 1, lines.size());
+    for (String each : lines.subList(1, lines.size())) {
+      String[] split = each.split("\t");
+      Assert.assertEquals(each, 4, split.length);
+      Assert.assertEquals(each, amounts.get(split[0]) * 3, Integer.parseInt(split[1]));
+      Assert.assertTrue(each, Double.parseDouble(split[2]) >= Double.parseDouble(split[3]));
+    }
+  }
+
+  @Test
+  public void testFailedDocument() throws Exception {
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES,
+            "STRING p; ANY{-> MATCHEDTEXT(p)}; Document{REGEXP(p)};",
+            RutaEngine.PARAM_STATISTICS, true);
+    JCas jcas = ae.newJCas();
+    // the last character is an invalid regular expression
+    jcas.setDocumentText("A b (");
+    try {
+      ae.process(jcas);
+      Assert.fail();
+    } catch (AnalysisEngineProcessException e) {
+      // expected
+    }
+    for (int i = 0; i < 3; i++) {
+      jcas.reset();
+      jcas.setDocumentText("A b x");
+      ae.process(jcas);
+      Statistics statistics = JCasUtil.selectSingle(jcas, Statistics.class);
+      Map<String, Integer> amounts = new HashMap<String, Integer>();
+      for (int j = 0; j < statistics.getName().size(); j++) {
+        amounts.put(statistics.getName(j), statistics.getAmount(j));
+      }
+      Assert.assertEquals(Integer.valueOf(1), amounts.get("REGEXP"));
+      Assert.assertEquals(Integer.valueOf(3), amounts.get("MATCHEDTEXT"));
+    }
+    ae.destroy();
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.uima.ruta.visitor;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.factory.AnalysisEngineFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.ruta.RutaElement;
+import org.apache.uima.ruta.engine.RutaEngine;
+import org.apache.uima.ruta.visitor.TimeProfilerVisitor.ElementProfile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TimeProfilerVisitorTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testNestedAndRepeatedVisits() throws Exception {
+    RutaElement block = new RutaElement();
+    RutaElement rule = new RutaElement();
+    RutaElement condition = new RutaElement();
+    TimeProfilerVisitor profiler = new TimeProfilerVisitor();
+
+    for (int document = 0; document < 2; document++) {
+      profiler.beginVisit(block, null);
+      for (int i = 0; i < 3; i++) {
+        profiler.beginVisit(rule, null);
+        profiler.beginVisit(condition, null);
+        profiler.endVisit(condition, null);
+        // recursive execution
+        profiler.beginVisit(block, null);
+        profiler.endVisit(block, null);
+        profiler.endVisit(rule, null);
+      }
+      profiler.endVisit(block, null);
+      profiler.finished(null, null);
+    }
+
+    Map<RutaElement, ElementProfile> profiles = profiler.getElementProfiles();
+    Assert.assertEquals(8, profiles.get(block).getCount());
+    Assert.assertEquals(6, profiles.get(rule).getCount());
+    Assert.assertEquals(6, profiles.get(condition).getCount());
+    ElementProfile blockProfile = profiles.get(block);
+    Assert.assertTrue(blockProfile.getTotalTime() >= profiles.get(rule).getTotalTime());
+    Assert.assertTrue(blockProfile.getSelfTime() <= blockProfile.getTotalTime());
+    Assert.assertEquals(3, profiler.getTimeInfo().size());
+  }
+
+  @Test
+  public void testUnbalancedVisits() throws Exception {
+    RutaElement block = new RutaElement();
+    RutaElement rule = new RutaElement();
+    RutaElement condition = new RutaElement();
+    TimeProfilerVisitor profiler = new TimeProfilerVisitor();
+
+    // failed document
+    profiler.startDocument();
+    profiler.beginVisit(block, null);
+    profiler.beginVisit(rule, null);
+    profiler.beginVisit(condition, null);
+
+    profiler.startDocument();
+    profiler.beginVisit(block, null);
+    profiler.beginVisit(rule, null);
+    // missing end of the rule
+    profiler.endVisit(block, null);
+    profiler.beginVisit(block, null);
+    profiler.endVisit(block, null);
+    profiler.finished(null, null);
+
+    Map<RutaElement, ElementProfile> profiles = profiler.getElementProfiles();
+    Assert.assertEquals(2, profiles.get(block).getCount());
+    Assert.assertEquals(1, profiles.get(rule).getCount());
+    Assert.assertEquals(0, profiles.get(condition).getCount());
+    Map<RutaElement, Long> timeInfo = profiler.getTimeInfo();
+    Assert.assertEquals(2, timeInfo.size());
+    Assert.assertTrue(timeInfo.containsKey(block));
+    Assert.assertTrue(timeInfo.containsKey(rule));
+  }
+
+  @Test
+  public void testCollapsedStacks() throws Exception {
+    File output = new File(folder.getRoot(), "profile.txt");
+    AnalysisEngine ae = AnalysisEngineFactory.createEngine(RutaEngine.class,
+            RutaEngine.PARAM_RULES, "CW{-> TruePositive}; SW{REGEXP(\"b.*\")} CW;",
+            RutaEngine.PARAM_PROFILE_OUTPUT, output.getAbsolutePath());
+    JCas jcas = ae.newJCas();
+    for (int i = 0; i < 3; i++) {
+      jcas.reset();
+      jcas.setDocumentText("A b C d. Some more words.");
+      ae.process(jcas);
+    }
+    ae.collectionProcessComplete();
+    ae.destroy();
+
+    List<String> lines = FileUtils.readLines(output, "UTF-8");
+    Assert.assertFalse(lines.isEmpty());
+    boolean condition = false;
+    for (String each : lines) {
+      Assert.assertTrue(each, each.matches("[^;]+(;[^;]+)* \\d+"));
+      condition |= each.contains("REGEXP");
+    }
+    Assert.assertTrue(condition);
+  }
+
+}
@@ -75,6 +75,13 @@ public class RutaGenerateMTWLMojo extends AbstractMojo {
   @Parameter(defaultValue = "true", required = true)
   private boolean compress;
 
+  /**
+   * Create a memory-mappable binary multi tree word list instead of an XML file. The output file
+   * should end with .bmtwl. The options for compression and encoding are not applied.
+   */
+  @Parameter(defaultValue = "false", required = true)
+  private boolean binary;
+
   public void execute() throws MojoExecutionException, MojoFailureException {
     File parentFile = outputFile.getParentFile();
     if (!parentFile.exists()) {
@@ -107,7 +114,11 @@ public class RutaGenerateMTWLMojo extends AbstractMojo {
 
     if (trie != null) {
       try {
-        trie.createMTWLFile(outputFile.getAbsolutePath(), compress, encoding);
+        if (binary) {
+          trie.createBinaryMTWLFile(outputFile.getAbsolutePath());
+        } else {
+          trie.createMTWLFile(outputFile.getAbsolutePath(), compress, encoding);
+        }
         buildContext.refresh(outputFile);
       } catch (IOException e) {
         getLog().warn("Error writing MTWL file.", e);
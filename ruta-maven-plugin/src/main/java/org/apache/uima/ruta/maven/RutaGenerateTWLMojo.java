@@ -77,6 +77,13 @@ public class RutaGenerateTWLMojo extends AbstractMojo {
   @Parameter(defaultValue = "true", required = true)
   private boolean compress;
 
+  /**
+   * Create memory-mappable binary tree word lists (.btwl) instead of XML files. The options for
+   * compression and encoding are not applied to binary files.
+   */
+  @Parameter(defaultValue = "false", required = true)
+  private boolean binary;
+
   public void execute() throws MojoExecutionException, MojoFailureException {
     if (!outputDirectory.exists()) {
       outputDirectory.mkdirs();
@@ -111,7 +118,11 @@ public class RutaGenerateTWLMojo extends AbstractMojo {
       if (list != null) {
         try {
           outputFile.getParentFile().mkdirs();
-          list.createTWLFile(outputFile.getAbsolutePath(), compress, encoding);
+          if (binary) {
+            list.createBinaryTWLFile(outputFile.getAbsolutePath());
+          } else {
+            list.createTWLFile(outputFile.getAbsolutePath(), compress, encoding);
+          }
           buildContext.refresh(outputFile);
         } catch (IOException e) {
           getLog().warn("Error writing twl file.", e);
@@ -143,7 +154,8 @@ public class RutaGenerateTWLMojo extends AbstractMojo {
 
   private File getOutputFile(File inputFile, File inputDirectory, File outputDirectory) {
     String inputName = inputFile.getName();
-    String outputName = inputName.substring(0, inputName.length() - 3) + "twl";
+    String outputName = inputName.substring(0, inputName.length() - 3)
+            + (binary ? "btwl" : "twl");
     
     Path inputFilePath = inputFile.toPath();
     Path inputDirectoryPath = inputDirectory.toPath();